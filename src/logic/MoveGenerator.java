@@ -7,6 +7,7 @@ package logic;
 
 import java.awt.Point;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import model.Board;
@@ -16,6 +17,36 @@ import model.Board;
  * checker can make any move or skip.
  */
 public class MoveGenerator {
+	
+	/** The number of diagonal directions a checker can move in. The first two
+	 * directions move down the board and the last two move up the board. */
+	private static final int DIRECTIONS = 4;
+	
+	/** The maximum number of legal moves that can be available in a single
+	 * position (every tile occupied by a king with four moves). */
+	public static final int MAX_MOVES = 32 * 4;
+	
+	/** The index of the tile one step away from a tile in each direction, or
+	 * -1 if there is none, indexed by {@code direction * 32 + index}. */
+	private static final int[] STEPS = new int[DIRECTIONS * 32];
+	
+	/** The index of the tile two steps away from a tile in each direction, or
+	 * -1 if there is none, indexed by {@code direction * 32 + index}. */
+	private static final int[] JUMPS = new int[DIRECTIONS * 32];
+	
+	static {
+		
+		// Pre-compute the neighbours of each tile
+		final int[] dx = {1, -1, 1, -1}, dy = {1, 1, -1, -1};
+		for (int d = 0; d < DIRECTIONS; d ++) {
+			for (int i = 0; i < 32; i ++) {
+				Point p = Board.toPoint(i);
+				STEPS[d * 32 + i] = Board.toIndex(p.x + dx[d], p.y + dy[d]);
+				JUMPS[d * 32 + i] = Board.toIndex(
+						p.x + 2 * dx[d], p.y + 2 * dy[d]);
+			}
+		}
+	}
 
 	/**
 	 * Gets a list of move end-points for a given start index.
@@ -145,6 +176,392 @@ public class MoveGenerator {
 		return true;
 	}
 	
+	/**
+	 * Gets all the legal moves for one player and stores them in the array as
+	 * packed moves (see {@link #packMove(int, int)}). If any skip is available,
+	 * only skips are legal. If the skip index is valid, only moves from that
+	 * index are legal. No objects are allocated.
+	 * 
+	 * @param board		the board to look for legal moves.
+	 * @param isBlack	the flag indicating if it is the black player's turn.
+	 * @param skipIndex	the index of the last skip this turn, or -1.
+	 * @param moves		the array to store the packed moves in, which must
+	 * have a length of at least {@value #MAX_MOVES}.
+	 * @return the number of legal moves stored in the array.
+	 */
+	public static int getLegalMoves(Board board, boolean isBlack,
+			int skipIndex, int[] moves) {
+		
+		if (board == null) {
+			return 0;
+		}
+		
+		// Get the checkers that are allowed to move
+		int empty = board.getEmptyMask(), kings = board.getKingMask();
+		int all = isBlack? board.getBlackMask() : board.getWhiteMask();
+		int opponents = isBlack? board.getWhiteMask() : board.getBlackMask();
+		int pieces = all;
+		if (Board.isValidIndex(skipIndex)) {
+			pieces &= (1 << skipIndex);
+		}
+		
+		// Add the skips
+		int count = 0;
+		for (int m = pieces; m != 0; m &= m - 1) {
+			int i = Integer.numberOfTrailingZeros(m);
+			boolean isKing = (kings & (1 << i)) != 0;
+			int first = getFirstDirection(isBlack, isKing);
+			int last = getLastDirection(isBlack, isKing);
+			for (int d = first; d <= last; d ++) {
+				int mid = STEPS[d * 32 + i], end = JUMPS[d * 32 + i];
+				if (end >= 0 && (opponents & (1 << mid)) != 0 &&
+						(empty & (1 << end)) != 0) {
+					moves[count ++] = packMove(i, end);
+				}
+			}
+		}
+		
+		// Skips must be taken if available (by any checker)
+		if (count > 0 || (pieces != all && getSkipMask(board, isBlack) != 0)) {
+			return count;
+		}
+		
+		// Add the regular moves
+		for (int m = pieces; m != 0; m &= m - 1) {
+			int i = Integer.numberOfTrailingZeros(m);
+			boolean isKing = (kings & (1 << i)) != 0;
+			int first = getFirstDirection(isBlack, isKing);
+			int last = getLastDirection(isBlack, isKing);
+			for (int d = first; d <= last; d ++) {
+				int end = STEPS[d * 32 + i];
+				if (end >= 0 && (empty & (1 << end)) != 0) {
+					moves[count ++] = packMove(i, end);
+				}
+			}
+		}
+		
+		return count;
+	}
+	
+	/**
+	 * Gets every complete turn available to one player, encoded with
+	 * {@link MovePath}. If any skip is available, each turn is a full chain of
+	 * skips that ends when no more skips are available or when the checker
+	 * becomes a king. Otherwise, each turn is a single regular move.
+	 * 
+	 * @param board		the board to look for turns.
+	 * @param isBlack	the flag indicating if it is the black player's turn.
+	 * @param skipIndex	the index of the last skip this turn, or -1.
+	 * @return the encoded paths of the available turns.
+	 * @see {@link #getCapturePaths(Board, int)}
+	 */
+	public static long[] getTurns(Board board, boolean isBlack, int skipIndex) {
+		
+		if (board == null) {
+			return new long[0];
+		}
+		
+		// Get the legal first steps
+		int[] moves = new int[MAX_MOVES];
+		int n = getLegalMoves(board, isBlack, skipIndex, moves);
+		if (n == 0) {
+			return new long[0];
+		}
+		
+		// Regular moves are a single step
+		int first = moves[0];
+		if (Math.abs(getPackedStart(first) / 4 - getPackedEnd(first) / 4) == 1) {
+			long[] turns = new long[n];
+			for (int i = 0; i < n; i ++) {
+				turns[i] = MovePath.create(
+						getPackedStart(moves[i]), getPackedEnd(moves[i]));
+			}
+			return turns;
+		}
+		
+		// Expand each checker that can skip into its complete paths
+		PathList paths = new PathList();
+		int starts = 0;
+		for (int i = 0; i < n; i ++) {
+			int start = getPackedStart(moves[i]);
+			if ((starts & (1 << start)) == 0) {
+				starts |= (1 << start);
+				addCapturePaths(board, start, paths);
+			}
+		}
+		
+		return paths.toArray();
+	}
+	
+	/**
+	 * Gets every complete chain of skips that the checker at the specified
+	 * index can make, encoded with {@link MovePath}. A chain ends when no more
+	 * skips are available or when the checker becomes a king.
+	 * 
+	 * @param board			the board to look for skips.
+	 * @param startIndex	the index of the checker.
+	 * @return the encoded paths, or an empty array if the checker cannot skip.
+	 * @see {@link #getTurns(Board, boolean, int)}
+	 */
+	public static long[] getCapturePaths(Board board, int startIndex) {
+		PathList paths = new PathList();
+		addCapturePaths(board, startIndex, paths);
+		return paths.toArray();
+	}
+	
+	/**
+	 * Gets the largest number of skips that the checker at the specified index
+	 * can make in one turn.
+	 * 
+	 * @param board			the board to look for skips.
+	 * @param startIndex	the index of the checker.
+	 * @return the maximum number of skips, or 0 if the checker cannot skip.
+	 */
+	public static int getCaptureDepth(Board board, int startIndex) {
+		int depth = 0;
+		for (long path : getCapturePaths(board, startIndex)) {
+			depth = Math.max(depth, MovePath.getLength(path));
+		}
+		return depth;
+	}
+	
+	/**
+	 * Adds the complete chains of skips for a checker to the list of paths.
+	 * 
+	 * @param board			the board to look for skips.
+	 * @param startIndex	the index of the checker.
+	 * @param paths			the list to add the paths to.
+	 */
+	private static void addCapturePaths(Board board, int startIndex,
+			PathList paths) {
+		
+		// Trivial cases
+		if (board == null || !Board.isValidIndex(startIndex)) {
+			return;
+		}
+		int id = board.get(startIndex);
+		if (id == Board.EMPTY) {
+			return;
+		}
+		
+		// Start with a path that has no steps
+		boolean isBlack = Board.isBlackChecker(id);
+		int opponents = isBlack? board.getWhiteMask() : board.getBlackMask();
+		int empty = board.getEmptyMask();
+		addCapturePaths(startIndex, startIndex, Board.isKingChecker(id),
+				isBlack, opponents, empty, paths);
+	}
+	
+	/**
+	 * Recursively adds the chains of skips starting from a path that has
+	 * already been made.
+	 * 
+	 * @param path		the path made so far.
+	 * @param index		the current index of the checker.
+	 * @param isKing	the flag indicating if the checker is a king.
+	 * @param isBlack	the flag indicating if the checker is black.
+	 * @param opponents	the mask of the opponent's remaining checkers.
+	 * @param empty		the mask of empty tiles.
+	 * @param paths		the list to add the complete paths to.
+	 */
+	private static void addCapturePaths(long path, int index, boolean isKing,
+			boolean isBlack, int opponents, int empty, PathList paths) {
+		int first = getFirstDirection(isBlack, isKing);
+		int last = getLastDirection(isBlack, isKing);
+		for (int d = first; d <= last; d ++) {
+			int mid = STEPS[d * 32 + index], end = JUMPS[d * 32 + index];
+			if (end < 0 || (opponents & (1 << mid)) == 0 ||
+					(empty & (1 << end)) == 0) {
+				continue;
+			}
+			
+			// Make the skip and determine if the turn is over
+			long next = MovePath.append(path, end);
+			boolean kinged = !isKing && (isBlack? end >= 28 : end < 4);
+			int nextOpponents = opponents & ~(1 << mid);
+			int nextEmpty = (empty | (1 << index) | (1 << mid)) & ~(1 << end);
+			if (kinged || MovePath.getLength(next) == MovePath.MAX_LENGTH ||
+					!canSkip(end, isKing, isBlack, nextOpponents, nextEmpty)) {
+				paths.add(next);
+			} else {
+				addCapturePaths(next, end, isKing, isBlack,
+						nextOpponents, nextEmpty, paths);
+			}
+		}
+	}
+	
+	/**
+	 * Packs the start and end index of a move into a single integer.
+	 * 
+	 * @param startIndex	the start index of the move.
+	 * @param endIndex		the end index of the move.
+	 * @return the packed move.
+	 * @see {@link #getPackedStart(int)}, {@link #getPackedEnd(int)}
+	 */
+	public static int packMove(int startIndex, int endIndex) {
+		return (startIndex & 31) | ((endIndex & 31) << 5);
+	}
+	
+	/**
+	 * Gets the start index of a move packed by {@link #packMove(int, int)}.
+	 * 
+	 * @param move	the packed move.
+	 * @return the start index of the move.
+	 */
+	public static int getPackedStart(int move) {
+		return move & 31;
+	}
+	
+	/**
+	 * Gets the end index of a move packed by {@link #packMove(int, int)}.
+	 * 
+	 * @param move	the packed move.
+	 * @return the end index of the move.
+	 */
+	public static int getPackedEnd(int move) {
+		return (move >>> 5) & 31;
+	}
+	
+	/**
+	 * Gets a bit mask of the checkers of one player that can make a regular
+	 * (non-skip) move. No objects are allocated.
+	 * 
+	 * @param board		the board to check against.
+	 * @param isBlack	the flag indicating if black checkers should be checked.
+	 * @return the mask of checkers with at least one regular move.
+	 * @see {@link #getSkipMask(Board, boolean)}
+	 */
+	public static int getMoveMask(Board board, boolean isBlack) {
+		
+		if (board == null) {
+			return 0;
+		}
+		
+		// Check each checker
+		int mask = 0, empty = board.getEmptyMask();
+		int pieces = isBlack? board.getBlackMask() : board.getWhiteMask();
+		int kings = board.getKingMask();
+		for (int m = pieces; m != 0; m &= m - 1) {
+			int i = Integer.numberOfTrailingZeros(m);
+			int first = getFirstDirection(isBlack, (kings & (1 << i)) != 0);
+			int last = getLastDirection(isBlack, (kings & (1 << i)) != 0);
+			for (int d = first; d <= last; d ++) {
+				int end = STEPS[d * 32 + i];
+				if (end >= 0 && (empty & (1 << end)) != 0) {
+					mask |= (1 << i);
+					break;
+				}
+			}
+		}
+		
+		return mask;
+	}
+	
+	/**
+	 * Gets a bit mask of the checkers of one player that can skip an
+	 * opponent's checker. No objects are allocated.
+	 * 
+	 * @param board		the board to check against.
+	 * @param isBlack	the flag indicating if black checkers should be checked.
+	 * @return the mask of checkers with at least one skip.
+	 * @see {@link #getMoveMask(Board, boolean)}
+	 */
+	public static int getSkipMask(Board board, boolean isBlack) {
+		
+		if (board == null) {
+			return 0;
+		}
+		
+		// Check each checker
+		int mask = 0, empty = board.getEmptyMask();
+		int pieces = isBlack? board.getBlackMask() : board.getWhiteMask();
+		int opponents = isBlack? board.getWhiteMask() : board.getBlackMask();
+		int kings = board.getKingMask();
+		for (int m = pieces; m != 0; m &= m - 1) {
+			int i = Integer.numberOfTrailingZeros(m);
+			if (canSkip(i, (kings & (1 << i)) != 0, isBlack,
+					opponents, empty)) {
+				mask |= (1 << i);
+			}
+		}
+		
+		return mask;
+	}
+	
+	/**
+	 * Checks if the checker at the specified index can skip an opponent's
+	 * checker. No objects are allocated.
+	 * 
+	 * @param board	the board to check against.
+	 * @param index	the index of the checker.
+	 * @return true if and only if there is a checker at the index and it has
+	 * at least one skip available.
+	 */
+	public static boolean canSkip(Board board, int index) {
+		
+		// Trivial cases
+		if (board == null || !Board.isValidIndex(index)) {
+			return false;
+		}
+		int id = board.get(index);
+		if (id == Board.EMPTY) {
+			return false;
+		}
+		
+		boolean isBlack = Board.isBlackChecker(id);
+		return canSkip(index, Board.isKingChecker(id), isBlack,
+				isBlack? board.getWhiteMask() : board.getBlackMask(),
+				board.getEmptyMask());
+	}
+	
+	/**
+	 * Checks if a checker can skip an opponent's checker given the masks of
+	 * the board.
+	 * 
+	 * @param index		the index of the checker.
+	 * @param isKing	the flag indicating if the checker is a king.
+	 * @param isBlack	the flag indicating if the checker is black.
+	 * @param opponents	the mask of the opponent's checkers.
+	 * @param empty		the mask of empty tiles.
+	 * @return true if the checker has at least one skip.
+	 */
+	private static boolean canSkip(int index, boolean isKing, boolean isBlack,
+			int opponents, int empty) {
+		int first = getFirstDirection(isBlack, isKing);
+		int last = getLastDirection(isBlack, isKing);
+		for (int d = first; d <= last; d ++) {
+			int mid = STEPS[d * 32 + index], end = JUMPS[d * 32 + index];
+			if (end >= 0 && (opponents & (1 << mid)) != 0 &&
+					(empty & (1 << end)) != 0) {
+				return true;
+			}
+		}
+		
+		return false;
+	}
+	
+	/**
+	 * Gets the first direction a checker can move in.
+	 * 
+	 * @param isBlack	the flag indicating if the checker is black.
+	 * @param isKing	the flag indicating if the checker is a king.
+	 * @return the first direction, to use with {@link #STEPS}.
+	 */
+	private static int getFirstDirection(boolean isBlack, boolean isKing) {
+		return (isKing || isBlack)? 0 : 2;
+	}
+	
+	/**
+	 * Gets the last direction a checker can move in.
+	 * 
+	 * @param isBlack	the flag indicating if the checker is black.
+	 * @param isKing	the flag indicating if the checker is a king.
+	 * @return the last direction, to use with {@link #STEPS}.
+	 */
+	private static int getLastDirection(boolean isBlack, boolean isKing) {
+		return (isKing || !isBlack)? DIRECTIONS - 1 : 1;
+	}
+	
 	/**
 	 * Adds points that could potentially result in moves/skips.
 	 * 
@@ -168,4 +585,28 @@ public class MoveGenerator {
 			points.add(new Point(p.x - delta, p.y - delta));
 		}
 	}
+	
+	/**
+	 * The {@code PathList} class is a minimal growable list of encoded paths,
+	 * to avoid boxing each path.
+	 */
+	private static class PathList {
+		
+		/** The encoded paths. */
+		private long[] paths = new long[16];
+		
+		/** The number of paths in the list. */
+		private int size;
+		
+		public void add(long path) {
+			if (size == paths.length) {
+				this.paths = Arrays.copyOf(paths, size * 2);
+			}
+			this.paths[size ++] = path;
+		}
+		
+		public long[] toArray() {
+			return Arrays.copyOf(paths, size);
+		}
+	}
 }
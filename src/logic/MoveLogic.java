@@ -20,17 +20,19 @@ public class MoveLogic {
 
 	/**
 	 * Determines if the specified move is valid based on the rules of checkers.
+	 * The game caches the legal moves for its current position, so this is a
+	 * lookup rather than a scan of the board.
 	 * 
 	 * @param game			the game to check against.
 	 * @param startIndex	the start index of the move.
 	 * @param endIndex		the end index of the move.
 	 * @return true if the move is legal according to the rules of checkers.
-	 * @see {@link #isValidMove(Board, boolean, int, int, int)}
+	 * @see {@link #isValidMove(Board, boolean, int, int, int)},
+	 * {@link Game#isLegalMove(int, int)}
 	 */
 	public static boolean isValidMove(Game game,
 			int startIndex, int endIndex) {
-		return game == null? false : isValidMove(game.getBoard(),
-				game.isP1Turn(), startIndex, endIndex, game.getSkipIndex());
+		return game == null? false : game.isLegalMove(startIndex, endIndex);
 	}
 	
 	/**
@@ -139,25 +141,8 @@ public class MoveLogic {
 		// Check that if this is not a skip, there are none available
 		Point middle = Board.middle(startIndex, endIndex);
 		int midID = board.get(Board.toIndex(middle));
-		if (midID < 0) {
-			
-			// Get the correct checkers
-			List<Point> checkers;
-			if (isP1Turn) {
-				checkers = board.find(Board.BLACK_CHECKER);
-				checkers.addAll(board.find(Board.BLACK_KING));
-			} else {
-				checkers = board.find(Board.WHITE_CHECKER);
-				checkers.addAll(board.find(Board.WHITE_KING));
-			}
-			
-			// Check if any of them have a skip available
-			for (Point p : checkers) {
-				int index = Board.toIndex(p);
-				if (!MoveGenerator.getSkips(board, index).isEmpty()) {
-					return false;
-				}
-			}
+		if (midID < 0 && MoveGenerator.getSkipMask(board, isP1Turn) != 0) {
+			return false;
 		}
 		
 		// Passed all tests
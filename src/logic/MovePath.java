@@ -0,0 +1,196 @@
+/* Name: MovePath
+ * Author: Devon McGrath
+ * Description: This class encodes a complete turn (a regular move or a chain
+ * of skips) as a single long value.
+ */
+
+package logic;
+
+import model.Board;
+
+/**
+ * The {@code MovePath} class provides methods to encode a complete turn as a
+ * single {@code long}. A turn is either a regular move or a chain of one or
+ * more skips made by the same checker. The encoding uses 5 bits for the start
+ * index, 4 bits for the number of steps and 5 bits for each index the checker
+ * lands on, allowing up to {@value #MAX_LENGTH} steps in one turn.
+ * <p>
+ * A path of 0 is never a valid turn, since every path has at least one step,
+ * and can be used to indicate that there is no path.
+ */
+public class MovePath {
+
+	/** The value representing no path. */
+	public static final long NONE = 0;
+
+	/** The maximum number of steps that can be stored in a path. */
+	public static final int MAX_LENGTH = 11;
+
+	/** The number of bits used by the start index and the length. */
+	private static final int HEADER_BITS = 9;
+
+	/**
+	 * Creates a path with a single step.
+	 *
+	 * @param startIndex	the start index of the checker.
+	 * @param endIndex		the index the checker lands on.
+	 * @return the encoded path.
+	 * @see {@link #append(long, int)}
+	 */
+	public static long create(int startIndex, int endIndex) {
+		return append(startIndex & 31, endIndex);
+	}
+
+	/**
+	 * Adds a step to the end of a path. If the path already has
+	 * {@value #MAX_LENGTH} steps, it is returned unchanged.
+	 *
+	 * @param path	the path to add to.
+	 * @param index	the index the checker lands on after the step.
+	 * @return the updated path.
+	 */
+	public static long append(long path, int index) {
+		int length = getLength(path);
+		if (length >= MAX_LENGTH) {
+			return path;
+		}
+		path &= ~(15L << 5);
+		path |= ((long) (length + 1)) << 5;
+		return path | ((long) (index & 31)) << (HEADER_BITS + 5 * length);
+	}
+
+	/**
+	 * Gets the index the checker starts on.
+	 *
+	 * @param path	the encoded path.
+	 * @return the start index.
+	 */
+	public static int getStart(long path) {
+		return (int) (path & 31);
+	}
+
+	/**
+	 * Gets the number of steps in the path.
+	 *
+	 * @param path	the encoded path.
+	 * @return the number of steps.
+	 */
+	public static int getLength(long path) {
+		return (int) ((path >>> 5) & 15);
+	}
+
+	/**
+	 * Gets the index the checker lands on after a step.
+	 *
+	 * @param path	the encoded path.
+	 * @param step	the step (from 0 to the length - 1).
+	 * @return the index after the step.
+	 */
+	public static int getIndex(long path, int step) {
+		return (int) ((path >>> (HEADER_BITS + 5 * step)) & 31);
+	}
+
+	/**
+	 * Gets the index the checker ends the path on.
+	 *
+	 * @param path	the encoded path.
+	 * @return the end index, or the start index if the path has no steps.
+	 */
+	public static int getEnd(long path) {
+		int length = getLength(path);
+		return length == 0? getStart(path) : getIndex(path, length - 1);
+	}
+
+	/**
+	 * Checks if the path is made up of skips rather than a regular move.
+	 *
+	 * @param path	the encoded path.
+	 * @return true if the first step of the path is a skip.
+	 */
+	public static boolean isSkip(long path) {
+		if (getLength(path) == 0) {
+			return false;
+		}
+		int start = getStart(path), end = getIndex(path, 0);
+		return Math.abs(start / 4 - end / 4) == 2;
+	}
+
+	/**
+	 * Gets a bit mask of the tiles with checkers that are skipped by the path.
+	 *
+	 * @param path	the encoded path.
+	 * @return the mask of skipped tiles, or 0 if the path is not a skip.
+	 */
+	public static int getCapturedMask(long path) {
+
+		if (!isSkip(path)) {
+			return 0;
+		}
+
+		// Add the middle of each step
+		int mask = 0, length = getLength(path), from = getStart(path);
+		for (int i = 0; i < length; i ++) {
+			int to = getIndex(path, i);
+			mask |= (1 << Board.toIndex(Board.middle(from, to)));
+			from = to;
+		}
+
+		return mask;
+	}
+
+	/**
+	 * Parses a path from its readable representation, with the indices
+	 * separated by "-" or "x".
+	 *
+	 * @param path	the path (e.g. "8x17x24").
+	 * @return the encoded path, or {@link #NONE} if the string is not a valid
+	 * path.
+	 * @see {@link #toString(long)}
+	 */
+	public static long parse(String path) {
+
+		// Trivial cases
+		if (path == null) {
+			return NONE;
+		}
+		String[] indices = path.trim().split("[-xX]", -1);
+		if (indices.length < 2 || indices.length > MAX_LENGTH + 1) {
+			return NONE;
+		}
+
+		// Add each index
+		long result = NONE;
+		for (int i = 0; i < indices.length; i ++) {
+			int index;
+			try {
+				index = Integer.parseInt(indices[i].trim());
+			} catch (NumberFormatException e) {
+				return NONE;
+			}
+			if (!Board.isValidIndex(index)) {
+				return NONE;
+			}
+			result = (i == 0)? index : append(result, index);
+		}
+
+		return result;
+	}
+
+	/**
+	 * Creates a readable representation of a path with the indices separated
+	 * by "-" for a regular move or "x" for skips (e.g. "8x17x24").
+	 *
+	 * @param path	the encoded path.
+	 * @return the string representation of the path.
+	 */
+	public static String toString(long path) {
+		StringBuilder sb = new StringBuilder();
+		sb.append(getStart(path));
+		String sep = isSkip(path)? "x" : "-";
+		int length = getLength(path);
+		for (int i = 0; i < length; i ++) {
+			sb.append(sep).append(getIndex(path, i));
+		}
+		return sb.toString();
+	}
+}
@@ -0,0 +1,116 @@
+/* Name: TranspositionTable
+ * Author: Devon McGrath
+ * Description: This class stores the best turn found for positions, keyed by
+ * the position hash.
+ */
+
+package logic;
+
+/**
+ * The {@code TranspositionTable} class is a fixed size hash table that maps a
+ * position hash (from {@link model.Game#hash()}) to the best turn found for
+ * that position, encoded with {@link MovePath}. When two positions map to the
+ * same slot, the newer entry replaces the older one.
+ * <p>
+ * The table is stored in two primitive arrays and is safe to use from
+ * multiple threads.
+ */
+public class TranspositionTable {
+
+	/** The default number of entries in the table. */
+	public static final int DEFAULT_SIZE = 1 << 16;
+
+	/** The position hash stored in each slot. */
+	private final long[] keys;
+
+	/** The best turn stored in each slot. */
+	private final long[] paths;
+
+	/** The mask used to get the slot of a hash. */
+	private final int mask;
+
+	/** The number of lookups that found an entry. */
+	private long hits;
+
+	/** The number of lookups that did not find an entry. */
+	private long misses;
+
+	public TranspositionTable() {
+		this(DEFAULT_SIZE);
+	}
+
+	/**
+	 * Creates a transposition table with at least the specified number of
+	 * entries (rounded up to a power of 2).
+	 *
+	 * @param size	the minimum number of entries.
+	 */
+	public TranspositionTable(int size) {
+		int n = Integer.highestOneBit(Math.max(2, size - 1)) << 1;
+		this.keys = new long[n];
+		this.paths = new long[n];
+		this.mask = n - 1;
+	}
+
+	/**
+	 * Stores the best turn for a position.
+	 *
+	 * @param hash	the position hash.
+	 * @param path	the best turn encoded with {@link MovePath}.
+	 */
+	public synchronized void store(long hash, long path) {
+		int slot = (int) (hash ^ (hash >>> 32)) & mask;
+		this.keys[slot] = hash;
+		this.paths[slot] = path;
+	}
+
+	/**
+	 * Gets the best turn stored for a position.
+	 *
+	 * @param hash	the position hash.
+	 * @return the best turn encoded with {@link MovePath}, or
+	 * {@link MovePath#NONE} if the position is not in the table.
+	 */
+	public synchronized long probe(long hash) {
+		int slot = (int) (hash ^ (hash >>> 32)) & mask;
+		if (keys[slot] == hash && paths[slot] != MovePath.NONE) {
+			this.hits ++;
+			return paths[slot];
+		}
+		this.misses ++;
+		return MovePath.NONE;
+	}
+
+	/**
+	 * Checks if a position is in the table without counting a lookup.
+	 *
+	 * @param hash	the position hash.
+	 * @return true if the position has an entry.
+	 */
+	public synchronized boolean contains(long hash) {
+		int slot = (int) (hash ^ (hash >>> 32)) & mask;
+		return keys[slot] == hash && paths[slot] != MovePath.NONE;
+	}
+
+	/**
+	 * Removes all the entries from the table.
+	 */
+	public synchronized void clear() {
+		for (int i = 0; i < keys.length; i ++) {
+			this.keys[i] = 0;
+			this.paths[i] = MovePath.NONE;
+		}
+	}
+
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	public int getSize() {
+		return keys.length;
+	}
+}
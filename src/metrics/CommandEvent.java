@@ -0,0 +1,46 @@
+/* Name: CommandEvent
+ * Author: Devon McGrath
+ * Description: This class is the flight recorder event for a network command
+ * sent to another client.
+ */
+
+package metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * The {@code CommandEvent} class is a Java Flight Recorder event that covers
+ * the round trip of a {@link network.Command}: connecting, sending the
+ * command and reading the whole response. The duration of the event is the
+ * latency of the command.
+ */
+@Name("checkers.Command")
+@Label("Network Command")
+@Category({"Checkers", "Network"})
+@Description("A command sent to another client and its response")
+public class CommandEvent extends jdk.jfr.Event {
+
+	@Label("Command")
+	public String command;
+
+	@Label("Host")
+	public String host;
+
+	@Label("Port")
+	public int port;
+
+	@Label("Bytes Sent")
+	@DataAmount
+	public long bytesSent;
+
+	@Label("Bytes Received")
+	@DataAmount
+	public long bytesReceived;
+
+	@Label("Accepted")
+	public boolean isAccepted;
+}
@@ -0,0 +1,259 @@
+/* Name: EngineMetrics
+ * Author: Devon McGrath
+ * Description: This class counts the work done by a computer player's search
+ * and makes it available through JMX.
+ */
+
+package metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * The {@code EngineMetrics} class counts the nodes, evaluations, transposition
+ * table lookups, cutoffs and time of the searches made by one type of engine
+ * (e.g. every {@link model.MCTSPlayer}). There is one instance per engine
+ * name, which is registered as a JMX MBean named
+ * "checkers:type=Engine,name=<i>name</i>" when it is first requested with
+ * {@link #get(String)}.
+ * <p>
+ * The counters are {@link LongAdder}s, which are striped across threads, so
+ * they can be updated by many games at once without contention. Engines
+ * should still count inside a search with local variables and report the
+ * totals once per move with {@link #recordSearch(long, int, long, long, long)}
+ * so nothing is shared on the search's hot path.
+ */
+public class EngineMetrics implements EngineMetricsMBean {
+
+	/** The metrics of each engine, by name. */
+	private static final Map<String, EngineMetrics> ENGINES =
+			new ConcurrentHashMap<>();
+
+	/** The name of the engine. */
+	private final String name;
+
+	/** The number of searches. */
+	private final LongAdder searches = new LongAdder();
+
+	/** The number of nodes searched. */
+	private final LongAdder nodes = new LongAdder();
+
+	/** The number of evaluation calls. */
+	private final LongAdder evaluations = new LongAdder();
+
+	/** The number of transposition table lookups. */
+	private final LongAdder probes = new LongAdder();
+
+	/** The number of transposition table lookups that found an entry. */
+	private final LongAdder hits = new LongAdder();
+
+	/** The number of beta cutoffs. */
+	private final LongAdder cutoffs = new LongAdder();
+
+	/** The total time of every search in nanoseconds. */
+	private final LongAdder searchTime = new LongAdder();
+
+	/** The deepest depth reached in any search. */
+	private final LongAccumulator maxDepth = new LongAccumulator(Math::max, 0);
+
+	/** The number of nodes searched in the last search. */
+	private volatile long lastNodes;
+
+	/** The time of the last search in nanoseconds. */
+	private volatile long lastTime;
+
+	/** The depth reached in the last search. */
+	private volatile int lastDepth;
+
+	/** The listeners notified after each search. */
+	private final List<EngineMetricsListener> listeners =
+			new CopyOnWriteArrayList<>();
+
+	public EngineMetrics(String name) {
+		this.name = name;
+	}
+
+	/**
+	 * Gets the metrics of an engine, creating them and registering them with
+	 * the platform MBean server if necessary.
+	 *
+	 * @param name	the name of the engine (e.g. "MCTSPlayer").
+	 * @return the metrics of the engine.
+	 */
+	public static EngineMetrics get(String name) {
+		return ENGINES.computeIfAbsent(name, n -> {
+			EngineMetrics metrics = new EngineMetrics(n);
+			metrics.register();
+			return metrics;
+		});
+	}
+
+	/**
+	 * Registers these metrics with the platform MBean server. Errors are
+	 * printed and otherwise ignored, since the metrics still work without
+	 * JMX.
+	 */
+	private void register() {
+		try {
+			ManagementFactory.getPlatformMBeanServer().registerMBean(this,
+					new ObjectName("checkers:type=Engine,name=" + name));
+		} catch (JMException e) {
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Records a finished search and notifies the listeners.
+	 *
+	 * @param nodes			the number of nodes searched.
+	 * @param depth			the depth reached in turns.
+	 * @param evaluations	the number of evaluation calls.
+	 * @param cutoffs		the number of beta cutoffs.
+	 * @param nanos			the time the search took in nanoseconds.
+	 */
+	public void recordSearch(long nodes, int depth, long evaluations,
+			long cutoffs, long nanos) {
+		this.searches.increment();
+		this.nodes.add(nodes);
+		this.evaluations.add(evaluations);
+		this.cutoffs.add(cutoffs);
+		this.searchTime.add(nanos);
+		this.maxDepth.accumulate(depth);
+		this.lastNodes = nodes;
+		this.lastTime = nanos;
+		this.lastDepth = depth;
+		for (EngineMetricsListener listener : listeners) {
+			listener.searchFinished(this, nodes, depth, evaluations, cutoffs,
+					nanos);
+		}
+	}
+
+	/**
+	 * Records a transposition table lookup.
+	 *
+	 * @param isHit	the flag indicating if the lookup found an entry.
+	 */
+	public void recordProbe(boolean isHit) {
+		this.probes.increment();
+		if (isHit) {
+			this.hits.increment();
+		}
+	}
+
+	public void addListener(EngineMetricsListener listener) {
+		if (listener != null) {
+			this.listeners.add(listener);
+		}
+	}
+
+	public void removeListener(EngineMetricsListener listener) {
+		this.listeners.remove(listener);
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	@Override
+	public long getSearches() {
+		return searches.sum();
+	}
+
+	@Override
+	public long getNodes() {
+		return nodes.sum();
+	}
+
+	@Override
+	public double getNodesPerSecond() {
+		long time = searchTime.sum();
+		return time <= 0? 0 : nodes.sum() * 1e9 / time;
+	}
+
+	@Override
+	public double getLastNodesPerSecond() {
+		long time = lastTime;
+		return time <= 0? 0 : lastNodes * 1e9 / time;
+	}
+
+	@Override
+	public int getLastDepth() {
+		return lastDepth;
+	}
+
+	@Override
+	public int getMaxDepth() {
+		return (int) maxDepth.get();
+	}
+
+	@Override
+	public long getEvaluations() {
+		return evaluations.sum();
+	}
+
+	@Override
+	public long getHashProbes() {
+		return probes.sum();
+	}
+
+	@Override
+	public double getHashHitRate() {
+		long n = probes.sum();
+		return n == 0? 0 : (double) hits.sum() / n;
+	}
+
+	@Override
+	public long getCutoffs() {
+		return cutoffs.sum();
+	}
+
+	@Override
+	public double getCutoffRatio() {
+		long n = nodes.sum();
+		return n == 0? 0 : (double) cutoffs.sum() / n;
+	}
+
+	@Override
+	public double getAverageMoveTime() {
+		long n = searches.sum();
+		return n == 0? 0 : searchTime.sum() / 1e6 / n;
+	}
+
+	@Override
+	public double getLastMoveTime() {
+		return lastTime / 1e6;
+	}
+
+	@Override
+	public void reset() {
+		this.searches.reset();
+		this.nodes.reset();
+		this.evaluations.reset();
+		this.probes.reset();
+		this.hits.reset();
+		this.cutoffs.reset();
+		this.searchTime.reset();
+		this.maxDepth.reset();
+		this.lastNodes = 0;
+		this.lastTime = 0;
+		this.lastDepth = 0;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s[searches=%d, nodes=%d, nodes/s=%.0f, "
+				+ "maxDepth=%d, evaluations=%d, hashHitRate=%.2f, "
+				+ "cutoffRatio=%.2f, averageMoveTime=%.1fms]", name,
+				getSearches(), getNodes(), getNodesPerSecond(), getMaxDepth(),
+				getEvaluations(), getHashHitRate(), getCutoffRatio(),
+				getAverageMoveTime());
+	}
+}
@@ -0,0 +1,28 @@
+/* Name: EngineMetricsListener
+ * Author: Devon McGrath
+ * Description: This interface is notified when an engine finishes a search.
+ */
+
+package metrics;
+
+/**
+ * The {@code EngineMetricsListener} interface is notified each time an engine
+ * finishes searching for a move, so the search can be logged or shown to the
+ * user. It is called on the thread that made the search, after the counters
+ * of {@link EngineMetrics} have been updated.
+ */
+public interface EngineMetricsListener {
+
+	/**
+	 * Called when an engine finishes searching for a move.
+	 *
+	 * @param metrics		the metrics of the engine.
+	 * @param nodes			the number of nodes searched.
+	 * @param depth			the depth reached in turns.
+	 * @param evaluations	the number of evaluation calls.
+	 * @param cutoffs		the number of beta cutoffs.
+	 * @param nanos			the time the search took in nanoseconds.
+	 */
+	public void searchFinished(EngineMetrics metrics, long nodes, int depth,
+			long evaluations, long cutoffs, long nanos);
+}
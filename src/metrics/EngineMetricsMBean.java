@@ -0,0 +1,111 @@
+/* Name: EngineMetricsMBean
+ * Author: Devon McGrath
+ * Description: This interface is the JMX management interface of the engine
+ * metrics.
+ */
+
+package metrics;
+
+/**
+ * The {@code EngineMetricsMBean} interface defines the attributes and
+ * operations of {@link EngineMetrics} that are available through JMX (e.g. in
+ * JConsole or VisualVM, under "checkers:type=Engine").
+ */
+public interface EngineMetricsMBean {
+
+	/**
+	 * Gets the number of searches made to choose a move.
+	 *
+	 * @return the number of searches.
+	 */
+	public long getSearches();
+
+	/**
+	 * Gets the total number of nodes searched.
+	 *
+	 * @return the number of nodes.
+	 */
+	public long getNodes();
+
+	/**
+	 * Gets the number of nodes searched per second over every search.
+	 *
+	 * @return the node rate, or 0 if there has not been a search.
+	 */
+	public double getNodesPerSecond();
+
+	/**
+	 * Gets the number of nodes searched per second in the last search.
+	 *
+	 * @return the node rate, or 0 if there has not been a search.
+	 */
+	public double getLastNodesPerSecond();
+
+	/**
+	 * Gets the depth reached in the last search.
+	 *
+	 * @return the depth in turns.
+	 */
+	public int getLastDepth();
+
+	/**
+	 * Gets the deepest depth reached in any search.
+	 *
+	 * @return the depth in turns.
+	 */
+	public int getMaxDepth();
+
+	/**
+	 * Gets the total number of evaluation calls.
+	 *
+	 * @return the number of evaluations.
+	 */
+	public long getEvaluations();
+
+	/**
+	 * Gets the number of transposition table (or tree reuse) lookups.
+	 *
+	 * @return the number of lookups.
+	 */
+	public long getHashProbes();
+
+	/**
+	 * Gets the fraction of transposition table lookups that found an entry.
+	 *
+	 * @return the hit rate from 0 to 1.
+	 */
+	public double getHashHitRate();
+
+	/**
+	 * Gets the total number of beta cutoffs.
+	 *
+	 * @return the number of cutoffs.
+	 */
+	public long getCutoffs();
+
+	/**
+	 * Gets the fraction of nodes searched that caused a beta cutoff.
+	 *
+	 * @return the cutoff ratio from 0 to 1.
+	 */
+	public double getCutoffRatio();
+
+	/**
+	 * Gets the average time taken to choose a move.
+	 *
+	 * @return the time in milliseconds.
+	 */
+	public double getAverageMoveTime();
+
+	/**
+	 * Gets the time taken to choose the last move.
+	 *
+	 * @return the time in milliseconds.
+	 */
+	public double getLastMoveTime();
+
+	/**
+	 * Sets every counter back to 0.
+	 */
+	public void reset();
+}
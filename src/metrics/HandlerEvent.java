@@ -0,0 +1,39 @@
+/* Name: HandlerEvent
+ * Author: Devon McGrath
+ * Description: This class is the flight recorder event for a network command
+ * received from another client.
+ */
+
+package metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * The {@code HandlerEvent} class is a Java Flight Recorder event that covers
+ * the handling of a command received from another client, from reading the
+ * command to writing the response.
+ */
+@Name("checkers.Handler")
+@Label("Network Handler")
+@Category({"Checkers", "Network"})
+@Description("A command received from another client and its response")
+public class HandlerEvent extends jdk.jfr.Event {
+
+	@Label("Command")
+	public String command;
+
+	@Label("Bytes Received")
+	@DataAmount
+	public long bytesReceived;
+
+	@Label("Bytes Sent")
+	@DataAmount
+	public long bytesSent;
+
+	@Label("Accepted")
+	public boolean isAccepted;
+}
@@ -0,0 +1,41 @@
+/* Name: MoveEvent
+ * Author: Devon McGrath
+ * Description: This class is the flight recorder event for a move being
+ * applied to a game.
+ */
+
+package metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * The {@code MoveEvent} class is a Java Flight Recorder event that covers a
+ * call to {@link model.Game#move(int, int)} or {@link model.Game#move(long)}.
+ * Searches make millions of moves per second, so this event is disabled by
+ * default and has no stack trace. It can be enabled in a recording with
+ * {@code checkers.Move#enabled=true}.
+ */
+@Name("checkers.Move")
+@Label("Move")
+@Category({"Checkers", "Game"})
+@Description("A move or turn applied to a game")
+@Enabled(false)
+@StackTrace(false)
+public class MoveEvent extends jdk.jfr.Event {
+
+	@Label("Start")
+	@Description("The board index the checker moved from")
+	public int start;
+
+	@Label("Steps")
+	@Description("The number of moves in the turn")
+	public int steps;
+
+	@Label("Valid")
+	public boolean isValid;
+}
@@ -0,0 +1,33 @@
+/* Name: PaintEvent
+ * Author: Devon McGrath
+ * Description: This class is the flight recorder event for painting the
+ * checker board.
+ */
+
+package metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * The {@code PaintEvent} class is a Java Flight Recorder event that covers
+ * one call to {@link ui.CheckerBoard#paint(java.awt.Graphics)}.
+ */
+@Name("checkers.Paint")
+@Label("Paint")
+@Category({"Checkers", "User Interface"})
+@Description("The checker board being painted")
+@StackTrace(false)
+public class PaintEvent extends jdk.jfr.Event {
+
+	@Label("Width")
+	@Description("The width of the area painted in pixels")
+	public int width;
+
+	@Label("Height")
+	@Description("The height of the area painted in pixels")
+	public int height;
+}
@@ -0,0 +1,42 @@
+/* Name: SearchEvent
+ * Author: Devon McGrath
+ * Description: This class is the flight recorder event for a computer
+ * player's search.
+ */
+
+package metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * The {@code SearchEvent} class is a Java Flight Recorder event that covers
+ * one search made by a computer player, from when it starts thinking about a
+ * position until it has chosen a turn. Like the other events in this package,
+ * it costs almost nothing unless a recording is running (e.g. with
+ * {@code -XX:StartFlightRecording}).
+ */
+@Name("checkers.Search")
+@Label("Search")
+@Category({"Checkers", "Engine"})
+@Description("A search made by a computer player")
+public class SearchEvent extends jdk.jfr.Event {
+
+	@Label("Engine")
+	public String engine;
+
+	@Label("Nodes")
+	public long nodes;
+
+	@Label("Depth")
+	public int depth;
+
+	@Label("Evaluations")
+	public long evaluations;
+
+	@Label("Pondering")
+	@Description("True if the search was made on the opponent's time")
+	public boolean isPonder;
+}
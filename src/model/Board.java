@@ -50,6 +50,25 @@ public class Board {
 	/** The ID of a white checker that is also a king. */
 	public static final int WHITE_KING = 4 * 1 + 2 * 0 + 1 * 1;
 
+	/** The random keys used to compute the Zobrist hash of a board, indexed
+	 * by tile ID and then by black tile index. */
+	private static final long[][] ZOBRIST_KEYS = new long[8][32];
+	
+	static {
+		
+		// Generate the keys with a fixed seed so hashes are reproducible
+		long seed = 0x2545F4914F6CDD1DL;
+		for (int id = 0; id < ZOBRIST_KEYS.length; id ++) {
+			for (int i = 0; i < 32; i ++) {
+				seed += 0x9E3779B97F4A7C15L;
+				long z = seed;
+				z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+				z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+				ZOBRIST_KEYS[id][i] = z ^ (z >>> 31);
+			}
+		}
+	}
+
 	/** The current state of the board, represented as three integers. */
 	private int[] state;
 	
@@ -108,6 +127,93 @@ public class Board {
 		return points;
 	}
 	
+	/**
+	 * Gets a bit mask of the black tiles that contain a black checker or king,
+	 * such that bit {@code i} is set if tile index {@code i} is occupied.
+	 * 
+	 * @return the mask of black pieces.
+	 * @see {@link #getWhiteMask()}, {@link #getKingMask()},
+	 * {@link #getEmptyMask()}
+	 */
+	public int getBlackMask() {
+		return state[0] & state[1];
+	}
+	
+	/**
+	 * Gets a bit mask of the black tiles that contain a white checker or king,
+	 * such that bit {@code i} is set if tile index {@code i} is occupied.
+	 * 
+	 * @return the mask of white pieces.
+	 * @see {@link #getBlackMask()}, {@link #getKingMask()},
+	 * {@link #getEmptyMask()}
+	 */
+	public int getWhiteMask() {
+		return state[0] & ~state[1];
+	}
+	
+	/**
+	 * Gets a bit mask of the black tiles that contain a king of either colour.
+	 * 
+	 * @return the mask of kings.
+	 * @see {@link #getBlackMask()}, {@link #getWhiteMask()},
+	 * {@link #getEmptyMask()}
+	 */
+	public int getKingMask() {
+		return state[0] & state[2];
+	}
+	
+	/**
+	 * Gets a bit mask of the black tiles that are {@link #EMPTY}.
+	 * 
+	 * @return the mask of empty tiles.
+	 * @see {@link #getBlackMask()}, {@link #getWhiteMask()},
+	 * {@link #getKingMask()}
+	 */
+	public int getEmptyMask() {
+		return ~state[0];
+	}
+	
+	/**
+	 * Sets every tile on the board from bit masks, such that bit {@code i} of
+	 * each mask refers to tile index {@code i}. A tile in both the black and
+	 * white masks has a black checker. Bits in the king mask are ignored for
+	 * empty tiles.
+	 * 
+	 * @param black	the mask of black pieces.
+	 * @param white	the mask of white pieces.
+	 * @param kings	the mask of kings.
+	 * @see {@link #getBlackMask()}, {@link #getWhiteMask()},
+	 * {@link #getKingMask()}
+	 */
+	public void setMasks(int black, int white, int kings) {
+		int occupied = black | white;
+		this.state[0] = occupied;
+		this.state[1] = black;
+		this.state[2] = kings & occupied;
+	}
+	
+	/**
+	 * Computes a 64-bit Zobrist hash of the checkers on the board. Two boards
+	 * with the same checkers on the same tiles always have the same hash, and
+	 * different boards collide with negligible probability. No objects are
+	 * allocated to compute the hash.
+	 * 
+	 * @return the hash of the board.
+	 */
+	public long hash() {
+		
+		// Combine the key of each occupied tile
+		long hash = 0;
+		int occupied = state[0];
+		while (occupied != 0) {
+			int i = Integer.numberOfTrailingZeros(occupied);
+			occupied &= occupied - 1;
+			hash ^= ZOBRIST_KEYS[get(i)][i];
+		}
+		
+		return hash;
+	}
+	
 	/**
 	 * Sets the ID of a black tile on the board at the specified location.
 	 * If the location is not a black tile, nothing is updated. If the ID is
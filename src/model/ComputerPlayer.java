@@ -12,6 +12,10 @@ import java.util.List;
 
 import logic.MoveGenerator;
 import logic.MoveLogic;
+import logic.MovePath;
+import logic.TranspositionTable;
+import metrics.EngineMetrics;
+import metrics.SearchEvent;
 
 /**
  * The {@code ComputerPlayer} class represents a computer player and updates
@@ -47,7 +51,24 @@ public class ComputerPlayer extends Player {
 	/** The factor used to multiply some weights when the checker being
 	 * observed is a king. */
 	private static final double KING_FACTOR = 2;
+	
+	/** The weight of a move that results in a draw. */
+	private static final double WEIGHT_DRAW = 0;
 	/* ------------ */
+	
+	/** The best moves found for positions, including while pondering. */
+	private final TranspositionTable table = new TranspositionTable();
+	
+	/** The number of turns in the game when this player last saw it, which
+	 * is used to tell when a new game was started. */
+	private int lastTurnCount;
+	
+	/** The flag indicating if this player thinks on the opponent's time. */
+	private volatile boolean isPondering = true;
+	
+	/** The metrics shared by every computer player. */
+	private final EngineMetrics metrics =
+			EngineMetrics.get(getClass().getSimpleName());
 
 	@Override
 	public boolean isHuman() {
@@ -61,8 +82,106 @@ public class ComputerPlayer extends Player {
 		if (game == null || game.isGameOver()) {
 			return;
 		}
+		
+		// Use the move found while pondering, unless it now draws
+		long start = System.nanoTime();
+		checkNewGame(game);
+		long path = table.probe(game.hash());
+		Game after = (path == MovePath.NONE)? null : game.copy();
+		boolean isHit = after != null && after.move(path) && !after.isDraw();
+		this.metrics.recordProbe(isHit);
+		if (isHit) {
+			game.copyFrom(after);
+			this.metrics.recordSearch(0, 0, 0, 0, System.nanoTime() - start);
+		} else {
+			
+			// Determine the best move
+			Move m = getBestMove(game, false);
+			if (m != null) {
+				game.move(m.getPath());
+			}
+		}
+		
+		// The moves found so far were for positions before this move
+		this.table.clear();
+	}
+	
+	/**
+	 * Clears the transposition table if the game has fewer turns than when
+	 * this player last saw it, which means a new game was started or the
+	 * game state was replaced. The moves stored for the old game could
+	 * otherwise be made in a position with a different history.
+	 * 
+	 * @param game	the current game state.
+	 */
+	private synchronized void checkNewGame(Game game) {
+		int turnCount = game.getTurnHistory().length;
+		if (turnCount < lastTurnCount) {
+			this.table.clear();
+		}
+		this.lastTurnCount = turnCount;
+	}
+	
+	/**
+	 * Thinks about the moves the opponent is most likely to make. For each
+	 * predicted reply (most likely first), the best move in the resulting
+	 * position is stored in the transposition table so that it can be made
+	 * immediately if the opponent makes that reply. Stops when the thread is
+	 * interrupted or every reply has been considered.
+	 */
+	@Override
+	public void ponder(Game game) {
+		
+		// Nothing to do
+		if (!isPondering || game == null || game.isGameOver()) {
+			return;
+		}
+		
+		// Predict the replies by weighing them as the opponent
+		checkNewGame(game);
+		List<Move> replies = getMoves(game.copy());
+		for (Move m : replies) {
+			getMoveWeight(game.copy(), m);
+		}
+		replies.sort((m1, m2) ->
+				Double.compare(m2.getWeight(), m1.getWeight()));
+		
+		// Find the best move after each reply
+		for (Move reply : replies) {
+			if (Thread.currentThread().isInterrupted()) {
+				return;
+			}
+			Game after = game.copy();
+			if (!after.move(reply.getPath()) || after.isGameOver() ||
+					after.isP1Turn() == game.isP1Turn() ||
+					table.contains(after.hash())) {
+				continue;
+			}
+			Move best = getBestMove(after, true);
+			if (best != null) {
+				this.table.store(after.hash(), best.getPath());
+			}
+		}
+	}
+	
+	/**
+	 * Gets the move with the highest weight for the current player. If there
+	 * are multiple moves with the highest weight, one is randomly chosen.
+	 * <p>
+	 * Each move weighed is one node and one evaluation, at a depth of one
+	 * turn. This search does not prune, so there are no cutoffs.
+	 * 
+	 * @param game		the current game state.
+	 * @param isPonder	the flag indicating if the search is pondering, in
+	 * which case it is not recorded in the metrics.
+	 * @return the best move, or null if there are no moves.
+	 */
+	private Move getBestMove(Game game, boolean isPonder) {
 			
 		// Get the available moves
+		SearchEvent event = new SearchEvent();
+		event.begin();
+		long start = System.nanoTime();
 		Game copy = game.copy();
 		List<Move> moves = getMoves(copy);
 
@@ -79,6 +198,20 @@ public class ComputerPlayer extends Player {
 				count ++;
 			}
 		}
+		
+		// Record the search
+		event.end();
+		if (!isPonder) {
+			this.metrics.recordSearch(n, 1, n, 0, System.nanoTime() - start);
+		}
+		if (event.shouldCommit()) {
+			event.engine = metrics.getName();
+			event.nodes = n;
+			event.depth = 1;
+			event.evaluations = n;
+			event.isPonder = isPonder;
+			event.commit();
+		}
 
 		// Randomly select a move
 		int move = ((int) (Math.random() * count)) % count;
@@ -86,103 +219,63 @@ public class ComputerPlayer extends Player {
 			Move m = moves.get(i);
 			if (bestWeight == m.getWeight()) {
 				if (move == 0) {
-					game.move(m.getStartIndex(), m.getEndIndex());
-				} else {
-					move --;
+					return m;
 				}
+				move --;
 			}
 		}
+		
+		return null;
+	}
+	
+	public boolean isPondering() {
+		return isPondering;
 	}
 	
 	/**
-	 * Gets all the available moves and skips for the current player.
+	 * Sets whether this player thinks about its next move while the opponent
+	 * is deciding on theirs.
+	 * 
+	 * @param isPondering	true to enable pondering.
+	 * @see {@link #ponder(Game)}
+	 */
+	public void setPondering(boolean isPondering) {
+		this.isPondering = isPondering;
+	}
+	
+	public TranspositionTable getTranspositionTable() {
+		return table;
+	}
+	
+	public EngineMetrics getMetrics() {
+		return metrics;
+	}
+	
+	/**
+	 * Gets all the available turns for the current player. A chain of skips
+	 * is a single move with the complete path, so the whole turn is weighed
+	 * and made at once.
 	 * 
 	 * @param game	the current game state.
 	 * @return a list of valid moves that the player can make.
 	 */
 	private List<Move> getMoves(Game game) {
 		
-		// The next move needs to be a skip
-		if (game.getSkipIndex() >= 0) {
-			
-			List<Move> moves = new ArrayList<>();
-			List<Point> skips = MoveGenerator.getSkips(game.getBoard(),
-					game.getSkipIndex());
-			for (Point end : skips) {
-				moves.add(new Move(game.getSkipIndex(), Board.toIndex(end)));
-			}
+		long[] turns = game.getTurns();
+		List<Move> moves = new ArrayList<>(turns.length);
+		for (long path : turns) {
+			Move m = new Move(path);
 			
-			return moves;
-		}
-		
-		// Get the checkers
-		List<Point> checkers = new ArrayList<>();
-		Board b = game.getBoard();
-		if (game.isP1Turn()) {
-			checkers.addAll(b.find(Board.BLACK_CHECKER));
-			checkers.addAll(b.find(Board.BLACK_KING));
-		} else {
-			checkers.addAll(b.find(Board.WHITE_CHECKER));
-			checkers.addAll(b.find(Board.WHITE_KING));
-		}
-		
-		// Determine if there are any skips
-		List<Move> moves = new ArrayList<>();
-		for (Point checker : checkers) {
-			int index = Board.toIndex(checker);
-			List<Point> skips = MoveGenerator.getSkips(b, index);
-			for (Point end : skips) {
-				Move m = new Move(index, Board.toIndex(end));
+			// Give skips a higher weight, unless continuing a skip
+			if (game.getSkipIndex() < 0 && MovePath.isSkip(path)) {
 				m.changeWeight(WEIGHT_SKIP);
-				moves.add(m);
-			}
-		}
-		
-		// If there are no skips, add the regular moves
-		if (moves.isEmpty()) {
-			for (Point checker : checkers) {
-				int index = Board.toIndex(checker);
-				List<Point> movesEnds = MoveGenerator.getMoves(b, index);
-				for (Point end : movesEnds) {
-					moves.add(new Move(index, Board.toIndex(end)));
-				}
 			}
+			moves.add(m);
 		}
 		
 		return moves;
 	}
 	
-	/**
-	 * Gets the number of skips that can be made in one turn from a given start
-	 * index.
-	 * 
-	 * @param game			the game state to check against.
-	 * @param startIndex	the start index of the skips.
-	 * @param isP1Turn		the original player turn flag.
-	 * @return the maximum number of skips available from the given point.
-	 */
-	private int getSkipDepth(Game game, int startIndex, boolean isP1Turn) {
-		
-		// Trivial case
-		if (isP1Turn != game.isP1Turn()) {
-			return 0;
-		}
-		
-		// Recursively get the depth
-		List<Point> skips = MoveGenerator.getSkips(game.getBoard(), startIndex);
-		int depth = 0;
-		for (Point end : skips) {
-			int endIndex = Board.toIndex(end);
-			game.move(startIndex, endIndex);
-			int testDepth = getSkipDepth(game, endIndex, isP1Turn);
-			if (testDepth > depth) {
-				depth = testDepth;
-			}
-		}
-		
-		return depth + (skips.isEmpty()? 0 : 1);
-	}
-	
 	/**
 	 * Determines the weight of a move based on a number of factors (e.g. how
 	 * safe the checker is before/after, whether it can take an opponents
@@ -194,7 +287,7 @@ public class ComputerPlayer extends Player {
 	private void getMoveWeight(Game game, Move m) {
 		
 		Point start = m.getStart(), end = m.getEnd();
-		int startIndex = Board.toIndex(start), endIndex = Board.toIndex(end);
+		int endIndex = Board.toIndex(end);
 		Board b = game.getBoard();
 		boolean changed = game.isP1Turn();
 		boolean safeBefore = MoveLogic.isSafe(b, start);
@@ -202,21 +295,32 @@ public class ComputerPlayer extends Player {
 		// Set the initial weight
 		m.changeWeight(getSafetyWeight(b, game.isP1Turn()));
 		
-		// Make the move
-		if (!game.move(m.getStartIndex(), m.getEndIndex())) {
+		// Make the whole turn
+		if (!game.move(m.getPath())) {
 			m.setWeight(Move.WEIGHT_INVALID);
 			return;
 		}
+		
+		// The move results in a draw
+		if (game.isDraw()) {
+			m.setWeight(WEIGHT_DRAW);
+			return;
+		}
 		b = game.getBoard();
 		changed = (changed != game.isP1Turn());
 		int id = b.get(endIndex);
 		boolean isKing = Board.isKingChecker(id);
 		boolean safeAfter = true;
 		
+		// Add the weight of the extra skips made in this turn
+		int extraSkips = MovePath.isSkip(m.getPath())?
+				MovePath.getLength(m.getPath()) - 1 : 0;
+		m.changeWeight(WEIGHT_SKIP * extraSkips * extraSkips);
+		
 		// Determine if a skip could be made on next move
 		if (changed) {
 			safeAfter = MoveLogic.isSafe(b, end);
-			int depth = getSkipDepth(game, endIndex, !game.isP1Turn());
+			int depth = MoveGenerator.getCaptureDepth(b, endIndex);
 			if (safeAfter) {
 				m.changeWeight(SKIP_ON_NEXT * depth * depth);
 			} else {
@@ -224,12 +328,6 @@ public class ComputerPlayer extends Player {
 			}
 		}
 		
-		// Check how many more skips are available
-		else {
-			int depth = getSkipDepth(game, startIndex, game.isP1Turn());
-			m.changeWeight(WEIGHT_SKIP * depth * depth);
-		}
-		
 		// Add the weight appropriate to how safe the checker is
 		if (safeBefore && safeAfter) {
 			m.changeWeight(SAFE_SAFE);
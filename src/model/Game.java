@@ -7,16 +7,31 @@
 package model;
 
 import java.awt.Point;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import logic.MoveGenerator;
 import logic.MoveLogic;
+import logic.MovePath;
+import metrics.MoveEvent;
 
 /**
  * The {@code Game} class represents a game of checkers and ensures that all
  * moves made are valid as per the rules of checkers.
  */
 public class Game {
+	
+	/** The default number of turns in a row without a skip or a non-king
+	 * checker moving before the game is a draw (40 moves per player). */
+	public static final int DEFAULT_DRAW_TURN_LIMIT = 80;
+	
+	/** The number of times the same position must occur with the same player
+	 * to move for the game to be a draw. */
+	public static final int REPETITION_LIMIT = 3;
+	
+	/** The value mixed into the position hash when it is player 1's turn. */
+	private static final long P1_TURN_KEY = 0x6A09E667F3BCC909L;
 
 	/** The current state of the checker board. */
 	private Board board;
@@ -27,6 +42,63 @@ public class Game {
 	/** The index of the last skip, to allow for multiple skips in a turn. */
 	private int skipIndex;
 	
+	/** The stack of position hashes at the start of each turn, used to detect
+	 * repeated positions. */
+	private long[] history;
+	
+	/** The number of position hashes in {@link #history}. */
+	private int historySize;
+	
+	/** The index in {@link #history} of the first position after the last
+	 * irreversible move (a skip or a non-king checker moving). */
+	private int reversibleStart;
+	
+	/** The number of times the current position has occurred since the last
+	 * irreversible move. */
+	private int repetitions;
+	
+	/** The number of turns in a row without an irreversible move. */
+	private int quietTurns;
+	
+	/** The flag indicating if an irreversible move was made this turn. */
+	private boolean isIrreversibleTurn;
+	
+	/** The number of quiet turns before the game is a draw. */
+	private int drawTurnLimit = DEFAULT_DRAW_TURN_LIMIT;
+	
+	/** The flag indicating if {@link #isGameOver} is up to date with the
+	 * current position. */
+	private boolean isGameOverCached;
+	
+	/** The cached result of {@link #isGameOver()}. */
+	private boolean isGameOver;
+	
+	/** The legal moves in the current position, packed by
+	 * {@link MoveGenerator#packMove(int, int)}. */
+	private int[] legalMoves;
+	
+	/** The number of moves in {@link #legalMoves}, or -1 if the legal moves
+	 * have not been generated for the current position. */
+	private int legalMoveCount = -1;
+	
+	/** The board at the start of the turn history. */
+	private Board startBoard;
+	
+	/** The flag indicating if it was player 1's turn at the start of the turn
+	 * history. */
+	private boolean isStartP1Turn;
+	
+	/** The turns completed since the start position, encoded with
+	 * {@link MovePath}, or null if there are none. */
+	private long[] turns;
+	
+	/** The number of turns in {@link #turns}. */
+	private int turnCount;
+	
+	/** The steps made so far in the current turn, or {@link MovePath#NONE}
+	 * if no steps have been made. */
+	private long currentTurn = MovePath.NONE;
+	
 	public Game() {
 		restart();
 	}
@@ -39,6 +111,34 @@ public class Game {
 		this.board = (board == null)? new Board() : board;
 		this.isP1Turn = isP1Turn;
 		this.skipIndex = skipIndex;
+		resetHistory();
+	}
+	
+	/**
+	 * Creates a copy of another game. Nothing is set up before the fields are
+	 * copied, so no board or history is created only to be replaced.
+	 * 
+	 * @param g	the game to copy.
+	 * @see {@link #copy()}
+	 */
+	private Game(Game g) {
+		this.board = g.board.copy();
+		this.isP1Turn = g.isP1Turn;
+		this.skipIndex = g.skipIndex;
+		this.history = g.history.clone();
+		this.historySize = g.historySize;
+		this.reversibleStart = g.reversibleStart;
+		this.repetitions = g.repetitions;
+		this.quietTurns = g.quietTurns;
+		this.isIrreversibleTurn = g.isIrreversibleTurn;
+		this.drawTurnLimit = g.drawTurnLimit;
+		this.isGameOverCached = g.isGameOverCached;
+		this.isGameOver = g.isGameOver;
+		this.startBoard = g.startBoard;
+		this.isStartP1Turn = g.isStartP1Turn;
+		this.turns = (g.turns == null)? null : g.turns.clone();
+		this.turnCount = g.turnCount;
+		this.currentTurn = g.currentTurn;
 	}
 	
 	/**
@@ -48,11 +148,7 @@ public class Game {
 	 * @return an exact copy of this game.
 	 */
 	public Game copy() {
-		Game g = new Game();
-		g.board = board.copy();
-		g.isP1Turn = isP1Turn;
-		g.skipIndex = skipIndex;
-		return g;
+		return new Game(this);
 	}
 	
 	/**
@@ -62,6 +158,7 @@ public class Game {
 		this.board = new Board();
 		this.isP1Turn = true;
 		this.skipIndex = -1;
+		resetHistory();
 	}
 	
 	/**
@@ -88,6 +185,28 @@ public class Game {
 	 * @see {@link #move(Point, Point)}
 	 */
 	public boolean move(int startIndex, int endIndex) {
+		MoveEvent event = new MoveEvent();
+		event.begin();
+		boolean isValid = makeMove(startIndex, endIndex);
+		event.end();
+		if (event.shouldCommit()) {
+			event.start = startIndex;
+			event.steps = 1;
+			event.isValid = isValid;
+			event.commit();
+		}
+		return isValid;
+	}
+	
+	/**
+	 * Makes a move given the start and end index of the move, without
+	 * recording a {@link MoveEvent}.
+	 * 
+	 * @param startIndex	the start index of the move.
+	 * @param endIndex		the end index of the move.
+	 * @return true if and only if an update was made to the game state.
+	 */
+	private boolean makeMove(int startIndex, int endIndex) {
 		
 		// Validate the move
 		if (!MoveLogic.isValidMove(this, startIndex, endIndex)) {
@@ -97,9 +216,16 @@ public class Game {
 		// Make the move
 		Point middle = Board.middle(startIndex, endIndex);
 		int midIndex = Board.toIndex(middle);
+		if (Board.isValidIndex(midIndex) ||
+				!Board.isKingChecker(board.get(startIndex))) {
+			this.isIrreversibleTurn = true;
+		}
 		this.board.set(endIndex, board.get(startIndex));
 		this.board.set(midIndex, Board.EMPTY);
 		this.board.set(startIndex, Board.EMPTY);
+		this.currentTurn = (currentTurn == MovePath.NONE)?
+				MovePath.create(startIndex, endIndex) :
+				MovePath.append(currentTurn, endIndex);
 		
 		// Make the checker a king if necessary
 		Point end = Board.toPoint(endIndex);
@@ -118,59 +244,503 @@ public class Game {
 		if (midValid) {
 			this.skipIndex = endIndex;
 		}
-		if (!midValid || MoveGenerator.getSkips(
-				board.copy(), endIndex).isEmpty()) {
+		if (!midValid || !MoveGenerator.canSkip(board, endIndex)) {
 			switchTurn = true;
 		}
 		if (switchTurn) {
 			this.isP1Turn = !isP1Turn;
 			this.skipIndex = -1;
+			endTurn();
+			addTurn();
+		}
+		invalidateCache();
+		
+		return true;
+	}
+	
+	/**
+	 * Attempts to make every step of a path encoded with {@link MovePath}
+	 * (e.g. a complete chain of skips). Either every step is made or the game
+	 * is not updated at all.
+	 * 
+	 * @param path	the encoded path of the turn.
+	 * @return true if and only if every step of the path was made.
+	 * @see {@link #getTurns()}
+	 */
+	public boolean move(long path) {
+		MoveEvent event = new MoveEvent();
+		event.begin();
+		boolean isValid = makeTurn(path);
+		event.end();
+		if (event.shouldCommit()) {
+			event.start = MovePath.getStart(path);
+			event.steps = MovePath.getLength(path);
+			event.isValid = isValid;
+			event.commit();
+		}
+		return isValid;
+	}
+	
+	/**
+	 * Makes every step of a path encoded with {@link MovePath}, without
+	 * recording a {@link MoveEvent}.
+	 * 
+	 * @param path	the encoded path of the turn.
+	 * @return true if and only if every step of the path was made.
+	 */
+	private boolean makeTurn(long path) {
+		
+		// Trivial cases
+		int length = MovePath.getLength(path);
+		if (length == 0) {
+			return false;
+		} else if (length == 1) {
+			return makeMove(MovePath.getStart(path),
+					MovePath.getIndex(path, 0));
+		}
+		
+		// Make the moves on a copy in case a step is invalid
+		Game g = copy();
+		int start = MovePath.getStart(path);
+		for (int i = 0; i < length; i ++) {
+			int end = MovePath.getIndex(path, i);
+			if (!g.makeMove(start, end)) {
+				return false;
+			}
+			start = end;
 		}
 		
+		// Use the updated state
+		adopt(g);
+		
 		return true;
 	}
 	
+	/**
+	 * Updates this game to be an exact copy of another game, including the
+	 * position history. This allows a copy that was updated elsewhere (e.g.
+	 * by a player on another thread) to be applied to this game without
+	 * replacing the reference to it.
+	 * 
+	 * @param game	the game to copy the state from.
+	 * @see {@link #copy()}
+	 */
+	public void copyFrom(Game game) {
+		if (game == null || game == this) {
+			return;
+		}
+		adopt(game.copy());
+	}
+	
+	/**
+	 * Takes the state of another game, sharing its board and history. The
+	 * other game must not be used afterwards.
+	 * 
+	 * @param g	the game to take the state from.
+	 */
+	private void adopt(Game g) {
+		this.board = g.board;
+		this.isP1Turn = g.isP1Turn;
+		this.skipIndex = g.skipIndex;
+		this.history = g.history;
+		this.historySize = g.historySize;
+		this.reversibleStart = g.reversibleStart;
+		this.repetitions = g.repetitions;
+		this.quietTurns = g.quietTurns;
+		this.isIrreversibleTurn = g.isIrreversibleTurn;
+		this.drawTurnLimit = g.drawTurnLimit;
+		this.startBoard = g.startBoard;
+		this.isStartP1Turn = g.isStartP1Turn;
+		this.turns = g.turns;
+		this.turnCount = g.turnCount;
+		this.currentTurn = g.currentTurn;
+		invalidateCache();
+	}
+	
+	/**
+	 * Gets every complete turn the current player can make, with each chain
+	 * of skips as a single path.
+	 * 
+	 * @return the turns encoded with {@link MovePath}.
+	 * @see {@link #move(long)},
+	 * {@link MoveGenerator#getTurns(Board, boolean, int)}
+	 */
+	public long[] getTurns() {
+		return MoveGenerator.getTurns(board, isP1Turn, skipIndex);
+	}
+
+	/**
+	 * Finds the move that changes the current position into the position of a
+	 * game state, so that a state received from elsewhere (e.g. a remote
+	 * client) can be applied with {@link #move(long)} instead of
+	 * {@link #setGameState(String)}, which would clear the position and turn
+	 * history.
+	 *
+	 * @param state	the game state from {@link #getGameState()}.
+	 * @return the path of the move, or {@link MovePath#NONE} if the position
+	 * cannot be reached with one legal move.
+	 * @see {@link #findMove(int, int, int, boolean, int)}
+	 */
+	public long findMove(String state) {
+		if (state == null || state.isEmpty()) {
+			return MovePath.NONE;
+		}
+		Game g = new Game(state);
+		return findMove(g.board.getBlackMask(), g.board.getWhiteMask(),
+				g.board.getKingMask(), g.isP1Turn, g.skipIndex);
+	}
+
+	/**
+	 * Finds the move that changes the current position into another
+	 * position. The move is either a complete turn or the first steps of a
+	 * chain of skips, which leave the same player to move. The positions are
+	 * compared by their masks, so no board is created for each move.
+	 *
+	 * @param black		the mask of black pieces in the other position.
+	 * @param white		the mask of white pieces in the other position.
+	 * @param kings		the mask of kings in the other position.
+	 * @param isP1Turn	the flag indicating if it is player 1's turn in the
+	 * other position.
+	 * @param skipIndex	the index of the last skip in the other position, or
+	 * -1.
+	 * @return the path of the move, or {@link MovePath#NONE} if the position
+	 * cannot be reached with one legal move.
+	 * @see {@link Board#getBlackMask()}
+	 */
+	public long findMove(int black, int white, int kings, boolean isP1Turn,
+			int skipIndex) {
+
+		// Trivial cases
+		if (isGameOver()) {
+			return MovePath.NONE;
+		}
+		kings &= (black | white);
+
+		// Try each step of each turn the current player can make
+		int own = this.isP1Turn? board.getBlackMask() : board.getWhiteMask();
+		int other = this.isP1Turn? board.getWhiteMask() : board.getBlackMask();
+		int otherTarget = this.isP1Turn? white : black;
+		int ownTarget = this.isP1Turn? black : white;
+		for (long turn : getTurns()) {
+			int start = MovePath.getStart(turn);
+			boolean isKing = (board.getKingMask() & (1 << start)) != 0;
+			int length = MovePath.getLength(turn);
+			long path = MovePath.NONE;
+			for (int i = 0; i < length; i ++) {
+				int end = MovePath.getIndex(turn, i);
+				path = (i == 0)? MovePath.create(start, end) :
+					MovePath.append(path, end);
+
+				// Compare the position after the step
+				boolean isLast = (i == length - 1);
+				if (isP1Turn != (isLast ^ this.isP1Turn) ||
+						skipIndex != (isLast? -1 : end)) {
+					continue;
+				}
+				int captured = MovePath.getCapturedMask(path);
+				int moved = (own & ~(1 << start)) | (1 << end);
+				boolean isPromoted = isKing || (this.isP1Turn?
+						end >= 28 : end < 4);
+				int k = (board.getKingMask() & ~(1 << start) & ~captured) |
+						(isPromoted? 1 << end : 0);
+				if (moved == ownTarget && (other & ~captured) == otherTarget
+						&& k == kings) {
+					return path;
+				}
+			}
+		}
+
+		return MovePath.NONE;
+	}
+
+	/**
+	 * Records the position at the end of a turn in the history and updates
+	 * the repetition and quiet turn counts.
+	 */
+	private void endTurn() {
+		
+		// An irreversible move means no earlier position can occur again
+		if (isIrreversibleTurn) {
+			this.reversibleStart = historySize;
+			this.quietTurns = 0;
+			this.isIrreversibleTurn = false;
+		} else {
+			this.quietTurns ++;
+		}
+		
+		// Push the new position
+		long hash = hash();
+		if (historySize == history.length) {
+			this.history = Arrays.copyOf(history, historySize * 2);
+		}
+		this.history[historySize ++] = hash;
+		
+		// Count the repetitions (same player to move is every second turn)
+		this.repetitions = 0;
+		for (int i = historySize - 1; i >= reversibleStart; i -= 2) {
+			if (history[i] == hash) {
+				this.repetitions ++;
+			}
+		}
+	}
+	
+	/**
+	 * Adds the turn that was just completed to the turn history.
+	 */
+	private void addTurn() {
+		if (turns == null) {
+			this.turns = new long[64];
+		} else if (turnCount == turns.length) {
+			this.turns = Arrays.copyOf(turns, turnCount * 2);
+		}
+		this.turns[turnCount ++] = currentTurn;
+		this.currentTurn = MovePath.NONE;
+	}
+	
+	/**
+	 * Gets the turns completed since the start position, in the order they
+	 * were made. A turn that is still in progress (part way through a chain
+	 * of skips) is not included.
+	 * 
+	 * @return a new array with each turn encoded with {@link MovePath}.
+	 * @see {@link #getStartPosition()}
+	 */
+	public long[] getTurnHistory() {
+		return (turns == null)? new long[0] : Arrays.copyOf(turns, turnCount);
+	}
+	
+	/**
+	 * Gets the position the turn history starts from. This is the initial
+	 * position unless the game state was set directly (e.g. through
+	 * {@link #setGameState(String)}).
+	 * 
+	 * @return a new game at the start position.
+	 * @see {@link #getTurnHistory()}
+	 */
+	public Game getStartPosition() {
+		return new Game(startBoard.copy(), isStartP1Turn, -1);
+	}
+	
+	/**
+	 * Clears the position history so that the current position is the only
+	 * one that has occurred.
+	 */
+	private void resetHistory() {
+		if (history == null) {
+			this.history = new long[64];
+		}
+		this.history[0] = hash();
+		this.historySize = 1;
+		this.reversibleStart = 0;
+		this.repetitions = 1;
+		this.quietTurns = 0;
+		this.isIrreversibleTurn = false;
+		this.startBoard = board.copy();
+		this.isStartP1Turn = isP1Turn;
+		this.turnCount = 0;
+		this.currentTurn = MovePath.NONE;
+		invalidateCache();
+	}
+	
+	/**
+	 * Clears the values that are cached for the current position. This must
+	 * be called whenever the position changes.
+	 */
+	private void invalidateCache() {
+		this.isGameOverCached = false;
+		this.legalMoveCount = -1;
+	}
+	
+	/**
+	 * Generates the legal moves for the current position, if they have not
+	 * already been generated.
+	 */
+	private void generateLegalMoves() {
+		if (legalMoveCount >= 0) {
+			return;
+		}
+		if (legalMoves == null) {
+			this.legalMoves = new int[MoveGenerator.MAX_MOVES];
+		}
+		this.legalMoveCount = MoveGenerator.getLegalMoves(
+				board, isP1Turn, skipIndex, legalMoves);
+	}
+	
+	/**
+	 * Checks if a move is legal in the current position. The legal moves are
+	 * generated once per position, so this is a lookup in a short list.
+	 * 
+	 * @param startIndex	the start index of the move.
+	 * @param endIndex		the end index of the move.
+	 * @return true if and only if the move is legal.
+	 */
+	public boolean isLegalMove(int startIndex, int endIndex) {
+		if (!Board.isValidIndex(startIndex) || !Board.isValidIndex(endIndex)) {
+			return false;
+		}
+		generateLegalMoves();
+		int move = MoveGenerator.packMove(startIndex, endIndex);
+		for (int i = 0; i < legalMoveCount; i ++) {
+			if (legalMoves[i] == move) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	/**
+	 * Checks if the checker at the specified index has a legal move in the
+	 * current position.
+	 * 
+	 * @param startIndex	the index of the checker.
+	 * @return true if and only if at least one legal move starts at the index.
+	 */
+	public boolean hasLegalMove(int startIndex) {
+		generateLegalMoves();
+		for (int i = 0; i < legalMoveCount; i ++) {
+			if (MoveGenerator.getPackedStart(legalMoves[i]) == startIndex) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	/**
+	 * Checks if the current player is forced to skip.
+	 * 
+	 * @return true if and only if the legal moves are skips.
+	 */
+	public boolean isSkipRequired() {
+		generateLegalMoves();
+		if (legalMoveCount == 0) {
+			return false;
+		}
+		return Board.isValidIndex(Board.toIndex(Board.middle(
+				MoveGenerator.getPackedStart(legalMoves[0]),
+				MoveGenerator.getPackedEnd(legalMoves[0]))));
+	}
+	
+	/**
+	 * Gets the legal moves for the current player in the current position.
+	 * 
+	 * @return a new list with the legal moves.
+	 */
+	public List<Move> getLegalMoves() {
+		generateLegalMoves();
+		List<Move> moves = new ArrayList<>(legalMoveCount);
+		for (int i = 0; i < legalMoveCount; i ++) {
+			moves.add(new Move(MoveGenerator.getPackedStart(legalMoves[i]),
+					MoveGenerator.getPackedEnd(legalMoves[i])));
+		}
+		return moves;
+	}
+	
+	/**
+	 * Computes a 64-bit hash of the current position, which includes the
+	 * board and the player to move.
+	 * 
+	 * @return the hash of the current position.
+	 * @see {@link Board#hash()}
+	 */
+	public long hash() {
+		return board.hash() ^ (isP1Turn? P1_TURN_KEY : 0);
+	}
+	
+	/**
+	 * Determines if the game is a draw. The game is a draw if the same
+	 * position has occurred {@value #REPETITION_LIMIT} times with the same
+	 * player to move, or if the number of turns in a row without a skip or a
+	 * non-king checker moving has reached the draw turn limit.
+	 * 
+	 * @return true if the game is a draw.
+	 * @see {@link #setDrawTurnLimit(int)}
+	 */
+	public boolean isDraw() {
+		return repetitions >= REPETITION_LIMIT ||
+				(drawTurnLimit > 0 && quietTurns >= drawTurnLimit);
+	}
+	
 	/**
 	 * Gets a copy of the current board state.
 	 * 
 	 * @return a non-reference to the current game board state.
+	 * @see {@link #getBlackMask()}
 	 */
 	public Board getBoard() {
 		return board.copy();
 	}
 	
+	/**
+	 * Gets the mask of black pieces on the board, without copying the board.
+	 * 
+	 * @return the mask of black pieces.
+	 * @see {@link Board#getBlackMask()}
+	 */
+	public int getBlackMask() {
+		return board.getBlackMask();
+	}
+	
+	/**
+	 * Gets the mask of white pieces on the board, without copying the board.
+	 * 
+	 * @return the mask of white pieces.
+	 * @see {@link Board#getWhiteMask()}
+	 */
+	public int getWhiteMask() {
+		return board.getWhiteMask();
+	}
+	
+	/**
+	 * Gets the mask of kings on the board, without copying the board.
+	 * 
+	 * @return the mask of kings.
+	 * @see {@link Board#getKingMask()}
+	 */
+	public int getKingMask() {
+		return board.getKingMask();
+	}
+	
 	/**
 	 * Determines if the game is over. The game is over if one or both players
-	 * cannot make a single move during their turn.
+	 * cannot make a single move during their turn, or if it is a draw.
+	 * <p>
+	 * The result is cached until the position changes, so repeated calls are
+	 * constant time. If the board passed to
+	 * {@link #Game(Board, boolean, int)} is modified directly, the cache will
+	 * not be updated.
 	 * 
 	 * @return true if the game is over.
 	 */
 	public boolean isGameOver() {
-
-		// Ensure there is at least one of each checker
-		List<Point> black = board.find(Board.BLACK_CHECKER);
-		black.addAll(board.find(Board.BLACK_KING));
-		if (black.isEmpty()) {
+		if (!isGameOverCached) {
+			this.isGameOver = checkGameOver();
+			this.isGameOverCached = true;
+		}
+		return isGameOver;
+	}
+	
+	/**
+	 * Checks if the game is over using the piece and mobility masks of the
+	 * board, without allocating any objects.
+	 * 
+	 * @return true if the game is over.
+	 * @see {@link #isGameOver()}
+	 */
+	private boolean checkGameOver() {
+		
+		// The game is a draw
+		if (isDraw()) {
 			return true;
 		}
-		List<Point> white = board.find(Board.WHITE_CHECKER);
-		white.addAll(board.find(Board.WHITE_KING));
-		if (white.isEmpty()) {
+
+		// Ensure there is at least one of each checker
+		if (board.getBlackMask() == 0 || board.getWhiteMask() == 0) {
 			return true;
 		}
 		
 		// Check that the current player can move
-		List<Point> test = isP1Turn? black : white;
-		for (Point p : test) {
-			int i = Board.toIndex(p);
-			if (!MoveGenerator.getMoves(board, i).isEmpty() ||
-					!MoveGenerator.getSkips(board, i).isEmpty()) {
-				return false;
-			}
-		}
-		
-		// No moves
-		return true;
+		return MoveGenerator.getMoveMask(board, isP1Turn) == 0 &&
+				MoveGenerator.getSkipMask(board, isP1Turn) == 0;
 	}
 	
 	public boolean isP1Turn() {
@@ -179,12 +749,32 @@ public class Game {
 	
 	public void setP1Turn(boolean isP1Turn) {
 		this.isP1Turn = isP1Turn;
+		resetHistory();
 	}
 	
 	public int getSkipIndex() {
 		return skipIndex;
 	}
 	
+	public int getDrawTurnLimit() {
+		return drawTurnLimit;
+	}
+	
+	/**
+	 * Sets the number of turns in a row without a skip or a non-king checker
+	 * moving before the game is a draw.
+	 * 
+	 * @param drawTurnLimit	the new limit, or 0 or less to disable the rule.
+	 * @see {@link #isDraw()}
+	 */
+	public void setDrawTurnLimit(int drawTurnLimit) {
+		this.drawTurnLimit = drawTurnLimit;
+	}
+	
+	public int getQuietTurns() {
+		return quietTurns;
+	}
+	
 	/**
 	 * Gets the current game state as a string of data that can be parsed by
 	 * {@link #setGameState(String)}.
@@ -243,5 +833,6 @@ public class Game {
 				this.skipIndex = -1;
 			}
 		}
+		resetHistory();
 	}
 }
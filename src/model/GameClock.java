@@ -0,0 +1,288 @@
+/* Name: GameClock
+ * Author: Devon McGrath
+ * Description: This class keeps track of the time each player has left in a
+ * timed game.
+ */
+
+package model;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The {@code GameClock} class represents a chess clock for a game of
+ * checkers, with the time each player has left. Only the clock of the player
+ * whose turn it is runs, and {@link #press()} stops it and starts the other
+ * player's clock once the turn is over. A time control can add time after
+ * each turn (an increment) and/or let each turn start with time that is not
+ * taken off the clock (a delay). A player whose clock reaches 0 has run out
+ * of time, or "flagged".
+ * <p>
+ * The time is measured with {@link System#nanoTime()}, so changes to the
+ * system time do not affect it. The clock is kept separately from the
+ * {@link Game}, so it is not copied with the game or changed by
+ * {@link Game#setGameState(String)}. The methods are synchronized so the
+ * time can be read from other threads, such as a computer player's search.
+ */
+public class GameClock {
+
+	/** The number of turns a player is assumed to have left when dividing
+	 * the time left into time budgets. */
+	public static final int MOVES_TO_GO = 25;
+
+	/** The time in nanoseconds kept in reserve by
+	 * {@link #getTimeBudget(boolean)}, so a turn can be sent in time. */
+	private static final long SAFETY_MARGIN = TimeUnit.MILLISECONDS.toNanos(
+			100);
+
+	/** The time in nanoseconds player 1 had left at the start of the turn. */
+	private long remaining1;
+
+	/** The time in nanoseconds player 2 had left at the start of the turn. */
+	private long remaining2;
+
+	/** The time in nanoseconds added after each turn. */
+	private final long increment;
+
+	/** The time in nanoseconds at the start of each turn that is not taken
+	 * off the clock. */
+	private final long delay;
+
+	/** The flag indicating if player 1's clock is the one that runs. */
+	private boolean isP1Turn = true;
+
+	/** The {@link System#nanoTime()} when the current turn started. */
+	private long turnStart;
+
+	/** The flag indicating if the clock is running. */
+	private boolean isRunning;
+
+	/**
+	 * Creates a clock where both players start with the same time.
+	 *
+	 * @param time		the time each player starts with, in milliseconds.
+	 * @param increment	the time added after each turn, in milliseconds.
+	 * @param delay		the time at the start of each turn that is not taken
+	 * off the clock, in milliseconds.
+	 */
+	public GameClock(long time, long increment, long delay) {
+		this.remaining1 = TimeUnit.MILLISECONDS.toNanos(Math.max(0, time));
+		this.remaining2 = remaining1;
+		this.increment = TimeUnit.MILLISECONDS.toNanos(
+				Math.max(0, increment));
+		this.delay = TimeUnit.MILLISECONDS.toNanos(Math.max(0, delay));
+	}
+
+	/**
+	 * Creates a clock from a time control, which is the number of minutes
+	 * each player starts with, optionally followed by "+" and the increment
+	 * in seconds (e.g. "5+3"), or "d" and the delay in seconds (e.g. "5d2").
+	 *
+	 * @param timeControl	the time control.
+	 * @return the clock, or null if the time control is empty or invalid.
+	 */
+	public static GameClock parse(String timeControl) {
+
+		// Trivial cases
+		if (timeControl == null) {
+			return null;
+		}
+		String tc = timeControl.trim().toLowerCase();
+		if (tc.isEmpty()) {
+			return null;
+		}
+
+		// Split the time from the increment or delay
+		int i = Math.max(tc.indexOf('+'), tc.indexOf('d'));
+		try {
+			double minutes = Double.parseDouble(
+					i < 0? tc : tc.substring(0, i));
+			double seconds = i < 0? 0 : Double.parseDouble(
+					tc.substring(i + 1));
+			if (!(minutes > 0 && minutes < 1e6) ||
+					!(seconds >= 0 && seconds < 1e6)) {
+				return null;
+			}
+			long time = (long) (minutes * 60000);
+			long extra = (long) (seconds * 1000);
+			boolean isDelay = i >= 0 && tc.charAt(i) == 'd';
+			return new GameClock(time, isDelay? 0 : extra,
+					isDelay? extra : 0);
+		} catch (NumberFormatException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Starts the clock of the player whose turn it is.
+	 *
+	 * @param isP1Turn	the flag indicating if it is player 1's turn.
+	 */
+	public synchronized void start(boolean isP1Turn) {
+		this.isP1Turn = isP1Turn;
+		this.turnStart = System.nanoTime();
+		this.isRunning = true;
+	}
+
+	/**
+	 * Sets the time each player has left and starts the clock of the player
+	 * whose turn it is. This keeps a copy of the clock in step with the
+	 * official one, such as the times a checkers server sends after each
+	 * turn.
+	 *
+	 * @param remaining1	the time player 1 has left, in milliseconds.
+	 * @param remaining2	the time player 2 has left, in milliseconds.
+	 * @param isP1Turn		the flag indicating if it is player 1's turn.
+	 */
+	public synchronized void set(long remaining1, long remaining2,
+			boolean isP1Turn) {
+		this.remaining1 = TimeUnit.MILLISECONDS.toNanos(
+				Math.max(0, remaining1));
+		this.remaining2 = TimeUnit.MILLISECONDS.toNanos(
+				Math.max(0, remaining2));
+		start(isP1Turn);
+	}
+
+	/**
+	 * Stops the clock, keeping the time used in the current turn.
+	 */
+	public synchronized void stop() {
+		if (isRunning) {
+			setRemaining(isP1Turn, getRemainingNanos(isP1Turn));
+			this.isRunning = false;
+		}
+	}
+
+	/**
+	 * Ends the current player's turn: the time they used is taken off their
+	 * clock, the increment is added, and the other player's clock starts. A
+	 * player who already ran out of time gets no increment.
+	 *
+	 * @return false if the player ran out of time before the turn ended.
+	 */
+	public synchronized boolean press() {
+		long now = System.nanoTime();
+		boolean isInTime = true;
+		if (isRunning) {
+			long left = getRemainingNanos(isP1Turn, now);
+			isInTime = left > 0;
+			setRemaining(isP1Turn, isInTime? left + increment : 0);
+		}
+		this.isP1Turn = !isP1Turn;
+		this.turnStart = now;
+		this.isRunning = true;
+		return isInTime;
+	}
+
+	/**
+	 * Gets the time a player has left, including the time used in the
+	 * current turn.
+	 *
+	 * @param isPlayer1	the flag indicating if the time is for player 1.
+	 * @return the time in milliseconds.
+	 */
+	public synchronized long getRemaining(boolean isPlayer1) {
+		return TimeUnit.NANOSECONDS.toMillis(getRemainingNanos(isPlayer1));
+	}
+
+	/**
+	 * Gets the time until the current player runs out of time, including
+	 * the delay that is left in the turn.
+	 *
+	 * @return the time in nanoseconds, or {@link Long#MAX_VALUE} if the clock
+	 * is stopped.
+	 */
+	public synchronized long getTimeToFlag() {
+		if (!isRunning) {
+			return Long.MAX_VALUE;
+		}
+		long elapsed = System.nanoTime() - turnStart;
+		return Math.max(0, getTurnStartRemaining(isP1Turn) + delay - elapsed);
+	}
+
+	/**
+	 * Checks if a player has run out of time.
+	 *
+	 * @param isPlayer1	the flag indicating if the check is for player 1.
+	 * @return true if the player has no time left.
+	 */
+	public synchronized boolean isFlagged(boolean isPlayer1) {
+		return getRemainingNanos(isPlayer1) <= 0;
+	}
+
+	/**
+	 * Gets the time a computer player should spend on its turn: an equal
+	 * share of the time left for the next {@value #MOVES_TO_GO} turns, plus
+	 * the increment and delay it gets back for the turn. It is never more
+	 * than the time left, minus a small margin to send the turn.
+	 *
+	 * @param isPlayer1	the flag indicating if the budget is for player 1.
+	 * @return the time in milliseconds, which is at least 1.
+	 */
+	public synchronized long getTimeBudget(boolean isPlayer1) {
+		long left = getRemainingNanos(isPlayer1);
+		long budget = left / MOVES_TO_GO + increment + delay;
+		budget = Math.min(budget, left + delay - SAFETY_MARGIN);
+		return Math.max(1, TimeUnit.NANOSECONDS.toMillis(budget));
+	}
+
+	/**
+	 * Gets the time a player has left at the current time.
+	 *
+	 * @param isPlayer1	the flag indicating if the time is for player 1.
+	 * @return the time in nanoseconds.
+	 */
+	private long getRemainingNanos(boolean isPlayer1) {
+		return getRemainingNanos(isPlayer1, System.nanoTime());
+	}
+
+	/**
+	 * Gets the time a player has left at a point in time. The time used in
+	 * the current turn is only taken off once the delay is used up.
+	 *
+	 * @param isPlayer1	the flag indicating if the time is for player 1.
+	 * @param now		the {@link System#nanoTime()} to measure to.
+	 * @return the time in nanoseconds, which is never negative.
+	 */
+	private long getRemainingNanos(boolean isPlayer1, long now) {
+		long left = getTurnStartRemaining(isPlayer1);
+		if (isRunning && isPlayer1 == isP1Turn) {
+			left -= Math.max(0, now - turnStart - delay);
+		}
+		return Math.max(0, left);
+	}
+
+	private long getTurnStartRemaining(boolean isPlayer1) {
+		return isPlayer1? remaining1 : remaining2;
+	}
+
+	private void setRemaining(boolean isPlayer1, long remaining) {
+		if (isPlayer1) {
+			this.remaining1 = remaining;
+		} else {
+			this.remaining2 = remaining;
+		}
+	}
+
+	public synchronized boolean isRunning() {
+		return isRunning;
+	}
+
+	public synchronized boolean isP1Turn() {
+		return isP1Turn;
+	}
+
+	public long getIncrement() {
+		return TimeUnit.NANOSECONDS.toMillis(increment);
+	}
+
+	public long getDelay() {
+		return TimeUnit.NANOSECONDS.toMillis(delay);
+	}
+
+	@Override
+	public synchronized String toString() {
+		return getClass().getSimpleName() + "[player1=" + getRemaining(true)
+				+ "ms, player2=" + getRemaining(false) + "ms, increment="
+				+ getIncrement() + "ms, delay=" + getDelay() + "ms]";
+	}
+}
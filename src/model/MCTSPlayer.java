@@ -0,0 +1,757 @@
+/* Name: MCTSPlayer
+ * Author: Devon McGrath
+ * Description: This class represents a computer player that chooses moves
+ * with a Monte Carlo tree search.
+ */
+
+package model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import logic.MovePath;
+import metrics.EngineMetrics;
+import metrics.SearchEvent;
+
+/**
+ * The {@code MCTSPlayer} class represents a computer player that uses a Monte
+ * Carlo tree search (MCTS) to choose each turn. Positions are evaluated by
+ * playing random games (playouts) to the end, and the tree is grown towards
+ * the turns that win the most playouts using UCT selection.
+ * <p>
+ * The tree is stored in primitive arrays and shared by all search threads
+ * (tree parallelism). A virtual loss is added to the nodes a thread is
+ * exploring so other threads are steered to different parts of the tree. The
+ * part of the tree below the position that is reached after the opponent's
+ * reply is reused for the next search.
+ * <p>
+ * Each search runs until the time budget from {@link #getTimeBudget()} is
+ * used up or the searching thread is interrupted. In a timed game, the
+ * budget comes from the {@link GameClock} set with
+ * {@link #setClock(GameClock)} instead, so the player spends its time left
+ * across the rest of the game. While the opponent is
+ * deciding on their move, the player can keep searching the current position
+ * (see {@link #ponder(Game)}). Statistics for the last search are available
+ * through {@link #getStatistics()} and for every search through
+ * {@link #getMetrics()}, where each node on the way to a playout is counted
+ * as a node searched and each playout as an evaluation.
+ */
+public class MCTSPlayer extends Player {
+
+	/** The default amount of milliseconds to search for each turn. */
+	public static final long DEFAULT_TIME_BUDGET = 1000;
+
+	/** The default maximum number of nodes in the search tree. */
+	public static final int DEFAULT_CAPACITY = 1 << 18;
+
+	/** The exploration constant used by UCT selection. */
+	private static final double EXPLORATION = Math.sqrt(2);
+
+	/** The number of losses temporarily added to a node while a thread is
+	 * exploring it. */
+	private static final int VIRTUAL_LOSS = 3;
+
+	/** The maximum number of turns in a playout before the result is
+	 * estimated from the material on the board. */
+	private static final int MAX_PLAYOUT_TURNS = 150;
+
+	/** The value of a king compared to a checker when estimating the result
+	 * of an unfinished playout. */
+	private static final double KING_VALUE = 1.5;
+
+	/** The value of {@link #childCount} for a node that was not expanded. */
+	private static final int UNEXPANDED = -1;
+
+	/** The threads that run the searches of every MCTS player. Threads are
+	 * created as needed and stop after being idle for a minute, so players
+	 * that are no longer used do not keep any threads. The threads are daemon
+	 * threads so they do not prevent the program from exiting. */
+	private static final ExecutorService SEARCH_EXECUTOR =
+			Executors.newCachedThreadPool(r -> {
+				Thread t = new Thread(r, "MCTS search");
+				t.setDaemon(true);
+				return t;
+			});
+
+	/** The number of milliseconds to search for each turn. */
+	private long timeBudget;
+
+	/** The clock of the game, or null if the game is not timed. */
+	private volatile GameClock clock;
+
+	/** The number of threads used to search. */
+	private int threads;
+
+	/** The maximum number of nodes in the tree. */
+	private int capacity;
+
+	/** The parent of each node, or -1 for the root. */
+	private int[] parent;
+
+	/** The index of the first child of each node. */
+	private int[] firstChild;
+
+	/** The number of children of each node, or {@link #UNEXPANDED}. */
+	private int[] childCount;
+
+	/** The number of playouts through each node. */
+	private int[] visits;
+
+	/** The number of virtual losses currently added to each node. */
+	private int[] virtualLosses;
+
+	/** The total result of the playouts through each node, for the player
+	 * who made the turn leading to the node. */
+	private double[] wins;
+
+	/** The turn leading to each node, encoded with {@link MovePath}. */
+	private long[] paths;
+
+	/** The position hash of each node. */
+	private long[] hashes;
+
+	/** The flag for each node indicating if player 1 made the turn leading
+	 * to it. */
+	private boolean[] isP1Move;
+
+	/** The number of nodes in the tree. */
+	private int size;
+
+	/** The root node of the tree. */
+	private int root = -1;
+
+	/** The lock that guards the tree arrays. */
+	private final Object treeLock = new Object();
+
+	/** The lock that allows only one search to run at a time. */
+	private final Object searchLock = new Object();
+
+	/** The flag telling the search threads to stop. */
+	private volatile boolean isStopped;
+
+	/** The flag indicating if this player searches on the opponent's time. */
+	private volatile boolean isPondering = true;
+
+	/** The number of playouts in the last search. */
+	private final AtomicLong playouts = new AtomicLong();
+
+	/** The metrics shared by every MCTS player. */
+	private final EngineMetrics metrics =
+			EngineMetrics.get(getClass().getSimpleName());
+
+	/** The number of nanoseconds the last search took. */
+	private volatile long lastSearchTime;
+
+	/** The number of threads the last search used. */
+	private volatile int lastThreads;
+
+	/** The number of nodes reused from the previous search. */
+	private volatile int lastReused;
+
+	public MCTSPlayer() {
+		this(DEFAULT_TIME_BUDGET,
+				Runtime.getRuntime().availableProcessors());
+	}
+
+	public MCTSPlayer(long timeBudget, int threads) {
+		this(timeBudget, threads, DEFAULT_CAPACITY);
+	}
+
+	public MCTSPlayer(long timeBudget, int threads, int capacity) {
+		setTimeBudget(timeBudget);
+		this.threads = Math.max(1, threads);
+		this.capacity = Math.max(16, capacity);
+	}
+
+	@Override
+	public boolean isHuman() {
+		return false;
+	}
+
+	@Override
+	public void updateGame(Game game) {
+
+		// Nothing to do
+		if (game == null || game.isGameOver()) {
+			return;
+		}
+
+		// Search and make the most visited turn
+		GameClock clock = this.clock;
+		long path = search(game, clock == null? timeBudget :
+			clock.getTimeBudget(game.isP1Turn()));
+		if (path != MovePath.NONE) {
+			game.move(path);
+		}
+	}
+
+	/**
+	 * Continues searching while the opponent decides on their move, until the
+	 * thread is interrupted or the tree is full. The opponent's reply will be
+	 * one of the children of the root, so its subtree is reused when
+	 * {@link #updateGame(Game)} is called.
+	 */
+	@Override
+	public void ponder(Game game) {
+		if (isPondering && game != null && !game.isGameOver()) {
+			search(game, Long.MAX_VALUE, true);
+		}
+	}
+
+	/**
+	 * Searches the position for the specified amount of time and returns the
+	 * best turn found. The search stops early if the calling thread is
+	 * interrupted.
+	 *
+	 * @param game		the position to search.
+	 * @param millis	the number of milliseconds to search.
+	 * @return the turn with the most playouts encoded with {@link MovePath},
+	 * or {@link MovePath#NONE} if there are no turns.
+	 */
+	public long search(Game game, long millis) {
+		long nanos = millis > Long.MAX_VALUE / 1000000L?
+				Long.MAX_VALUE : millis * 1000000L;
+		return search(game, nanos, false);
+	}
+
+	/**
+	 * Searches the position and returns the best turn found. Only one search
+	 * runs at a time, and this method does not return until every search
+	 * thread has stopped.
+	 *
+	 * @param game		the position to search.
+	 * @param nanos		the number of nanoseconds to search.
+	 * @param isPonder	the flag indicating if the search is pondering, in
+	 * which case it also stops when the tree is full and the statistics are
+	 * not updated.
+	 * @return the turn with the most playouts encoded with {@link MovePath},
+	 * or {@link MovePath#NONE} if there are no turns.
+	 */
+	private long search(Game game, long nanos, final boolean isPonder) {
+
+		// Trivial cases
+		long[] turns = game.getTurns();
+		if (turns.length == 0) {
+			return MovePath.NONE;
+		} else if (turns.length == 1) {
+			return turns[0];
+		}
+
+		synchronized (searchLock) {
+
+			// Set up the tree and run the search on each thread
+			SearchEvent event = new SearchEvent();
+			event.begin();
+			final Game rootGame = game.copy();
+			setRoot(rootGame);
+			final long start = System.nanoTime();
+			final long deadline = (nanos > Long.MAX_VALUE - start)?
+					Long.MAX_VALUE : start + nanos;
+			final AtomicLong count = isPonder? new AtomicLong() : playouts;
+			final AtomicLong nodes = new AtomicLong();
+			final AtomicInteger maxDepth = new AtomicInteger();
+			count.set(0);
+			this.isStopped = false;
+			if (!isPonder) {
+				this.metrics.recordProbe(lastReused > 0);
+			}
+
+			// Each thread counts locally and adds its totals once at the end
+			List<Future<?>> tasks = new ArrayList<>();
+			for (int i = 0; i < threads; i ++) {
+				tasks.add(SEARCH_EXECUTOR.submit(() -> {
+					long n = 0, visited = 0;
+					int deepest = 0;
+					while (!isStopped && System.nanoTime() < deadline &&
+							(!isPonder || size < capacity * 3 / 4)) {
+						int depth = iterate(rootGame);
+						visited += depth;
+						deepest = Math.max(deepest, depth);
+						n ++;
+					}
+					count.addAndGet(n);
+					nodes.addAndGet(visited);
+					maxDepth.accumulateAndGet(deepest, Math::max);
+				}));
+			}
+
+			// Wait for the threads to finish, stopping them if interrupted
+			boolean interrupted = false;
+			for (Future<?> task : tasks) {
+				while (true) {
+					try {
+						task.get();
+						break;
+					} catch (InterruptedException e) {
+						interrupted = true;
+						this.isStopped = true;
+					} catch (ExecutionException e) {
+						e.printStackTrace();
+						break;
+					}
+				}
+			}
+			if (interrupted) {
+				Thread.currentThread().interrupt();
+			}
+			if (!isPonder) {
+				this.lastSearchTime = System.nanoTime() - start;
+				this.lastThreads = threads;
+				this.metrics.recordSearch(nodes.get(), maxDepth.get(),
+						count.get(), 0, lastSearchTime);
+			}
+			event.end();
+			if (event.shouldCommit()) {
+				event.engine = metrics.getName();
+				event.nodes = nodes.get();
+				event.depth = maxDepth.get();
+				event.evaluations = count.get();
+				event.isPonder = isPonder;
+				event.commit();
+			}
+
+			return getBestTurn();
+		}
+	}
+
+	/**
+	 * Performs one iteration of the search: selects a leaf node, expands it,
+	 * plays a random game from one of its children and updates the statistics
+	 * of every node on the way back to the root.
+	 *
+	 * @param rootGame	the position at the root of the tree.
+	 * @return the number of turns from the root to the position the playout
+	 * started from.
+	 */
+	private int iterate(Game rootGame) {
+
+		// Select a leaf, adding a virtual loss to each node on the way
+		int[] selected = new int[64];
+		int depth = 0, node;
+		synchronized (treeLock) {
+			node = root;
+			this.virtualLosses[node] += VIRTUAL_LOSS;
+			selected[depth ++] = node;
+			while (childCount[node] > 0) {
+				node = selectChild(node);
+				this.virtualLosses[node] += VIRTUAL_LOSS;
+				if (depth == selected.length) {
+					selected = Arrays.copyOf(selected, depth * 2);
+				}
+				selected[depth ++] = node;
+			}
+		}
+
+		// Get the position at the leaf
+		Game game = rootGame.copy();
+		for (int i = 1; i < depth; i ++) {
+			game.move(paths[selected[i]]);
+		}
+
+		// Expand the leaf and move to one of its new children
+		if (!game.isGameOver()) {
+			long[] turns = game.getTurns();
+			synchronized (treeLock) {
+				if (childCount[node] == UNEXPANDED &&
+						size + turns.length <= capacity) {
+					expand(node, game, turns);
+				}
+				if (childCount[node] > 0) {
+					int child = firstChild[node] + ThreadLocalRandom.current()
+							.nextInt(childCount[node]);
+					this.virtualLosses[child] += VIRTUAL_LOSS;
+					if (depth == selected.length) {
+						selected = Arrays.copyOf(selected, depth * 2);
+					}
+					selected[depth ++] = child;
+					game.move(paths[child]);
+				}
+			}
+		}
+
+		// Play a random game and update the nodes
+		double result = playout(game);
+		synchronized (treeLock) {
+			for (int i = 0; i < depth; i ++) {
+				int n = selected[i];
+				this.virtualLosses[n] -= VIRTUAL_LOSS;
+				this.visits[n] ++;
+				this.wins[n] += isP1Move[n]? result : 1 - result;
+			}
+		}
+
+		return depth - 1;
+	}
+
+	/**
+	 * Selects the child of a node with the highest UCT value. Virtual losses
+	 * count as visits without a win. Must be called while holding the tree
+	 * lock.
+	 *
+	 * @param node	the node to select a child of.
+	 * @return the selected child.
+	 */
+	private int selectChild(int node) {
+		int best = firstChild[node], end = best + childCount[node];
+		double bestValue = Double.NEGATIVE_INFINITY;
+		double logVisits = Math.log(visits[node] + virtualLosses[node] + 1);
+		for (int c = firstChild[node]; c < end; c ++) {
+			int n = visits[c] + virtualLosses[c];
+			if (n == 0) {
+				return c;
+			}
+			double value = wins[c] / n +
+					EXPLORATION * Math.sqrt(logVisits / n);
+			if (value > bestValue) {
+				bestValue = value;
+				best = c;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Adds a child to a node for each turn available. Must be called while
+	 * holding the tree lock.
+	 *
+	 * @param node	the node to expand.
+	 * @param game	the position at the node.
+	 * @param turns	the turns available in the position.
+	 */
+	private void expand(int node, Game game, long[] turns) {
+		this.firstChild[node] = size;
+		this.childCount[node] = turns.length;
+		for (long path : turns) {
+			Game child = game.copy();
+			child.move(path);
+			newNode(node, path, child.hash(), game.isP1Turn());
+		}
+	}
+
+	/**
+	 * Adds a node to the tree. Must be called while holding the tree lock.
+	 *
+	 * @param parent	the parent node, or -1 for the root.
+	 * @param path		the turn leading to the node.
+	 * @param hash		the position hash at the node.
+	 * @param isP1Move	the flag indicating if player 1 made the turn.
+	 * @return the index of the new node.
+	 */
+	private int newNode(int parent, long path, long hash, boolean isP1Move) {
+		int node = size ++;
+		this.parent[node] = parent;
+		this.firstChild[node] = -1;
+		this.childCount[node] = UNEXPANDED;
+		this.visits[node] = 0;
+		this.virtualLosses[node] = 0;
+		this.wins[node] = 0;
+		this.paths[node] = path;
+		this.hashes[node] = hash;
+		this.isP1Move[node] = isP1Move;
+		return node;
+	}
+
+	/**
+	 * Plays random turns until the game is over or the turn limit is reached.
+	 * Skips are always taken since they are forced by the rules.
+	 *
+	 * @param game	the position to start from (which is modified).
+	 * @return the result for player 1: 1 for a win, 0 for a loss and 0.5 for
+	 * a draw, or an estimate if the game did not finish.
+	 */
+	private static double playout(Game game) {
+
+		// Play random turns
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		for (int i = 0; i < MAX_PLAYOUT_TURNS && !game.isGameOver(); i ++) {
+			long[] turns = game.getTurns();
+			game.move(turns[random.nextInt(turns.length)]);
+		}
+
+		// The game finished
+		if (game.isGameOver()) {
+			if (game.isDraw()) {
+				return 0.5;
+			}
+			return game.isP1Turn()? 0 : 1;
+		}
+
+		// Estimate the result from the material
+		Board b = game.getBoard();
+		int kings = b.getKingMask();
+		double black = Integer.bitCount(b.getBlackMask() & ~kings) +
+				KING_VALUE * Integer.bitCount(b.getBlackMask() & kings);
+		double white = Integer.bitCount(b.getWhiteMask() & ~kings) +
+				KING_VALUE * Integer.bitCount(b.getWhiteMask() & kings);
+		return 0.5 + 0.5 * (black - white) / (black + white);
+	}
+
+	/**
+	 * Sets the root of the tree to the specified position. If the position is
+	 * in the tree within two turns of the current root (i.e. after this
+	 * player's last turn and the opponent's reply), that part of the tree is
+	 * reused. Otherwise, the tree is cleared. If the tree is at least 3/4 full
+	 * (e.g. after pondering), the reused part is moved to the start of the
+	 * arrays so the rest of the tree is freed.
+	 *
+	 * @param game	the position at the new root.
+	 */
+	private void setRoot(Game game) {
+		synchronized (treeLock) {
+
+			// Allocate the tree
+			if (parent == null) {
+				this.parent = new int[capacity];
+				this.firstChild = new int[capacity];
+				this.childCount = new int[capacity];
+				this.visits = new int[capacity];
+				this.virtualLosses = new int[capacity];
+				this.wins = new double[capacity];
+				this.paths = new long[capacity];
+				this.hashes = new long[capacity];
+				this.isP1Move = new boolean[capacity];
+			}
+
+			// Try to find the position in the tree
+			long hash = game.hash();
+			int node = (root >= 0)? findNode(root, hash, 2) : -1;
+			if (node >= 0) {
+				if (node != root && size >= capacity * 3 / 4) {
+					node = compact(node);
+				}
+				this.root = node;
+				this.lastReused = visits[node];
+				return;
+			}
+
+			// Start a new tree
+			this.size = 0;
+			this.root = newNode(-1, MovePath.NONE, hash, !game.isP1Turn());
+			this.lastReused = 0;
+		}
+	}
+
+	/**
+	 * Moves the subtree below a node to the start of the tree arrays, dropping
+	 * every other node. The nodes are copied in breadth-first order, so the
+	 * children of each node stay next to each other. Must be called while
+	 * holding the tree lock, between searches.
+	 *
+	 * @param node	the node to keep the subtree of.
+	 * @return the new index of the node, which is 0.
+	 */
+	private int compact(int node) {
+		
+		// Copy the subtree into new arrays
+		int[] parent = new int[capacity];
+		int[] firstChild = new int[capacity];
+		int[] childCount = new int[capacity];
+		int[] visits = new int[capacity];
+		double[] wins = new double[capacity];
+		long[] paths = new long[capacity];
+		long[] hashes = new long[capacity];
+		boolean[] isP1Move = new boolean[capacity];
+		int[] order = new int[size];
+		order[0] = node;
+		parent[0] = -1;
+		int count = 1;
+		for (int i = 0; i < count; i ++) {
+			int old = order[i];
+			childCount[i] = this.childCount[old];
+			visits[i] = this.visits[old];
+			wins[i] = this.wins[old];
+			paths[i] = this.paths[old];
+			hashes[i] = this.hashes[old];
+			isP1Move[i] = this.isP1Move[old];
+			firstChild[i] = -1;
+			if (childCount[i] > 0) {
+				firstChild[i] = count;
+				int end = this.firstChild[old] + childCount[i];
+				for (int c = this.firstChild[old]; c < end; c ++) {
+					parent[count] = i;
+					order[count ++] = c;
+				}
+			}
+		}
+		
+		// Use the new arrays
+		this.parent = parent;
+		this.firstChild = firstChild;
+		this.childCount = childCount;
+		this.visits = visits;
+		this.virtualLosses = new int[capacity];
+		this.wins = wins;
+		this.paths = paths;
+		this.hashes = hashes;
+		this.isP1Move = isP1Move;
+		this.size = count;
+		return 0;
+	}
+
+	/**
+	 * Finds a node with the specified position hash. Must be called while
+	 * holding the tree lock.
+	 *
+	 * @param node	the node to start searching from.
+	 * @param hash	the position hash to find.
+	 * @param depth	the maximum number of turns below the node to search.
+	 * @return the node with the hash, or -1 if it was not found.
+	 */
+	private int findNode(int node, long hash, int depth) {
+		if (hashes[node] == hash) {
+			return node;
+		} else if (depth == 0 || childCount[node] <= 0) {
+			return -1;
+		}
+		int end = firstChild[node] + childCount[node];
+		for (int c = firstChild[node]; c < end; c ++) {
+			int found = findNode(c, hash, depth - 1);
+			if (found >= 0) {
+				return found;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Gets the turn leading to the child of the root with the most visits.
+	 *
+	 * @return the best turn, or {@link MovePath#NONE} if the root has no
+	 * children.
+	 */
+	private long getBestTurn() {
+		synchronized (treeLock) {
+			if (childCount[root] <= 0) {
+				return MovePath.NONE;
+			}
+			int best = firstChild[root], end = best + childCount[root];
+			for (int c = best + 1; c < end; c ++) {
+				if (visits[c] > visits[best]) {
+					best = c;
+				}
+			}
+			return paths[best];
+		}
+	}
+
+	/**
+	 * Measures how the number of playouts per second scales with the number
+	 * of threads by searching the same position with 1 thread, 2 threads, and
+	 * so on (doubling each time) up to the maximum.
+	 *
+	 * @param game			the position to search.
+	 * @param maxThreads	the maximum number of threads to test.
+	 * @param millis		the number of milliseconds to search for each test.
+	 * @return a report with one line per thread count.
+	 */
+	public static String measureScaling(Game game, int maxThreads,
+			long millis) {
+		String report = "";
+		double base = 0;
+		for (int t = 1; t <= maxThreads; t *= 2) {
+			MCTSPlayer player = new MCTSPlayer(millis, t);
+			player.search(game, millis);
+			double pps = player.getPlayoutsPerSecond();
+			if (t == 1) {
+				base = pps;
+			}
+			report += String.format("threads=%d playouts/s=%.0f speedup=%.2f%n",
+					t, pps, base == 0? 0 : pps / base);
+		}
+		return report;
+	}
+
+	public long getTimeBudget() {
+		return timeBudget;
+	}
+
+	public void setTimeBudget(long timeBudget) {
+		this.timeBudget = Math.max(1, timeBudget);
+	}
+
+	public GameClock getClock() {
+		return clock;
+	}
+
+	/**
+	 * Sets the clock of the game, so the time budget of each turn is taken
+	 * from the time this player has left (see
+	 * {@link GameClock#getTimeBudget(boolean)}).
+	 *
+	 * @param clock	the clock, or null to use {@link #getTimeBudget()}.
+	 */
+	@Override
+	public void setClock(GameClock clock) {
+		this.clock = clock;
+	}
+
+	public int getThreads() {
+		return threads;
+	}
+
+	public boolean isPondering() {
+		return isPondering;
+	}
+
+	/**
+	 * Sets whether this player keeps searching while the opponent is
+	 * deciding on their move.
+	 *
+	 * @param isPondering	true to enable pondering.
+	 * @see {@link #ponder(Game)}
+	 */
+	public void setPondering(boolean isPondering) {
+		this.isPondering = isPondering;
+	}
+
+	/**
+	 * Gets the number of playouts made in the last search.
+	 *
+	 * @return the number of playouts.
+	 */
+	public long getPlayouts() {
+		return playouts.get();
+	}
+
+	public EngineMetrics getMetrics() {
+		return metrics;
+	}
+
+	/**
+	 * Gets the number of playouts per second made in the last search.
+	 *
+	 * @return the playout rate, or 0 if there has not been a search.
+	 */
+	public double getPlayoutsPerSecond() {
+		long time = lastSearchTime;
+		return time <= 0? 0 : playouts.get() * 1e9 / time;
+	}
+
+	/**
+	 * Gets a summary of the last search, including the number of playouts per
+	 * second, the number of threads and how many playouts were reused from
+	 * the previous search.
+	 *
+	 * @return the statistics of the last search.
+	 */
+	public String getStatistics() {
+		return String.format("playouts=%d playouts/s=%.0f threads=%d "
+				+ "time=%dms nodes=%d reused=%d", playouts.get(),
+				getPlayoutsPerSecond(), lastThreads, lastSearchTime / 1000000,
+				size, lastReused);
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + "[isHuman=" + isHuman()
+				+ ", timeBudget=" + timeBudget + ", threads=" + threads + "]";
+	}
+}
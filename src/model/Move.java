@@ -7,6 +7,8 @@ package model;
 
 import java.awt.Point;
 
+import logic.MovePath;
+
 /**
  * The {@code Move} class represents a move and contains a weight associated
  * with the move.
@@ -25,11 +27,18 @@ public class Move {
 	/** The weight associated with the move. */
 	private double weight;
 	
+	/** The complete path of the move, encoded with {@link MovePath}. */
+	private long path;
+	
 	public Move(int startIndex, int endIndex) {
 		setStartIndex(startIndex);
 		setEndIndex(endIndex);
 	}
 	
+	public Move(long path) {
+		setPath(path);
+	}
+	
 	public Move(Point start, Point end) {
 		setStartIndex(Board.toIndex(start));
 		setEndIndex(Board.toIndex(end));
@@ -41,6 +50,7 @@ public class Move {
 	
 	public void setStartIndex(int startIndex) {
 		this.startIndex = (byte) startIndex;
+		this.path = MovePath.create(startIndex, endIndex);
 	}
 	
 	public int getEndIndex() {
@@ -49,6 +59,23 @@ public class Move {
 	
 	public void setEndIndex(int endIndex) {
 		this.endIndex = (byte) endIndex;
+		this.path = MovePath.create(startIndex, endIndex);
+	}
+	
+	public long getPath() {
+		return path;
+	}
+	
+	/**
+	 * Sets the complete path of the move, which may be a chain of skips. The
+	 * start and end index are updated to match the path.
+	 * 
+	 * @param path	the path encoded with {@link MovePath}.
+	 */
+	public void setPath(long path) {
+		this.startIndex = (byte) MovePath.getStart(path);
+		this.endIndex = (byte) MovePath.getEnd(path);
+		this.path = path;
 	}
 	
 	public Point getStart() {
@@ -82,6 +109,7 @@ public class Move {
 	@Override
 	public String toString() {
 		return getClass().getSimpleName() + "[startIndex=" + startIndex + ", "
-				+ "endIndex=" + endIndex + ", weight=" + weight + "]";
+				+ "endIndex=" + endIndex + ", path=" + MovePath.toString(path)
+				+ ", weight=" + weight + "]";
 	}
 }
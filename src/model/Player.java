@@ -24,11 +24,34 @@ public abstract class Player {
 	 * Updates the game state to take a move for the current player. If there
 	 * is a move available that is multiple skips, it may be performed at once
 	 * by this method or one skip at a time.
+	 * <p>
+	 * This method may be called on a background thread with a copy of the
+	 * game. If the thread is interrupted, the player should stop searching
+	 * and return as soon as possible.
 	 * 
 	 * @param game	the game to update.
 	 */
 	public abstract void updateGame(Game game);
 	
+	/**
+	 * Thinks about the game while the opponent is deciding on their move
+	 * (pondering), so that {@link #updateGame(Game)} can respond faster. This
+	 * is called on a background thread with a copy of the game where it is
+	 * the opponent's turn, and should return once the thread is interrupted.
+	 * By default, players do not ponder and this method returns immediately.
+	 * 
+	 * @param game	the game, with the opponent to move.
+	 */
+	public void ponder(Game game) {}
+	
+	/**
+	 * Sets the clock of a timed game, so the player can decide how much time
+	 * to spend on each turn. By default, players ignore the clock.
+	 * 
+	 * @param clock	the clock, or null if the game is not timed.
+	 */
+	public void setClock(GameClock clock) {}
+	
 	@Override
 	public String toString() {
 		return getClass().getSimpleName() + "[isHuman=" + isHuman() + "]";
@@ -0,0 +1,379 @@
+/* Name: BinaryCodec
+ * Author: Devon McGrath
+ * Description: This class encodes and decodes the messages of the binary
+ * network protocol.
+ */
+
+package network;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+
+import model.Board;
+import model.Game;
+
+/**
+ * The {@code BinaryCodec} class encodes and decodes the messages of version
+ * {@value #VERSION} of the network protocol, where every command and response
+ * is a fixed size message of {@value #MESSAGE_SIZE} bytes:
+ * <pre>
+ * byte	the marker ({@value #MARKER})
+ * byte	the opcode (e.g. {@link #OP_UPDATE})
+ * long	the high 64 bits of the session token
+ * long	the low 64 bits of the session token
+ * int	the mask of black pieces
+ * int	the mask of white pieces
+ * int	the mask of kings
+ * byte	1 if it is player 1's turn, 0 otherwise
+ * byte	the skip index, or -1
+ * </pre>
+ * The game state is zero for messages without one (e.g. a
+ * {@link #OP_DISCONNECT}). Messages are encoded into and decoded from a
+ * {@link ByteBuffer} owned by the caller, which can be reused for every
+ * message (see {@link #getBuffer()}), so encoding and decoding do not
+ * allocate. An update is applied by finding the move that leads to the
+ * masks in the message (see {@link #findMove(ByteBuffer, Game)}), without
+ * creating a game or a game state string.
+ * <p>
+ * The protocol is negotiated during the text {@code CONNECT} command: a
+ * client that supports this version adds it as an extra line, and a client
+ * that accepts adds the version as an extra line of its response (see
+ * {@link CheckersNetworkHandler}). The session token is the session ID parsed
+ * as a {@link SessionToken}. Clients that do not send the version keep using
+ * the text protocol.
+ */
+public final class BinaryCodec {
+
+	/** The version of the protocol. The text protocol is version 1. */
+	public static final int VERSION = 2;
+
+	/** The first byte of a binary message, which tells it apart from a
+	 * {@link Frame} or a line of text. */
+	public static final int MARKER = 1;
+
+	/** The number of bytes in a message. */
+	public static final int MESSAGE_SIZE = 32;
+
+	/** The opcode to update the game state. */
+	public static final int OP_UPDATE = 1;
+
+	/** The opcode to get the game state. */
+	public static final int OP_GET = 2;
+
+	/** The opcode to disconnect. */
+	public static final int OP_DISCONNECT = 3;
+
+	/** The opcode of a heartbeat, which keeps the session alive. */
+	public static final int OP_HEARTBEAT = 4;
+
+	/** The opcode of a response that was accepted. */
+	public static final int OP_ACCEPTED = 0x10;
+
+	/** The opcode of a response that was denied. */
+	public static final int OP_DENIED = 0x11;
+
+	/** The timeout in milliseconds to wait for a response. */
+	private static final int TIMEOUT = 5000;
+
+	/** The board at the start of a game. */
+	private static final Board START_BOARD = new Board();
+
+	/** The buffer each thread encodes and decodes messages with. */
+	private static final ThreadLocal<ByteBuffer> BUFFER =
+			ThreadLocal.withInitial(BinaryCodec::allocate);
+
+	private BinaryCodec() {}
+
+	/**
+	 * Creates a buffer that can hold one message.
+	 *
+	 * @return the buffer.
+	 */
+	public static ByteBuffer allocate() {
+		return ByteBuffer.allocate(MESSAGE_SIZE);
+	}
+
+	/**
+	 * Gets the buffer of the current thread, which is reused for every
+	 * message the thread sends or receives. The buffer must not be kept after
+	 * the message is handled.
+	 *
+	 * @return the buffer.
+	 */
+	public static ByteBuffer getBuffer() {
+		return BUFFER.get();
+	}
+
+	/**
+	 * Encodes a message without a game state.
+	 *
+	 * @param buf		the buffer to encode the message into.
+	 * @param opcode	the opcode (e.g. {@link #OP_DISCONNECT}).
+	 * @param token		the session token, or null to send zeros.
+	 */
+	public static void encode(ByteBuffer buf, int opcode,
+			SessionToken token) {
+		encode(buf, opcode, token, 0, 0, 0, false, -1);
+	}
+
+	/**
+	 * Encodes a message with the state of a game, which is read from the
+	 * masks of the game without copying its board.
+	 *
+	 * @param buf		the buffer to encode the message into.
+	 * @param opcode	the opcode (e.g. {@link #OP_UPDATE}).
+	 * @param token		the session token, or null to send zeros.
+	 * @param game		the game.
+	 */
+	public static void encode(ByteBuffer buf, int opcode, SessionToken token,
+			Game game) {
+		encode(buf, opcode, token, game.getBlackMask(), game.getWhiteMask(),
+				game.getKingMask(), game.isP1Turn(), game.getSkipIndex());
+	}
+
+	/**
+	 * Encodes a message. The buffer is cleared first and is ready to be
+	 * written afterwards.
+	 *
+	 * @param buf		the buffer to encode the message into.
+	 * @param opcode	the opcode (e.g. {@link #OP_UPDATE}).
+	 * @param token		the session token, or null to send zeros.
+	 * @param black		the mask of black pieces.
+	 * @param white		the mask of white pieces.
+	 * @param kings		the mask of kings.
+	 * @param isP1Turn	the flag indicating if it is player 1's turn.
+	 * @param skipIndex	the index of the checker that must skip, or -1.
+	 */
+	public static void encode(ByteBuffer buf, int opcode, SessionToken token,
+			int black, int white, int kings, boolean isP1Turn,
+			int skipIndex) {
+		buf.clear();
+		buf.put((byte) MARKER).put((byte) opcode)
+				.putLong(token == null? 0 : token.getHigh())
+				.putLong(token == null? 0 : token.getLow())
+				.putInt(black).putInt(white).putInt(kings)
+				.put((byte) (isP1Turn? 1 : 0)).put((byte) skipIndex);
+		buf.flip();
+	}
+
+	/**
+	 * Checks if a buffer holds a valid message.
+	 *
+	 * @param buf	the buffer with the message.
+	 * @return true if the message has the right size and marker.
+	 */
+	public static boolean isValid(ByteBuffer buf) {
+		return buf.limit() == MESSAGE_SIZE && buf.get(0) == MARKER;
+	}
+
+	/**
+	 * Gets the opcode of a message.
+	 *
+	 * @param buf	the buffer with the message.
+	 * @return the opcode (e.g. {@link #OP_UPDATE}).
+	 */
+	public static int getOpcode(ByteBuffer buf) {
+		return buf.get(1) & 0xFF;
+	}
+
+	/**
+	 * Gets the session token in a message.
+	 *
+	 * @param buf	the buffer with the message.
+	 * @return the token.
+	 * @see {@link #matches(ByteBuffer, SessionToken)}
+	 */
+	public static SessionToken getToken(ByteBuffer buf) {
+		return new SessionToken(buf.getLong(2), buf.getLong(10));
+	}
+
+	/**
+	 * Checks if the session token in a message is a specific token, in
+	 * constant time and without decoding the token.
+	 *
+	 * @param buf	the buffer with the message.
+	 * @param token	the expected token.
+	 * @return true if the token is not null and matches the message.
+	 */
+	public static boolean matches(ByteBuffer buf, SessionToken token) {
+		return token != null && token.matches(buf.getLong(2), buf.getLong(10));
+	}
+
+	/**
+	 * Gets the mask of black pieces in a message.
+	 *
+	 * @param buf	the buffer with the message.
+	 * @return the mask.
+	 * @see {@link Board#getBlackMask()}
+	 */
+	public static int getBlack(ByteBuffer buf) {
+		return buf.getInt(18);
+	}
+
+	/**
+	 * Gets the mask of white pieces in a message.
+	 *
+	 * @param buf	the buffer with the message.
+	 * @return the mask.
+	 * @see {@link Board#getWhiteMask()}
+	 */
+	public static int getWhite(ByteBuffer buf) {
+		return buf.getInt(22);
+	}
+
+	/**
+	 * Gets the mask of kings in a message.
+	 *
+	 * @param buf	the buffer with the message.
+	 * @return the mask.
+	 * @see {@link Board#getKingMask()}
+	 */
+	public static int getKings(ByteBuffer buf) {
+		return buf.getInt(26);
+	}
+
+	/**
+	 * Checks if it is player 1's turn in the state in a message.
+	 *
+	 * @param buf	the buffer with the message.
+	 * @return true if it is player 1's turn.
+	 */
+	public static boolean isP1Turn(ByteBuffer buf) {
+		return buf.get(30) != 0;
+	}
+
+	/**
+	 * Gets the index of the checker that must skip in the state in a
+	 * message.
+	 *
+	 * @param buf	the buffer with the message.
+	 * @return the index, which is -1 (or invalid) if no skip is required.
+	 */
+	public static int getSkipIndex(ByteBuffer buf) {
+		return buf.get(31);
+	}
+
+	/**
+	 * Checks if the state in a message is the start of a new game.
+	 *
+	 * @param buf	the buffer with the message.
+	 * @return true if the pieces are in their starting positions and it is
+	 * player 1's turn.
+	 */
+	public static boolean isStartState(ByteBuffer buf) {
+		return getBlack(buf) == START_BOARD.getBlackMask() &&
+				getWhite(buf) == START_BOARD.getWhiteMask() &&
+				getKings(buf) == START_BOARD.getKingMask() &&
+				isP1Turn(buf) && !Board.isValidIndex(getSkipIndex(buf));
+	}
+
+	/**
+	 * Finds the move that changes a game into the state in a message,
+	 * straight from the masks in the message.
+	 *
+	 * @param buf	the buffer with the message.
+	 * @param game	the game to find the move in.
+	 * @return the path of the move, or {@link logic.MovePath#NONE} if the
+	 * state cannot be reached with one legal move.
+	 * @see {@link Game#findMove(int, int, int, boolean, int)}
+	 */
+	public static long findMove(ByteBuffer buf, Game game) {
+		int skipIndex = getSkipIndex(buf);
+		return game.findMove(getBlack(buf), getWhite(buf), getKings(buf),
+				isP1Turn(buf), Board.isValidIndex(skipIndex)? skipIndex : -1);
+	}
+
+	/**
+	 * Gets the name of the text command for an opcode.
+	 *
+	 * @param opcode	the opcode (e.g. {@link #OP_UPDATE}).
+	 * @return the command (e.g. {@link Command#COMMAND_UPDATE}), or the
+	 * opcode as a string if it is not a command.
+	 */
+	public static String getCommand(int opcode) {
+		if (opcode == OP_UPDATE) {
+			return Command.COMMAND_UPDATE;
+		} else if (opcode == OP_GET) {
+			return Command.COMMAND_GET;
+		} else if (opcode == OP_DISCONNECT) {
+			return Command.COMMAND_DISCONNECT;
+		} else if (opcode == OP_HEARTBEAT) {
+			return Command.COMMAND_HEARTBEAT;
+		}
+		return "" + opcode;
+	}
+
+	/**
+	 * Creates a game from the state in a message.
+	 *
+	 * @param buf	the buffer with the message.
+	 * @return the game.
+	 */
+	public static Game toGame(ByteBuffer buf) {
+		Board b = new Board();
+		b.setMasks(getBlack(buf), getWhite(buf), getKings(buf));
+		int skipIndex = getSkipIndex(buf);
+		return new Game(b, isP1Turn(buf),
+				Board.isValidIndex(skipIndex)? skipIndex : -1);
+	}
+
+	/**
+	 * Reads a message into a buffer, which is ready to be decoded afterwards.
+	 *
+	 * @param in	the stream to read from.
+	 * @param buf	the buffer to read the message into.
+	 * @throws IOException if the message could not be read.
+	 */
+	public static void read(InputStream in, ByteBuffer buf)
+			throws IOException {
+		byte[] data = buf.array();
+		int read = 0;
+		while (read < MESSAGE_SIZE) {
+			int n = in.read(data, read, MESSAGE_SIZE - read);
+			if (n < 0) {
+				throw new EOFException("Message ended after " + read
+						+ " bytes");
+			}
+			read += n;
+		}
+		buf.clear().limit(MESSAGE_SIZE);
+	}
+
+	/**
+	 * Writes the message in a buffer.
+	 *
+	 * @param out	the stream to write to.
+	 * @param buf	the buffer with the message.
+	 * @throws IOException if the message could not be written.
+	 */
+	public static void write(OutputStream out, ByteBuffer buf)
+			throws IOException {
+		out.write(buf.array(), 0, buf.limit());
+		out.flush();
+	}
+
+	/**
+	 * Sends the message in a buffer and reads the response into the same
+	 * buffer.
+	 *
+	 * @param host	the remote host (e.g. 127.0.0.1).
+	 * @param port	the port to connect to.
+	 * @param buf	the buffer with the message.
+	 * @return the opcode of the response, or -1 if an error occurred.
+	 */
+	public static int send(String host, int port, ByteBuffer buf) {
+		try (Socket s = new Socket(host, port)) {
+			s.setSoTimeout(TIMEOUT);
+			write(s.getOutputStream(), buf);
+			read(s.getInputStream(), buf);
+			return isValid(buf)? getOpcode(buf) : -1;
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+		return -1;
+	}
+}
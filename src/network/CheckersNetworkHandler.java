@@ -9,9 +9,12 @@ package network;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.io.IOException;
-import java.io.OutputStream;
 import java.net.Socket;
+import java.nio.ByteBuffer;
 
+import logic.MovePath;
+import metrics.HandlerEvent;
+import model.Game;
 import model.NetworkPlayer;
 import ui.CheckerBoard;
 import ui.CheckersWindow;
@@ -24,21 +27,28 @@ import ui.OptionPanel;
  * and perform an action on this client. It sends two responses: accepted and
  * denied. Each response starts with the corresponding string
  * {@link #RESPONSE_ACCEPTED} or {@link #RESPONSE_DENIED}.
+ * <p>
+ * The session ID given to a remote client is a {@link SessionToken}, which is
+ * compared in constant time. Commands are normally text, but a client that
+ * includes {@link BinaryCodec#VERSION} as the last line of its {@code CONNECT}
+ * command can then send {@link BinaryCodec} messages.
+ * <p>
+ * The remote client can only change the game with the moves of its own
+ * player: a {@code MOVE} must be legal, and an {@code UPDATE} must be a state
+ * that one legal move leads to (or the start of a new game).
  */
 public class CheckersNetworkHandler implements ActionListener {
 	
-	/** The minimum number of characters in the session ID. */
-	private static final int MIN_SID_LENGTH = 16;
-	
-	/** The max number of characters in the session ID. */
-	private static final int MAX_SID_LENGTH = 64;
-
 	/** The start of a response that was accepted. */
 	public static final String RESPONSE_ACCEPTED = "ACCEPTED";
 
 	/** The start of a response that was denied. */
 	public static final String RESPONSE_DENIED = "DENIED";
 
+	/** The state at the start of a game, which is accepted as an update so
+	 * the other client can restart the game. */
+	private static final String START_STATE = new Game().getGameState();
+
 	/** The flag indicating if this handler is handling a connection to player
 	 * 1 or not. */
 	private boolean isPlayer1;
@@ -72,8 +82,14 @@ public class CheckersNetworkHandler implements ActionListener {
 		}
 
 		// Get the data from the connection
+		HandlerEvent event = new HandlerEvent();
+		event.begin();
 		ConnectionHandler handler = (ConnectionHandler) e.getSource();
-		String data = ConnectionListener.read(handler.getSocket());
+		if (handler.peek() == BinaryCodec.MARKER) {
+			handleBinary(handler, event);
+			return;
+		}
+		String data = handler.read();
 		data = data.replace("\r\n", "\n");
 		
 		// Unable to handle
@@ -89,17 +105,23 @@ public class CheckersNetworkHandler implements ActionListener {
 		String cmd = lines[0].split(" ")[0].toUpperCase();
 		String sid = lines.length > 1? lines[1] : "";
 		String response = "";
-		boolean match = false;
-		if (isPlayer1) {
-			match = sid.equals(s1.getSid());
-		} else {
-			match = sid.equals(s2.getSid());
+		Session s = isPlayer1? s1 : s2;
+		boolean match = s.matches(sid);
+		if (match) {
+			s.touch();
 		}
 
 		// A connected client wants to update the board
 		if (cmd.equals(Command.COMMAND_UPDATE)) {
 			String newState = (match && lines.length > 2? lines[2] : "");
-			response = handleUpdate(newState);
+			String times = (lines.length > 3? lines[3] : "");
+			response = handleUpdate(newState, times);
+		}
+		
+		// A connected client made a move
+		else if (cmd.equals(Command.COMMAND_MOVE)) {
+			String move = (match && lines.length > 2? lines[2] : "");
+			response = handleMove(move);
 		}
 		
 		// A client wants to connect to this one
@@ -115,8 +137,15 @@ public class CheckersNetworkHandler implements ActionListener {
 			String isP1 = (lines.length > 2? lines[2] : "");
 			boolean remotePlayer1 = isP1.startsWith("1");
 			
+			// Get the highest protocol version the client supports
+			int version = 1;
+			try {
+				version = lines.length > 3? Integer.parseInt(lines[3]) : 1;
+			} catch (NumberFormatException err) {}
+			
 			// Handle the connect request
-			response = handleConnect(handler.getSocket(), port, remotePlayer1);
+			response = handleConnect(handler.getSocket(), port, remotePlayer1,
+					version);
 		}
 		
 		// A connected client wants the current game state
@@ -131,22 +160,53 @@ public class CheckersNetworkHandler implements ActionListener {
 			}
 		}
 		
+		// A connected client is still there
+		else if (cmd.equals(Command.COMMAND_HEARTBEAT)) {
+			if (match) {
+				s.heartbeat();
+				response = RESPONSE_ACCEPTED;
+			} else {
+				response = RESPONSE_DENIED;
+			}
+		}
+		
+		// A client wants to spectate the game
+		else if (cmd.equals(Command.COMMAND_SUBSCRIBE)) {
+			
+			// Get the port that was passed (in the SID field)
+			int port = -1;
+			try {
+				port = Integer.parseInt(sid);
+			} catch (NumberFormatException err) {}
+			
+			// Add the spectator
+			if (port > 0 && port <= 65535) {
+				String host = handler.getSocket().getInetAddress()
+						.getHostAddress();
+				SpectatorBroadcaster spectators = board.getSpectators();
+				response = RESPONSE_ACCEPTED + "\n"
+						+ spectators.subscribe(host, port) + "\n"
+						+ spectators.getGameID() + "\n"
+						+ board.getGame().getGameState();
+			} else {
+				response = RESPONSE_DENIED + "\nError: invalid port.";
+			}
+		}
+		
+		// A spectator no longer wants to spectate the game
+		else if (cmd.equals(Command.COMMAND_UNSUBSCRIBE)) {
+			if (board.getSpectators().unsubscribe(sid)) {
+				response = RESPONSE_ACCEPTED;
+			} else {
+				response = RESPONSE_DENIED + "\nError: not subscribed.";
+			}
+		}
+		
 		// A connected client wants to disconnect
 		else if (cmd.equals(Command.COMMAND_DISCONNECT)) {
 			
 			// Disconnect if SID match
-			if (match) {
-				response = RESPONSE_ACCEPTED + "\nClient has been disconnected.";
-				if (isPlayer1) {
-					s1.setSid(null);
-					this.opts.getNetworkWindow1().setCanUpdateConnect(true);
-				} else {
-					s2.setSid(null);
-					this.opts.getNetworkWindow2().setCanUpdateConnect(true);
-				}
-			} else {
-				response = RESPONSE_DENIED + "\nError: cannot disconnect if not connected.";
-			}
+			response = handleDisconnect(match);
 		}
 		
 		// Invalid command
@@ -157,27 +217,116 @@ public class CheckersNetworkHandler implements ActionListener {
 
 		// Send the response to whoever connected
 		sendResponse(handler, response);
+		event.end();
+		if (event.shouldCommit()) {
+			event.command = cmd;
+			event.bytesReceived = Frame.getSize(data, handler.isFramed());
+			event.bytesSent = Frame.getSize(response, handler.isFramed());
+			event.isAccepted = response.startsWith(RESPONSE_ACCEPTED);
+			event.commit();
+		}
 	}
 	
 	/**
 	 * Handles the update command from a connected client. The update commands
 	 * is used by the other connected client to update the game state after a
-	 * move was made. If both players on this client are network players, then
-	 * the state if forwarded to the other player (effectively making this
-	 * client a router).
+	 * move was made. The state is only accepted if it is the remote player's
+	 * turn and one legal move leads to it, which is then made on this
+	 * client's game, so the position and turn history are kept. The only
+	 * other state that is accepted is the start of a new game, which is sent
+	 * when the other client restarts the game, but only once the game is
+	 * over or before the first move (see
+	 * {@link CheckerBoard#isRestartAllowed()}). If both players on this client
+	 * are network players, then the state if forwarded to the other player
+	 * (effectively making this client a router).
+	 * 
+	 * <p>
+	 * A checkers server also sends the time each player has left in a timed
+	 * game, which the clock on this client is set to before the next player
+	 * starts.
 	 * 
-	 * @param newState
-	 * @return
+	 * @param newState	the game state after the move.
+	 * @param times		the time each player has left, or an empty string.
+	 * @return the response to send to the remote client.
 	 */
-	private String handleUpdate(String newState) {
+	private String handleUpdate(String newState, String times) {
 		
 		// New state is invalid 
 		if (newState.isEmpty()) {
 			return RESPONSE_DENIED;
 		}
 
-		// Update the current client's game state
-		this.board.setGameState(false, newState, null);
+		// Make the move that leads to the new state, or restart the game
+		if (newState.equals(START_STATE)) {
+			if (!board.restart(newState)) {
+				return RESPONSE_DENIED + "\nError: the game can only be "
+						+ "restarted once it is over.\n"
+						+ board.getGame().getGameState();
+			}
+		} else if (!board.applyState(isPlayer1, newState)) {
+			return RESPONSE_DENIED + "\nError: the state cannot be reached "
+					+ "with a legal move.\n" + board.getGame().getGameState();
+		}
+		if (!times.isEmpty()) {
+			this.board.syncClock(times);
+		}
+		forward();
+
+		return RESPONSE_ACCEPTED;
+	}
+	
+	/**
+	 * Handles a {@link BinaryCodec} update from a connected client in the
+	 * same way as {@link #handleUpdate(String, String)}, but the move is found
+	 * straight from the masks in the message.
+	 * 
+	 * @param buf	the buffer with the message.
+	 * @return the response to send to the remote client.
+	 */
+	private String handleUpdate(ByteBuffer buf) {
+		
+		// Make the move that leads to the new state, or restart the game
+		if (BinaryCodec.isStartState(buf)) {
+			if (!board.restart(START_STATE)) {
+				return RESPONSE_DENIED;
+			}
+		} else if (!board.applyState(isPlayer1, buf)) {
+			return RESPONSE_DENIED;
+		}
+		forward();
+		
+		return RESPONSE_ACCEPTED;
+	}
+	
+	/**
+	 * Handles the move command from a connected client, which makes the move
+	 * if it is the remote player's turn and the move is legal.
+	 * 
+	 * @param move	the path of the move (e.g. "8x17x24").
+	 * @return the response to send to the remote client, with the new game
+	 * state if the move was made.
+	 */
+	private String handleMove(String move) {
+		
+		// Make the move
+		long path = MovePath.parse(move);
+		if (path == MovePath.NONE) {
+			return RESPONSE_DENIED + "\nError: invalid move '" + move + "'.";
+		} else if (!board.applyPath(isPlayer1, path)) {
+			return RESPONSE_DENIED + "\nError: illegal move '" + move
+					+ "'.\n" + board.getGame().getGameState();
+		}
+		forward();
+		
+		return RESPONSE_ACCEPTED + "\n" + board.getGame().getGameState();
+	}
+	
+	/**
+	 * Runs the next player after a move from the remote client. If both
+	 * players on this client are network players, the move is forwarded to
+	 * the other player (effectively making this client a router).
+	 */
+	private void forward() {
 		if (!board.getCurrentPlayer().isHuman()) {
 			board.update();
 		}
@@ -191,8 +340,6 @@ public class CheckersNetworkHandler implements ActionListener {
 				board.getPlayer1() instanceof NetworkPlayer) {
 			board.sendGameState(window.getSession1());
 		}
-
-		return RESPONSE_ACCEPTED;
 	}
 	
 	/**
@@ -204,9 +351,11 @@ public class CheckersNetworkHandler implements ActionListener {
 	 * @param s				the socket that the remote client used to connect.
 	 * @param port			the port that the remote client sent in the request.
 	 * @param remotePlayer1	the flag indicating if the remote player is player 1.
+	 * @param version		the highest protocol version the client supports.
 	 * @return the resulting response to send to the remote client.
 	 */
-	private String handleConnect(Socket s, int port, boolean remotePlayer1) {
+	private String handleConnect(Socket s, int port, boolean remotePlayer1,
+			int version) {
 
 		// Check if there is someone already connected
 		Session s1 = window.getSession1(), s2 = window.getSession2();
@@ -232,94 +381,150 @@ public class CheckersNetworkHandler implements ActionListener {
 		}
 
 		// Update the connection
-		String sid = generateSessionID();
+		String sid = SessionToken.generate().toString();
 		Session session = isPlayer1? s1 : s2;
 		NetworkWindow win = (isPlayer1?
 				opts.getNetworkWindow1() : opts.getNetworkWindow2());
 		session.setSid(sid);
 		session.setDestinationHost(host);
 		session.setDestinationPort(port);
+		version = Math.max(1, Math.min(version, BinaryCodec.VERSION));
+		session.setVersion(version);
 
 		// Update the UI
 		win.setDestinationHost(host);
 		win.setDestinationPort(port);
 		win.setCanUpdateConnect(false);
 		win.setMessage("  Connected to " + host + ":" + port + ".");
+		Heartbeat.start(session, this::handleTimeout);
 
-		return RESPONSE_ACCEPTED + "\n" + sid + "\nSuccessfully connected.";
-	}
+		// Add the protocol version if not using the text protocol
+		String response = RESPONSE_ACCEPTED + "\n" + sid
+				+ "\nSuccessfully connected.";
+		if (version > 1) {
+			response += "\n" + version;
+		}
 
+		return response;
+	}
+	
 	/**
-	 * Sends a response to the connection handler's connection, if it is not
-	 * closed.
+	 * Disconnects the connected client.
 	 * 
-	 * @param handler	the connection handler to send the response to.
-	 * @param response	the response data to send.
+	 * @param match	the flag indicating if the client sent the session ID or
+	 * token of the connected client.
+	 * @return the resulting response to send to the remote client.
 	 */
-	private static void sendResponse(ConnectionHandler handler,
-			String response) {
-
-		// Trivial cases
-		if (handler == null) {
-			return;
-		}
-		Socket s = handler.getSocket();
-		if (s == null || s.isClosed()) {
-			return;
+	private String handleDisconnect(boolean match) {
+		
+		// Not connected
+		if (!match) {
+			return RESPONSE_DENIED + "\nError: cannot disconnect if not "
+					+ "connected.";
 		}
-		if (response == null) {
-			response = "";
+		
+		// Clear the session
+		Session session = isPlayer1?
+				window.getSession1() : window.getSession2();
+		session.setSid(null);
+		session.setVersion(1);
+		session.setGameID(0);
+		if (isPlayer1) {
+			this.opts.getNetworkWindow1().setCanUpdateConnect(true);
+		} else {
+			this.opts.getNetworkWindow2().setCanUpdateConnect(true);
 		}
-
-		// Write the response and close the connection
-		try (OutputStream os = s.getOutputStream()) {
-			os.write(response.getBytes());
-			os.flush();
+		
+		return RESPONSE_ACCEPTED + "\nClient has been disconnected.";
+	}
+	
+	/**
+	 * Disconnects the connected client after it stopped sending heartbeats.
+	 */
+	private void handleTimeout() {
+		handleDisconnect(true);
+		NetworkWindow win = (isPlayer1?
+				opts.getNetworkWindow1() : opts.getNetworkWindow2());
+		win.setMessage("  Error: the connection timed out.");
+	}
+	
+	/**
+	 * Handles a {@link BinaryCodec} message. The token in the message must
+	 * match the token of the connected client.
+	 * 
+	 * @param handler	the connection with the message.
+	 * @param event		the event to record the command in.
+	 */
+	private void handleBinary(ConnectionHandler handler, HandlerEvent event) {
+		
+		// Read the message
+		ByteBuffer buf = BinaryCodec.getBuffer();
+		try {
+			BinaryCodec.read(handler.getInput(), buf);
 		} catch (IOException e) {
 			e.printStackTrace();
-		} finally {
-
-			// Close the socket
-			try {
-				s.close();
-			} catch (IOException e) {
-				e.printStackTrace();
-			}
+			handler.respond("");
+			return;
+		}
+		int opcode = BinaryCodec.getOpcode(buf);
+		
+		// Determine if a valid user
+		String response = RESPONSE_DENIED;
+		Session s = (window == null)? null :
+			(isPlayer1? window.getSession1() : window.getSession2());
+		SessionToken token = s == null? null : s.getToken();
+		boolean match = s != null && s.getVersion() > 1 &&
+				BinaryCodec.matches(buf, token);
+		
+		// Handle the command
+		if (match) {
+			s.touch();
+		}
+		if (!match || board == null || opts == null) {
+			response = RESPONSE_DENIED;
+		} else if (opcode == BinaryCodec.OP_HEARTBEAT) {
+			s.heartbeat();
+			response = RESPONSE_ACCEPTED;
+		} else if (opcode == BinaryCodec.OP_UPDATE) {
+			response = handleUpdate(buf);
+		} else if (opcode == BinaryCodec.OP_GET) {
+			response = RESPONSE_ACCEPTED;
+		} else if (opcode == BinaryCodec.OP_DISCONNECT) {
+			response = handleDisconnect(true);
+		}
+		
+		// Send the response, with the game state for a get command
+		boolean isAccepted = response.startsWith(RESPONSE_ACCEPTED);
+		if (isAccepted && opcode == BinaryCodec.OP_GET) {
+			BinaryCodec.encode(buf, BinaryCodec.OP_ACCEPTED, token,
+					board.getGame());
+		} else {
+			BinaryCodec.encode(buf, isAccepted? BinaryCodec.OP_ACCEPTED :
+				BinaryCodec.OP_DENIED, match? token : null);
+		}
+		handler.respond(buf);
+		event.end();
+		if (event.shouldCommit()) {
+			event.command = BinaryCodec.getCommand(opcode);
+			event.bytesReceived = BinaryCodec.MESSAGE_SIZE;
+			event.bytesSent = BinaryCodec.MESSAGE_SIZE;
+			event.isAccepted = isAccepted;
+			event.commit();
 		}
 	}
 
 	/**
-	 * Generates a session ID of a random length with random characters. The
-	 * session ID itself is guaranteed to be at least {@value #MIN_SID_LENGTH}
-	 * characters long, but not longer than {@value #MAX_SID_LENGTH}.
+	 * Sends a response to the connection handler's connection, if it is not
+	 * closed, in the same format as the command.
 	 * 
-	 * @return a randomly generated SID.
+	 * @param handler	the connection handler to send the response to.
+	 * @param response	the response data to send.
+	 * @see {@link ConnectionHandler#respond(String)}
 	 */
-	private static String generateSessionID() {
-
-		// Generate a string of random length
-		String sid = "";
-		int chars = (int) ((MAX_SID_LENGTH - MIN_SID_LENGTH) * Math.random())
-				+ MIN_SID_LENGTH;
-		for (int i = 0; i < chars; i ++) {
-			
-			// Generate a character in a random range
-			int t = (int) (4 * Math.random());
-			int min = 32, max = 48;
-			if (t == 1) {
-				min = 48;
-				max = 65;
-			} else if (t == 2) {
-				min = 65;
-				max = 97;
-			} else if (t == 3) {
-				min = 97;
-				max = 125;
-			}
-			char randChar = (char) ((Math.random() * (max - min)) + min);
-			sid += randChar;
+	private static void sendResponse(ConnectionHandler handler,
+			String response) {
+		if (handler != null) {
+			handler.respond(response);
 		}
-
-		return sid;
 	}
 }
@@ -0,0 +1,691 @@
+/* Name: CheckersServer
+ * Author: Devon McGrath
+ * Description: This class hosts many checkers games at once for remote
+ * clients, without a window.
+ */
+
+package network;
+
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Consumer;
+
+import logic.MovePath;
+import model.Game;
+import model.GameClock;
+import storage.GameJournal;
+
+/**
+ * The {@code CheckersServer} class listens for commands from remote clients
+ * and hosts any number of games at once, without a checkers window. The games
+ * and sessions are kept in a {@link SessionRegistry}. It understands the same
+ * text commands as a {@link CheckersNetworkHandler}:
+ * <ul>
+ * <li>{@code CONNECT} creates a new game and joins it as the player in the
+ * third line (1 or 2), or joins the game with the ID in the fifth line. The
+ * second line is the port the client listens on, if any. The response has
+ * the session ID, a message, the protocol version and the game ID.</li>
+ * <li>{@code MOVE} makes a move in the session's game, if it is the
+ * player's turn and the move is legal. The response has the new state, which
+ * is also sent to the other player with an {@code UPDATE}.</li>
+ * <li>{@code UPDATE} sets the state of the session's game, unless the server
+ * is authoritative.</li>
+ * <li>{@code GET-STATE} gets the state of the session's game.</li>
+ * <li>{@code HEARTBEAT} keeps the session from being removed as idle.</li>
+ * <li>{@code SUBSCRIBE} spectates the game with the ID in the third line,
+ * and {@code UNSUBSCRIBE} stops spectating it.</li>
+ * <li>{@code DISCONNECT} leaves the game, which is removed once both players
+ * have left.</li>
+ * <li>{@code QUEUE} looks for an opponent with the rating and time control in
+ * the second and third lines, using a {@link Lobby}. The optional fifth and
+ * sixth lines are the port the client listens on and the player it wants to
+ * be (1 or 2). The response has a ticket ID, which is checked with
+ * {@code QUEUE-STATUS} (with the port in the third line) until the response
+ * is the same as for {@code CONNECT}. {@code LEAVE-QUEUE} stops looking.
+ * </li>
+ * </ul>
+ * When the server is authoritative (see {@link #setAuthoritative(boolean)}),
+ * the games can only change through moves, which are validated against the
+ * server's own game, so a client cannot cheat or get out of sync with the
+ * other player. Games from the lobby are timed with a {@link GameClock} for
+ * their time control, which starts once both players have sent a command for
+ * the game, and end as soon as a player runs out of time. The responses to
+ * {@code MOVE} and {@code GET-STATE} for a timed game have an extra line with
+ * the time each player has left.
+ * The session ID is a {@link SessionToken}, which the registry uses to find
+ * the session of each command. Clients that offer {@link BinaryCodec#VERSION}
+ * when they connect can also send {@link BinaryCodec} messages with the
+ * token. Sessions that do not send a command within the registry's idle
+ * timeout are removed.
+ * <p>
+ * Usage: {@code java network.CheckersServer [port] [authoritative] [journal]},
+ * where the default port is {@value #DEFAULT_PORT} and the server is
+ * authoritative unless {@code false} is given. If a journal file is given,
+ * the moves of every game are written to a {@link GameJournal} and the games
+ * in it that had not ended are hosted again, so the players can rejoin them
+ * with {@code CONNECT}. Any records that could not be replayed are printed.
+ */
+public class CheckersServer implements ActionListener {
+
+	/** The default port to listen on. */
+	public static final int DEFAULT_PORT = 9000;
+
+	/** The threads that send each new state to the other player. */
+	private static final ExecutorService UPDATE_EXECUTOR =
+			Executors.newFixedThreadPool(4, r -> {
+				Thread t = new Thread(r, "Opponent update");
+				t.setDaemon(true);
+				return t;
+			});
+
+	/** The games and sessions. */
+	private final SessionRegistry registry;
+
+	/** The lobby that pairs players who are looking for a game. */
+	private final Lobby lobby;
+
+	/** The listener that receives the commands. */
+	private final ConnectionListener listener;
+
+	/** The flag indicating if the games can only be changed with moves. */
+	private volatile boolean isAuthoritative;
+
+	/**
+	 * Creates a server with a new registry.
+	 *
+	 * @param port	the port to listen on, or 0 for any free port.
+	 */
+	public CheckersServer(int port) {
+		this(port, new SessionRegistry());
+	}
+
+	/**
+	 * Creates a server.
+	 *
+	 * @param port		the port to listen on, or 0 for any free port.
+	 * @param registry	the registry of games and sessions.
+	 */
+	public CheckersServer(int port, SessionRegistry registry) {
+		this.registry = registry;
+		this.lobby = new Lobby(registry);
+		this.listener = new ConnectionListener(port, this);
+	}
+
+	/**
+	 * Starts listening for commands.
+	 *
+	 * @param isDaemon	the flag indicating if the server should not keep the
+	 * program running.
+	 */
+	public synchronized void start(boolean isDaemon) {
+		if (listener.isAlive()) {
+			return;
+		}
+		this.listener.setDaemon(isDaemon);
+		this.listener.listen();
+	}
+
+	/**
+	 * Stops listening for commands. The games and sessions are kept.
+	 */
+	public synchronized void stop() {
+		this.listener.stopListening();
+	}
+
+	/**
+	 * Handles a new connection from the {@link ConnectionListener}.
+	 */
+	@Override
+	public void actionPerformed(ActionEvent e) {
+
+		// Invalid event
+		if (e == null || !(e.getSource() instanceof ConnectionHandler)) {
+			return;
+		}
+		ConnectionHandler handler = (ConnectionHandler) e.getSource();
+
+		// Binary message
+		if (handler.peek() == BinaryCodec.MARKER) {
+			handleBinary(handler);
+			return;
+		}
+
+		// Get the command
+		String[] lines = handler.read().replace("\r\n", "\n").split("\n");
+		String cmd = lines[0].split(" ")[0].toUpperCase();
+		String sid = lines.length > 1? lines[1] : "";
+		String response;
+
+		// Handle the command
+		if (cmd.equals(Command.COMMAND_CONNECT)) {
+			response = handleConnect(handler, lines);
+		} else if (cmd.equals(Command.COMMAND_MOVE)) {
+			response = handleMove(registry.get(sid),
+					lines.length > 2? lines[2] : "");
+		} else if (cmd.equals(Command.COMMAND_UPDATE)) {
+			response = handleUpdate(registry.get(sid),
+					lines.length > 2? lines[2] : "");
+		} else if (cmd.equals(Command.COMMAND_GET)) {
+			response = handleGet(registry.get(sid));
+		} else if (cmd.equals(Command.COMMAND_HEARTBEAT)) {
+			response = registry.get(sid) != null?
+					CheckersNetworkHandler.RESPONSE_ACCEPTED :
+					CheckersNetworkHandler.RESPONSE_DENIED;
+		} else if (cmd.equals(Command.COMMAND_SUBSCRIBE)) {
+			response = handleSubscribe(handler, lines);
+		} else if (cmd.equals(Command.COMMAND_UNSUBSCRIBE)) {
+			response = handleUnsubscribe(sid);
+		} else if (cmd.equals(Command.COMMAND_QUEUE)) {
+			response = handleQueue(handler, lines);
+		} else if (cmd.equals(Command.COMMAND_QUEUE_STATUS)) {
+			response = getResponse(handler, lobby.poll(sid),
+					lines.length > 2? lines[2] : "");
+		} else if (cmd.equals(Command.COMMAND_LEAVE_QUEUE)) {
+			response = lobby.cancel(sid)?
+					CheckersNetworkHandler.RESPONSE_ACCEPTED :
+					CheckersNetworkHandler.RESPONSE_DENIED
+					+ "\nError: not in the lobby.";
+		} else if (cmd.equals(Command.COMMAND_DISCONNECT)) {
+			if (registry.remove(sid)) {
+				response = CheckersNetworkHandler.RESPONSE_ACCEPTED
+						+ "\nClient has been disconnected.";
+			} else {
+				response = CheckersNetworkHandler.RESPONSE_DENIED
+						+ "\nError: cannot disconnect if not connected.";
+			}
+		} else {
+			response = CheckersNetworkHandler.RESPONSE_DENIED
+					+ "\nJava Checkers - unknown command '" + cmd + "'";
+		}
+
+		// Send the response to whoever connected
+		handler.respond(response);
+	}
+
+	/**
+	 * Joins a new game, or the game with the ID in the fifth line.
+	 *
+	 * @param handler	the connection with the command.
+	 * @param lines		the lines of the command.
+	 * @return the response to send to the client.
+	 */
+	private String handleConnect(ConnectionHandler handler, String[] lines) {
+
+		// Get the player, protocol version and the game to join
+		boolean isPlayer1 = lines.length > 2 && lines[2].startsWith("1");
+		int version = getVersion(lines);
+		ServerGame game;
+		if (lines.length > 4) {
+			int id = -1;
+			try {
+				id = Integer.parseInt(lines[4].trim());
+			} catch (NumberFormatException err) {}
+			game = registry.getGame(id);
+			if (game == null) {
+				return CheckersNetworkHandler.RESPONSE_DENIED
+						+ "\nError: no game with ID " + lines[4] + ".";
+			}
+		} else {
+			game = registry.createGame();
+		}
+
+		// Join the game
+		ServerSession session = registry.join(game, isPlayer1);
+		if (session == null) {
+			return CheckersNetworkHandler.RESPONSE_DENIED
+					+ "\nError: player " + (isPlayer1? "1" : "2")
+					+ " already joined game " + game.getID() + ".";
+		}
+		setAddress(handler, session, lines.length > 1? lines[1] : "");
+		registry.contact(session);
+
+		return getResponse(session, version);
+	}
+
+	/**
+	 * Sets the address a client is listening on, if it sent a port.
+	 *
+	 * @param handler	the connection with the command.
+	 * @param session	the client's session.
+	 * @param port		the port the client is listening on.
+	 */
+	private static void setAddress(ConnectionHandler handler,
+			ServerSession session, String port) {
+		int p = -1;
+		try {
+			p = Integer.parseInt(port.trim());
+		} catch (NumberFormatException err) {}
+		if (p > 0 && p <= 65535) {
+			session.setAddress(handler.getSocket().getInetAddress()
+					.getHostAddress(), p);
+		}
+	}
+
+	/**
+	 * Adds a player to the lobby, with the rating in the second line, the
+	 * time control in the third line and the player they want to be in the
+	 * sixth line.
+	 *
+	 * @param handler	the connection with the command.
+	 * @param lines		the lines of the command.
+	 * @return the response to send to the client.
+	 */
+	private String handleQueue(ConnectionHandler handler, String[] lines) {
+
+		// Get the rating and the time control
+		int rating;
+		try {
+			rating = Integer.parseInt(lines[1].trim());
+		} catch (NumberFormatException | IndexOutOfBoundsException err) {
+			return CheckersNetworkHandler.RESPONSE_DENIED
+					+ "\nError: invalid rating.";
+		}
+		String timeControl = lines.length > 2? lines[2] : "";
+		int player = lines.length > 5? (lines[5].startsWith("1")? 1 :
+			lines[5].startsWith("2")? 2 : 0) : 0;
+
+		return getResponse(handler, lobby.enqueue(rating, timeControl,
+				getVersion(lines), player), lines.length > 4? lines[4] : "");
+	}
+
+	/**
+	 * Gets the protocol version from the fourth line of a command, limited to
+	 * the versions the server supports.
+	 *
+	 * @param lines	the lines of the command.
+	 * @return the protocol version.
+	 */
+	private static int getVersion(String[] lines) {
+		int version = 1;
+		try {
+			version = lines.length > 3? Integer.parseInt(lines[3]) : 1;
+		} catch (NumberFormatException err) {}
+		return Math.max(1, Math.min(version, BinaryCodec.VERSION));
+	}
+
+	/**
+	 * Gets the response for a player in the lobby. If the player was paired,
+	 * the address they listen on is set for their session.
+	 *
+	 * @param handler	the connection with the command.
+	 * @param ticket	the player's ticket, or null if there is no ticket.
+	 * @param port		the port the player listens on, if any.
+	 * @return the response with the session if the player was paired, or the
+	 * ticket ID if they are still waiting.
+	 */
+	private static String getResponse(ConnectionHandler handler,
+			Lobby.Ticket ticket, String port) {
+		ServerSession session = ticket == null? null : ticket.getSession();
+		if (session != null) {
+			setAddress(handler, session, port);
+			return getResponse(session, ticket.getVersion());
+		} else if (ticket == null || ticket.isCancelled()) {
+			return CheckersNetworkHandler.RESPONSE_DENIED
+					+ "\nError: not in the lobby.";
+		}
+		return CheckersNetworkHandler.RESPONSE_ACCEPTED + "\n"
+				+ ticket.getID() + "\nWaiting for an opponent.";
+	}
+
+	/**
+	 * Gets the response for a client that joined a game.
+	 *
+	 * @param session	the client's session.
+	 * @param version	the protocol version.
+	 * @return the response with the session ID, a message, the protocol
+	 * version and the game ID.
+	 */
+	private static String getResponse(ServerSession session, int version) {
+		int id = session.getGame().getID();
+		return CheckersNetworkHandler.RESPONSE_ACCEPTED + "\n"
+				+ session.getSid() + "\nJoined game " + id + " as player "
+				+ (session.isPlayer1()? "1" : "2") + ".\n" + version + "\n"
+				+ id;
+	}
+
+	/**
+	 * Sets the state of a session's game.
+	 *
+	 * @param session	the session, or null if the session ID did not match.
+	 * @param newState	the new game state.
+	 * @return the response to send to the client.
+	 */
+	private String handleUpdate(ServerSession session, String newState) {
+		if (newState.isEmpty()) {
+			return CheckersNetworkHandler.RESPONSE_DENIED;
+		}
+		return handleUpdate(session, game -> game.setGameState(newState));
+	}
+
+	/**
+	 * Sets the state of a session's game, then sends the new state to the
+	 * other player.
+	 *
+	 * @param session	the session, or null if the session ID did not match.
+	 * @param update	the action that sets the state, which is run while
+	 * holding the lock of the game.
+	 * @return the response to send to the client.
+	 */
+	private String handleUpdate(ServerSession session,
+			Consumer<ServerGame> update) {
+
+		// Invalid session
+		if (session == null) {
+			return CheckersNetworkHandler.RESPONSE_DENIED;
+		} else if (isAuthoritative) {
+			return CheckersNetworkHandler.RESPONSE_DENIED
+					+ "\nError: the server only accepts moves.";
+		}
+
+		// Update the game
+		ServerGame game = session.getGame();
+		ServerSession other;
+		String state;
+		Lock lock = game.getLock();
+		lock.lock();
+		try {
+			update.accept(game);
+			other = game.getSession(!session.isPlayer1());
+			state = game.getGame().getGameState();
+		} finally {
+			lock.unlock();
+		}
+		sendUpdate(other, state);
+
+		return CheckersNetworkHandler.RESPONSE_ACCEPTED;
+	}
+
+	/**
+	 * Makes a move in a session's game, if it is legal.
+	 *
+	 * @param session	the session, or null if the session ID did not match.
+	 * @param move		the path of the move (e.g. "8x17x24").
+	 * @return the response to send to the client, with the new game state if
+	 * the move was made.
+	 */
+	private String handleMove(ServerSession session, String move) {
+
+		// Invalid session or move
+		long path = MovePath.parse(move);
+		if (session == null) {
+			return CheckersNetworkHandler.RESPONSE_DENIED;
+		} else if (path == MovePath.NONE) {
+			return CheckersNetworkHandler.RESPONSE_DENIED
+					+ "\nError: invalid move '" + move + "'.";
+		}
+
+		// Make the move
+		ServerGame game = session.getGame();
+		ServerSession other;
+		boolean isValid, isTimeOut;
+		String state;
+		Lock lock = game.getLock();
+		lock.lock();
+		try {
+			isValid = game.move(session.isPlayer1(), path);
+			isTimeOut = game.isTimeOut();
+			other = game.getSession(!session.isPlayer1());
+			state = game.getGame().getGameState() + getClock(game);
+		} finally {
+			lock.unlock();
+		}
+		if (isValid) {
+			sendUpdate(other, state);
+		}
+
+		if (isTimeOut) {
+			return CheckersNetworkHandler.RESPONSE_DENIED
+					+ "\nError: the game ended on time.\n" + state;
+		} else if (!isValid) {
+			return CheckersNetworkHandler.RESPONSE_DENIED
+					+ "\nError: illegal move '" + move + "'.\n" + state;
+		}
+		return CheckersNetworkHandler.RESPONSE_ACCEPTED + "\n" + state;
+	}
+
+	/**
+	 * Sends a new state to a player in the background, if they are listening
+	 * for commands. The player's client makes the move that leads to the
+	 * state on its own board.
+	 *
+	 * @param session	the session of the player, or null if no one joined.
+	 * @param state		the new state, with any lines that follow it.
+	 */
+	private static void sendUpdate(ServerSession session, String state) {
+		String host = session == null? null : session.getHost();
+		if (host == null) {
+			return;
+		}
+		int port = session.getPort();
+		Command update = new Command(Command.COMMAND_UPDATE,
+				session.getSid(), state);
+		UPDATE_EXECUTOR.execute(() -> update.send(host, port));
+	}
+
+	/**
+	 * Gets the clock of a timed game, as a line with the time player 1 and
+	 * player 2 have left in milliseconds, followed by a line with the player
+	 * who ran out of time if the game ended on time. This must only be
+	 * called while holding the game's lock.
+	 *
+	 * @param game	the game.
+	 * @return the lines, each starting with a new line, or an empty string if
+	 * the game is not timed.
+	 */
+	private static String getClock(ServerGame game) {
+		GameClock clock = game.getClock();
+		if (clock == null) {
+			return "";
+		}
+		String lines = "\n" + clock.getRemaining(true) + " "
+				+ clock.getRemaining(false);
+		if (game.isTimeOut()) {
+			lines += "\nPlayer " + (game.getGame().isP1Turn()? "1" : "2")
+					+ " ran out of time.";
+		}
+		return lines;
+	}
+
+	/**
+	 * Gets the state of a session's game.
+	 *
+	 * @param session	the session, or null if the session ID did not match.
+	 * @return the response to send to the client.
+	 */
+	private String handleGet(ServerSession session) {
+
+		// Invalid session
+		if (session == null) {
+			return CheckersNetworkHandler.RESPONSE_DENIED;
+		}
+
+		// Get the state
+		ServerGame game = session.getGame();
+		Game g = game.getGame();
+		String state;
+		Lock lock = game.getLock();
+		lock.lock();
+		try {
+			state = g.getGameState() + getClock(game);
+		} finally {
+			lock.unlock();
+		}
+
+		return CheckersNetworkHandler.RESPONSE_ACCEPTED + "\n" + state;
+	}
+
+	/**
+	 * Adds a spectator to the game with the ID in the third line. The
+	 * spectator's port is in the second line.
+	 *
+	 * @param handler	the connection with the command.
+	 * @param lines		the lines of the command.
+	 * @return the response to send to the client.
+	 */
+	private String handleSubscribe(ConnectionHandler handler,
+			String[] lines) {
+
+		// Get the port and the game
+		int port = -1, id = -1;
+		try {
+			port = Integer.parseInt(lines[1].trim());
+			id = Integer.parseInt(lines[2].trim());
+		} catch (NumberFormatException | IndexOutOfBoundsException err) {}
+		ServerGame game = registry.getGame(id);
+		if (port <= 0 || port > 65535) {
+			return CheckersNetworkHandler.RESPONSE_DENIED
+					+ "\nError: invalid port.";
+		} else if (game == null) {
+			return CheckersNetworkHandler.RESPONSE_DENIED
+					+ "\nError: no game with ID " + id + ".";
+		}
+
+		// Add the spectator, who starts with the current state
+		String host = handler.getSocket().getInetAddress().getHostAddress();
+		SpectatorBroadcaster spectators = game.getSpectators();
+		String spectatorID, state;
+		Lock lock = game.getLock();
+		lock.lock();
+		try {
+			state = game.getGame().getGameState();
+			spectators.broadcast(state);
+			spectatorID = spectators.subscribe(host, port);
+		} finally {
+			lock.unlock();
+		}
+
+		return CheckersNetworkHandler.RESPONSE_ACCEPTED + "\n" + spectatorID
+				+ "\n" + id + "\n" + state;
+	}
+
+	/**
+	 * Removes a spectator. The spectator ID starts with the game ID.
+	 *
+	 * @param spectatorID	the ID from {@link #handleSubscribe}.
+	 * @return the response to send to the client.
+	 */
+	private String handleUnsubscribe(String spectatorID) {
+		ServerGame game = null;
+		try {
+			game = registry.getGame(Integer.parseInt(
+					spectatorID.substring(0, spectatorID.indexOf('-'))));
+		} catch (NumberFormatException | IndexOutOfBoundsException err) {}
+		if (game == null || !game.getSpectators().unsubscribe(spectatorID)) {
+			return CheckersNetworkHandler.RESPONSE_DENIED
+					+ "\nError: not subscribed.";
+		}
+		return CheckersNetworkHandler.RESPONSE_ACCEPTED;
+	}
+
+	/**
+	 * Handles a {@link BinaryCodec} message, from the session with the token
+	 * in the message.
+	 *
+	 * @param handler	the connection with the message.
+	 */
+	private void handleBinary(ConnectionHandler handler) {
+
+		// Read the message
+		ByteBuffer buf = BinaryCodec.getBuffer();
+		try {
+			BinaryCodec.read(handler.getInput(), buf);
+		} catch (IOException e) {
+			e.printStackTrace();
+			handler.respond("");
+			return;
+		}
+		int opcode = BinaryCodec.getOpcode(buf);
+		SessionToken token = BinaryCodec.getToken(buf);
+		ServerSession session = registry.get(token);
+
+		// Handle the command
+		String response = CheckersNetworkHandler.RESPONSE_DENIED;
+		if (opcode == BinaryCodec.OP_UPDATE) {
+			response = handleUpdate(session, game -> game.setGameState(buf));
+		} else if (opcode == BinaryCodec.OP_GET && session != null) {
+			ServerGame game = session.getGame();
+			Lock lock = game.getLock();
+			lock.lock();
+			try {
+				BinaryCodec.encode(buf, BinaryCodec.OP_ACCEPTED, token,
+						game.getGame());
+			} finally {
+				lock.unlock();
+			}
+			handler.respond(buf);
+			return;
+		} else if (opcode == BinaryCodec.OP_HEARTBEAT && session != null) {
+			response = CheckersNetworkHandler.RESPONSE_ACCEPTED;
+		} else if (opcode == BinaryCodec.OP_DISCONNECT &&
+				registry.remove(token)) {
+			response = CheckersNetworkHandler.RESPONSE_ACCEPTED;
+		}
+
+		// Send the response
+		boolean isAccepted = response.startsWith(
+				CheckersNetworkHandler.RESPONSE_ACCEPTED);
+		BinaryCodec.encode(buf, isAccepted? BinaryCodec.OP_ACCEPTED :
+			BinaryCodec.OP_DENIED, isAccepted? token : null);
+		handler.respond(buf);
+	}
+
+	public boolean isAuthoritative() {
+		return isAuthoritative;
+	}
+
+	public void setAuthoritative(boolean isAuthoritative) {
+		this.isAuthoritative = isAuthoritative;
+	}
+
+	public SessionRegistry getRegistry() {
+		return registry;
+	}
+
+	public Lobby getLobby() {
+		return lobby;
+	}
+
+	public int getPort() {
+		return listener.getPort();
+	}
+
+	public static void main(String[] args) throws IOException {
+
+		// Get the settings
+		int port = args.length > 0? Integer.parseInt(args[0]) : DEFAULT_PORT;
+		boolean isAuthoritative = args.length <= 1 ||
+				Boolean.parseBoolean(args[1]);
+
+		// Recover the games from the journal
+		CheckersServer server = new CheckersServer(port);
+		if (args.length > 2) {
+			GameJournal journal = new GameJournal(Path.of(args[2]));
+			for (String error : journal.getReplayErrors()) {
+				System.err.println("Journal: " + error);
+			}
+			int count = server.getRegistry().setJournal(journal);
+			System.out.println("Recovered " + count + " games from "
+					+ args[2]);
+			Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+				try {
+					journal.close();
+				} catch (IOException e) {
+					e.printStackTrace();
+				}
+			}));
+		}
+
+		// Start the server
+		server.setAuthoritative(isAuthoritative);
+		server.start(false);
+		System.out.println("Listening for checkers clients on port "
+				+ server.getPort()
+				+ (isAuthoritative? " (authoritative)" : ""));
+	}
+}
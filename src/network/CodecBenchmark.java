@@ -0,0 +1,174 @@
+/* Name: CodecBenchmark
+ * Author: Devon McGrath
+ * Description: This class compares how fast update commands are encoded and
+ * decoded in the text and binary protocols.
+ */
+
+package network;
+
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import model.Game;
+
+/**
+ * The {@code CodecBenchmark} class compares the text protocol with the
+ * {@link BinaryCodec} by encoding and decoding {@code UPDATE} commands for the
+ * positions of random games. Each command is decoded the way
+ * {@link CheckersNetworkHandler} decodes it, including finding the move from
+ * the previous position that leads to the new one: a text command is
+ * encoded as a {@link Frame} and its game state is passed to
+ * {@link Game#findMove(String)}, while a binary command is encoded from the
+ * game into one reused buffer, as the clients send it, and its masks are
+ * passed to {@link BinaryCodec#findMove(ByteBuffer, Game)}. The number of
+ * operations per second and the bytes allocated per operation are reported
+ * for each, after a warm up. Encoding a binary command does not allocate, so
+ * what the binary format allocates is the turns generated to find the
+ * move.
+ * <p>
+ * Usage: {@code java network.CodecBenchmark [operations]}, where the default
+ * is 5000000 operations.
+ */
+public class CodecBenchmark {
+
+	/** The number of positions to encode, which are reused. */
+	private static final int POSITIONS = 1 << 12;
+
+	/** The session ID of the text commands. */
+	private static final String SID = "1234567890";
+
+	/** The result of each run, so the work is not optimized away. */
+	private static long checksum;
+
+	public static void main(String[] args) {
+
+		// Get the settings
+		int operations = args.length > 0? Integer.parseInt(args[0]) : 5000000;
+
+		// Generate the positions of random games
+		Random rand = new Random(1);
+		Game[] games = new Game[POSITIONS];
+		Game game = new Game();
+		for (int i = 0; i < POSITIONS; i ++) {
+			if (game.isGameOver()) {
+				game = new Game();
+			}
+			games[i] = game.copy();
+			long[] turns = game.getTurns();
+			game.move(turns[rand.nextInt(turns.length)]);
+		}
+
+		// Warm up, then measure each format
+		for (int i = 0; i < 2; i ++) {
+			boolean isWarmUp = i == 0;
+			int n = isWarmUp? operations / 5 : operations;
+			measure("Text", games, n, false, isWarmUp);
+			measure("Binary", games, n, true, isWarmUp);
+		}
+		System.out.println("Checksum: " + checksum);
+	}
+
+	/**
+	 * Encodes and decodes a number of update commands.
+	 *
+	 * @param name			the name of the format.
+	 * @param games			the positions to encode.
+	 * @param operations	the number of commands.
+	 * @param isBinary		the flag indicating if the binary format is used.
+	 * @param isWarmUp		the flag indicating if nothing should be printed.
+	 */
+	private static void measure(String name, Game[] games, int operations,
+			boolean isBinary, boolean isWarmUp) {
+		long bytes = getAllocatedBytes();
+		long time = System.nanoTime();
+		long sum = isBinary? runBinary(games, operations) :
+			runText(games, operations);
+		double seconds = (System.nanoTime() - time) / 1e9;
+		bytes = getAllocatedBytes() - bytes;
+		checksum += sum;
+		if (!isWarmUp) {
+			System.out.printf("%-6s %d operations in %.3f s (%.0f ops/s,"
+					+ " %.1f bytes allocated/op)%n", name, operations,
+					seconds, operations / seconds,
+					(double) bytes / operations);
+		}
+	}
+
+	/**
+	 * Encodes and decodes update commands in the text protocol.
+	 *
+	 * @param games			the positions to encode, each one a move after
+	 * the one before it (unless a new game was started).
+	 * @param operations	the number of commands.
+	 * @return a checksum of the moves that were found.
+	 */
+	private static long runText(Game[] games, int operations) {
+		long sum = 0;
+		for (int i = 0; i < operations; i ++) {
+			int j = i & (POSITIONS - 1);
+			Game game = games[j];
+			Game previous = games[(j - 1) & (POSITIONS - 1)];
+
+			// Encode
+			Command update = new Command(Command.COMMAND_UPDATE, SID,
+					game.getGameState());
+			byte[] frame = Frame.encode(update.getOutput());
+
+			// Decode
+			String data = new String(frame, Frame.HEADER_SIZE,
+					frame.length - Frame.HEADER_SIZE);
+			String[] lines = data.split("\n");
+			String cmd = lines[0].toUpperCase();
+			if (cmd.equals(Command.COMMAND_UPDATE) && lines[1].equals(SID)) {
+				sum += previous.findMove(lines[2]);
+			}
+		}
+		return sum;
+	}
+
+	/**
+	 * Encodes and decodes update commands with the {@link BinaryCodec}.
+	 *
+	 * @param games			the positions to encode, each one a move after
+	 * the one before it (unless a new game was started).
+	 * @param operations	the number of commands.
+	 * @return a checksum of the moves that were found.
+	 */
+	private static long runBinary(Game[] games, int operations) {
+		long sum = 0;
+		SessionToken token = SessionToken.generate();
+		ByteBuffer buf = BinaryCodec.getBuffer();
+		for (int i = 0; i < operations; i ++) {
+			int j = i & (POSITIONS - 1);
+			Game game = games[j];
+			Game previous = games[(j - 1) & (POSITIONS - 1)];
+
+			// Encode
+			BinaryCodec.encode(buf, BinaryCodec.OP_UPDATE, token, game);
+
+			// Decode
+			if (BinaryCodec.isValid(buf) && BinaryCodec.getOpcode(buf) ==
+					BinaryCodec.OP_UPDATE &&
+					BinaryCodec.matches(buf, token)) {
+				sum += BinaryCodec.findMove(buf, previous);
+			}
+		}
+		return sum;
+	}
+
+	/**
+	 * Gets the number of bytes the current thread has allocated.
+	 *
+	 * @return the number of bytes, or 0 if it is not supported.
+	 */
+	private static long getAllocatedBytes() {
+		java.lang.management.ThreadMXBean bean =
+				ManagementFactory.getThreadMXBean();
+		if (bean instanceof com.sun.management.ThreadMXBean) {
+			return ((com.sun.management.ThreadMXBean) bean)
+					.getCurrentThreadAllocatedBytes();
+		}
+		return 0;
+	}
+}
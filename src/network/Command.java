@@ -6,12 +6,14 @@
 
 package network;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.PrintWriter;
+import java.io.OutputStream;
+import java.io.PushbackInputStream;
 import java.net.Socket;
 import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+
+import metrics.CommandEvent;
 
 /**
  * The {@code Command} class is used to represent a command to send from one
@@ -23,6 +25,12 @@ public class Command {
 	 * Note: a matching SID is required for the game to be updated. */
 	public static final String COMMAND_UPDATE = "UPDATE";
 	
+	/** The command to make a move in a game on a checkers server. Note: this
+	 * command requires two additional lines: 1) the matching SID, and 2) the
+	 * path of the move from {@link logic.MovePath#toString(long)} (e.g.
+	 * "9-13" or "8x17x24"). The response contains the new game state. */
+	public static final String COMMAND_MOVE = "MOVE";
+	
 	/** The command to try to connect to another checkers client. Note: this
 	 * command requires two additional lines: 1) the remote port that should be
 	 * connected to, and 2) either "1" or "2" indicating if the remote client
@@ -38,6 +46,46 @@ public class Command {
 	 * matching SID is required for the game state to be sent. */
 	public static final String COMMAND_GET = "GET-STATE";
 	
+	/** The command sent periodically to keep a session alive, so a client
+	 * that stops sending it can be disconnected. Note: this command requires
+	 * one additional line of the matching SID. */
+	public static final String COMMAND_HEARTBEAT = "HEARTBEAT";
+	
+	/** The command to start spectating the game on a remote client. Note:
+	 * this command requires one additional line of the port that the
+	 * spectator is listening on. The response contains the spectator ID, the
+	 * game ID and the current game state. */
+	public static final String COMMAND_SUBSCRIBE = "SUBSCRIBE";
+	
+	/** The command to stop spectating the game on a remote client. Note: this
+	 * command requires one additional line of the spectator ID. */
+	public static final String COMMAND_UNSUBSCRIBE = "UNSUBSCRIBE";
+	
+	/** The command to look for an opponent on a checkers server. Note: this
+	 * command requires three additional lines: 1) the player's rating, 2) the
+	 * time control (e.g. "5+3"), and 3) the protocol version the client
+	 * supports. It can be followed by 4) the port the client listens on, and
+	 * 5) the player the client wants to be ("1" or "2"). The response
+	 * contains the ticket ID, or the session ID if an opponent was found
+	 * right away. */
+	public static final String COMMAND_QUEUE = "QUEUE";
+	
+	/** The command to check if an opponent was found on a checkers server.
+	 * Note: this command requires one additional line of the ticket ID, which
+	 * can be followed by the port the client listens on. Once an opponent was
+	 * found, the response is the same as for {@link #COMMAND_CONNECT}, with
+	 * the session ID and the game ID. */
+	public static final String COMMAND_QUEUE_STATUS = "QUEUE-STATUS";
+	
+	/** The command to stop looking for an opponent on a checkers server.
+	 * Note: this command requires one additional line of the ticket ID. */
+	public static final String COMMAND_LEAVE_QUEUE = "LEAVE-QUEUE";
+	
+	/** The command sent to spectators when the game state changes. Note: this
+	 * command is followed by a line with the game ID and a line with the game
+	 * state. If there is no game state, the game has ended. */
+	public static final String COMMAND_SPECTATE = "SPECTATE";
+	
 	/** The command to issue. */
 	private String command;
 	
@@ -56,35 +104,77 @@ public class Command {
 	}
 	
 	/**
-	 * Sends the command and the data to the specified host and port. It then
-	 * reads and returns the response from the other host.
+	 * Sends the command and the data to the specified host and port as lines
+	 * of text, which every client can read. It then reads and returns the
+	 * response from the other host.
 	 * 
 	 * @param host	the remote host (e.g. 127.0.0.1).
 	 * @param port	the port to connect to.
 	 * @return the response from the host or an empty string if an error
 	 * occurred.
-	 * @see {@link #getOutput()}
+	 * @see {@link #getOutput()}, {@link #send(Session)}
 	 */
 	public String send(String host, int port) {
+		return send(host, port, false);
+	}
+	
+	/**
+	 * Sends the command to the remote client of a session. The command is
+	 * sent as a {@link Frame} if the client negotiated a version of the
+	 * protocol that supports frames during {@link #COMMAND_CONNECT}, and as
+	 * lines of text otherwise.
+	 * 
+	 * @param session	the session with the remote client.
+	 * @return the response from the client or an empty string if an error
+	 * occurred.
+	 * @see {@link #send(String, int)}
+	 */
+	public String send(Session session) {
+		return send(session.getDestinationHost(),
+				session.getDestinationPort(),
+				session.getVersion() >= Frame.VERSION);
+	}
+	
+	/**
+	 * Sends the command and the data to the specified host and port, as a
+	 * {@link Frame} or as lines of text. It then reads and returns the
+	 * response from the other host, in whichever format it was sent.
+	 * 
+	 * @param host		the remote host (e.g. 127.0.0.1).
+	 * @param port		the port to connect to.
+	 * @param isFramed	the flag indicating if the command is sent as a frame,
+	 * which only clients that negotiated {@link Frame#VERSION} can read.
+	 * @return the response from the host or an empty string if an error
+	 * occurred.
+	 */
+	public String send(String host, int port, boolean isFramed) {
 		
+		CommandEvent event = new CommandEvent();
+		event.begin();
 		String data = getOutput(), response = "";
+		boolean isFramedResponse = false;
 		try {
 			
-			// Write the response
+			// Write the command
 			Socket s = new Socket(host, port);
-			PrintWriter writer = new PrintWriter(s.getOutputStream());
-			writer.println(data);
-			writer.flush();
-
-			// Get the response
-			BufferedReader br = new BufferedReader(new InputStreamReader(
-					s.getInputStream()));
-			String line = null;
-			while ((line = br.readLine()) != null) {
-				response += line + "\n";
+			OutputStream os = s.getOutputStream();
+			if (isFramed) {
+				Frame.write(os, data);
+			} else {
+				os.write((data + "\n").getBytes(StandardCharsets.UTF_8));
+				os.flush();
 			}
-			if (!response.isEmpty()) {
-				response = response.substring(0, response.length() - 1);
+
+			// Get the response, in whichever format it was sent
+			PushbackInputStream in = new PushbackInputStream(
+					s.getInputStream());
+			int first = in.read();
+			if (first == Frame.MARKER) {
+				response = Frame.readMessage(in);
+				isFramedResponse = true;
+			} else if (first >= 0) {
+				in.unread(first);
+				response = ConnectionListener.readLines(in);
 			}
 			s.close();
 			
@@ -94,6 +184,20 @@ public class Command {
 			e.printStackTrace();
 		}
 		
+		// Record the round trip
+		event.end();
+		if (event.shouldCommit()) {
+			event.command = command;
+			event.host = host;
+			event.port = port;
+			event.bytesSent = Frame.getSize(data, isFramed) +
+					(isFramed? 0 : 1);
+			event.bytesReceived = Frame.getSize(response, isFramedResponse);
+			event.isAccepted = response.startsWith(
+					CheckersNetworkHandler.RESPONSE_ACCEPTED);
+			event.commit();
+		}
+		
 		return response;
 	}
 	
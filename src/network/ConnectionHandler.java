@@ -7,13 +7,24 @@
 package network;
 
 import java.awt.event.ActionEvent;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PushbackInputStream;
 import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 
 /**
  * The {@code ConnectionHandler} class handles a connection to an instance of
- * the {@link ConnectionListener} class. Once created, it will be run on a new
- * thread immediately after the connection is made and invokes the action
- * listener from the {@code ConnectionListener} class (if one is specified).
+ * the {@link ConnectionListener} class. Once created, it will be run on one of
+ * the listener's pooled threads immediately after the connection is made and
+ * invokes the action listener from the {@code ConnectionListener} class (if
+ * one is specified).
+ * <p>
+ * The command should be read with {@link #read()} and answered with
+ * {@link #respond(String)}, so the response is sent in the same format as the
+ * command (a {@link Frame} or plain text).
  */
 public class ConnectionHandler extends Thread {
 
@@ -23,6 +34,13 @@ public class ConnectionHandler extends Thread {
 	/** The connection from the remote client to this one. */
 	private Socket socket;
 	
+	/** The flag indicating if the command was sent as a {@link Frame}. */
+	private boolean isFramed;
+	
+	/** The stream the command is read from, which allows the first byte to
+	 * be checked before it is read. */
+	private PushbackInputStream input;
+	
 	/**
 	 * Creates a connection handler that is capable of handling an incoming
 	 * connection.
@@ -40,8 +58,8 @@ public class ConnectionHandler extends Thread {
 	 * instance that the connection was made to. If the action listener was not
 	 * specified, then this method does nothing.
 	 * <p>
-	 * Note: this method should be called using {@link #start()} and not called
-	 * directly to allow it to run on a new thread.
+	 * Note: this method is called on one of the {@link ConnectionListener}'s
+	 * threads and should not be called directly.
 	 */
 	@Override
 	public void run() {
@@ -57,6 +75,114 @@ public class ConnectionHandler extends Thread {
 		}
 	}
 
+	/**
+	 * Reads the command sent over the connection.
+	 * 
+	 * @return the command and its data, or an empty string if it could not
+	 * be read.
+	 * @see {@link ConnectionListener#read(Socket)}
+	 */
+	public String read() {
+		return ConnectionListener.read(socket, this);
+	}
+	
+	/**
+	 * Sends a {@link BinaryCodec} message as the response and closes the
+	 * connection.
+	 * 
+	 * @param buf	the buffer with the message.
+	 */
+	public void respond(ByteBuffer buf) {
+		if (socket == null || socket.isClosed()) {
+			return;
+		}
+		try (OutputStream os = socket.getOutputStream()) {
+			BinaryCodec.write(os, buf);
+		} catch (IOException e) {
+			e.printStackTrace();
+		} finally {
+			close();
+		}
+	}
+	
+	/**
+	 * Closes the connection without sending a response, such as at the end
+	 * of a stream of frames that are not answered.
+	 */
+	void close() {
+		try {
+			this.socket.close();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+	
+	/**
+	 * Gets the first byte of the command without reading it, which can be
+	 * used to tell the format of the command (e.g. {@link Frame#MARKER} or
+	 * {@link BinaryCodec#MARKER}).
+	 * 
+	 * @return the first byte, or -1 if the connection was closed.
+	 */
+	public int peek() {
+		try {
+			PushbackInputStream in = getInput();
+			int first = in.read();
+			if (first >= 0) {
+				in.unread(first);
+			}
+			return first;
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+		return -1;
+	}
+	
+	/**
+	 * Gets the stream the command is read from.
+	 * 
+	 * @return the input stream of the socket.
+	 * @throws IOException if the stream could not be opened.
+	 */
+	public PushbackInputStream getInput() throws IOException {
+		if (input == null) {
+			InputStream in = socket.getInputStream();
+			this.input = new PushbackInputStream(in);
+		}
+		return input;
+	}
+	
+	/**
+	 * Sends a response in the same format as the command that was read and
+	 * closes the connection.
+	 * 
+	 * @param response	the response to send.
+	 */
+	public void respond(String response) {
+		
+		// Trivial cases
+		if (socket == null || socket.isClosed()) {
+			return;
+		}
+		if (response == null) {
+			response = "";
+		}
+		
+		// Write the response and close the connection
+		try (OutputStream os = socket.getOutputStream()) {
+			if (isFramed) {
+				Frame.write(os, response);
+			} else {
+				os.write(response.getBytes(StandardCharsets.UTF_8));
+				os.flush();
+			}
+		} catch (IOException e) {
+			e.printStackTrace();
+		} finally {
+			close();
+		}
+	}
+	
 	/**
 	 * Gets the listener associated with the connection.
 	 * 
@@ -75,4 +201,27 @@ public class ConnectionHandler extends Thread {
 	public Socket getSocket() {
 		return socket;
 	}
+	
+	/**
+	 * Checks if the command was sent as a {@link Frame}, in which case the
+	 * response is sent as a frame too. This is only known once the command
+	 * was read.
+	 * 
+	 * @return true if the command was a frame, or false if it was lines of
+	 * text (or has not been read yet).
+	 * @see {@link #respond(String)}
+	 */
+	public boolean isFramed() {
+		return isFramed;
+	}
+	
+	/**
+	 * Sets whether the command was sent as a {@link Frame}, which is done
+	 * when the command is read (see {@link #read()}).
+	 * 
+	 * @param isFramed	true if the command was a frame.
+	 */
+	void setFramed(boolean isFramed) {
+		this.isFramed = isFramed;
+	}
 }
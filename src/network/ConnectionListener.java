@@ -11,15 +11,21 @@ import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.PushbackInputStream;
 import java.net.DatagramSocket;
 import java.net.ServerSocket;
 import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * The {@code ConnectionListener} class listens for connections on a specific
  * port. Once a connection is made, it will create an instance of
- * {@link ConnectionHandler} and run it on a new thread to handle the
- * connection. It will use the connection handler passed either through
+ * {@link ConnectionHandler} and run it on a pooled thread to handle the
+ * connection. Idle threads are reused for later connections, so the buffers
+ * each thread keeps (see {@link Frame} and {@link BinaryCodec#getBuffer()})
+ * are reused too. It will use the connection handler passed either through
  * {@link #ConnectionListener(int, ActionListener)} or
  * {@link #setConnectionHandler(ActionListener)}.
  * <p>
@@ -28,6 +34,15 @@ import java.net.Socket;
  */
 public class ConnectionListener extends Thread {
 	
+	/** The threads that handle the connections, shared by every listener.
+	 * A new thread is only started if every thread is busy. */
+	private static final ExecutorService HANDLER_EXECUTOR =
+			Executors.newCachedThreadPool(r -> {
+				Thread t = new Thread(r, "Connection handler");
+				t.setDaemon(true);
+				return t;
+			});
+	
 	/** The socket that will listen for connections. */
 	private ServerSocket serverSocket;
 	
@@ -102,7 +117,7 @@ public class ConnectionListener extends Thread {
 				// Get the connection and handle it
 				ConnectionHandler conn = new ConnectionHandler(
 						this, serverSocket.accept());
-				conn.start();
+				HANDLER_EXECUTOR.execute(conn);
 			} catch (IOException e) {
 				e.printStackTrace();
 			} catch (Exception e) {
@@ -188,36 +203,78 @@ public class ConnectionListener extends Thread {
 	}
 
 	/**
-	 * Reads all the data that was sent until either the connection is closed
-	 * or the other client stops sending data.
+	 * Reads the message that was sent. If it is a {@link Frame}, the whole
+	 * frame is read. Otherwise, lines are read until either the connection is
+	 * closed or the other client stops sending data.
 	 * 
 	 * @param socket	the connection that should be open.
 	 * @return the data that was read or an empty string otherwise.
 	 */
 	public static String read(Socket socket) {
+		return read(socket, null);
+	}
+
+	/**
+	 * Reads the message that was sent and records whether it was a
+	 * {@link Frame} so the response can be sent in the same format.
+	 * 
+	 * @param socket	the connection that should be open.
+	 * @param handler	the handler of the connection, or null.
+	 * @return the data that was read or an empty string otherwise.
+	 * @see {@link #read(Socket)}
+	 */
+	static String read(Socket socket, ConnectionHandler handler) {
 
 		if (socket == null) {
 			return "";
 		}
 
-		// Read all the data from the stream
-		String data = "";
+		// Read a frame if the message starts with the marker
 		try {
-			InputStream in = socket.getInputStream();
-			BufferedReader br = new BufferedReader(new InputStreamReader(in));
-			String line = null;
-			while ((line = br.readLine()) != null) {
-				data += line + "\n";
-				if (!br.ready()) {break;}
-			}
-			if (!data.isEmpty()) {
-				data = data.substring(0, data.length()-1);
+			PushbackInputStream in = (handler != null)? handler.getInput() :
+					new PushbackInputStream(socket.getInputStream());
+			int first = in.read();
+			if (first == Frame.MARKER) {
+				if (handler != null) {
+					handler.setFramed(true);
+				}
+				return Frame.readMessage(in);
+			} else if (first < 0) {
+				return "";
 			}
+			in.unread(first);
+
+			// Otherwise, read all the lines that were sent
+			return readLines(in);
 		} catch (IOException e) {
 			e.printStackTrace();
 		}
 
-		return data;
+		return "";
+	}
+
+	/**
+	 * Reads lines of text until either the connection is closed or the other
+	 * client stops sending data.
+	 * 
+	 * @param in	the stream to read from.
+	 * @return the lines that were read.
+	 * @throws IOException if the lines could not be read.
+	 */
+	static String readLines(InputStream in) throws IOException {
+		StringBuilder data = new StringBuilder();
+		BufferedReader br = new BufferedReader(new InputStreamReader(in,
+				StandardCharsets.UTF_8));
+		String line = null;
+		int lines = 0;
+		while ((line = br.readLine()) != null) {
+			if (lines ++ > 0) {
+				data.append('\n');
+			}
+			data.append(line);
+			if (!br.ready()) {break;}
+		}
+		return data.toString();
 	}
 	
 	/**
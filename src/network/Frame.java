@@ -0,0 +1,228 @@
+/* Name: Frame
+ * Author: Devon McGrath
+ * Description: This class reads and writes length-prefixed messages between
+ * checkers clients.
+ */
+
+package network;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The {@code Frame} class reads and writes messages (a command or a response)
+ * as length-prefixed frames: a {@link #MARKER} byte, the length of the message
+ * as a 4 byte big-endian int, then the message in UTF-8. A message is always
+ * read completely, even if it arrives over many TCP segments, and is decoded
+ * into a string in one step.
+ * <p>
+ * Messages without the marker are from clients that write the message as
+ * lines of text and wait for the response (see
+ * {@link ConnectionListener#read(java.net.Socket)}). Since every command
+ * starts with a letter, the first byte tells the two formats apart, and a
+ * response is written in the same format as the command it answers. Commands
+ * are only sent as frames to clients that negotiated version
+ * {@value #VERSION} of the protocol (see {@link Command#send(Session)}), since
+ * older clients only read lines of text.
+ * <p>
+ * A message is encoded straight into the buffer after the header, and each
+ * thread reuses its own buffer. The connections to a
+ * {@link ConnectionListener} are handled on pooled threads, so reading and
+ * answering a command only allocates the strings themselves once the
+ * threads are warmed up.
+ */
+public final class Frame {
+
+	/** The first byte of a frame. */
+	public static final int MARKER = 0;
+
+	/** The first version of the protocol that accepts commands as frames,
+	 * which is the version that added {@link BinaryCodec}. */
+	public static final int VERSION = BinaryCodec.VERSION;
+
+	/** The number of bytes before the message in a frame. */
+	public static final int HEADER_SIZE = 5;
+
+	/** The maximum number of bytes in a message. */
+	public static final int MAX_LENGTH = 1 << 20;
+
+	/** The initial size of each thread's buffer. */
+	private static final int BUFFER_SIZE = 1024;
+
+	/** The buffer each thread reads and writes frames with. */
+	private static final ThreadLocal<ByteBuffer> BUFFER =
+			ThreadLocal.withInitial(() -> ByteBuffer.allocate(BUFFER_SIZE));
+
+	/** The encoder each thread writes messages with, which replaces invalid
+	 * characters in the same way as {@link String#getBytes}. */
+	private static final ThreadLocal<CharsetEncoder> ENCODER =
+			ThreadLocal.withInitial(() -> StandardCharsets.UTF_8.newEncoder()
+					.onMalformedInput(CodingErrorAction.REPLACE)
+					.onUnmappableCharacter(CodingErrorAction.REPLACE));
+
+	private Frame() {}
+
+	/**
+	 * Encodes a message into a new frame, which can be written many times
+	 * (e.g. to every spectator).
+	 *
+	 * @param message	the message.
+	 * @return the bytes of the frame.
+	 */
+	public static byte[] encode(String message) {
+		int length = getSize(message, false);
+		byte[] frame = new byte[HEADER_SIZE + length];
+		put(ByteBuffer.wrap(frame), message, length);
+		return frame;
+	}
+
+	/**
+	 * Gets the number of bytes a message takes up when it is sent: its length
+	 * in UTF-8, plus the header if it is sent as a frame. The bytes are
+	 * counted without encoding the message.
+	 *
+	 * @param message	the message.
+	 * @param isFramed	the flag indicating if the message is sent as a frame.
+	 * @return the number of bytes.
+	 */
+	public static int getSize(String message, boolean isFramed) {
+		int n = message.length(), size = isFramed? HEADER_SIZE : 0;
+		for (int i = 0; i < n; i ++) {
+			char c = message.charAt(i);
+			if (c < 0x80) {
+				size ++;
+			} else if (c < 0x800) {
+				size += 2;
+			} else if (Character.isHighSurrogate(c) && i + 1 < n &&
+					Character.isLowSurrogate(message.charAt(i + 1))) {
+				size += 4;
+				i ++;
+			} else if (Character.isSurrogate(c)) {
+				size ++;
+			} else {
+				size += 3;
+			}
+		}
+		return size;
+	}
+
+	/**
+	 * Writes a message as a frame with a single write.
+	 *
+	 * @param out		the stream to write to.
+	 * @param message	the message.
+	 * @throws IOException if the frame could not be written.
+	 */
+	public static void write(OutputStream out, String message)
+			throws IOException {
+
+		// Encode the frame into the thread's buffer
+		int length = getSize(message, false);
+		if (length > MAX_LENGTH) {
+			throw new IOException("Message too long: " + length);
+		}
+		ByteBuffer buf = getBuffer(HEADER_SIZE + length);
+		put(buf, message, length);
+
+		out.write(buf.array(), 0, buf.position());
+		out.flush();
+	}
+
+	/**
+	 * Puts the header and then the message straight after it, without
+	 * encoding the message into a separate array first.
+	 *
+	 * @param buf		the buffer with room for the whole frame.
+	 * @param message	the message.
+	 * @param length	the length of the message in UTF-8.
+	 */
+	private static void put(ByteBuffer buf, String message, int length) {
+		buf.put((byte) MARKER).putInt(length);
+		CharsetEncoder encoder = ENCODER.get().reset();
+		encoder.encode(CharBuffer.wrap(message), buf, true);
+		encoder.flush(buf);
+	}
+
+	/**
+	 * Reads a frame, including the marker.
+	 *
+	 * @param in	the stream to read from.
+	 * @return the message.
+	 * @throws IOException if the frame could not be read or is invalid.
+	 */
+	public static String read(InputStream in) throws IOException {
+		int marker = in.read();
+		if (marker != MARKER) {
+			throw new IOException("Not a frame: " + marker);
+		}
+		return readMessage(in);
+	}
+
+	/**
+	 * Reads the rest of a frame after the marker.
+	 *
+	 * @param in	the stream to read from.
+	 * @return the message.
+	 * @throws IOException if the frame could not be read or is invalid.
+	 */
+	public static String readMessage(InputStream in) throws IOException {
+
+		// Read the length
+		ByteBuffer buf = getBuffer(4);
+		readFully(in, buf.array(), 4);
+		int length = buf.getInt(0);
+		if (length < 0 || length > MAX_LENGTH) {
+			throw new IOException("Invalid frame length: " + length);
+		}
+
+		// Read the message
+		buf = getBuffer(length);
+		readFully(in, buf.array(), length);
+		return new String(buf.array(), 0, length, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Reads an exact number of bytes.
+	 *
+	 * @param in		the stream to read from.
+	 * @param data		the array to read into.
+	 * @param length	the number of bytes to read.
+	 * @throws IOException if the stream ended or could not be read.
+	 */
+	private static void readFully(InputStream in, byte[] data, int length)
+			throws IOException {
+		int read = 0;
+		while (read < length) {
+			int n = in.read(data, read, length - read);
+			if (n < 0) {
+				throw new EOFException("Frame ended after " + read + " of "
+						+ length + " bytes");
+			}
+			read += n;
+		}
+	}
+
+	/**
+	 * Gets the thread's buffer, cleared and grown to at least the specified
+	 * capacity.
+	 *
+	 * @param capacity	the minimum capacity.
+	 * @return the buffer.
+	 */
+	private static ByteBuffer getBuffer(int capacity) {
+		ByteBuffer buf = BUFFER.get();
+		if (buf.capacity() < capacity) {
+			buf = ByteBuffer.allocate(Math.max(capacity, buf.capacity() * 2));
+			BUFFER.set(buf);
+		}
+		buf.clear();
+		return buf;
+	}
+}
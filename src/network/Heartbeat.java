@@ -0,0 +1,119 @@
+/* Name: Heartbeat
+ * Author: Devon McGrath
+ * Description: This class keeps a session between two clients alive and
+ * ends it if the other client goes away.
+ */
+
+package network;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * The {@code Heartbeat} class sends a {@link Command#COMMAND_HEARTBEAT} to the
+ * remote client of a {@link Session} every {@value #INTERVAL} ms, so the
+ * remote client knows this one is still there. It also checks that the remote
+ * client is doing the same: once a heartbeat was received, a session that
+ * receives no commands for {@value #TIMEOUT} ms is ended with a callback.
+ * <p>
+ * The heartbeat stops once the session ID changes (e.g. after a disconnect).
+ * The timers of every session share one {@link TimerWheel}, and the
+ * heartbeats are sent on separate threads so a slow client does not hold up
+ * the timers.
+ */
+public class Heartbeat {
+
+	/** The time in milliseconds between each heartbeat. */
+	public static final long INTERVAL = 10000;
+
+	/** The time in milliseconds without a command before a session that
+	 * sends heartbeats is ended. */
+	public static final long TIMEOUT = 35000;
+
+	/** The timers of every heartbeat. */
+	private static final TimerWheel TIMERS = new TimerWheel("Heartbeat", 100);
+
+	/** The threads that send the heartbeats. */
+	private static final ExecutorService SEND_EXECUTOR =
+			Executors.newCachedThreadPool(r -> {
+				Thread t = new Thread(r, "Heartbeat sender");
+				t.setDaemon(true);
+				return t;
+			});
+
+	/** The session to keep alive. */
+	private final Session session;
+
+	/** The session ID when the heartbeat was started. */
+	private final String sid;
+
+	/** The callback for when the remote client stops sending commands. */
+	private final Runnable onTimeout;
+
+	private Heartbeat(Session session, Runnable onTimeout) {
+		this.session = session;
+		this.sid = session.getSid();
+		this.onTimeout = onTimeout;
+	}
+
+	/**
+	 * Starts sending heartbeats for a session that was just connected.
+	 *
+	 * @param session	the session, with its session ID set.
+	 * @param onTimeout	the callback for when the remote client stops sending
+	 * commands, which should end the session.
+	 */
+	public static void start(Session session, Runnable onTimeout) {
+		if (session != null && session.getSid() != null) {
+			new Heartbeat(session, onTimeout).schedule();
+		}
+	}
+
+	/**
+	 * Sets the timer for the next heartbeat.
+	 */
+	private void schedule() {
+		TIMERS.schedule(this::beat, INTERVAL);
+	}
+
+	/**
+	 * Sends a heartbeat or ends the session if the remote client is gone.
+	 */
+	private void beat() {
+
+		// The session already ended
+		if (!sid.equals(session.getSid())) {
+			return;
+		}
+
+		// The remote client stopped sending commands
+		if (session.isIdle(TIMEOUT)) {
+			SEND_EXECUTOR.execute(() -> {
+				if (sid.equals(session.getSid())) {
+					onTimeout.run();
+				}
+			});
+			return;
+		}
+
+		SEND_EXECUTOR.execute(this::send);
+		schedule();
+	}
+
+	/**
+	 * Sends a heartbeat in the protocol used by the session.
+	 */
+	private void send() {
+		String host = session.getDestinationHost();
+		int port = session.getDestinationPort();
+		SessionToken token = session.getToken();
+		if (session.getVersion() >= BinaryCodec.VERSION && token != null) {
+			ByteBuffer buf = BinaryCodec.getBuffer();
+			BinaryCodec.encode(buf, BinaryCodec.OP_HEARTBEAT, token);
+			BinaryCodec.send(host, port, buf);
+		} else {
+			new Command(Command.COMMAND_HEARTBEAT, sid).send(session);
+		}
+	}
+}
@@ -0,0 +1,343 @@
+/* Name: LoadGenerator
+ * Author: Devon McGrath
+ * Description: This class simulates many network clients to measure the
+ * latency and throughput of a checkers listener.
+ */
+
+package network;
+
+import java.util.Random;
+
+import model.Game;
+
+/**
+ * The {@code LoadGenerator} class simulates a number of network clients that
+ * each connect to a checkers listener, play random games by sending an
+ * {@code UPDATE} after every turn (with a {@code GET-STATE} every few turns)
+ * and disconnect at the end. Every command is sent with
+ * {@link Command#send(String, int)}, so the same code path as a real client
+ * is measured.
+ * <p>
+ * Each client records the round-trip latency of its commands in its own
+ * histogram, so the clients do not contend with each other, and the
+ * histograms are merged at the end. The report has the p50, p99 and p999
+ * latency of each command type, the number of commands per second and the
+ * number of errors (no response) and denials.
+ * <p>
+ * Usage: {@code java network.LoadGenerator [clients] [seconds] [moves/s]
+ * [host port]}, where the defaults are 50 clients for 10 seconds at 10 moves
+ * per second each (0 sends as fast as possible). If no host is given, a local
+ * {@link CheckersServer} is started to measure against.
+ * A checkers window only accepts one connection per player, so the other
+ * clients will be denied if it is used. Since each command is a new TCP
+ * connection, long runs at high rates can run out of local ports.
+ */
+public class LoadGenerator {
+
+	/** The index of the {@code CONNECT} command in the statistics. */
+	private static final int CONNECT = 0;
+
+	/** The index of the {@code UPDATE} command in the statistics. */
+	private static final int UPDATE = 1;
+
+	/** The index of the {@code GET-STATE} command in the statistics. */
+	private static final int GET = 2;
+
+	/** The index of the {@code DISCONNECT} command in the statistics. */
+	private static final int DISCONNECT = 3;
+
+	/** The commands sent by each client. */
+	private static final String[] COMMANDS = {Command.COMMAND_CONNECT,
+			Command.COMMAND_UPDATE, Command.COMMAND_GET,
+			Command.COMMAND_DISCONNECT};
+
+	/** The number of turns between each {@code GET-STATE} command. */
+	private static final int GET_INTERVAL = 4;
+
+	/** The host of the listener. */
+	private final String host;
+
+	/** The port of the listener. */
+	private final int port;
+
+	/** The number of clients to simulate. */
+	private final int clients;
+
+	/** The number of turns each client makes per second, or 0 for no limit. */
+	private final double moveRate;
+
+	public LoadGenerator(String host, int port, int clients, double moveRate) {
+		this.host = host;
+		this.port = port;
+		this.clients = Math.max(1, clients);
+		this.moveRate = Math.max(0, moveRate);
+	}
+
+	/**
+	 * Runs the clients for the specified amount of time and waits for them to
+	 * disconnect.
+	 *
+	 * @param millis	the number of milliseconds to send turns for.
+	 * @return a report of the latency, throughput, errors and denials.
+	 * @throws InterruptedException if interrupted while waiting.
+	 */
+	public String run(long millis) throws InterruptedException {
+
+		// Start the clients
+		final long deadline = System.nanoTime() + millis * 1000000L;
+		Client[] all = new Client[clients];
+		Thread[] threads = new Thread[clients];
+		long start = System.nanoTime();
+		for (int i = 0; i < clients; i ++) {
+			all[i] = new Client(i, deadline);
+			threads[i] = new Thread(all[i], "Load client " + i);
+			threads[i].start();
+		}
+		for (Thread t : threads) {
+			t.join();
+		}
+		double seconds = (System.nanoTime() - start) / 1e9;
+
+		// Merge the results of the clients
+		Histogram[] latency = new Histogram[COMMANDS.length];
+		long errors = 0, denials = 0, count = 0;
+		for (int c = 0; c < COMMANDS.length; c ++) {
+			latency[c] = new Histogram();
+			for (Client client : all) {
+				latency[c].add(client.latency[c]);
+			}
+			count += latency[c].getCount();
+		}
+		Histogram total = new Histogram();
+		for (Client client : all) {
+			errors += client.errors;
+			denials += client.denials;
+		}
+		for (Histogram h : latency) {
+			total.add(h);
+		}
+
+		// Create the report
+		String report = String.format("clients=%d time=%.1fs commands=%d "
+				+ "commands/s=%.0f errors=%d denials=%d%n", clients, seconds,
+				count, count / seconds, errors, denials);
+		for (int c = 0; c < COMMANDS.length; c ++) {
+			report += format(COMMANDS[c], latency[c]);
+		}
+		report += format("ALL", total);
+
+		return report;
+	}
+
+	/**
+	 * Formats the latency percentiles of a command.
+	 *
+	 * @param name		the name of the command.
+	 * @param latency	the latency of the command.
+	 * @return a line with the number of commands and percentiles.
+	 */
+	private static String format(String name, Histogram latency) {
+		return String.format("%-10s count=%-8d p50=%.3fms p99=%.3fms "
+				+ "p999=%.3fms max=%.3fms%n", name, latency.getCount(),
+				latency.getPercentile(0.5) / 1e6,
+				latency.getPercentile(0.99) / 1e6,
+				latency.getPercentile(0.999) / 1e6,
+				latency.getPercentile(1) / 1e6);
+	}
+
+	/**
+	 * The {@code Client} class is one simulated client, which plays random
+	 * games against itself over its own session.
+	 */
+	private class Client implements Runnable {
+
+		/** The index of the client. */
+		private final int id;
+
+		/** The {@link System#nanoTime()} to stop sending turns at. */
+		private final long deadline;
+
+		/** The latency of each command type. */
+		private final Histogram[] latency = new Histogram[COMMANDS.length];
+
+		/** The number of commands without a response. */
+		private long errors;
+
+		/** The number of commands that were denied. */
+		private long denials;
+
+		public Client(int id, long deadline) {
+			this.id = id;
+			this.deadline = deadline;
+			for (int i = 0; i < latency.length; i ++) {
+				this.latency[i] = new Histogram();
+			}
+		}
+
+		@Override
+		public void run() {
+
+			// Connect with a port that is not actually listened on
+			String response = send(CONNECT, "" + (1025 + id % 60000),
+					id % 2 == 0? "1" : "2");
+			String[] lines = response.split("\n");
+			if (!response.startsWith(CheckersNetworkHandler.RESPONSE_ACCEPTED)
+					|| lines.length < 2) {
+				return;
+			}
+			String sid = lines[1];
+
+			// Play random games
+			Random rand = new Random(id);
+			Game game = new Game();
+			long interval = moveRate > 0? (long) (1e9 / moveRate) : 0;
+			long next = System.nanoTime();
+			int turns = 0;
+			while (System.nanoTime() < deadline) {
+				if (game.isGameOver()) {
+					game = new Game();
+				}
+				long[] options = game.getTurns();
+				game.move(options[rand.nextInt(options.length)]);
+				send(UPDATE, sid, game.getGameState());
+				if (++ turns % GET_INTERVAL == 0) {
+					send(GET, sid);
+				}
+
+				// Wait until the next turn
+				next += interval;
+				long wait = next - System.nanoTime();
+				if (wait > 0) {
+					try {
+						Thread.sleep(wait / 1000000L, (int) (wait % 1000000L));
+					} catch (InterruptedException e) {
+						break;
+					}
+				}
+			}
+
+			send(DISCONNECT, sid);
+		}
+
+		/**
+		 * Sends a command and records its latency and result.
+		 *
+		 * @param type	the index of the command (e.g. {@link #UPDATE}).
+		 * @param data	the lines after the command.
+		 * @return the response, or an empty string if there was an error.
+		 */
+		private String send(int type, String... data) {
+			long start = System.nanoTime();
+			String response = new Command(COMMANDS[type], data).send(
+					host, port);
+			this.latency[type].record(System.nanoTime() - start);
+			if (response.isEmpty()) {
+				this.errors ++;
+			} else if (response.startsWith(
+					CheckersNetworkHandler.RESPONSE_DENIED)) {
+				this.denials ++;
+			}
+			return response;
+		}
+	}
+
+	/**
+	 * The {@code Histogram} class counts values in buckets that grow
+	 * exponentially, with 16 buckets for each power of 2 (about 6% precision),
+	 * so any latency can be recorded in constant memory.
+	 */
+	private static class Histogram {
+
+		/** The number of values that each have their own bucket. */
+		private static final int LINEAR = 32;
+
+		/** The number of buckets for each power of 2 above the linear ones. */
+		private static final int SUB_BUCKETS = 16;
+
+		/** The number of values in each bucket. */
+		private final long[] counts = new long[LINEAR + 60 * SUB_BUCKETS];
+
+		/** The number of values recorded. */
+		private long count;
+
+		/**
+		 * Records a value.
+		 *
+		 * @param value	the value, which is treated as 0 if it is negative.
+		 */
+		public void record(long value) {
+			value = Math.max(0, value);
+			int bucket;
+			if (value < LINEAR) {
+				bucket = (int) value;
+			} else {
+				int shift = 59 - Long.numberOfLeadingZeros(value);
+				bucket = LINEAR + (shift - 1) * SUB_BUCKETS +
+						(int) (value >> shift) - SUB_BUCKETS;
+			}
+			this.counts[bucket] ++;
+			this.count ++;
+		}
+
+		/**
+		 * Adds the values of another histogram to this one.
+		 *
+		 * @param h	the histogram to add.
+		 */
+		public void add(Histogram h) {
+			for (int i = 0; i < counts.length; i ++) {
+				this.counts[i] += h.counts[i];
+			}
+			this.count += h.count;
+		}
+
+		/**
+		 * Gets the value at a percentile, which is the largest value that
+		 * could be in the bucket the percentile falls in.
+		 *
+		 * @param p	the percentile from 0 to 1 (e.g. 0.99).
+		 * @return the value, or 0 if nothing was recorded.
+		 */
+		public long getPercentile(double p) {
+			long target = Math.max(1, (long) Math.ceil(p * count)), seen = 0;
+			for (int i = 0; i < counts.length && count > 0; i ++) {
+				seen += counts[i];
+				if (seen >= target) {
+					if (i < LINEAR) {
+						return i;
+					}
+					int shift = (i - LINEAR) / SUB_BUCKETS + 1;
+					long sub = (i - LINEAR) % SUB_BUCKETS + SUB_BUCKETS;
+					return ((sub + 1) << shift) - 1;
+				}
+			}
+			return 0;
+		}
+
+		public long getCount() {
+			return count;
+		}
+	}
+
+	public static void main(String[] args) throws InterruptedException {
+
+		// Get the settings
+		int clients = args.length > 0? Integer.parseInt(args[0]) : 50;
+		double seconds = args.length > 1? Double.parseDouble(args[1]) : 10;
+		double moveRate = args.length > 2? Double.parseDouble(args[2]) : 10;
+		String host = args.length > 4? args[3] : "127.0.0.1";
+		int port;
+		if (args.length > 4) {
+			port = Integer.parseInt(args[4]);
+		} else {
+			CheckersServer server = new CheckersServer(0);
+			server.start(true);
+			port = server.getPort();
+		}
+
+		// Run the clients
+		LoadGenerator generator = new LoadGenerator(host, port, clients,
+				moveRate);
+		System.out.print(generator.run((long) (seconds * 1000)));
+	}
+}
@@ -0,0 +1,588 @@
+/* Name: Lobby
+ * Author: Devon McGrath
+ * Description: This class pairs players who are looking for a game on a
+ * checkers server.
+ */
+
+package network;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import model.GameClock;
+
+/**
+ * The {@code Lobby} class pairs players who are looking for a game with an
+ * opponent that has the same time control and a similar rating, then creates
+ * a {@link ServerGame} for them in a {@link SessionRegistry}. A player joins
+ * the lobby with {@link #enqueue(int, String, int, int)}, which pairs them
+ * right away if someone suitable is waiting, and otherwise returns a
+ * {@link Ticket} that the player checks with {@link #poll(SessionToken)}
+ * until they are paired. A player can ask to be player 1 or player 2, in
+ * which case they are only paired with someone who asked for the other
+ * player or does not mind.
+ * <p>
+ * The waiting players are split into buckets by time control, rating band
+ * ({@value #DEFAULT_BAND_WIDTH} points wide by default) and the player they
+ * asked to be, and each bucket is a lock-free queue. Pairing only looks at
+ * the front of one bucket, where the player who has waited the longest is, so
+ * it takes the same time no matter how many players are waiting. Two players
+ * are paired by changing the state of their tickets with compare-and-set, the
+ * older ticket first, so each player is only ever given one game and players
+ * that join at the same time cannot keep each other from being paired.
+ * Players that have waited longer than {@value #DEFAULT_WIDEN_DELAY} ms can
+ * also be paired with players from the neighbouring rating bands.
+ * <p>
+ * Games for a time control such as "5+3" are timed with a {@link GameClock}
+ * (see {@link GameClock#parse(String)}). The clock does not start when the
+ * players are paired, but once both of them have made contact with the
+ * server (see {@link SessionRegistry#contact(ServerSession)}), since a player
+ * only finds out about the game the next time they check their ticket.
+ * <p>
+ * Tickets that are not checked within the timeout are removed with a timer
+ * on a {@link TimerWheel}, the same way the registry removes idle sessions.
+ */
+public class Lobby {
+
+	/** The default number of rating points in each rating band. */
+	public static final int DEFAULT_BAND_WIDTH = 100;
+
+	/** The default time in milliseconds before a player can be paired with
+	 * a player from a neighbouring rating band. */
+	public static final long DEFAULT_WIDEN_DELAY = 5000;
+
+	/** The default time in milliseconds a ticket is kept without being
+	 * checked. */
+	public static final long DEFAULT_TIMEOUT = 30000;
+
+	/** The sides of the waiting players a player can be paired with, by the
+	 * player they asked to be (0 if they do not mind). The other player is
+	 * tried first, so players who do not mind are kept for each other. */
+	private static final int[][] OPPONENTS = {{0, 1, 2}, {2, 0}, {1, 0}};
+
+	/** The state of a ticket for a player who is waiting to be paired. */
+	private static final int WAITING = 0;
+
+	/** The state of a ticket that is being paired by another thread. */
+	private static final int CLAIMED = 1;
+
+	/** The state of a ticket for a player who was given a game. */
+	private static final int MATCHED = 2;
+
+	/** The state of a ticket for a player who left the lobby. */
+	private static final int CANCELLED = 3;
+
+	/** The registry the games are created in. */
+	private final SessionRegistry registry;
+
+	/** The waiting players, by time control (with the player they asked to
+	 * be, if any) and then by rating band. */
+	private final Map<String, Map<Integer, Queue<Ticket>>> buckets =
+			new ConcurrentHashMap<>();
+
+	/** The tickets that were not removed yet, by token. */
+	private final Map<SessionToken, Ticket> tickets =
+			new ConcurrentHashMap<>();
+
+	/** The order the tickets were created in. */
+	private final AtomicLong nextSequence = new AtomicLong();
+
+	/** The number of players in the queues that were not paired. */
+	private final AtomicInteger waiting = new AtomicInteger();
+
+	/** The timers that remove tickets that are no longer checked. */
+	private final TimerWheel wheel;
+
+	/** The number of rating points in each rating band. */
+	private final int bandWidth;
+
+	/** The time in nanoseconds before a player can be paired with a player
+	 * from a neighbouring rating band. */
+	private final long widenDelay;
+
+	/** The time in nanoseconds a ticket is kept without being checked. */
+	private final long timeout;
+
+	/**
+	 * Creates a lobby with the default settings.
+	 *
+	 * @param registry	the registry to create the games in.
+	 */
+	public Lobby(SessionRegistry registry) {
+		this(registry, DEFAULT_BAND_WIDTH, DEFAULT_WIDEN_DELAY,
+				DEFAULT_TIMEOUT);
+	}
+
+	/**
+	 * Creates a lobby.
+	 *
+	 * @param registry		the registry to create the games in.
+	 * @param bandWidth		the number of rating points in each rating band.
+	 * @param widenDelay	the time in milliseconds before a player can be
+	 * paired with a player from a neighbouring rating band.
+	 * @param timeout		the time in milliseconds a ticket is kept without
+	 * being checked.
+	 */
+	public Lobby(SessionRegistry registry, int bandWidth, long widenDelay,
+			long timeout) {
+		this.registry = registry;
+		this.bandWidth = Math.max(1, bandWidth);
+		this.widenDelay = TimeUnit.MILLISECONDS.toNanos(
+				Math.max(0, widenDelay));
+		this.timeout = TimeUnit.MILLISECONDS.toNanos(Math.max(0, timeout));
+		this.wheel = new TimerWheel("Lobby timeout",
+				Math.max(10, Math.min(1000, timeout / 32)));
+	}
+
+	/**
+	 * Adds a player who does not mind which player they are to the lobby.
+	 *
+	 * @param rating		the player's rating.
+	 * @param timeControl	the time control the player wants (e.g. "5+3").
+	 * @param version		the protocol version the player's client supports.
+	 * @return the player's ticket, which has the session if the player was
+	 * paired.
+	 * @see {@link #enqueue(int, String, int, int)}
+	 */
+	public Ticket enqueue(int rating, String timeControl, int version) {
+		return enqueue(rating, timeControl, version, 0);
+	}
+
+	/**
+	 * Adds a player to the lobby and pairs them with a waiting player, if
+	 * there is one with the same time control in the same rating band who
+	 * can play the other side.
+	 *
+	 * @param rating		the player's rating.
+	 * @param timeControl	the time control the player wants (e.g. "5+3").
+	 * @param version		the protocol version the player's client supports.
+	 * @param player		the player they want to be (1 or 2), or 0 if they
+	 * do not mind.
+	 * @return the player's ticket, which has the session if the player was
+	 * paired.
+	 */
+	public Ticket enqueue(int rating, String timeControl, int version,
+			int player) {
+
+		// Create a ticket with an unused token
+		String tc = timeControl == null? "" : timeControl.trim().toLowerCase();
+		int side = player == 1 || player == 2? player : 0;
+		Ticket ticket;
+		do {
+			ticket = new Ticket(SessionToken.generate(), rating, tc,
+					Math.floorDiv(rating, bandWidth), version, side,
+					nextSequence.getAndIncrement());
+		} while (tickets.putIfAbsent(ticket.token, ticket) != null);
+
+		// Wait for an opponent if no one is waiting
+		if (!match(ticket, false)) {
+			ticket.isQueued = true;
+			this.waiting.incrementAndGet();
+			getQueue(tc, ticket.band, side, true).add(ticket);
+
+			// Try again, in case an opponent joined at the same time
+			match(ticket, false);
+		}
+		scheduleTimeout(ticket, timeout);
+
+		return ticket;
+	}
+
+	/**
+	 * Gets a ticket from the ID sent in a text command, records that it was
+	 * checked and tries to pair the player again if they are still waiting.
+	 *
+	 * @param id	the ticket ID, which is a token in hex.
+	 * @return the ticket, or null if there is no ticket with the ID.
+	 */
+	public Ticket poll(String id) {
+		return poll(SessionToken.parse(id));
+	}
+
+	/**
+	 * Gets a ticket, records that it was checked and tries to pair the player
+	 * again if they are still waiting. Players that have waited long enough
+	 * can be paired with players from the neighbouring rating bands.
+	 *
+	 * @param token	the token of the ticket.
+	 * @return the ticket, or null if there is no ticket with the token.
+	 */
+	public Ticket poll(SessionToken token) {
+		Ticket ticket = token == null? null : tickets.get(token);
+		if (ticket == null) {
+			return null;
+		}
+		ticket.lastAccess = System.nanoTime();
+		if (ticket.state.get() == WAITING) {
+			match(ticket, ticket.lastAccess - ticket.created >= widenDelay);
+		}
+		return ticket;
+	}
+
+	/**
+	 * Removes a player from the lobby, if they have not been paired.
+	 *
+	 * @param id	the ticket ID, which is a token in hex.
+	 * @return true if the player was removed.
+	 */
+	public boolean cancel(String id) {
+		return cancel(SessionToken.parse(id));
+	}
+
+	/**
+	 * Removes a player from the lobby, if they have not been paired.
+	 *
+	 * @param token	the token of the ticket.
+	 * @return true if the player was removed.
+	 */
+	public boolean cancel(SessionToken token) {
+		Ticket ticket = token == null? null : tickets.get(token);
+		if (ticket == null) {
+			return false;
+		}
+
+		// Wait for another thread that is pairing the player
+		int state;
+		while ((state = ticket.state.get()) == CLAIMED) {
+			Thread.onSpinWait();
+		}
+		if (state == WAITING && ticket.state.compareAndSet(
+				WAITING, CANCELLED)) {
+			leave(ticket);
+			this.tickets.remove(token, ticket);
+			return true;
+		}
+		return state == CANCELLED;
+	}
+
+	/**
+	 * Pairs a player with the player who has waited the longest in one of
+	 * the buckets of players who can play the other side.
+	 *
+	 * @param ticket	the player's ticket.
+	 * @param isWide	the flag indicating if the neighbouring rating bands
+	 * should also be checked.
+	 * @return true if the player was paired.
+	 */
+	private boolean match(Ticket ticket, boolean isWide) {
+		int bands = isWide? 3 : 1;
+		for (int i = 0; i < bands; i ++) {
+			int band = ticket.band + (i == 2? -1 : i);
+			for (int side : OPPONENTS[ticket.player]) {
+				if (match(ticket, getQueue(ticket.timeControl, band, side,
+						false))) {
+					return true;
+				} else if (ticket.state.get() != WAITING) {
+					return ticket.state.get() == MATCHED;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Pairs a player with the player who has waited the longest in a queue.
+	 *
+	 * @param ticket	the player's ticket.
+	 * @param queue		the queue, or null if it does not exist.
+	 * @return true if the player was paired.
+	 */
+	private boolean match(Ticket ticket, Queue<Ticket> queue) {
+		if (queue == null) {
+			return false;
+		}
+		Iterator<Ticket> it = queue.iterator();
+		while (it.hasNext()) {
+			Ticket other = it.next();
+			int state = other.state.get();
+
+			// Remove the players that were paired or left
+			if (state == MATCHED || state == CANCELLED) {
+				it.remove();
+				continue;
+			}
+
+			// Pair the players
+			if (other != ticket && state == WAITING && pair(ticket, other)) {
+				return true;
+			}
+
+			// Another thread is pairing this player
+			if (ticket.state.get() != WAITING) {
+				return ticket.state.get() == MATCHED;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Pairs two players, if neither of them has been paired or left, and
+	 * creates a game for them. The older ticket is claimed first, so two
+	 * threads that try to pair the same players cannot both fail.
+	 *
+	 * @param a	the ticket of one player.
+	 * @param b	the ticket of the other player.
+	 * @return true if the players were paired.
+	 */
+	private boolean pair(Ticket a, Ticket b) {
+
+		// Claim both tickets
+		Ticket first = a.sequence < b.sequence? a : b;
+		Ticket second = first == a? b : a;
+		if (!first.state.compareAndSet(WAITING, CLAIMED)) {
+			return false;
+		} else if (!second.state.compareAndSet(WAITING, CLAIMED)) {
+			first.state.set(WAITING);
+			return false;
+		}
+
+		// Create the game, with the players they asked to be (or a random
+		// player moving first) and a clock for the time control
+		ServerGame game = registry.createGame();
+		boolean isPlayer1 = first.player != 0? first.player == 1 :
+			second.player != 0? second.player == 2 :
+				ThreadLocalRandom.current().nextBoolean();
+		first.session = registry.join(game, isPlayer1);
+		second.session = registry.join(game, !isPlayer1);
+		registry.setClock(game, GameClock.parse(first.timeControl));
+		first.state.set(MATCHED);
+		second.state.set(MATCHED);
+		leave(first);
+		leave(second);
+
+		return true;
+	}
+
+	/**
+	 * Records that a player is no longer waiting in a queue.
+	 *
+	 * @param ticket	the player's ticket.
+	 */
+	private void leave(Ticket ticket) {
+		if (ticket.isQueued) {
+			this.waiting.decrementAndGet();
+		}
+	}
+
+	/**
+	 * Gets the queue of the players waiting with a time control in a rating
+	 * band, who asked to be the same player.
+	 *
+	 * @param timeControl	the time control.
+	 * @param band			the rating band.
+	 * @param player		the player they asked to be, or 0.
+	 * @param create		the flag indicating if the queue should be created
+	 * if it does not exist.
+	 * @return the queue, or null if it does not exist and was not created.
+	 */
+	private Queue<Ticket> getQueue(String timeControl, int band, int player,
+			boolean create) {
+		String key = player == 0? timeControl : player + "/" + timeControl;
+		Map<Integer, Queue<Ticket>> bands = buckets.get(key);
+		if (bands == null) {
+			if (!create) {
+				return null;
+			}
+			bands = buckets.computeIfAbsent(key,
+					k -> new ConcurrentHashMap<>());
+		}
+		Queue<Ticket> queue = bands.get(band);
+		if (queue == null && create) {
+			queue = bands.computeIfAbsent(band,
+					k -> new ConcurrentLinkedQueue<>());
+		}
+		return queue;
+	}
+
+	/**
+	 * Sets a timer to check if a ticket is no longer being checked.
+	 *
+	 * @param ticket	the ticket.
+	 * @param delay		the time in nanoseconds until the ticket would time
+	 * out.
+	 */
+	private void scheduleTimeout(Ticket ticket, long delay) {
+		wheel.schedule(() -> checkTimeout(ticket),
+				TimeUnit.NANOSECONDS.toMillis(delay));
+	}
+
+	/**
+	 * Removes a ticket if it has not been checked within the timeout, or sets
+	 * the timer again for when it would time out. A player who was paired
+	 * keeps their session, which the registry removes if it is not used.
+	 *
+	 * @param ticket	the ticket.
+	 */
+	private void checkTimeout(Ticket ticket) {
+		if (tickets.get(ticket.token) != ticket) {
+			return;
+		}
+		long idle = System.nanoTime() - ticket.lastAccess;
+		if (idle < timeout) {
+			scheduleTimeout(ticket, timeout - idle);
+			return;
+		}
+
+		// Check again on the next tick if the player is being paired
+		int state = ticket.state.get();
+		if (state == WAITING &&
+				ticket.state.compareAndSet(WAITING, CANCELLED)) {
+			leave(ticket);
+		} else if (state != MATCHED && state != CANCELLED) {
+			scheduleTimeout(ticket, 0);
+			return;
+		}
+		this.tickets.remove(ticket.token, ticket);
+	}
+
+	/**
+	 * Gets the number of players who are waiting to be paired.
+	 *
+	 * @return the number of players.
+	 */
+	public int getWaitingCount() {
+		return waiting.get();
+	}
+
+	/**
+	 * Gets the number of tickets, including the tickets of players who were
+	 * paired but have not timed out.
+	 *
+	 * @return the number of tickets.
+	 */
+	public int getTicketCount() {
+		return tickets.size();
+	}
+
+	public SessionRegistry getRegistry() {
+		return registry;
+	}
+
+	public int getBandWidth() {
+		return bandWidth;
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + "[waiting=" + getWaitingCount()
+				+ ", tickets=" + getTicketCount() + "]";
+	}
+
+	/**
+	 * The {@code Ticket} class represents a player in a {@link Lobby}, who is
+	 * either waiting for an opponent or was given a session for a new game.
+	 */
+	public static final class Ticket {
+
+		/** The token that identifies the ticket. */
+		private final SessionToken token;
+
+		/** The player's rating. */
+		private final int rating;
+
+		/** The time control the player wants. */
+		private final String timeControl;
+
+		/** The player's rating band. */
+		private final int band;
+
+		/** The protocol version the player's client supports. */
+		private final int version;
+
+		/** The player they asked to be (1 or 2), or 0 if they do not mind. */
+		private final int player;
+
+		/** The order the ticket was created in. */
+		private final long sequence;
+
+		/** The {@link System#nanoTime()} when the ticket was created. */
+		private final long created;
+
+		/** The state of the ticket, which is changed with compare-and-set. */
+		private final AtomicInteger state = new AtomicInteger(WAITING);
+
+		/** The player's session, once they were paired. */
+		private volatile ServerSession session;
+
+		/** The flag indicating if the ticket was added to a queue. */
+		private volatile boolean isQueued;
+
+		/** The {@link System#nanoTime()} the ticket was last checked. */
+		private volatile long lastAccess;
+
+		private Ticket(SessionToken token, int rating, String timeControl,
+				int band, int version, int player, long sequence) {
+			this.token = token;
+			this.rating = rating;
+			this.timeControl = timeControl;
+			this.band = band;
+			this.version = version;
+			this.player = player;
+			this.sequence = sequence;
+			this.created = System.nanoTime();
+			this.lastAccess = created;
+		}
+
+		public SessionToken getToken() {
+			return token;
+		}
+
+		/**
+		 * Gets the ticket ID used for correspondence with the client.
+		 *
+		 * @return the token in hex.
+		 */
+		public String getID() {
+			return token.toString();
+		}
+
+		public int getRating() {
+			return rating;
+		}
+
+		public String getTimeControl() {
+			return timeControl;
+		}
+
+		public int getVersion() {
+			return version;
+		}
+
+		public int getPlayer() {
+			return player;
+		}
+
+		/**
+		 * Gets the player's session in the new game.
+		 *
+		 * @return the session, or null if the player was not paired.
+		 */
+		public ServerSession getSession() {
+			return state.get() == MATCHED? session : null;
+		}
+
+		public boolean isMatched() {
+			return state.get() == MATCHED;
+		}
+
+		public boolean isCancelled() {
+			return state.get() == CANCELLED;
+		}
+
+		/**
+		 * Gets the time the player has been in the lobby.
+		 *
+		 * @return the time in milliseconds.
+		 */
+		public long getWaitTime() {
+			return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - created);
+		}
+	}
+}
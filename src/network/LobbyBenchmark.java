@@ -0,0 +1,107 @@
+/* Name: LobbyBenchmark
+ * Author: Devon McGrath
+ * Description: This class measures how long it takes the lobby of a checkers
+ * server to pair players.
+ */
+
+package network;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * The {@code LobbyBenchmark} class measures how long {@link Lobby#enqueue}
+ * takes to pair a player with an opponent, including creating the game and
+ * both sessions in a {@link SessionRegistry}. First, one player is added to
+ * each of many rating bands, so they all wait since none of them can be
+ * paired with each other. Then an opponent is added for each of them in a
+ * random order, and the time each one takes to be paired is recorded. This
+ * shows the time to pair a player does not depend on how many players are
+ * waiting. The p50, p99 and p999 times are reported, after a warm up.
+ * <p>
+ * Usage: {@code java network.LobbyBenchmark [players]}, where the default is
+ * 50000 waiting players.
+ */
+public class LobbyBenchmark {
+
+	/** The time controls the players choose from. */
+	private static final String[] TIME_CONTROLS = {"1+0", "3+2", "5+3",
+			"10+5"};
+
+	public static void main(String[] args) {
+
+		// Get the settings
+		int count = args.length > 0? Integer.parseInt(args[0]) : 50000;
+
+		// Warm up, then measure
+		measure(Math.max(1, count / 10), true);
+		measure(count, false);
+	}
+
+	/**
+	 * Fills a new lobby with waiting players, then pairs each of them.
+	 *
+	 * @param count		the number of waiting players.
+	 * @param isWarmUp	the flag indicating if nothing should be printed.
+	 */
+	private static void measure(int count, boolean isWarmUp) {
+		Lobby lobby = new Lobby(new SessionRegistry());
+		int width = lobby.getBandWidth();
+
+		// Add a player to each rating band
+		Random rand = new Random(1);
+		int[] ratings = new int[count];
+		for (int i = 0; i < count; i ++) {
+			ratings[i] = i * width + rand.nextInt(width);
+			lobby.enqueue(ratings[i], TIME_CONTROLS[i % TIME_CONTROLS.length],
+					BinaryCodec.VERSION);
+		}
+		int waiting = lobby.getWaitingCount();
+
+		// Pair each waiting player, in a random order
+		int[] order = new int[count];
+		for (int i = 0; i < count; i ++) {
+			int k = rand.nextInt(i + 1);
+			order[i] = order[k];
+			order[k] = i;
+		}
+		long[] times = new long[count];
+		int paired = 0;
+		long start = System.nanoTime();
+		for (int i = 0; i < count; i ++) {
+			int k = order[i];
+			int rating = k * width + rand.nextInt(width);
+			long time = System.nanoTime();
+			Lobby.Ticket ticket = lobby.enqueue(rating,
+					TIME_CONTROLS[k % TIME_CONTROLS.length],
+					BinaryCodec.VERSION);
+			times[i] = System.nanoTime() - time;
+			paired += ticket.isMatched()? 1 : 0;
+		}
+		double seconds = (System.nanoTime() - start) / 1e9;
+
+		if (!isWarmUp) {
+			Arrays.sort(times);
+			System.out.printf("%d players waiting, %d of %d paired in %.3f s"
+					+ " (%.0f pairs/s)%n", waiting, paired, count, seconds,
+					paired / seconds);
+			System.out.printf("p50=%.3fms p99=%.3fms p999=%.3fms max=%.3fms"
+					+ "%n", percentile(times, 0.5) / 1e6,
+					percentile(times, 0.99) / 1e6,
+					percentile(times, 0.999) / 1e6,
+					times[count - 1] / 1e6);
+		}
+	}
+
+	/**
+	 * Gets the value at a percentile.
+	 *
+	 * @param sorted	the values, in ascending order.
+	 * @param p			the percentile from 0 to 1 (e.g. 0.99).
+	 * @return the value.
+	 */
+	private static long percentile(long[] sorted, double p) {
+		int i = (int) Math.ceil(p * sorted.length) - 1;
+		return sorted[Math.max(0, Math.min(sorted.length - 1, i))];
+	}
+}
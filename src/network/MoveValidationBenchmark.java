@@ -0,0 +1,147 @@
+/* Name: MoveValidationBenchmark
+ * Author: Devon McGrath
+ * Description: This class measures how fast a checkers server can validate
+ * and make the moves it receives.
+ */
+
+package network;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import logic.MovePath;
+import model.Game;
+
+/**
+ * The {@code MoveValidationBenchmark} class measures the number of moves per
+ * second that one thread can validate and make with
+ * {@link ServerGame#move(boolean, long)}, the way an authoritative
+ * {@link CheckersServer} does for each {@code MOVE} command (including
+ * parsing the move and taking the game's lock). The moves come from random
+ * games, which are generated before anything is timed. It also measures how
+ * fast illegal moves (moves from an empty tile and moves by the wrong player)
+ * are rejected.
+ * <p>
+ * Usage: {@code java network.MoveValidationBenchmark [games]}, where the
+ * default is 20000 games.
+ */
+public class MoveValidationBenchmark {
+
+	public static void main(String[] args) {
+
+		// Get the settings
+		int count = args.length > 0? Integer.parseInt(args[0]) : 20000;
+
+		// Generate the moves of random games
+		Random rand = new Random(1);
+		List<String[]> games = new ArrayList<>();
+		List<String[]> reversed = new ArrayList<>();
+		int moves = 0;
+		for (int i = 0; i < count; i ++) {
+			Game game = new Game();
+			List<String> paths = new ArrayList<>(), back = new ArrayList<>();
+			while (!game.isGameOver()) {
+				long[] turns = game.getTurns();
+				long path = turns[rand.nextInt(turns.length)];
+				paths.add(MovePath.toString(path));
+				back.add(MovePath.toString(MovePath.create(
+						MovePath.getIndex(path, 0), MovePath.getStart(path))));
+				game.move(path);
+			}
+			games.add(paths.toArray(new String[0]));
+			reversed.add(back.toArray(new String[0]));
+			moves += paths.size();
+		}
+
+		// Warm up, then measure
+		for (int i = 0; i < 2; i ++) {
+			boolean isWarmUp = i == 0;
+			List<String[]> run = isWarmUp?
+					games.subList(0, Math.max(1, count / 10)) : games;
+			int n = isWarmUp? 0 : moves;
+			measure("Legal", run, reversed, n, false, isWarmUp);
+			measure("Illegal", run, reversed, n, true, isWarmUp);
+		}
+	}
+
+	/**
+	 * Replays the moves of the games on new server games.
+	 *
+	 * @param name			the name of the measurement.
+	 * @param games			the moves of each game.
+	 * @param reversed		the first step of each move in reverse, which is
+	 * never legal since the tile it starts from is empty.
+	 * @param moves			the total number of moves in the games.
+	 * @param isIllegal		the flag indicating if illegal moves are tried
+	 * before each legal move (and only the illegal moves are counted).
+	 * @param isWarmUp		the flag indicating if nothing should be printed.
+	 */
+	private static void measure(String name, List<String[]> games,
+			List<String[]> reversed, int moves, boolean isIllegal,
+			boolean isWarmUp) {
+
+		// Create the games to replay the moves on
+		Lock lock = new ReentrantLock();
+		ServerGame[] serverGames = new ServerGame[games.size()];
+		for (int i = 0; i < serverGames.length; i ++) {
+			serverGames[i] = new ServerGame(i, lock);
+		}
+
+		// Replay the moves
+		long valid = 0, invalid = 0;
+		long time = System.nanoTime();
+		for (int i = 0; i < serverGames.length; i ++) {
+			ServerGame game = serverGames[i];
+			String[] paths = games.get(i), back = reversed.get(i);
+			boolean isPlayer1 = true;
+			for (int k = 0; k < paths.length; k ++) {
+				String path = paths[k];
+
+				// Try a move from an empty tile and a move by the wrong player
+				if (isIllegal) {
+					invalid += move(game, isPlayer1, back[k])? 0 : 1;
+					invalid += move(game, !isPlayer1, path)? 0 : 1;
+				}
+
+				// Make the move
+				if (move(game, isPlayer1, path)) {
+					valid ++;
+				}
+				isPlayer1 = game.getGame().isP1Turn();
+			}
+		}
+		double seconds = (System.nanoTime() - time) / 1e9;
+
+		if (!isWarmUp) {
+			long n = isIllegal? invalid : valid, total = valid + invalid;
+			System.out.printf("%-7s %d of %d moves %s in %.3f s (%.0f moves/s,"
+					+ " %.0f ns/move)%n", name, n,
+					isIllegal? 2L * moves : moves,
+					isIllegal? "rejected" : "made", seconds, total / seconds,
+					seconds * 1e9 / total);
+		}
+	}
+
+	/**
+	 * Parses and makes a move while holding the game's lock, like the server.
+	 *
+	 * @param game		the game.
+	 * @param isPlayer1	the flag indicating if the move is by player 1.
+	 * @param move		the path of the move (e.g. "8x17x24").
+	 * @return true if the move was made.
+	 */
+	private static boolean move(ServerGame game, boolean isPlayer1,
+			String move) {
+		long path = MovePath.parse(move);
+		Lock lock = game.getLock();
+		lock.lock();
+		try {
+			return path != MovePath.NONE && game.move(isPlayer1, path);
+		} finally {
+			lock.unlock();
+		}
+	}
+}
@@ -0,0 +1,463 @@
+/* Name: ServerGame
+ * Author: Devon McGrath
+ * Description: This class represents one of the games hosted by a checkers
+ * server.
+ */
+
+package network;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+
+import logic.MovePath;
+import model.Game;
+import model.GameClock;
+import storage.GameJournal;
+
+/**
+ * The {@code ServerGame} class represents a game hosted by a
+ * {@link CheckersServer}, with the session of each player that joined it.
+ * The game and the sessions can only be accessed while holding the lock from
+ * {@link #getLock()}, which is shared with other games by the
+ * {@link SessionRegistry} that created it.
+ * <p>
+ * The game is authoritative: players can make moves with
+ * {@link #move(boolean, long)}, which are checked against the game before
+ * they are made, and each new state is sent to the spectators.
+ * <p>
+ * A game can be timed with a {@link GameClock}, which starts once both
+ * players have made contact with the server (see {@link #contact(boolean)}),
+ * so a player is not charged for the time the other player takes to find
+ * out about the game. The clock is pressed after each turn. A task on a
+ * scheduled executor is set for when the current player would run out of
+ * time, so the game ends at that moment even if the player never sends
+ * another command: no more moves are accepted and the spectators are told
+ * the game is over.
+ * <p>
+ * If the game has a {@link GameJournal}, each accepted move is written to it
+ * so the game can be recovered when the server is restarted, and the game is
+ * ended in the journal when it is removed.
+ */
+public class ServerGame {
+
+	/** The ID of the game. */
+	private final int id;
+
+	/** The lock that guards the game and the sessions. */
+	private final Lock lock;
+
+	/** The game. */
+	private final Game game;
+
+	/** The spectators of the game. */
+	private final SpectatorBroadcaster spectators;
+
+	/** The session of player 1, or null if no one has joined as player 1. */
+	private ServerSession session1;
+
+	/** The session of player 2, or null if no one has joined as player 2. */
+	private ServerSession session2;
+
+	/** The clock of the game, or null if the game is not timed. */
+	private GameClock clock;
+
+	/** The executor that ends the game when a player runs out of time. */
+	private ScheduledExecutorService timers;
+
+	/** The task that ends the game when the current player runs out of
+	 * time. */
+	private ScheduledFuture<?> flagCheck;
+
+	/** The flag indicating if player 1 has sent a command for the game. */
+	private boolean isContacted1;
+
+	/** The flag indicating if player 2 has sent a command for the game. */
+	private boolean isContacted2;
+
+	/** The flag indicating if the game ended because a player ran out of
+	 * time. */
+	private boolean isTimeOut;
+
+	/** The journal the moves are written to, or null if there is none. */
+	private GameJournal journal;
+
+	/** The flag indicating if the game was removed from the registry. */
+	private boolean isClosed;
+
+	/** The {@link System#nanoTime()} of the last command for the game. */
+	private volatile long lastAccess;
+
+	public ServerGame(int id, Lock lock) {
+		this(id, lock, new Game());
+	}
+
+	/**
+	 * Creates a game that continues from an existing game, such as one
+	 * recovered from a {@link GameJournal}.
+	 *
+	 * @param id	the ID of the game.
+	 * @param lock	the lock that guards the game.
+	 * @param game	the game to continue, which is copied.
+	 */
+	public ServerGame(int id, Lock lock, Game game) {
+		this.id = id;
+		this.lock = lock;
+		this.game = game.copy();
+		this.spectators = new SpectatorBroadcaster(id);
+		this.lastAccess = System.nanoTime();
+	}
+
+	public int getID() {
+		return id;
+	}
+
+	public Lock getLock() {
+		return lock;
+	}
+
+	/**
+	 * Gets the game, which must only be used while holding the lock.
+	 *
+	 * @return the game.
+	 * @see {@link #getLock()}
+	 */
+	public Game getGame() {
+		return game;
+	}
+
+	/**
+	 * Makes a turn (or part of a turn) for a player, if it is the player's
+	 * turn and the path is legal. This must only be called while holding the
+	 * lock.
+	 *
+	 * @param isPlayer1	the flag indicating if the move is by player 1.
+	 * @param path		the path of the move, encoded with {@link MovePath}.
+	 * @return true if the move was made.
+	 */
+	public boolean move(boolean isPlayer1, long path) {
+
+		// Not allowed to move
+		if (isClosed || isPlayer1 != game.isP1Turn() || isGameOver()) {
+			return false;
+		} else if (clock != null && clock.isFlagged(isPlayer1)) {
+			timeOut();
+			return false;
+		}
+
+		// Check the first step against the legal moves before making it
+		int start = MovePath.getStart(path);
+		if (MovePath.getLength(path) == 0 ||
+				!game.isLegalMove(start, MovePath.getIndex(path, 0)) ||
+				!game.move(path)) {
+			return false;
+		}
+
+		updated(isPlayer1, path);
+		return true;
+	}
+
+	/**
+	 * Sets the state of the game without checking it, and sends it to the
+	 * spectators. If the state can be reached with one legal move, the move
+	 * is made instead, so the position and turn history are kept. This must
+	 * only be called while holding the lock.
+	 *
+	 * @param state	the game state from {@link Game#getGameState()}.
+	 */
+	public void setGameState(String state) {
+		boolean isP1Turn = game.isP1Turn();
+		long path = game.findMove(state);
+		if (path == MovePath.NONE || !game.move(path)) {
+			this.game.setGameState(state);
+			path = MovePath.NONE;
+		}
+		updated(isP1Turn, path);
+	}
+
+	/**
+	 * Sets the state of the game to the state in a {@link BinaryCodec}
+	 * message, in the same way as {@link #setGameState(String)}. The move is
+	 * found straight from the masks in the message, so the message is only
+	 * turned into a game if no move leads to its state. This must only be
+	 * called while holding the lock.
+	 *
+	 * @param buf	the buffer with the message.
+	 */
+	public void setGameState(ByteBuffer buf) {
+		boolean isP1Turn = game.isP1Turn();
+		long path = BinaryCodec.findMove(buf, game);
+		if (path == MovePath.NONE || !game.move(path)) {
+			this.game.setGameState(BinaryCodec.toGame(buf).getGameState());
+			path = MovePath.NONE;
+		}
+		updated(isP1Turn, path);
+	}
+
+	/**
+	 * Records a change to the state of the game, updates the clock and sends
+	 * the new state to the spectators.
+	 *
+	 * @param isP1Turn	the flag indicating if it was player 1's turn before
+	 * the change.
+	 * @param path		the move that was made, or {@link MovePath#NONE} if
+	 * the state was set without a move.
+	 */
+	private void updated(boolean isP1Turn, long path) {
+		record(path);
+		updateClock(isP1Turn);
+		broadcast();
+	}
+
+	/**
+	 * Sets the journal the moves are written to. This must only be called
+	 * while holding the lock.
+	 *
+	 * @param journal	the journal, or null to stop writing the moves.
+	 * @param isNew		the flag indicating if the game is not in the journal
+	 * yet, so it is started there with the current state.
+	 */
+	void setJournal(GameJournal journal, boolean isNew) {
+		this.journal = journal;
+		if (isNew) {
+			record(MovePath.NONE);
+		}
+	}
+
+	/**
+	 * Writes a move to the journal, if there is one.
+	 *
+	 * @param path	the move, or {@link MovePath#NONE} if the state was changed
+	 * without a move, in which case the whole state is written.
+	 */
+	private void record(long path) {
+		if (journal == null) {
+			return;
+		}
+		try {
+			if (path == MovePath.NONE) {
+				this.journal.start(id, game);
+			} else {
+				this.journal.move(id, path);
+			}
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Sets the clock of the game, which starts for the player whose turn it
+	 * is once both players have made contact. This must only be called while
+	 * holding the lock.
+	 *
+	 * @param clock		the clock, or null if the game is not timed.
+	 * @param timers	the executor that ends the game when a player runs out
+	 * of time.
+	 */
+	void setClock(GameClock clock, ScheduledExecutorService timers) {
+		cancelFlagCheck();
+		this.clock = clock;
+		this.timers = timers;
+		startClock();
+	}
+
+	/**
+	 * Records that a player has made contact with the server for this game,
+	 * and starts the clock if both players have. This must only be called
+	 * while holding the lock.
+	 *
+	 * @param isPlayer1	the flag indicating if the contact is from player 1.
+	 */
+	void contact(boolean isPlayer1) {
+		if (isPlayer1) {
+			this.isContacted1 = true;
+		} else {
+			this.isContacted2 = true;
+		}
+		startClock();
+	}
+
+	/**
+	 * Starts the clock for the player whose turn it is, if the game is timed
+	 * and both players have made contact, and the clock is not running.
+	 */
+	private void startClock() {
+		if (clock == null || clock.isRunning() || isGameOver() ||
+				isClosed || !isContacted1 || !isContacted2) {
+			return;
+		}
+		this.clock.start(game.isP1Turn());
+		scheduleFlagCheck();
+	}
+
+	/**
+	 * Presses the clock if the player's turn is over, or stops it if the game
+	 * is over. Nothing is done if the clock has not started yet.
+	 *
+	 * @param isPlayer1	the flag indicating if the last move was by player 1.
+	 */
+	private void updateClock(boolean isPlayer1) {
+		if (clock == null || !clock.isRunning()) {
+			return;
+		}
+		if (game.isGameOver()) {
+			this.clock.stop();
+			cancelFlagCheck();
+		} else if (game.isP1Turn() != isPlayer1) {
+			this.clock.press();
+			scheduleFlagCheck();
+		}
+	}
+
+	/**
+	 * Sets the task that checks the clock when the current player would run
+	 * out of time, replacing the previous one.
+	 */
+	private void scheduleFlagCheck() {
+		cancelFlagCheck();
+		this.flagCheck = timers.schedule(this::checkFlag,
+				clock.getTimeToFlag(), TimeUnit.NANOSECONDS);
+	}
+
+	private void cancelFlagCheck() {
+		if (flagCheck != null) {
+			this.flagCheck.cancel(false);
+			this.flagCheck = null;
+		}
+	}
+
+	/**
+	 * Ends the game if the current player has run out of time, or checks
+	 * again later if they have not.
+	 */
+	private void checkFlag() {
+		lock.lock();
+		try {
+			if (isClosed || isGameOver() || clock == null ||
+					!clock.isRunning()) {
+				return;
+			}
+			if (clock.isFlagged(clock.isP1Turn())) {
+				timeOut();
+			} else {
+				scheduleFlagCheck();
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Ends the game because the current player ran out of time, and tells
+	 * the spectators the game is over.
+	 */
+	private void timeOut() {
+		this.isTimeOut = true;
+		this.clock.stop();
+		cancelFlagCheck();
+		this.spectators.close();
+	}
+
+	/**
+	 * Sends the game state to the spectators, if there are any. This must
+	 * only be called while holding the lock.
+	 */
+	public void broadcast() {
+		if (spectators.getSpectatorCount() > 0) {
+			this.spectators.broadcast(game.getGameState());
+		}
+	}
+
+	/**
+	 * Checks if the game is over, either because it ended on the board or
+	 * because a player ran out of time. This must only be called while
+	 * holding the lock.
+	 *
+	 * @return true if no more moves can be made.
+	 */
+	public boolean isGameOver() {
+		return isTimeOut || game.isGameOver();
+	}
+
+	/**
+	 * Checks if a player ran out of time, which ended the game. The player
+	 * who ran out of time is the one whose turn it is.
+	 *
+	 * @return true if the game ended on time.
+	 */
+	public boolean isTimeOut() {
+		return isTimeOut;
+	}
+
+	/**
+	 * Gets the clock of the game, which must only be changed while holding
+	 * the lock.
+	 *
+	 * @return the clock, or null if the game is not timed.
+	 */
+	public GameClock getClock() {
+		return clock;
+	}
+
+	public SpectatorBroadcaster getSpectators() {
+		return spectators;
+	}
+
+	public ServerSession getSession(boolean isPlayer1) {
+		return isPlayer1? session1 : session2;
+	}
+
+	void setSession(boolean isPlayer1, ServerSession session) {
+		if (isPlayer1) {
+			this.session1 = session;
+		} else {
+			this.session2 = session;
+		}
+	}
+
+	/**
+	 * Checks if no player is in the game.
+	 *
+	 * @return true if neither player has a session.
+	 */
+	public boolean isEmpty() {
+		return session1 == null && session2 == null;
+	}
+
+	public boolean isClosed() {
+		return isClosed;
+	}
+
+	void close() {
+		this.isClosed = true;
+		cancelFlagCheck();
+		this.spectators.close();
+		if (journal != null) {
+			try {
+				this.journal.end(id);
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+
+	public long getLastAccess() {
+		return lastAccess;
+	}
+
+	/**
+	 * Records that a command was received for the game now.
+	 */
+	public void touch() {
+		this.lastAccess = System.nanoTime();
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + "[id=" + id + ", closed="
+				+ isClosed + "]";
+	}
+}
@@ -0,0 +1,135 @@
+/* Name: ServerSession
+ * Author: Devon McGrath
+ * Description: This class represents a player's session with a checkers
+ * server.
+ */
+
+package network;
+
+/**
+ * The {@code ServerSession} class represents a session between a remote
+ * client and a {@link CheckersServer}. It is created when the client joins a
+ * {@link ServerGame} as one of the players and contains the
+ * {@link SessionToken} that the client sends with every following command,
+ * as the session ID in text commands. If the client is listening for
+ * commands, its address is kept so the moves of the other player can be sent
+ * to it.
+ */
+public class ServerSession {
+
+	/** The token that identifies the session. */
+	private final SessionToken token;
+
+	/** The session ID used for correspondence with the client, which is the
+	 * token in hex. */
+	private final String sid;
+
+	/** The game the client joined. */
+	private final ServerGame game;
+
+	/** The flag indicating if the client is player 1. */
+	private final boolean isPlayer1;
+
+	/** The {@link System#nanoTime()} of the last command from the client. */
+	private volatile long lastAccess;
+
+	/** The host the client is listening on, or null if it is not
+	 * listening. */
+	private volatile String host;
+
+	/** The port the client is listening on. */
+	private volatile int port;
+
+	/** The flag indicating if the client has made contact for the game. */
+	private volatile boolean isContacted;
+
+	/** The timer that checks if the session is idle. */
+	private volatile TimerWheel.Timeout idleCheck;
+
+	public ServerSession(SessionToken token, ServerGame game,
+			boolean isPlayer1) {
+		this.token = token;
+		this.sid = token.toString();
+		this.game = game;
+		this.isPlayer1 = isPlayer1;
+		this.lastAccess = System.nanoTime();
+	}
+
+	public SessionToken getToken() {
+		return token;
+	}
+
+	public String getSid() {
+		return sid;
+	}
+
+	public ServerGame getGame() {
+		return game;
+	}
+
+	public boolean isPlayer1() {
+		return isPlayer1;
+	}
+
+	public String getHost() {
+		return host;
+	}
+
+	public int getPort() {
+		return port;
+	}
+
+	/**
+	 * Sets the address the client is listening on for commands, such as an
+	 * {@code UPDATE} with the other player's move.
+	 *
+	 * @param host	the host of the client.
+	 * @param port	the port the client is listening on.
+	 */
+	public void setAddress(String host, int port) {
+		this.port = port;
+		this.host = host;
+	}
+
+	public long getLastAccess() {
+		return lastAccess;
+	}
+
+	public boolean isContacted() {
+		return isContacted;
+	}
+
+	void setContacted(boolean isContacted) {
+		this.isContacted = isContacted;
+	}
+
+	void setIdleCheck(TimerWheel.Timeout idleCheck) {
+		this.idleCheck = idleCheck;
+	}
+
+	/**
+	 * Stops checking if the session is idle.
+	 */
+	void cancelIdleCheck() {
+		TimerWheel.Timeout timeout = idleCheck;
+		if (timeout != null) {
+			timeout.cancel();
+		}
+	}
+
+	/**
+	 * Records that a command was received from the client now, which also
+	 * counts as activity in the game. This only writes the time, so it is
+	 * cheap enough to do for every heartbeat.
+	 */
+	public void touch() {
+		this.lastAccess = System.nanoTime();
+		this.game.touch();
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + "[game=" + game.getID()
+				+ ", isPlayer1=" + isPlayer1 + "]";
+	}
+}
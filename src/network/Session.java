@@ -23,11 +23,29 @@ public class Session {
 	
 	/** The destination port. */
 	private int destinationPort;
+	
+	/** The version of the protocol used in the session (1 for text). */
+	private int version = 1;
+	
+	/** The ID of the game on a {@link CheckersServer}, or 0 if the remote
+	 * client is another checkers window. */
+	private int gameID;
+	
+	/** The session token, which is the session ID parsed as a token, or
+	 * null if the session ID is not a token. */
+	private SessionToken token;
+	
+	/** The {@link System#nanoTime()} of the last command from the remote
+	 * client. */
+	private volatile long lastAccess;
+	
+	/** The flag indicating if the remote client sends heartbeats. */
+	private volatile boolean isHeartbeatReceived;
 
 	public Session(ConnectionListener listener, String sid,
 			String destinationHost, int destinationPort) {
 		this.listener = listener;
-		this.sid = sid;
+		setSid(sid);
 		this.destinationHost = destinationHost;
 		this.destinationPort = destinationPort;
 	}
@@ -35,7 +53,7 @@ public class Session {
 	public Session(String sid, int sourcePort,
 			String destinationHost, int destinationPort) {
 		this.listener = new ConnectionListener(sourcePort);
-		this.sid = sid;
+		setSid(sid);
 		this.destinationHost = destinationHost;
 		this.destinationPort = destinationPort;
 	}
@@ -54,6 +72,58 @@ public class Session {
 
 	public void setSid(String sid) {
 		this.sid = sid;
+		this.token = SessionToken.parse(sid);
+		this.lastAccess = System.nanoTime();
+		this.isHeartbeatReceived = false;
+	}
+	
+	/**
+	 * Records that a command was received from the remote client now.
+	 */
+	public void touch() {
+		this.lastAccess = System.nanoTime();
+	}
+	
+	/**
+	 * Records that a heartbeat was received from the remote client now.
+	 * Once a heartbeat was received, the session can become idle.
+	 * 
+	 * @see {@link #isIdle(long)}
+	 */
+	public void heartbeat() {
+		this.isHeartbeatReceived = true;
+		touch();
+	}
+	
+	/**
+	 * Checks if the remote client has stopped sending commands. Only clients
+	 * that have sent a heartbeat can be idle, since older clients only send
+	 * commands when a move is made.
+	 * 
+	 * @param timeout	the time in milliseconds without a command.
+	 * @return true if the client sends heartbeats and has not sent a command
+	 * within the timeout.
+	 */
+	public boolean isIdle(long timeout) {
+		return isHeartbeatReceived &&
+				System.nanoTime() - lastAccess > timeout * 1000000L;
+	}
+	
+	/**
+	 * Checks if a session ID sent by the remote client matches this session.
+	 * If the session ID is a {@link SessionToken}, the tokens are compared in
+	 * constant time. Otherwise, the session IDs are compared as strings, which
+	 * is what older clients send.
+	 * 
+	 * @param sid	the session ID that was sent.
+	 * @return true if the session ID matches.
+	 */
+	public boolean matches(String sid) {
+		if (token != null) {
+			return token.equals(SessionToken.parse(sid));
+		}
+		return this.sid != null && !this.sid.isEmpty() &&
+				this.sid.equals(sid);
 	}
 
 	public String getDestinationHost() {
@@ -72,6 +142,36 @@ public class Session {
 		this.destinationPort = destinationPort;
 	}
 	
+	public int getVersion() {
+		return version;
+	}
+
+	public void setVersion(int version) {
+		this.version = version;
+	}
+
+	public int getGameID() {
+		return gameID;
+	}
+
+	public void setGameID(int gameID) {
+		this.gameID = gameID;
+	}
+	
+	/**
+	 * Checks if the remote client is a {@link CheckersServer}, which only
+	 * accepts moves and sends the moves of the other player to this client.
+	 * 
+	 * @return true if the session is for a game on a server.
+	 */
+	public boolean isServer() {
+		return gameID > 0;
+	}
+
+	public SessionToken getToken() {
+		return token;
+	}
+	
 	public int getSourcePort() {
 		return (listener == null? -1 : listener.getPort());
 	}
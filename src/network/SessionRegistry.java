@@ -0,0 +1,445 @@
+/* Name: SessionRegistry
+ * Author: Devon McGrath
+ * Description: This class keeps track of the games and sessions of a checkers
+ * server.
+ */
+
+package network;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import model.Game;
+import model.GameClock;
+import storage.GameJournal;
+
+/**
+ * The {@code SessionRegistry} class keeps track of the {@link ServerGame}s
+ * hosted by a server and the {@link ServerSession} of each player, so one
+ * process can host any number of games at once. Sessions are found by their
+ * {@link SessionToken} and games by their ID in constant time, without a
+ * global lock or comparing strings.
+ * <p>
+ * Each game is guarded by one of a fixed number of locks, chosen by its ID,
+ * so commands for different games rarely wait for each other and the number
+ * of locks does not grow with the number of games.
+ * <p>
+ * Sessions that have not sent a command (e.g. a heartbeat) within the idle
+ * timeout are removed, along with games that no one joined. Each session has
+ * one timer on a {@link TimerWheel}, which is set for when the session would
+ * become idle. A command only records the time it was received, and when the
+ * timer runs, it either removes the session or sets itself again for the
+ * new time. This keeps the cost of each command and each tick of the wheel
+ * the same no matter how many sessions there are.
+ * <p>
+ * Timed games share one scheduled executor, which ends a game as soon as a
+ * player runs out of time (see {@link #setClock(ServerGame, GameClock)}).
+ * <p>
+ * The moves of every game can be written to a {@link GameJournal}, and the
+ * games that had not ended when the journal was last closed are hosted again
+ * with the same IDs, so the players can rejoin them after a restart (see
+ * {@link #setJournal(GameJournal)}).
+ */
+public class SessionRegistry {
+
+	/** The default number of locks shared by the games. */
+	public static final int DEFAULT_STRIPES = 64;
+
+	/** The default time in milliseconds a session can be idle for. */
+	public static final long DEFAULT_IDLE_TIMEOUT = 60000;
+
+	/** The number of ticks of the timer wheel in the idle timeout. */
+	private static final int TICKS_PER_TIMEOUT = 64;
+
+	/** The sessions, by token. */
+	private final Map<SessionToken, ServerSession> sessions =
+			new ConcurrentHashMap<>();
+
+	/** The games, by game ID. */
+	private final Map<Integer, ServerGame> games = new ConcurrentHashMap<>();
+
+	/** The locks shared by the games. */
+	private final Lock[] locks;
+
+	/** The ID of the next game. */
+	private final AtomicInteger nextGameID = new AtomicInteger(1);
+
+	/** The time in nanoseconds a session can be idle for. */
+	private volatile long idleTimeout;
+
+	/** The timers that remove idle sessions and games. */
+	private final TimerWheel wheel;
+
+	/** The executor that ends timed games when a player runs out of time. */
+	private ScheduledExecutorService clockExecutor;
+
+	/** The journal the moves of every game are written to, or null. */
+	private volatile GameJournal journal;
+
+	/**
+	 * Creates a registry with the default number of locks and idle timeout.
+	 */
+	public SessionRegistry() {
+		this(DEFAULT_STRIPES, DEFAULT_IDLE_TIMEOUT);
+	}
+
+	/**
+	 * Creates a registry.
+	 *
+	 * @param stripes		the number of locks, which is rounded up to a power
+	 * of 2.
+	 * @param idleTimeout	the time in milliseconds a session can be idle for.
+	 */
+	public SessionRegistry(int stripes, long idleTimeout) {
+		int n = Integer.highestOneBit(Math.max(1, stripes - 1)) << 1;
+		this.locks = new Lock[stripes <= 1? 1 : n];
+		for (int i = 0; i < locks.length; i ++) {
+			this.locks[i] = new ReentrantLock();
+		}
+		setIdleTimeout(idleTimeout);
+		this.wheel = new TimerWheel("Session timeout", Math.max(10,
+				Math.min(1000, idleTimeout / TICKS_PER_TIMEOUT)));
+	}
+
+	/**
+	 * Creates a new game that players can join.
+	 *
+	 * @return the game.
+	 */
+	public ServerGame createGame() {
+		int id = nextGameID.getAndIncrement();
+		ServerGame game = new ServerGame(id, getLock(id));
+		game.setJournal(journal, true);
+		this.games.put(id, game);
+		scheduleIdleCheck(game, idleTimeout);
+		return game;
+	}
+
+	/**
+	 * Sets the journal the moves of the games created from now on are
+	 * written to, and hosts the games recovered from it, which keep their
+	 * IDs. Like new games, a recovered game is removed if no one joins it
+	 * within the idle timeout. The recovered games are not timed.
+	 *
+	 * @param journal	the journal.
+	 * @return the number of games recovered.
+	 */
+	public int setJournal(GameJournal journal) {
+		this.journal = journal;
+		int count = 0;
+		for (Map.Entry<Integer, Game> e :
+				journal.getRecoveredGames().entrySet()) {
+			int id = e.getKey();
+			ServerGame game = new ServerGame(id, getLock(id), e.getValue());
+			game.setJournal(journal, false);
+			if (games.putIfAbsent(id, game) == null) {
+				this.nextGameID.accumulateAndGet(id + 1, Math::max);
+				scheduleIdleCheck(game, idleTimeout);
+				count ++;
+			}
+		}
+		return count;
+	}
+
+	public GameJournal getJournal() {
+		return journal;
+	}
+
+	/**
+	 * Sets the clock of a game, which starts for the player whose turn it is
+	 * once both players have made contact (see
+	 * {@link #contact(ServerSession)}). The game ends as soon as the player
+	 * whose turn it is runs out of time.
+	 *
+	 * @param game	the game.
+	 * @param clock	the clock, or null if the game should not be timed.
+	 */
+	public void setClock(ServerGame game, GameClock clock) {
+		ScheduledExecutorService executor = getClockExecutor();
+		Lock lock = game.getLock();
+		lock.lock();
+		try {
+			game.setClock(clock, executor);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Records that the client of a session has made contact with the server,
+	 * which is either when it joined the game itself or when it first sent a
+	 * command with the session ID (e.g. a player paired by the lobby). The
+	 * game's clock starts once both players have made contact.
+	 *
+	 * @param session	the session.
+	 */
+	public void contact(ServerSession session) {
+		if (session.isContacted()) {
+			return;
+		}
+		ServerGame game = session.getGame();
+		Lock lock = game.getLock();
+		lock.lock();
+		try {
+			session.setContacted(true);
+			game.contact(session.isPlayer1());
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Gets the executor that ends timed games, which is started the first
+	 * time it is needed.
+	 *
+	 * @return the executor.
+	 */
+	private synchronized ScheduledExecutorService getClockExecutor() {
+		if (clockExecutor == null) {
+			this.clockExecutor = Executors.newSingleThreadScheduledExecutor(
+					r -> {
+						Thread t = new Thread(r, "Game clock");
+						t.setDaemon(true);
+						return t;
+					});
+		}
+		return clockExecutor;
+	}
+
+	/**
+	 * Gets a game.
+	 *
+	 * @param id	the ID of the game.
+	 * @return the game, or null if there is no game with the ID.
+	 */
+	public ServerGame getGame(int id) {
+		return games.get(id);
+	}
+
+	/**
+	 * Joins a game as one of the players and creates a session for it.
+	 *
+	 * @param game		the game to join.
+	 * @param isPlayer1	the flag indicating if the client will be player 1.
+	 * @return the new session, or null if the game was removed or someone
+	 * already joined as that player.
+	 */
+	public ServerSession join(ServerGame game, boolean isPlayer1) {
+		Lock lock = game.getLock();
+		lock.lock();
+		try {
+			if (game.isClosed() || game.getSession(isPlayer1) != null) {
+				return null;
+			}
+
+			// Create a session with an unused token
+			ServerSession session;
+			do {
+				session = new ServerSession(SessionToken.generate(), game,
+						isPlayer1);
+			} while (sessions.putIfAbsent(session.getToken(), session)
+					!= null);
+			game.setSession(isPlayer1, session);
+			game.touch();
+			scheduleIdleCheck(session, idleTimeout);
+
+			return session;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Gets a session from the session ID sent in a text command and records
+	 * that a command was received from it.
+	 *
+	 * @param sid	the session ID, which is a token in hex.
+	 * @return the session, or null if there is no session with the ID.
+	 */
+	public ServerSession get(String sid) {
+		return get(SessionToken.parse(sid));
+	}
+
+	/**
+	 * Gets a session and records that a command was received from it, which
+	 * counts as contact (see {@link #contact(ServerSession)}).
+	 *
+	 * @param token	the token of the session.
+	 * @return the session, or null if there is no session with the token.
+	 */
+	public ServerSession get(SessionToken token) {
+		ServerSession session = token == null? null : sessions.get(token);
+		if (session != null) {
+			session.touch();
+			contact(session);
+		}
+		return session;
+	}
+
+	/**
+	 * Removes a session. The game is also removed if no one else is playing
+	 * it.
+	 *
+	 * @param sid	the session ID, which is a token in hex.
+	 * @return true if the session was removed.
+	 */
+	public boolean remove(String sid) {
+		return remove(SessionToken.parse(sid));
+	}
+
+	/**
+	 * Removes a session. The game is also removed if no one else is playing
+	 * it.
+	 *
+	 * @param token	the token of the session.
+	 * @return true if the session was removed.
+	 */
+	public boolean remove(SessionToken token) {
+		ServerSession session = token == null? null : sessions.get(token);
+		return session != null && remove(session);
+	}
+
+	/**
+	 * Removes a session, if it is still registered. The game is also removed
+	 * if no one else is playing it.
+	 *
+	 * @param session	the session.
+	 * @return true if the session was removed.
+	 */
+	private boolean remove(ServerSession session) {
+		ServerGame game = session.getGame();
+		Lock lock = game.getLock();
+		lock.lock();
+		try {
+			if (!sessions.remove(session.getToken(), session)) {
+				return false;
+			}
+			session.cancelIdleCheck();
+			game.setSession(session.isPlayer1(), null);
+			if (game.isEmpty()) {
+				removeGame(game);
+			}
+			return true;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Removes a game, which must be done while holding its lock.
+	 *
+	 * @param game	the game.
+	 */
+	private void removeGame(ServerGame game) {
+		game.close();
+		this.games.remove(game.getID(), game);
+	}
+
+	/**
+	 * Sets a timer to check if a session is idle.
+	 *
+	 * @param session	the session.
+	 * @param delay		the time in nanoseconds until the session would be
+	 * idle.
+	 */
+	private void scheduleIdleCheck(ServerSession session, long delay) {
+		session.setIdleCheck(wheel.schedule(() -> checkIdle(session),
+				TimeUnit.NANOSECONDS.toMillis(delay)));
+	}
+
+	/**
+	 * Removes a session if it has been idle for longer than the idle timeout,
+	 * or sets the timer again for when it would be idle.
+	 *
+	 * @param session	the session.
+	 */
+	private void checkIdle(ServerSession session) {
+		long idle = System.nanoTime() - session.getLastAccess();
+		long timeout = idleTimeout;
+		if (idle >= timeout) {
+			remove(session);
+		} else if (sessions.get(session.getToken()) == session) {
+			scheduleIdleCheck(session, timeout - idle);
+		}
+	}
+
+	/**
+	 * Sets a timer to check if a game is idle.
+	 *
+	 * @param game	the game.
+	 * @param delay	the time in nanoseconds until the game would be idle.
+	 */
+	private void scheduleIdleCheck(ServerGame game, long delay) {
+		wheel.schedule(() -> checkIdle(game),
+				TimeUnit.NANOSECONDS.toMillis(delay));
+	}
+
+	/**
+	 * Removes a game if no one has joined it within the idle timeout. Games
+	 * that were joined are removed when the last session is removed instead.
+	 *
+	 * @param game	the game.
+	 */
+	private void checkIdle(ServerGame game) {
+		Lock lock = game.getLock();
+		lock.lock();
+		try {
+			if (game.isClosed() || !game.isEmpty()) {
+				return;
+			}
+			long idle = System.nanoTime() - game.getLastAccess();
+			long timeout = idleTimeout;
+			if (idle >= timeout) {
+				removeGame(game);
+			} else {
+				scheduleIdleCheck(game, timeout - idle);
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Gets the lock for a game, which is shared with the other games that
+	 * have the same ID modulo the number of locks.
+	 *
+	 * @param id	the ID of the game.
+	 * @return the lock.
+	 */
+	private Lock getLock(int id) {
+		return locks[id & (locks.length - 1)];
+	}
+
+	public int getSessionCount() {
+		return sessions.size();
+	}
+
+	public int getGameCount() {
+		return games.size();
+	}
+
+	public int getStripes() {
+		return locks.length;
+	}
+
+	public long getIdleTimeout() {
+		return TimeUnit.NANOSECONDS.toMillis(idleTimeout);
+	}
+
+	public void setIdleTimeout(long idleTimeout) {
+		this.idleTimeout = TimeUnit.MILLISECONDS.toNanos(
+				Math.max(0, idleTimeout));
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + "[games=" + getGameCount()
+				+ ", sessions=" + getSessionCount() + "]";
+	}
+}
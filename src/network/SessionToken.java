@@ -0,0 +1,120 @@
+/* Name: SessionToken
+ * Author: Devon McGrath
+ * Description: This class represents the random token that identifies a
+ * session.
+ */
+
+package network;
+
+import java.security.SecureRandom;
+
+/**
+ * The {@code SessionToken} class represents a 128-bit token that identifies a
+ * session and that a client must send with every command. Tokens are
+ * generated by a {@link SecureRandom}, so they cannot be guessed, and are
+ * stored as two longs. In the text protocol, a token is sent as the session ID
+ * in hex ({@value #HEX_LENGTH} characters), and in the binary protocol as two
+ * longs (see {@link BinaryCodec}).
+ * <p>
+ * Tokens are compared in constant time, so the time a comparison takes does
+ * not tell a client how much of a guessed token was right, and can be used as
+ * keys in a hash map to find a session without comparing strings.
+ */
+public final class SessionToken {
+
+	/** The number of hex characters in a token. */
+	public static final int HEX_LENGTH = 32;
+
+	/** The generator of tokens. */
+	private static final SecureRandom RANDOM = new SecureRandom();
+
+	/** The high 64 bits of the token. */
+	private final long high;
+
+	/** The low 64 bits of the token. */
+	private final long low;
+
+	public SessionToken(long high, long low) {
+		this.high = high;
+		this.low = low;
+	}
+
+	/**
+	 * Generates a new random token.
+	 *
+	 * @return the token.
+	 */
+	public static SessionToken generate() {
+		return new SessionToken(RANDOM.nextLong(), RANDOM.nextLong());
+	}
+
+	/**
+	 * Parses a token from its hex string.
+	 *
+	 * @param hex	the token as {@value #HEX_LENGTH} hex characters.
+	 * @return the token, or null if the string is not a valid token.
+	 * @see {@link #toString()}
+	 */
+	public static SessionToken parse(String hex) {
+
+		// Trivial cases
+		if (hex == null || hex.length() != HEX_LENGTH) {
+			return null;
+		}
+
+		// Parse each half
+		try {
+			return new SessionToken(
+					Long.parseUnsignedLong(hex.substring(0, 16), 16),
+					Long.parseUnsignedLong(hex.substring(16), 16));
+		} catch (NumberFormatException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Checks if the token is equal to the specified bits, in constant time.
+	 *
+	 * @param high	the high 64 bits.
+	 * @param low	the low 64 bits.
+	 * @return true if both halves are equal.
+	 */
+	public boolean matches(long high, long low) {
+		return ((this.high ^ high) | (this.low ^ low)) == 0;
+	}
+
+	public long getHigh() {
+		return high;
+	}
+
+	public long getLow() {
+		return low;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (!(obj instanceof SessionToken)) {
+			return false;
+		}
+		SessionToken token = (SessionToken) obj;
+		return matches(token.high, token.low);
+	}
+
+	@Override
+	public int hashCode() {
+
+		// The bits are random, so any of them make a good hash
+		return (int) low;
+	}
+
+	/**
+	 * Gets the token as {@value #HEX_LENGTH} hex characters, which is how it
+	 * is sent as a session ID.
+	 *
+	 * @return the token in hex.
+	 */
+	@Override
+	public String toString() {
+		return String.format("%016x%016x", high, low);
+	}
+}
@@ -0,0 +1,374 @@
+/* Name: SpectatorBroadcaster
+ * Author: Devon McGrath
+ * Description: This class sends the state of a game to every client that is
+ * spectating it.
+ */
+
+package network;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * The {@code SpectatorBroadcaster} class keeps track of the clients that are
+ * spectating a game and sends them the game state whenever it changes. Each
+ * state is encoded once into a {@link Command#COMMAND_SPECTATE} frame, and the
+ * same bytes are sent to every spectator.
+ * <p>
+ * Each spectator has one connection that stays open while it is subscribed,
+ * and the frames are written to it one after another without a response.
+ * Frames are sent on background threads so a slow spectator never holds up
+ * the game. Each spectator only holds on to the latest frame that has not yet
+ * been sent, so a spectator that falls behind skips straight to the current
+ * state instead of building up a backlog. Each task sends one frame, and a
+ * write that takes longer than {@value #TIMEOUT} ms closes the connection. A
+ * spectator with another frame waiting goes to the back of the queue, so slow
+ * spectators take turns with the others instead of holding on to the threads.
+ * A failed send is retried on a new connection after a delay, which resyncs
+ * the spectator since every frame has the whole state. A spectator that
+ * cannot be reached {@value #MAX_FAILURES} times in a row is unsubscribed.
+ * <p>
+ * Each spectator ID is the game ID followed by a random
+ * {@link SessionToken}, so a client cannot unsubscribe other spectators by
+ * guessing their IDs.
+ */
+public class SpectatorBroadcaster {
+
+	/** The number of failed sends in a row before a spectator is dropped. */
+	public static final int MAX_FAILURES = 3;
+
+	/** The number of milliseconds to wait to connect to a spectator or to
+	 * write a frame to it. */
+	public static final int TIMEOUT = 1000;
+
+	/** The number of milliseconds to wait before retrying a failed send,
+	 * which is multiplied by the number of failures in a row. */
+	public static final int RETRY_DELAY = 500;
+
+	/** The threads that send the frames to the spectators. */
+	private static final ScheduledExecutorService SEND_EXECUTOR =
+			Executors.newScheduledThreadPool(4, r -> {
+				Thread t = new Thread(r, "Spectator broadcast");
+				t.setDaemon(true);
+				return t;
+			});
+
+	/** The thread that closes the connections of writes that take too long,
+	 * which is separate so it runs even if every send thread is blocked. */
+	private static final ScheduledExecutorService TIMEOUT_EXECUTOR =
+			Executors.newSingleThreadScheduledExecutor(r -> {
+				Thread t = new Thread(r, "Spectator timeout");
+				t.setDaemon(true);
+				return t;
+			});
+
+	/** The ID of the game, included in each frame. */
+	private final int gameID;
+
+	/** The spectators of the game, by spectator ID. */
+	private final Map<String, Spectator> spectators = new ConcurrentHashMap<>();
+
+	/** The last state that was broadcast. */
+	private volatile String lastState;
+
+	/** The frame containing the last state that was broadcast. */
+	private volatile byte[] lastFrame;
+
+	/**
+	 * Creates a broadcaster for a game.
+	 *
+	 * @param gameID	the ID that spectators will receive the game with.
+	 */
+	public SpectatorBroadcaster(int gameID) {
+		this.gameID = gameID;
+	}
+
+	/**
+	 * Adds a spectator that will receive each state of the game.
+	 *
+	 * @param host	the host of the spectator.
+	 * @param port	the port the spectator is listening on.
+	 * @return the ID of the spectator, which is needed to unsubscribe.
+	 */
+	public String subscribe(String host, int port) {
+		String id = gameID + "-" + SessionToken.generate();
+		Spectator s = new Spectator(id, host, port);
+		this.spectators.put(id, s);
+
+		// Send the current state
+		byte[] frame = lastFrame;
+		if (frame != null) {
+			s.offer(frame);
+		}
+
+		return id;
+	}
+
+	/**
+	 * Removes a spectator so that it no longer receives the game state, and
+	 * closes its connection.
+	 *
+	 * @param id	the ID of the spectator from {@link #subscribe(String, int)}.
+	 * @return true if the spectator was subscribed.
+	 */
+	public boolean unsubscribe(String id) {
+		Spectator s = (id == null)? null : spectators.remove(id);
+		if (s == null) {
+			return false;
+		}
+		s.close(null);
+		return true;
+	}
+
+	/**
+	 * Sends a game state to every spectator, unless it is the same as the
+	 * last state that was broadcast. The frame is encoded once and shared by
+	 * every spectator. This is synchronized so that states broadcast from
+	 * different threads are compared and recorded in the same order.
+	 *
+	 * @param state	the game state from {@link model.Game#getGameState()}.
+	 */
+	public synchronized void broadcast(String state) {
+
+		// Nothing new to send
+		if (state == null || state.equals(lastState)) {
+			return;
+		}
+		byte[] frame = encode(gameID, state);
+		this.lastFrame = frame;
+		this.lastState = state;
+
+		// Give each spectator the latest frame
+		for (Spectator s : spectators.values()) {
+			s.offer(frame);
+		}
+	}
+
+	/**
+	 * Tells every spectator that the game is over, removes them all and
+	 * closes their connections.
+	 */
+	public synchronized void close() {
+		byte[] frame = encode(gameID, null);
+		for (Spectator s : spectators.values()) {
+			s.close(frame);
+		}
+		this.spectators.clear();
+	}
+
+	/**
+	 * Encodes the frame that is sent to spectators for a game state.
+	 *
+	 * @param gameID	the ID of the game.
+	 * @param state		the game state, or null if the game was removed.
+	 * @return the bytes of the frame.
+	 */
+	public static byte[] encode(int gameID, String state) {
+		String message = Command.COMMAND_SPECTATE + "\n" + gameID;
+		if (state != null) {
+			message += "\n" + state;
+		}
+		return Frame.encode(message);
+	}
+
+	public int getGameID() {
+		return gameID;
+	}
+
+	public String getLastState() {
+		return lastState;
+	}
+
+	public int getSpectatorCount() {
+		return spectators.size();
+	}
+
+	/**
+	 * The {@code Spectator} class represents a single subscriber. It holds
+	 * at most one frame waiting to be sent and sends it on one of the
+	 * broadcast threads, one frame per task, over a connection that is kept
+	 * open between frames.
+	 */
+	private class Spectator implements Runnable {
+
+		/** The ID of the spectator. */
+		private final String id;
+
+		/** The host of the spectator. */
+		private final String host;
+
+		/** The port the spectator is listening on. */
+		private final int port;
+
+		/** The latest frame that has not been sent yet, if any. */
+		private final AtomicReference<byte[]> next = new AtomicReference<>();
+
+		/** The flag indicating if a send is scheduled or running. */
+		private final AtomicBoolean isSending = new AtomicBoolean();
+
+		/** The flag indicating if the spectator was removed, in which case
+		 * the connection is closed once the last frame was sent. */
+		private volatile boolean isClosed;
+
+		/** The connection to the spectator, or null if not connected. Only
+		 * used by the task sending a frame. */
+		private Socket socket;
+
+		/** The number of sends that failed in a row. */
+		private int failures;
+
+		public Spectator(String id, String host, int port) {
+			this.id = id;
+			this.host = host;
+			this.port = port;
+		}
+
+		/**
+		 * Replaces the frame waiting to be sent and schedules a send if one
+		 * is not already scheduled.
+		 *
+		 * @param frame	the frame to send.
+		 */
+		public void offer(byte[] frame) {
+			if (isClosed) {
+				return;
+			}
+			this.next.set(frame);
+			schedule();
+		}
+
+		/**
+		 * Stops sending new frames and closes the connection once the last
+		 * frame (if any) was sent.
+		 *
+		 * @param frame	the last frame to send, or null to drop the frame that
+		 * is waiting to be sent.
+		 */
+		public void close(byte[] frame) {
+			this.next.set(frame);
+			this.isClosed = true;
+			schedule();
+		}
+
+		/**
+		 * Schedules a send if one is not already scheduled or running.
+		 */
+		private void schedule() {
+			if (isSending.compareAndSet(false, true)) {
+				SEND_EXECUTOR.execute(this);
+			}
+		}
+
+		/**
+		 * Sends the frame waiting to be sent. If the send failed, it is
+		 * retried after a delay. If another frame was offered in the
+		 * meantime, the spectator goes to the back of the queue. Once the
+		 * spectator was removed and has no frame left, the connection is
+		 * closed.
+		 */
+		@Override
+		public void run() {
+
+			// Send the latest frame
+			byte[] frame = next.getAndSet(null);
+			if (frame != null) {
+				if (send(frame)) {
+					this.failures = 0;
+				} else if (++ failures >= MAX_FAILURES) {
+					spectators.remove(id, this);
+					this.isClosed = true;
+					this.next.set(null);
+				} else {
+					this.next.compareAndSet(null, frame);
+					SEND_EXECUTOR.schedule(this, RETRY_DELAY * failures,
+							TimeUnit.MILLISECONDS);
+					return;
+				}
+			}
+
+			// Close the connection once the spectator was removed
+			if (isClosed && next.get() == null) {
+				disconnect();
+			}
+
+			// Stop, unless a frame was offered in the meantime
+			this.isSending.set(false);
+			if ((next.get() != null || isClosed && socket != null) &&
+					isSending.compareAndSet(false, true)) {
+				SEND_EXECUTOR.execute(this);
+			}
+		}
+
+		/**
+		 * Writes a frame to the spectator, connecting first if there is no
+		 * open connection. If the write takes longer than the timeout, the
+		 * connection is closed, which ends the write.
+		 *
+		 * @param frame	the frame to send.
+		 * @return true if the frame was written.
+		 */
+		private boolean send(byte[] frame) {
+			ScheduledFuture<?> timeout = null;
+			try {
+
+				// Connect to the spectator
+				if (socket == null) {
+					Socket s = new Socket();
+					this.socket = s;
+					s.setTcpNoDelay(true);
+					s.connect(new InetSocketAddress(host, port), TIMEOUT);
+				}
+
+				// Write the frame, closing the connection if it is too slow
+				final Socket s = socket;
+				timeout = TIMEOUT_EXECUTOR.schedule(() -> closeSocket(s),
+						TIMEOUT, TimeUnit.MILLISECONDS);
+				OutputStream os = s.getOutputStream();
+				os.write(frame);
+				os.flush();
+				return true;
+			} catch (IOException e) {
+				disconnect();
+				return false;
+			} finally {
+				if (timeout != null) {
+					timeout.cancel(false);
+				}
+			}
+		}
+
+		/**
+		 * Closes the connection to the spectator, if there is one, so the
+		 * next frame is sent over a new connection.
+		 */
+		private void disconnect() {
+			Socket s = socket;
+			this.socket = null;
+			closeSocket(s);
+		}
+
+		/**
+		 * Closes a connection to the spectator.
+		 *
+		 * @param s	the connection, or null.
+		 */
+		private void closeSocket(Socket s) {
+			if (s == null) {
+				return;
+			}
+			try {
+				s.close();
+			} catch (IOException e) {}
+		}
+	}
+}
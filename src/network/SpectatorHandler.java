@@ -0,0 +1,176 @@
+/* Name: SpectatorHandler
+ * Author: Devon McGrath
+ * Description: This class handles the game states sent to a spectator.
+ */
+
+package network;
+
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+
+/**
+ * The {@code SpectatorHandler} class handles the connections made to a
+ * spectator by a {@link SpectatorBroadcaster}. Each broadcaster keeps one
+ * connection open per subscription and writes a
+ * {@link Command#COMMAND_SPECTATE} frame to it for each state, which is
+ * passed on to a {@link SpectatorListener}, such as the
+ * {@link ui.SpectatorDashboard}.
+ */
+public class SpectatorHandler implements ActionListener {
+
+	/** The listener that receives the game states. */
+	private SpectatorListener listener;
+
+	public SpectatorHandler(SpectatorListener listener) {
+		this.listener = listener;
+	}
+
+	/**
+	 * Handles a new connection from the {@link ConnectionListener}. The
+	 * frames are read and passed on to the listener until the broadcaster
+	 * closes the connection. The frames are not answered, but if the first
+	 * message is not a valid frame, it is denied.
+	 */
+	@Override
+	public void actionPerformed(ActionEvent e) {
+
+		// Invalid event
+		if (e == null || !(e.getSource() instanceof ConnectionHandler)) {
+			return;
+		}
+
+		// Check the first message
+		ConnectionHandler handler = (ConnectionHandler) e.getSource();
+		if (!handle(handler.read())) {
+			handler.respond(CheckersNetworkHandler.RESPONSE_DENIED);
+			return;
+		}
+
+		// Pass on the game states until the connection is closed
+		while (handler.isFramed()) {
+			if (!handle(handler.read())) {
+				break;
+			}
+		}
+		handler.close();
+	}
+
+	/**
+	 * Passes a {@link Command#COMMAND_SPECTATE} message on to the listener.
+	 *
+	 * @param data	the message that was read.
+	 * @return true if the message was valid.
+	 */
+	private boolean handle(String data) {
+
+		// Check the command
+		String[] lines = data.replace("\r\n", "\n").split("\n");
+		String cmd = lines[0].trim().toUpperCase();
+		if (!cmd.equals(Command.COMMAND_SPECTATE) || lines.length < 2 ||
+				listener == null) {
+			return false;
+		}
+
+		// Pass the game state on to the listener
+		try {
+			int gameID = Integer.parseInt(lines[1].trim());
+			if (lines.length > 2 && !lines[2].isEmpty()) {
+				this.listener.gameUpdated(gameID, lines[2]);
+			} else {
+				this.listener.gameRemoved(gameID);
+			}
+		} catch (NumberFormatException e) {
+			return false;
+		}
+
+		return true;
+	}
+
+	/**
+	 * Subscribes to the game on a remote client. The game states are sent to
+	 * the port of the connection listener that uses this handler, and the
+	 * current state is passed on to the listener right away.
+	 *
+	 * @param host			the host of the client with the game.
+	 * @param port			the port the client is listening on.
+	 * @param listenPort	the port that this spectator is listening on.
+	 * @return the spectator ID needed to unsubscribe, or null if the
+	 * subscription was denied.
+	 * @see {@link #unsubscribe(String, int, String)}
+	 */
+	public String subscribe(String host, int port, int listenPort) {
+		return subscribe(new Command(Command.COMMAND_SUBSCRIBE,
+				"" + listenPort), host, port);
+	}
+	
+	/**
+	 * Subscribes to a game on a {@link CheckersServer}. The game states are
+	 * sent to the port of the connection listener that uses this handler, and
+	 * the current state is passed on to the listener right away.
+	 *
+	 * @param host			the host of the server.
+	 * @param port			the port the server is listening on.
+	 * @param listenPort	the port that this spectator is listening on.
+	 * @param gameID		the ID of the game on the server.
+	 * @return the spectator ID needed to unsubscribe, or null if the
+	 * subscription was denied.
+	 * @see {@link #unsubscribe(String, int, String)}
+	 */
+	public String subscribe(String host, int port, int listenPort,
+			int gameID) {
+		return subscribe(new Command(Command.COMMAND_SUBSCRIBE,
+				"" + listenPort, "" + gameID), host, port);
+	}
+	
+	/**
+	 * Sends a subscribe command and passes the current state of the game in
+	 * the response on to the listener.
+	 *
+	 * @param cmd	the subscribe command.
+	 * @param host	the host to send the command to.
+	 * @param port	the port to send the command to.
+	 * @return the spectator ID, or null if the subscription was denied.
+	 */
+	private String subscribe(Command cmd, String host, int port) {
+		
+		// Check the response
+		String[] lines = cmd.send(host, port).split("\n");
+		if (lines.length < 2 || !lines[0].startsWith(
+				CheckersNetworkHandler.RESPONSE_ACCEPTED)) {
+			return null;
+		}
+		
+		// Show the current state
+		if (lines.length > 3 && listener != null) {
+			try {
+				this.listener.gameUpdated(Integer.parseInt(
+						lines[2].trim()), lines[3]);
+			} catch (NumberFormatException e) {}
+		}
+		
+		return lines[1];
+	}
+	
+	/**
+	 * Stops spectating a game.
+	 *
+	 * @param host			the host of the client or server with the game.
+	 * @param port			the port the client or server is listening on.
+	 * @param spectatorID	the ID from subscribing to the game.
+	 * @return true if the spectator was subscribed.
+	 */
+	public static boolean unsubscribe(String host, int port,
+			String spectatorID) {
+		Command cmd = new Command(Command.COMMAND_UNSUBSCRIBE, spectatorID);
+		return cmd.send(host, port).startsWith(
+				CheckersNetworkHandler.RESPONSE_ACCEPTED);
+	}
+
+	public SpectatorListener getListener() {
+		return listener;
+	}
+
+	public void setListener(SpectatorListener listener) {
+		this.listener = listener;
+	}
+}
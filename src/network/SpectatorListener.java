@@ -0,0 +1,33 @@
+/* Name: SpectatorListener
+ * Author: Devon McGrath
+ * Description: This interface receives the updates of games being watched.
+ */
+
+package network;
+
+/**
+ * The {@code SpectatorListener} interface receives the state of each game
+ * being watched whenever it changes. A single listener can watch any number
+ * of games, which are told apart by their IDs.
+ * <p>
+ * The methods may be called from any thread, so implementations must be
+ * thread-safe and should return quickly.
+ */
+public interface SpectatorListener {
+
+	/**
+	 * Called when the state of a game changes.
+	 *
+	 * @param gameID	the ID of the game.
+	 * @param state		the new game state from
+	 * {@link model.Game#getGameState()}.
+	 */
+	public void gameUpdated(int gameID, String state);
+
+	/**
+	 * Called when a game is no longer being watched.
+	 *
+	 * @param gameID	the ID of the game.
+	 */
+	public void gameRemoved(int gameID);
+}
@@ -0,0 +1,223 @@
+/* Name: TimerWheel
+ * Author: Devon McGrath
+ * Description: This class runs tasks after a delay using a hashed timing
+ * wheel.
+ */
+
+package network;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The {@code TimerWheel} class runs tasks after a delay, for timers that are
+ * created in large numbers and are usually cancelled or checked again before
+ * they expire (e.g. the idle timeout of each session). The timers are hashed
+ * by their deadline into a fixed number of buckets, which are visited one per
+ * tick by a single background thread, so each tick only looks at the timers
+ * in one bucket instead of all of them.
+ * <p>
+ * Scheduling a timer only adds it to a lock-free queue, which is moved into
+ * the buckets on the next tick, and cancelling one only sets a flag, so
+ * neither waits for the background thread. The background thread is started
+ * with the first timer. Timers run on the background thread, so their tasks
+ * should be short. A timer can run up to one tick late.
+ */
+public class TimerWheel {
+
+	/** The default number of buckets. */
+	public static final int DEFAULT_BUCKETS = 512;
+
+	/** The timers scheduled since the last tick. */
+	private final Queue<Timeout> pending = new ConcurrentLinkedQueue<>();
+
+	/** The first timer in each bucket. */
+	private final Timeout[] buckets;
+
+	/** The length of a tick in nanoseconds. */
+	private final long tickNanos;
+
+	/** The {@link System#nanoTime()} that the ticks are counted from. */
+	private final long startTime;
+
+	/** The next tick to process. */
+	private long tick;
+
+	/** The name of the background thread. */
+	private final String name;
+
+	/** The executor that processes the ticks. */
+	private ScheduledExecutorService executor;
+
+	/**
+	 * Creates a timer wheel with the default number of buckets.
+	 *
+	 * @param name			the name of the background thread.
+	 * @param tickMillis	the length of a tick in milliseconds.
+	 */
+	public TimerWheel(String name, long tickMillis) {
+		this(name, tickMillis, DEFAULT_BUCKETS);
+	}
+
+	/**
+	 * Creates a timer wheel.
+	 *
+	 * @param name			the name of the background thread.
+	 * @param tickMillis	the length of a tick in milliseconds.
+	 * @param buckets		the number of buckets, which is rounded up to a
+	 * power of 2.
+	 */
+	public TimerWheel(String name, long tickMillis, int buckets) {
+		int n = Integer.highestOneBit(Math.max(1, buckets - 1)) << 1;
+		this.name = name;
+		this.buckets = new Timeout[buckets <= 1? 1 : n];
+		this.tickNanos = TimeUnit.MILLISECONDS.toNanos(
+				Math.max(1, tickMillis));
+		this.startTime = System.nanoTime();
+	}
+
+	/**
+	 * Schedules a task to run after a delay.
+	 *
+	 * @param task	the task to run.
+	 * @param delay	the delay in milliseconds.
+	 * @return the timer, which can be used to cancel the task.
+	 */
+	public Timeout schedule(Runnable task, long delay) {
+		long deadline = System.nanoTime() - startTime +
+				TimeUnit.MILLISECONDS.toNanos(Math.max(0, delay));
+		Timeout timeout = new Timeout(task,
+				(deadline + tickNanos - 1) / tickNanos);
+		this.pending.add(timeout);
+		start();
+		return timeout;
+	}
+
+	/**
+	 * Starts the background thread, if it was not started.
+	 */
+	private synchronized void start() {
+		if (executor != null) {
+			return;
+		}
+		this.executor = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread t = new Thread(r, name);
+			t.setDaemon(true);
+			return t;
+		});
+		this.executor.scheduleAtFixedRate(this::advance, tickNanos,
+				tickNanos, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Stops the background thread. Timers that have not run are discarded.
+	 */
+	public synchronized void stop() {
+		if (executor != null) {
+			this.executor.shutdownNow();
+			this.executor = null;
+		}
+	}
+
+	/**
+	 * Processes every tick up to the current time, running the timers that
+	 * expired. This is only called by the background thread.
+	 */
+	private void advance() {
+		long now = (System.nanoTime() - startTime) / tickNanos;
+		while (tick <= now) {
+
+			// Add the new timers to their buckets
+			Timeout timeout;
+			while ((timeout = pending.poll()) != null) {
+				if (!timeout.isCancelled) {
+					int i = (int) (Math.max(timeout.deadline, tick)
+							& (buckets.length - 1));
+					timeout.next = buckets[i];
+					this.buckets[i] = timeout;
+				}
+			}
+
+			// Run the timers that expired, keeping the ones for later ticks
+			int i = (int) (tick & (buckets.length - 1));
+			Timeout t = buckets[i], keep = null;
+			while (t != null) {
+				Timeout next = t.next;
+				if (t.isCancelled) {
+					t.next = null;
+				} else if (t.deadline <= tick) {
+					t.next = null;
+					t.run();
+				} else {
+					t.next = keep;
+					keep = t;
+				}
+				t = next;
+			}
+			this.buckets[i] = keep;
+			this.tick ++;
+		}
+	}
+
+	/**
+	 * Gets the length of a tick.
+	 *
+	 * @return the length in milliseconds.
+	 */
+	public long getTickMillis() {
+		return TimeUnit.NANOSECONDS.toMillis(tickNanos);
+	}
+
+	public int getBuckets() {
+		return buckets.length;
+	}
+
+	/**
+	 * The {@code Timeout} class represents a task scheduled on a
+	 * {@link TimerWheel}.
+	 */
+	public static final class Timeout {
+
+		/** The task to run. */
+		private final Runnable task;
+
+		/** The tick the task should run on. */
+		private final long deadline;
+
+		/** The flag indicating if the task should no longer run. */
+		private volatile boolean isCancelled;
+
+		/** The next timer in the same bucket. */
+		private Timeout next;
+
+		private Timeout(Runnable task, long deadline) {
+			this.task = task;
+			this.deadline = deadline;
+		}
+
+		/**
+		 * Stops the task from running, if it has not run yet.
+		 */
+		public void cancel() {
+			this.isCancelled = true;
+		}
+
+		public boolean isCancelled() {
+			return isCancelled;
+		}
+
+		/**
+		 * Runs the task, so an exception does not stop the other timers.
+		 */
+		private void run() {
+			try {
+				task.run();
+			} catch (Exception e) {
+				e.printStackTrace();
+			}
+		}
+	}
+}
@@ -0,0 +1,436 @@
+/* Name: GameJournal
+ * Author: Devon McGrath
+ * Description: This class writes the moves of many games to an append-only
+ * file so that the games can be recovered after a crash or restart.
+ */
+
+package storage;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+import logic.MovePath;
+import model.Board;
+import model.Game;
+
+/**
+ * The {@code GameJournal} class is an append-only binary log of the games
+ * being played. A record is written when a game starts, after each turn and
+ * when a game ends. Replaying the records in order rebuilds every game that
+ * had not ended.
+ * <p>
+ * Each record is length-prefixed and has the format:
+ * <pre>
+ * int	length (of the rest of the record)
+ * byte	type (start, move or end)
+ * int	game ID
+ * ...	payload (see below)
+ * int	CRC-32 of the type, game ID and payload
+ * </pre>
+ * A start record holds the black, white and king masks of the board, a byte
+ * that is 1 if it is player 1's turn and the skip index as a byte. A move
+ * record holds the turn encoded with {@link logic.MovePath}. An end record has
+ * no payload.
+ * <p>
+ * Records are collected in a buffer and written to the file in batches. The
+ * file is forced to disk every {@link #getSyncInterval()} milliseconds, or
+ * when {@link #sync()} is called, so a crash loses at most the records from
+ * the last interval. When a journal is opened, a record that was only
+ * partially written is removed from the end of the file. A move record that
+ * is not legal in its game (or has no game) is reported in
+ * {@link #getReplayErrors()}, and the game is not recovered since its state
+ * can no longer be trusted.
+ */
+public class GameJournal implements Closeable {
+
+	/** The type of record written when a game starts. */
+	public static final byte RECORD_START = 1;
+
+	/** The type of record written after each turn. */
+	public static final byte RECORD_MOVE = 2;
+
+	/** The type of record written when a game ends. */
+	public static final byte RECORD_END = 3;
+
+	/** The default number of milliseconds between writes to disk. */
+	public static final int DEFAULT_SYNC_INTERVAL = 10;
+
+	/** The default number of bytes buffered before they are written. */
+	public static final int DEFAULT_BUFFER_SIZE = 1 << 16;
+
+	/** The number of bytes in a record before the payload, excluding the
+	 * length. */
+	private static final int HEADER_SIZE = 1 + 4;
+
+	/** The largest valid record length. */
+	private static final int MAX_RECORD_LENGTH = HEADER_SIZE + 14 + 4;
+
+	/** The thread that writes the buffered records of every journal. */
+	private static final ScheduledExecutorService SYNC_EXECUTOR =
+			Executors.newSingleThreadScheduledExecutor(r -> {
+				Thread t = new Thread(r, "Game journal sync");
+				t.setDaemon(true);
+				return t;
+			});
+
+	/** The file the records are written to. */
+	private final FileChannel channel;
+
+	/** The records that have not been written to the file yet. */
+	private final ByteBuffer buffer;
+
+	/** The checksum used for each record. */
+	private final CRC32 crc = new CRC32();
+
+	/** The games that had not ended when the journal was opened. */
+	private final Map<Integer, Game> recovered = new HashMap<>();
+
+	/** The problems found in the records when the journal was opened. */
+	private final List<String> replayErrors = new ArrayList<>();
+
+	/** The number of milliseconds between writes to disk. */
+	private final int syncInterval;
+
+	/** The flag indicating if there are records that are not on disk. */
+	private volatile boolean isDirty;
+
+	/** The number of records appended since the journal was opened. */
+	private long records;
+
+	/**
+	 * Opens a journal, creating the file if it does not exist. Any games in
+	 * the file are recovered and are available from
+	 * {@link #getRecoveredGames()}.
+	 *
+	 * @param file	the journal file.
+	 * @throws IOException if the file could not be opened or read.
+	 */
+	public GameJournal(Path file) throws IOException {
+		this(file, DEFAULT_SYNC_INTERVAL, DEFAULT_BUFFER_SIZE);
+	}
+
+	/**
+	 * Opens a journal, creating the file if it does not exist. Any games in
+	 * the file are recovered and are available from
+	 * {@link #getRecoveredGames()}.
+	 *
+	 * @param file			the journal file.
+	 * @param syncInterval	the milliseconds between writes to disk.
+	 * @param bufferSize	the bytes buffered before they are written.
+	 * @throws IOException if the file could not be opened or read.
+	 */
+	public GameJournal(Path file, int syncInterval, int bufferSize)
+			throws IOException {
+
+		this.channel = FileChannel.open(file, StandardOpenOption.CREATE,
+				StandardOpenOption.READ, StandardOpenOption.WRITE);
+		this.buffer = ByteBuffer.allocate(Math.max(bufferSize, 64));
+		this.syncInterval = Math.max(1, syncInterval);
+
+		// Recover the games and remove any partial record
+		long length = replay(channel, recovered, replayErrors);
+		if (length < channel.size()) {
+			this.channel.truncate(length);
+		}
+		this.channel.position(length);
+
+		// Write the records in the background
+		SYNC_EXECUTOR.schedule(this::syncTask, this.syncInterval,
+				TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Records the start of a game. This must be called before any moves are
+	 * recorded for the game, and can also be used to record the state of a
+	 * game that was changed without a move.
+	 *
+	 * @param gameID	the ID of the game.
+	 * @param game		the game state.
+	 * @throws IOException if the records could not be written.
+	 */
+	public void start(int gameID, Game game) throws IOException {
+		Board b = game.getBoard();
+		synchronized (this) {
+			int start = beginRecord(RECORD_START, gameID, 14);
+			this.buffer.putInt(b.getBlackMask());
+			this.buffer.putInt(b.getWhiteMask());
+			this.buffer.putInt(b.getKingMask());
+			this.buffer.put((byte) (game.isP1Turn()? 1 : 0));
+			this.buffer.put((byte) game.getSkipIndex());
+			endRecord(start);
+		}
+	}
+
+	/**
+	 * Records a turn made in a game.
+	 *
+	 * @param gameID	the ID of the game.
+	 * @param path		the turn encoded with {@link logic.MovePath}.
+	 * @throws IOException if the records could not be written.
+	 */
+	public synchronized void move(int gameID, long path) throws IOException {
+		int start = beginRecord(RECORD_MOVE, gameID, 8);
+		this.buffer.putLong(path);
+		endRecord(start);
+	}
+
+	/**
+	 * Records the end of a game, so it is not recovered.
+	 *
+	 * @param gameID	the ID of the game.
+	 * @throws IOException if the records could not be written.
+	 */
+	public synchronized void end(int gameID) throws IOException {
+		endRecord(beginRecord(RECORD_END, gameID, 0));
+	}
+
+	/**
+	 * Starts a record in the buffer, writing the buffer to the file first if
+	 * there is not enough space.
+	 *
+	 * @param type		the type of record.
+	 * @param gameID	the ID of the game.
+	 * @param payload	the number of bytes in the payload.
+	 * @return the position of the type in the buffer.
+	 * @throws IOException if the buffer could not be written.
+	 */
+	private int beginRecord(byte type, int gameID, int payload)
+			throws IOException {
+		if (buffer.remaining() < 4 + HEADER_SIZE + payload + 4) {
+			drain();
+		}
+		this.buffer.putInt(HEADER_SIZE + payload + 4);
+		int start = buffer.position();
+		this.buffer.put(type);
+		this.buffer.putInt(gameID);
+		return start;
+	}
+
+	/**
+	 * Finishes a record in the buffer by adding its checksum.
+	 *
+	 * @param start	the position of the type in the buffer.
+	 */
+	private void endRecord(int start) {
+		this.crc.reset();
+		this.crc.update(buffer.array(), start, buffer.position() - start);
+		this.buffer.putInt((int) crc.getValue());
+		this.records ++;
+		this.isDirty = true;
+	}
+
+	/**
+	 * Writes the buffered records to the file, without forcing them to disk.
+	 *
+	 * @throws IOException if the records could not be written.
+	 */
+	private void drain() throws IOException {
+		this.buffer.flip();
+		while (buffer.hasRemaining()) {
+			this.channel.write(buffer);
+		}
+		this.buffer.clear();
+	}
+
+	/**
+	 * Writes the buffered records to the file and forces them to disk. The
+	 * buffer is only locked while the records are written, so other threads
+	 * can keep appending records while the file is forced to disk.
+	 *
+	 * @throws IOException if the records could not be written.
+	 */
+	public void sync() throws IOException {
+		if (!isDirty) {
+			return;
+		}
+		synchronized (this) {
+			this.isDirty = false;
+			drain();
+		}
+		this.channel.force(false);
+	}
+
+	/**
+	 * Syncs the journal and schedules the next sync, until it is closed.
+	 */
+	private void syncTask() {
+		if (!channel.isOpen()) {
+			return;
+		}
+		try {
+			sync();
+		} catch (IOException e) {
+			if (channel.isOpen()) {
+				e.printStackTrace();
+			}
+		}
+		SYNC_EXECUTOR.schedule(this::syncTask, syncInterval,
+				TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Writes any remaining records to disk and closes the file.
+	 *
+	 * @throws IOException if the records could not be written.
+	 */
+	@Override
+	public void close() throws IOException {
+		if (!channel.isOpen()) {
+			return;
+		}
+		this.isDirty = true;
+		sync();
+		this.channel.close();
+	}
+
+	/**
+	 * Gets the games that had not ended when the journal was opened, by game
+	 * ID.
+	 *
+	 * @return the recovered games.
+	 */
+	public Map<Integer, Game> getRecoveredGames() {
+		return recovered;
+	}
+
+	/**
+	 * Gets the problems found in the records when the journal was opened,
+	 * such as a move that is not legal in its game. The games with problems
+	 * are not in {@link #getRecoveredGames()}.
+	 *
+	 * @return the problems, with the position of each record in the file.
+	 */
+	public List<String> getReplayErrors() {
+		return replayErrors;
+	}
+
+	public int getSyncInterval() {
+		return syncInterval;
+	}
+
+	public synchronized long getRecords() {
+		return records;
+	}
+
+	/**
+	 * Replays a journal file to rebuild the games that had not ended.
+	 *
+	 * @param file		the journal file.
+	 * @param errors	the list to add the problems found in the records to.
+	 * @return the games by game ID.
+	 * @throws IOException if the file could not be read.
+	 * @see {@link #getReplayErrors()}
+	 */
+	public static Map<Integer, Game> replay(Path file, List<String> errors)
+			throws IOException {
+		Map<Integer, Game> games = new HashMap<>();
+		try (FileChannel ch = FileChannel.open(file,
+				StandardOpenOption.READ)) {
+			replay(ch, games, errors);
+		}
+		return games;
+	}
+
+	/**
+	 * Replays the records in a file from the start, stopping at the end of
+	 * the file or the first record that is incomplete or corrupt. A move that
+	 * cannot be made is added to the errors and its game is dropped, along
+	 * with any later moves for it until the game is started again.
+	 *
+	 * @param ch		the file to read.
+	 * @param games		the map to add the games to.
+	 * @param errors	the list to add the problems found in the records to.
+	 * @return the number of bytes of valid records at the start of the file.
+	 * @throws IOException if the file could not be read.
+	 */
+	private static long replay(FileChannel ch, Map<Integer, Game> games,
+			List<String> errors) throws IOException {
+
+		ByteBuffer buf = ByteBuffer.allocate(1 << 20);
+		CRC32 crc = new CRC32();
+		Set<Integer> dropped = new HashSet<>();
+		long position = 0;
+		ch.position(0);
+		while (ch.read(buf) > 0 || buf.position() > 0) {
+			buf.flip();
+			boolean isProgress = false;
+
+			// Read each complete record in the buffer
+			while (buf.remaining() >= 4) {
+				int length = buf.getInt(buf.position());
+				if (length < HEADER_SIZE + 4 || length > MAX_RECORD_LENGTH) {
+					return position;
+				}
+				if (buf.remaining() < 4 + length) {
+					break;
+				}
+
+				// Check the record is intact
+				int start = buf.position() + 4;
+				crc.reset();
+				crc.update(buf.array(), start, length - 4);
+				if (buf.getInt(start + length - 4) != (int) crc.getValue()) {
+					return position;
+				}
+
+				// Apply the record
+				buf.position(start);
+				byte type = buf.get();
+				int gameID = buf.getInt();
+				if (type == RECORD_START && length == HEADER_SIZE + 14 + 4) {
+					Board b = new Board();
+					b.setMasks(buf.getInt(), buf.getInt(), buf.getInt());
+					boolean isP1Turn = buf.get() == 1;
+					games.put(gameID, new Game(b, isP1Turn, buf.get()));
+					dropped.remove(gameID);
+				} else if (type == RECORD_MOVE &&
+						length == HEADER_SIZE + 8 + 4) {
+					Game game = games.get(gameID);
+					long path = buf.getLong();
+					if (game == null && !dropped.contains(gameID)) {
+						errors.add("Record at byte " + position + ": move "
+								+ MovePath.toString(path) + " in game "
+								+ gameID + ", which was not started.");
+						dropped.add(gameID);
+					} else if (game != null && !game.move(path)) {
+						errors.add("Record at byte " + position
+								+ ": illegal move " + MovePath.toString(path)
+								+ " in game " + gameID + ".");
+						games.remove(gameID);
+						dropped.add(gameID);
+					}
+				} else if (type == RECORD_END) {
+					games.remove(gameID);
+					dropped.remove(gameID);
+				} else {
+					return position;
+				}
+				buf.position(start + length);
+				position += 4 + length;
+				isProgress = true;
+			}
+
+			// Keep the incomplete record for the next read
+			buf.compact();
+			if (!isProgress && ch.position() >= ch.size()) {
+				break;
+			}
+		}
+
+		return position;
+	}
+}
@@ -0,0 +1,114 @@
+/* Name: JournalBenchmark
+ * Author: Devon McGrath
+ * Description: This class measures how fast the game journal can record and
+ * recover many games.
+ */
+
+package storage;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import model.Game;
+
+/**
+ * The {@code JournalBenchmark} class measures the write throughput and
+ * recovery time of a {@link GameJournal}. It records a number of concurrent
+ * games with random moves, interleaving the moves of every game as a server
+ * hosting them would, and then replays the journal. The moves are generated
+ * before the journal is timed so only the journal is measured.
+ * <p>
+ * Usage: {@code java storage.JournalBenchmark [games] [turns] [file]}, where
+ * the defaults are 10000 games of up to 60 turns each in a temporary file.
+ */
+public class JournalBenchmark {
+
+	public static void main(String[] args) throws IOException {
+
+		// Get the settings
+		int games = args.length > 0? Integer.parseInt(args[0]) : 10000;
+		int turns = args.length > 1? Integer.parseInt(args[1]) : 60;
+		Path file = args.length > 2? Path.of(args[2]) :
+			Files.createTempFile("checkers", ".journal");
+		Files.deleteIfExists(file);
+
+		// Generate the moves of each game
+		Random rand = new Random(1);
+		long[][] paths = new long[games][];
+		int totalMoves = 0;
+		for (int i = 0; i < games; i ++) {
+			Game game = new Game();
+			long[] moves = new long[turns];
+			int n = 0;
+			while (n < turns && !game.isGameOver()) {
+				long[] options = game.getTurns();
+				moves[n] = options[rand.nextInt(options.length)];
+				game.move(moves[n ++]);
+			}
+			paths[i] = Arrays.copyOf(moves, n);
+			totalMoves += n;
+		}
+
+		// Record the games, one turn from each game at a time
+		Game start = new Game();
+		long time = System.nanoTime();
+		try (GameJournal journal = new GameJournal(file)) {
+			for (int i = 0; i < games; i ++) {
+				journal.start(i, start);
+			}
+			for (int t = 0; t < turns; t ++) {
+				for (int i = 0; i < games; i ++) {
+					if (t < paths[i].length) {
+						journal.move(i, paths[i][t]);
+					}
+				}
+			}
+
+			// End half of the games
+			for (int i = 0; i < games; i += 2) {
+				journal.end(i);
+			}
+		}
+		double writeSeconds = (System.nanoTime() - time) / 1e9;
+		long bytes = Files.size(file);
+		int records = games + totalMoves + (games + 1) / 2;
+
+		// Recover the games
+		time = System.nanoTime();
+		List<String> errors = new ArrayList<>();
+		Map<Integer, Game> recovered = GameJournal.replay(file, errors);
+		double readSeconds = (System.nanoTime() - time) / 1e9;
+
+		// Check the recovered games
+		int mismatches = 0;
+		for (int i = 1; i < games; i += 2) {
+			Game expected = new Game();
+			for (long path : paths[i]) {
+				expected.move(path);
+			}
+			Game game = recovered.get(i);
+			if (game == null ||
+					!game.getGameState().equals(expected.getGameState())) {
+				mismatches ++;
+			}
+		}
+
+		// Show the results
+		System.out.printf("Wrote %d records (%.1f MB) for %d games in %.3f s"
+				+ " (%.0f records/s, %.1f MB/s)%n", records, bytes / 1e6,
+				games, writeSeconds, records / writeSeconds,
+				bytes / 1e6 / writeSeconds);
+		System.out.printf("Recovered %d games in %.3f s (%.0f records/s),"
+				+ " %d mismatches, %d errors%n", recovered.size(),
+				readSeconds, records / readSeconds, mismatches, errors.size());
+		if (args.length <= 2) {
+			Files.deleteIfExists(file);
+		}
+	}
+}
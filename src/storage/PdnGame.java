@@ -0,0 +1,93 @@
+/* Name: PdnGame
+ * Author: Devon McGrath
+ * Description: This class represents a single game read from a PDN file.
+ */
+
+package storage;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import model.Game;
+
+/**
+ * The {@code PdnGame} class holds a game read by a {@link PdnReader}: its
+ * tags, the turns that were replayed and the result. Each turn is checked by
+ * making it with {@link Game#move(long)}, so the game only contains the turns
+ * up to the first illegal one.
+ */
+public class PdnGame {
+
+	/** The tags of the game (e.g. "Event" or "Black"), in the order they
+	 * appear. */
+	private final Map<String, String> tags = new LinkedHashMap<>();
+
+	/** The game after every legal turn was made. */
+	private Game game;
+
+	/** The result at the end of the movetext (e.g. "1-0"). */
+	private String result = PdnWriter.RESULT_UNKNOWN;
+
+	/** The number of turns in the movetext that were legal. */
+	private int turns;
+
+	/** The text of the first illegal turn, or null if every turn was legal. */
+	private String invalidTurn;
+
+	public PdnGame(Game game) {
+		this.game = game;
+	}
+
+	/**
+	 * Checks if every turn in the movetext was legal.
+	 *
+	 * @return true if the game was replayed without errors.
+	 */
+	public boolean isValid() {
+		return invalidTurn == null;
+	}
+
+	public Map<String, String> getTags() {
+		return tags;
+	}
+
+	public String getTag(String name) {
+		return tags.get(name);
+	}
+
+	public void setTag(String name, String value) {
+		this.tags.put(name, value);
+	}
+
+	public Game getGame() {
+		return game;
+	}
+
+	public void setGame(Game game) {
+		this.game = game;
+	}
+
+	public String getResult() {
+		return result;
+	}
+
+	public void setResult(String result) {
+		this.result = result;
+	}
+
+	public int getTurns() {
+		return turns;
+	}
+
+	public void setTurns(int turns) {
+		this.turns = turns;
+	}
+
+	public String getInvalidTurn() {
+		return invalidTurn;
+	}
+
+	public void setInvalidTurn(String invalidTurn) {
+		this.invalidTurn = invalidTurn;
+	}
+}
@@ -0,0 +1,583 @@
+/* Name: PdnReader
+ * Author: Devon McGrath
+ * Description: This class reads games in Portable Draughts Notation (PDN) one
+ * at a time.
+ */
+
+package storage;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PushbackReader;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+import logic.MovePath;
+import model.Board;
+import model.Game;
+
+/**
+ * The {@code PdnReader} class reads games written in Portable Draughts
+ * Notation (PDN), such as those written by {@link PdnWriter}. Games are read
+ * one at a time with {@link #next()}, so only the game being read is kept in
+ * memory no matter how large the file is.
+ * <p>
+ * Every turn is replayed with {@link Game#move(long)} to check that it is
+ * legal. Skips can be written with every square (e.g. "15x24x31") or with
+ * only the start and end squares (e.g. "15x31"). Comments in braces or after
+ * a semicolon, variations in parentheses, move numbers and annotations are
+ * ignored.
+ * <p>
+ * Large files can be read on multiple threads with
+ * {@link #parse(Path, int, Consumer)}, which splits the file into chunks at
+ * the start of games.
+ */
+public class PdnReader implements Closeable {
+
+	/** The number of bytes read from a file at a time. */
+	private static final int READ_SIZE = 1 << 16;
+
+	/** The reader the games are read from. */
+	private final PushbackReader reader;
+
+	/** The characters of the token being read. */
+	private final StringBuilder token = new StringBuilder();
+
+	public PdnReader(Reader reader) {
+		this.reader = new PushbackReader(reader instanceof BufferedReader?
+				reader : new BufferedReader(reader, READ_SIZE), 1);
+	}
+
+	/**
+	 * Reads the next game. The game ends at its result or at the first tag
+	 * after its movetext.
+	 *
+	 * @return the next game, or null if there are no more games.
+	 * @throws IOException if the game could not be read.
+	 */
+	public PdnGame next() throws IOException {
+
+		PdnGame pdn = null;
+		boolean hasMoves = false;
+		int c;
+		while ((c = reader.read()) >= 0) {
+
+			// Skip whitespace, comments and variations
+			if (Character.isWhitespace(c)) {
+				continue;
+			} else if (c == '{') {
+				skipUntil('}');
+				continue;
+			} else if (c == ';') {
+				skipUntil('\n');
+				continue;
+			} else if (c == '(') {
+				skipVariation();
+				continue;
+			}
+
+			// A tag after the movetext starts the next game
+			if (c == '[' && hasMoves) {
+				this.reader.unread(c);
+				return pdn;
+			}
+			if (pdn == null) {
+				pdn = new PdnGame(new Game());
+			}
+
+			// Read a tag
+			if (c == '[') {
+				readTag(pdn);
+				continue;
+			}
+
+			// Read a move or result
+			this.token.setLength(0);
+			while (c >= 0 && !Character.isWhitespace(c) &&
+					c != '{' && c != '(' && c != '[' && c != ';') {
+				this.token.append((char) c);
+				c = reader.read();
+			}
+			if (c >= 0) {
+				this.reader.unread(c);
+			}
+			hasMoves = true;
+			if (isResult(token)) {
+				pdn.setResult(token.toString());
+				return pdn;
+			}
+			readMove(pdn, token);
+		}
+
+		return pdn;
+	}
+
+	/**
+	 * Reads a tag after the opening "[" and adds it to the game. A "FEN" tag
+	 * sets the start position of the game.
+	 *
+	 * @param pdn	the game being read.
+	 * @throws IOException if the tag could not be read.
+	 */
+	private void readTag(PdnGame pdn) throws IOException {
+
+		// Read the name and value
+		StringBuilder name = new StringBuilder(), value = new StringBuilder();
+		boolean isQuoted = false, isValue = false;
+		int c;
+		while ((c = reader.read()) >= 0) {
+			if (c == '"') {
+				isQuoted = !isQuoted;
+				isValue = true;
+			} else if (c == ']' && !isQuoted) {
+				break;
+			} else if (isValue) {
+				value.append((char) c);
+			} else if (!Character.isWhitespace(c)) {
+				name.append((char) c);
+			} else if (name.length() > 0) {
+				isValue = true;
+			}
+		}
+		String tag = name.toString(), text = value.toString().trim();
+		pdn.setTag(tag, text);
+
+		// Set up the start position
+		if (tag.equalsIgnoreCase("FEN") && pdn.getTurns() == 0) {
+			Game game = parseFen(text);
+			if (game != null) {
+				pdn.setGame(game);
+			}
+		}
+	}
+
+	/**
+	 * Replays a move from the movetext, ignoring move numbers and
+	 * annotations. If the move is not legal, the rest of the movetext is not
+	 * replayed.
+	 *
+	 * @param pdn	the game being read.
+	 * @param text	the token with the move.
+	 */
+	private static void readMove(PdnGame pdn, CharSequence text) {
+
+		// Only replay up to the first illegal move
+		if (!pdn.isValid()) {
+			return;
+		}
+
+		// Parse the squares, skipping any move number (e.g. "12." or "12...")
+		int n = text.length(), i = 0;
+		int dot = lastIndexOf(text, '.');
+		if (dot >= 0) {
+			i = dot + 1;
+		}
+		long path = MovePath.NONE;
+		boolean isSkip = false, hasStart = false;
+		int square = 0, digits = 0;
+		for (; i <= n; i ++) {
+			char c = (i < n)? text.charAt(i) : ' ';
+			if (c >= '0' && c <= '9') {
+				square = square * 10 + (c - '0');
+				digits ++;
+				continue;
+			}
+
+			// Add the square to the path
+			if (digits > 0) {
+				if (square < 1 || square > 32) {
+					pdn.setInvalidTurn(text.toString());
+					return;
+				}
+				path = hasStart? MovePath.append(path, square - 1) : square - 1;
+				hasStart = true;
+				square = 0;
+				digits = 0;
+			}
+			if (c == 'x' || c == 'X' || c == ':') {
+				isSkip = true;
+			} else if (c != '-') {
+				break;
+			}
+		}
+
+		// Not a move (e.g. only a move number or an annotation)
+		if (MovePath.getLength(path) == 0) {
+			return;
+		}
+
+		// Find the legal turn it refers to
+		Game game = pdn.getGame();
+		long turn = findTurn(game.getTurns(), path, isSkip);
+		if (turn == MovePath.NONE || !game.move(turn)) {
+			pdn.setInvalidTurn(text.toString());
+			return;
+		}
+		pdn.setTurns(pdn.getTurns() + 1);
+	}
+
+	/**
+	 * Finds the legal turn that matches a path from the movetext. A skip
+	 * matches a turn with the same squares, or if only some squares are
+	 * given, a turn that starts and ends on the same squares.
+	 *
+	 * @param turns		the legal turns.
+	 * @param path		the path from the movetext.
+	 * @param isSkip	the flag indicating if the path was written as a skip.
+	 * @return the matching turn, or {@link MovePath#NONE} if none match.
+	 */
+	private static long findTurn(long[] turns, long path, boolean isSkip) {
+		long match = MovePath.NONE;
+		for (long turn : turns) {
+			if (turn == path) {
+				return turn;
+			}
+			if (match == MovePath.NONE && isSkip == MovePath.isSkip(turn) &&
+					MovePath.getStart(turn) == MovePath.getStart(path) &&
+					MovePath.getEnd(turn) == MovePath.getEnd(path)) {
+				match = turn;
+			}
+		}
+		return match;
+	}
+
+	/**
+	 * Creates a game from the value of a "FEN" tag (e.g.
+	 * "B:W21,22,K30:B1,2,3").
+	 *
+	 * @param fen	the FEN.
+	 * @return the game at the position, or null if the FEN is invalid.
+	 */
+	public static Game parseFen(String fen) {
+
+		// Get the player to move
+		String[] parts = fen.replace(" ", "").replace(".", "").split(":");
+		if (parts.length < 1 || parts[0].isEmpty()) {
+			return null;
+		}
+		boolean isP1Turn = Character.toUpperCase(parts[0].charAt(0)) == 'B';
+
+		// Get the pieces of each player
+		int black = 0, white = 0, kings = 0;
+		for (int i = 1; i < parts.length; i ++) {
+			if (parts[i].isEmpty()) {
+				continue;
+			}
+			boolean isBlack = Character.toUpperCase(parts[i].charAt(0)) == 'B';
+			for (String sq : parts[i].substring(1).split(",")) {
+				if (sq.isEmpty()) {
+					continue;
+				}
+				boolean isKing = Character.toUpperCase(sq.charAt(0)) == 'K';
+				try {
+					int index = Integer.parseInt(isKing?
+							sq.substring(1) : sq) - 1;
+					if (!Board.isValidIndex(index)) {
+						return null;
+					}
+					if (isBlack) {
+						black |= 1 << index;
+					} else {
+						white |= 1 << index;
+					}
+					if (isKing) {
+						kings |= 1 << index;
+					}
+				} catch (NumberFormatException e) {
+					return null;
+				}
+			}
+		}
+
+		Board b = new Board();
+		b.setMasks(black, white & ~black, kings);
+		return new Game(b, isP1Turn, -1);
+	}
+
+	/**
+	 * Checks if a token is a game result (e.g. "1-0" or "*").
+	 *
+	 * @param text	the token.
+	 * @return true if the token is a result.
+	 */
+	private static boolean isResult(CharSequence text) {
+		String s = text.toString();
+		return s.equals("*") || s.equals(PdnWriter.RESULT_P1_WIN) ||
+				s.equals(PdnWriter.RESULT_P2_WIN) ||
+				s.equals(PdnWriter.RESULT_DRAW) || s.equals("2-0") ||
+				s.equals("0-2") || s.equals("1-1") || s.equals("0-0");
+	}
+
+	/**
+	 * Gets the index of the last occurrence of a character.
+	 *
+	 * @param text	the text to search.
+	 * @param c		the character to find.
+	 * @return the index, or -1 if the character does not occur.
+	 */
+	private static int lastIndexOf(CharSequence text, char c) {
+		for (int i = text.length() - 1; i >= 0; i --) {
+			if (text.charAt(i) == c) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Skips characters until after the specified character.
+	 *
+	 * @param end	the last character to skip.
+	 * @throws IOException if the characters could not be read.
+	 */
+	private void skipUntil(char end) throws IOException {
+		int c;
+		while ((c = reader.read()) >= 0 && c != end) {}
+	}
+
+	/**
+	 * Skips a variation after the opening "(", including any nested
+	 * variations.
+	 *
+	 * @throws IOException if the characters could not be read.
+	 */
+	private void skipVariation() throws IOException {
+		int depth = 1, c;
+		while (depth > 0 && (c = reader.read()) >= 0) {
+			if (c == '(') {
+				depth ++;
+			} else if (c == ')') {
+				depth --;
+			} else if (c == '{') {
+				skipUntil('}');
+			}
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		this.reader.close();
+	}
+
+	/**
+	 * Reads every game in a file on multiple threads. The file is split into
+	 * chunks that start at the beginning of a game (a tag after a blank
+	 * line), and each chunk is read with its own {@code PdnReader}. The
+	 * consumer is called from the reading threads and must be thread-safe.
+	 *
+	 * @param file		the PDN file.
+	 * @param threads	the number of threads to use.
+	 * @param consumer	the consumer of each game.
+	 * @return the number of games read.
+	 * @throws IOException if the file could not be read.
+	 */
+	public static long parse(Path file, int threads,
+			Consumer<PdnGame> consumer) throws IOException {
+
+		threads = Math.max(1, threads);
+		try (FileChannel ch = FileChannel.open(file,
+				StandardOpenOption.READ)) {
+
+			// Find where each chunk starts
+			long size = ch.size();
+			int chunks = (int) Math.max(1, Math.min(threads * 4L,
+					size / READ_SIZE));
+			long[] starts = new long[chunks + 1];
+			for (int i = 1; i < chunks; i ++) {
+				starts[i] = Math.max(starts[i - 1],
+						findGameStart(ch, size * i / chunks));
+			}
+			starts[chunks] = size;
+
+			// Read each chunk
+			LongAdder games = new LongAdder();
+			ExecutorService executor = Executors.newFixedThreadPool(threads);
+			try {
+				List<Future<?>> tasks = new ArrayList<>();
+				for (int i = 0; i < chunks; i ++) {
+					final long start = starts[i], end = starts[i + 1];
+					tasks.add(executor.submit(() -> {
+						Reader r = new InputStreamReader(new ChunkInputStream(
+								ch, start, end), StandardCharsets.ISO_8859_1);
+						PdnReader pdn = new PdnReader(r);
+						PdnGame game;
+						while ((game = pdn.next()) != null) {
+							games.increment();
+							consumer.accept(game);
+						}
+						return null;
+					}));
+				}
+				for (Future<?> task : tasks) {
+					task.get();
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} catch (ExecutionException e) {
+				Throwable cause = e.getCause();
+				throw (cause instanceof IOException)?
+						(IOException) cause : new IOException(cause);
+			} finally {
+				executor.shutdownNow();
+			}
+
+			return games.sum();
+		}
+	}
+
+	/**
+	 * Finds the start of the first game at or after a position in a file,
+	 * which is a "[" after a blank line.
+	 *
+	 * @param ch	the file.
+	 * @param from	the position to search from.
+	 * @return the position of the start of the game, or the size of the file
+	 * if there are no more games.
+	 * @throws IOException if the file could not be read.
+	 */
+	private static long findGameStart(FileChannel ch, long from)
+			throws IOException {
+
+		ByteBuffer buf = ByteBuffer.allocate(READ_SIZE);
+		long position = from;
+		int newLines = 0;
+		while (ch.read(buf, position) > 0) {
+			buf.flip();
+			while (buf.hasRemaining()) {
+				byte b = buf.get();
+				if (b == '\n') {
+					newLines ++;
+				} else if (b == '[' && newLines >= 2) {
+					return position + buf.position() - 1;
+				} else if (b != '\r' && b != ' ' && b != '\t') {
+					newLines = 0;
+				}
+			}
+			position += buf.limit();
+			buf.clear();
+		}
+
+		return ch.size();
+	}
+
+	/**
+	 * Reads a file, reporting the number of games read per second.
+	 * <p>
+	 * Usage: {@code java storage.PdnReader file [threads]}, where the default
+	 * number of threads is the number of processors.
+	 *
+	 * @param args	the file and number of threads.
+	 * @throws IOException if the file could not be read.
+	 */
+	public static void main(String[] args) throws IOException {
+
+		if (args.length < 1) {
+			System.out.println("Usage: java storage.PdnReader file [threads]");
+			return;
+		}
+		int threads = args.length > 1? Integer.parseInt(args[1]) :
+			Runtime.getRuntime().availableProcessors();
+
+		// Read the games
+		LongAdder invalid = new LongAdder(), turns = new LongAdder();
+		long time = System.nanoTime();
+		long games = parse(Path.of(args[0]), threads, game -> {
+			turns.add(game.getTurns());
+			if (!game.isValid()) {
+				invalid.increment();
+			}
+		});
+		double seconds = (System.nanoTime() - time) / 1e9;
+
+		// Show the results
+		System.out.printf("Read %d games (%d turns, %d invalid) on %d threads"
+				+ " in %.3f s (%.0f games/s)%n", games, turns.sum(),
+				invalid.sum(), threads, seconds, games / seconds);
+	}
+
+	/**
+	 * The {@code ChunkInputStream} class reads part of a file with
+	 * positional reads, so many chunks can be read from the same channel at
+	 * once.
+	 */
+	private static class ChunkInputStream extends InputStream {
+
+		/** The file being read. */
+		private final FileChannel ch;
+
+		/** The bytes read from the file that have not been returned yet. */
+		private final ByteBuffer buf = ByteBuffer.allocate(READ_SIZE);
+
+		/** The position of the next read from the file. */
+		private long position;
+
+		/** The position of the end of the chunk. */
+		private final long end;
+
+		public ChunkInputStream(FileChannel ch, long start, long end) {
+			this.ch = ch;
+			this.position = start;
+			this.end = end;
+			this.buf.limit(0);
+		}
+
+		@Override
+		public int read() throws IOException {
+			if (!fill()) {
+				return -1;
+			}
+			return buf.get() & 0xFF;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			if (len == 0) {
+				return 0;
+			} else if (!fill()) {
+				return -1;
+			}
+			len = Math.min(len, buf.remaining());
+			this.buf.get(b, off, len);
+			return len;
+		}
+
+		/**
+		 * Reads more of the chunk into the buffer if it is empty.
+		 *
+		 * @return true if there are bytes in the buffer.
+		 * @throws IOException if the file could not be read.
+		 */
+		private boolean fill() throws IOException {
+			if (buf.hasRemaining()) {
+				return true;
+			}
+			if (position >= end) {
+				return false;
+			}
+			this.buf.clear();
+			this.buf.limit((int) Math.min(buf.capacity(), end - position));
+			int n = ch.read(buf, position);
+			this.buf.flip();
+			if (n <= 0) {
+				return false;
+			}
+			this.position += n;
+			return true;
+		}
+	}
+}
@@ -0,0 +1,258 @@
+/* Name: PdnWriter
+ * Author: Devon McGrath
+ * Description: This class writes games in Portable Draughts Notation (PDN).
+ */
+
+package storage;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+import logic.MovePath;
+import model.Board;
+import model.Game;
+
+/**
+ * The {@code PdnWriter} class writes games in Portable Draughts Notation
+ * (PDN), the standard text format for checkers game collections. Each game is
+ * written as a list of tags followed by the movetext, with a blank line
+ * between games.
+ * <p>
+ * Squares are numbered from 1 to 32 in the same order as the board indices
+ * (square {@code n} is index {@code n - 1}), so black starts on squares 1 to
+ * 12. A regular move is written as "11-15" and a chain of skips as
+ * "15x24x31". Results are written from the point of view of player 1 (black),
+ * who moves first, so "1-0" means player 1 won.
+ */
+public class PdnWriter implements Closeable {
+
+	/** The result when player 1 (black) won. */
+	public static final String RESULT_P1_WIN = "1-0";
+
+	/** The result when player 2 (white) won. */
+	public static final String RESULT_P2_WIN = "0-1";
+
+	/** The result when the game was a draw. */
+	public static final String RESULT_DRAW = "1/2-1/2";
+
+	/** The result when the game is not over. */
+	public static final String RESULT_UNKNOWN = "*";
+
+	/** The PDN game type of English draughts (checkers). */
+	public static final String GAME_TYPE = "21";
+
+	/** The maximum number of characters in a line of movetext. */
+	private static final int LINE_LENGTH = 79;
+
+	/** The writer the games are written to. */
+	private final Writer writer;
+
+	public PdnWriter(Writer writer) {
+		this.writer = writer;
+	}
+
+	/**
+	 * Writes a game with the standard tags.
+	 *
+	 * @param game	the game to write.
+	 * @throws IOException if the game could not be written.
+	 */
+	public void write(Game game) throws IOException {
+		write(game, null);
+	}
+
+	/**
+	 * Writes a game with the specified tags. The "GameType", "Result" and (if
+	 * the game did not start from the initial position) "FEN" tags are added
+	 * automatically.
+	 *
+	 * @param game	the game to write.
+	 * @param tags	the tags to write before the movetext, or null.
+	 * @throws IOException if the game could not be written.
+	 */
+	public void write(Game game, Map<String, String> tags) throws IOException {
+		this.writer.write(toPdn(game, tags));
+		this.writer.write('\n');
+	}
+
+	@Override
+	public void close() throws IOException {
+		this.writer.close();
+	}
+
+	/**
+	 * Creates the PDN text of a game.
+	 *
+	 * @param game	the game to convert.
+	 * @param tags	the tags to write before the movetext, or null.
+	 * @return the PDN text of the game, ending with a new line.
+	 */
+	public static String toPdn(Game game, Map<String, String> tags) {
+
+		// Add the tags
+		StringBuilder sb = new StringBuilder();
+		String result = getResult(game);
+		Map<String, String> all = new LinkedHashMap<>();
+		if (tags != null) {
+			all.putAll(tags);
+		}
+		all.put("GameType", GAME_TYPE);
+		all.put("Result", result);
+		Game start = game.getStartPosition();
+		if (!start.getGameState().equals(new Game().getGameState())) {
+			all.put("FEN", toFen(start));
+		}
+		for (Map.Entry<String, String> tag : all.entrySet()) {
+			sb.append('[').append(tag.getKey()).append(" \"")
+					.append(tag.getValue().replace("\"", "'")).append("\"]\n");
+		}
+
+		// Add the movetext
+		long[] turns = game.getTurnHistory();
+		boolean isP1Turn = start.isP1Turn();
+		int moveNumber = 1, lineStart = sb.length();
+		for (int i = 0; i < turns.length; i ++) {
+			String token = toSquares(turns[i]);
+			if (i == 0 || isP1Turn) {
+				token = moveNumber + (isP1Turn? ". " : "... ") + token;
+			}
+			if (!isP1Turn) {
+				moveNumber ++;
+			}
+			isP1Turn = !isP1Turn;
+
+			// Wrap long lines
+			if (sb.length() - lineStart + token.length() + 1 > LINE_LENGTH) {
+				sb.append('\n');
+				lineStart = sb.length();
+			} else if (sb.length() > lineStart) {
+				sb.append(' ');
+			}
+			sb.append(token);
+		}
+		if (sb.length() - lineStart + result.length() + 1 > LINE_LENGTH) {
+			sb.append('\n');
+		} else if (sb.length() > lineStart) {
+			sb.append(' ');
+		}
+		sb.append(result).append('\n');
+
+		return sb.toString();
+	}
+
+	/**
+	 * Gets the PDN result of a game.
+	 *
+	 * @param game	the game.
+	 * @return the result (e.g. {@link #RESULT_P1_WIN}).
+	 */
+	public static String getResult(Game game) {
+		if (!game.isGameOver()) {
+			return RESULT_UNKNOWN;
+		} else if (game.isDraw()) {
+			return RESULT_DRAW;
+		}
+		return game.isP1Turn()? RESULT_P2_WIN : RESULT_P1_WIN;
+	}
+
+	/**
+	 * Converts a turn to PDN squares (e.g. "11-15" or "15x24x31").
+	 *
+	 * @param path	the turn encoded with {@link MovePath}.
+	 * @return the turn in PDN.
+	 */
+	public static String toSquares(long path) {
+		StringBuilder sb = new StringBuilder();
+		sb.append(MovePath.getStart(path) + 1);
+		char sep = MovePath.isSkip(path)? 'x' : '-';
+		int length = MovePath.getLength(path);
+		for (int i = 0; i < length; i ++) {
+			sb.append(sep).append(MovePath.getIndex(path, i) + 1);
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Creates the PDN "FEN" tag value for a position, such as
+	 * "B:W21,22,K30:B1,2,3". The first letter is the player to move, followed
+	 * by the white and black squares with kings prefixed by "K".
+	 *
+	 * @param game	the game with the position.
+	 * @return the FEN of the position.
+	 */
+	public static String toFen(Game game) {
+		Board b = game.getBoard();
+		return (game.isP1Turn()? "B" : "W")
+				+ ":W" + toFenSquares(b.getWhiteMask(), b.getKingMask())
+				+ ":B" + toFenSquares(b.getBlackMask(), b.getKingMask());
+	}
+
+	/**
+	 * Creates a comma-separated list of squares for a FEN.
+	 *
+	 * @param pieces	the mask of pieces.
+	 * @param kings		the mask of kings.
+	 * @return the list of squares.
+	 */
+	private static String toFenSquares(int pieces, int kings) {
+		StringBuilder sb = new StringBuilder();
+		while (pieces != 0) {
+			int i = Integer.numberOfTrailingZeros(pieces);
+			pieces &= pieces - 1;
+			if (sb.length() > 0) {
+				sb.append(',');
+			}
+			if ((kings & (1 << i)) != 0) {
+				sb.append('K');
+			}
+			sb.append(i + 1);
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Writes a PDN file of random games, which can be used to test the
+	 * {@link PdnReader}.
+	 * <p>
+	 * Usage: {@code java storage.PdnWriter file [games]}, where the default
+	 * is 10000 games.
+	 *
+	 * @param args	the file and number of games.
+	 * @throws IOException if the file could not be written.
+	 */
+	public static void main(String[] args) throws IOException {
+
+		if (args.length < 1) {
+			System.out.println("Usage: java storage.PdnWriter file [games]");
+			return;
+		}
+		int games = args.length > 1? Integer.parseInt(args[1]) : 10000;
+
+		// Write random games
+		Random rand = new Random(1);
+		try (BufferedWriter bw = Files.newBufferedWriter(Path.of(args[0]),
+				StandardCharsets.ISO_8859_1);
+				PdnWriter pdn = new PdnWriter(bw)) {
+			Map<String, String> tags = new LinkedHashMap<>();
+			tags.put("Black", "Random");
+			tags.put("White", "Random");
+			for (int i = 0; i < games; i ++) {
+				Game game = new Game();
+				while (!game.isGameOver()) {
+					long[] turns = game.getTurns();
+					game.move(turns[rand.nextInt(turns.length)]);
+				}
+				tags.put("Event", "Random game " + (i + 1));
+				pdn.write(game, tags);
+			}
+		}
+	}
+}
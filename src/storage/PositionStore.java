@@ -0,0 +1,309 @@
+/* Name: PositionStore
+ * Author: Devon McGrath
+ * Description: This class stores a large number of positions with their
+ * evaluations in a columnar file format.
+ */
+
+package storage;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import model.Board;
+import model.Game;
+
+/**
+ * The {@code PositionStore} class stores positions and their metadata in a
+ * directory with one file per column:
+ * <pre>
+ * black.col	int	the mask of black pieces
+ * white.col	int	the mask of white pieces
+ * kings.col	int	the mask of kings
+ * flags.col	byte	bit 0 is set if it is player 1's turn, bits 1-2 are the result
+ * eval.col	short	the evaluation of the position
+ * depth.col	byte	the depth of the evaluation, unsigned
+ * </pre>
+ * Every value is little-endian and position {@code i} is the {@code i}th
+ * value in each file. Positions are appended through buffers and scanned
+ * through memory-mapped segments of the files, with each position passed to a
+ * {@link PositionVisitor} as primitive values. A scan only reads the columns
+ * it needs: the flags are checked first, then the piece masks, and the other
+ * columns are only read for positions that match.
+ */
+public class PositionStore implements Closeable {
+
+	/** The result of a position whose game has no known result. */
+	public static final int RESULT_UNKNOWN = 0;
+
+	/** The result of a position whose game player 1 (black) won. */
+	public static final int RESULT_P1_WIN = 1;
+
+	/** The result of a position whose game player 2 (white) won. */
+	public static final int RESULT_P2_WIN = 2;
+
+	/** The result of a position whose game was a draw. */
+	public static final int RESULT_DRAW = 3;
+
+	/** The value to scan positions for either player to move. */
+	public static final int SIDE_ANY = 0;
+
+	/** The value to scan positions with player 1 to move. */
+	public static final int SIDE_P1 = 1;
+
+	/** The value to scan positions with player 2 to move. */
+	public static final int SIDE_P2 = 2;
+
+	/** The number of positions buffered before they are written. */
+	private static final int BATCH_SIZE = 1 << 14;
+
+	/** The number of positions in each memory-mapped segment of a scan. */
+	private static final int SEGMENT_SIZE = 1 << 26;
+
+	/** The names of the column files. */
+	private static final String[] COLUMNS = {"black.col", "white.col",
+			"kings.col", "flags.col", "eval.col", "depth.col"};
+
+	/** The number of bytes per position in each column. */
+	private static final int[] WIDTHS = {4, 4, 4, 1, 2, 1};
+
+	/** The column files. */
+	private final FileChannel[] channels = new FileChannel[COLUMNS.length];
+
+	/** The buffers of positions that have not been written yet. */
+	private final ByteBuffer[] buffers = new ByteBuffer[COLUMNS.length];
+
+	/** The number of positions written to the files. */
+	private long written;
+
+	/** The number of positions in the buffers. */
+	private int buffered;
+
+	/**
+	 * Opens a position store, creating the directory and files if they do not
+	 * exist. New positions are added after any positions already stored.
+	 *
+	 * @param directory	the directory with the column files.
+	 * @throws IOException if the files could not be opened.
+	 */
+	public PositionStore(Path directory) throws IOException {
+
+		Files.createDirectories(directory);
+		for (int i = 0; i < COLUMNS.length; i ++) {
+			this.channels[i] = FileChannel.open(directory.resolve(COLUMNS[i]),
+					StandardOpenOption.CREATE, StandardOpenOption.READ,
+					StandardOpenOption.WRITE);
+			this.buffers[i] = ByteBuffer.allocate(BATCH_SIZE * WIDTHS[i])
+					.order(ByteOrder.LITTLE_ENDIAN);
+		}
+
+		// Only use the positions that are complete in every column
+		long count = Long.MAX_VALUE;
+		for (int i = 0; i < COLUMNS.length; i ++) {
+			count = Math.min(count, channels[i].size() / WIDTHS[i]);
+		}
+		for (int i = 0; i < COLUMNS.length; i ++) {
+			this.channels[i].truncate(count * WIDTHS[i]);
+			this.channels[i].position(count * WIDTHS[i]);
+		}
+		this.written = count;
+	}
+
+	/**
+	 * Adds the current position of a game.
+	 *
+	 * @param game		the game with the position.
+	 * @param result	the result of the game (e.g. {@link #RESULT_DRAW}).
+	 * @param eval		the evaluation of the position.
+	 * @param depth		the depth of the evaluation.
+	 * @throws IOException if the positions could not be written.
+	 */
+	public void add(Game game, int result, int eval, int depth)
+			throws IOException {
+		Board b = game.getBoard();
+		add(b.getBlackMask(), b.getWhiteMask(), b.getKingMask(),
+				game.isP1Turn(), result, eval, depth);
+	}
+
+	/**
+	 * Adds a position.
+	 *
+	 * @param black		the mask of black pieces.
+	 * @param white		the mask of white pieces.
+	 * @param kings		the mask of kings.
+	 * @param isP1Turn	the flag indicating if it is player 1's turn.
+	 * @param result	the result of the game (e.g. {@link #RESULT_DRAW}).
+	 * @param eval		the evaluation of the position, which is limited to
+	 * the range of a short.
+	 * @param depth		the depth of the evaluation, from 0 to 255.
+	 * @throws IOException if the positions could not be written.
+	 */
+	public synchronized void add(int black, int white, int kings,
+			boolean isP1Turn, int result, int eval, int depth)
+			throws IOException {
+
+		eval = Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, eval));
+		this.buffers[0].putInt(black);
+		this.buffers[1].putInt(white);
+		this.buffers[2].putInt(kings & (black | white));
+		this.buffers[3].put((byte) ((isP1Turn? 1 : 0) | (result & 3) << 1));
+		this.buffers[4].putShort((short) eval);
+		this.buffers[5].put((byte) Math.max(0, Math.min(255, depth)));
+		if (++ buffered == BATCH_SIZE) {
+			flush();
+		}
+	}
+
+	/**
+	 * Writes the buffered positions to the files.
+	 *
+	 * @throws IOException if the positions could not be written.
+	 */
+	public synchronized void flush() throws IOException {
+		if (buffered == 0) {
+			return;
+		}
+		for (int i = 0; i < COLUMNS.length; i ++) {
+			ByteBuffer buf = buffers[i];
+			buf.flip();
+			while (buf.hasRemaining()) {
+				this.channels[i].write(buf);
+			}
+			buf.clear();
+		}
+		this.written += buffered;
+		this.buffered = 0;
+	}
+
+	/**
+	 * Scans every position in the store.
+	 *
+	 * @param visitor	the visitor to pass each position to.
+	 * @return the number of positions scanned.
+	 * @throws IOException if the files could not be read.
+	 */
+	public long scan(PositionVisitor visitor) throws IOException {
+		return scan(0, 24, SIDE_ANY, visitor);
+	}
+
+	/**
+	 * Scans the positions in the store that match a filter. Any buffered
+	 * positions are written first.
+	 *
+	 * @param minPieces		the minimum number of pieces on the board.
+	 * @param maxPieces		the maximum number of pieces on the board.
+	 * @param sideToMove	the player to move ({@link #SIDE_ANY},
+	 * {@link #SIDE_P1} or {@link #SIDE_P2}).
+	 * @param visitor		the visitor to pass each matching position to.
+	 * @return the number of positions that matched.
+	 * @throws IOException if the files could not be read.
+	 */
+	public long scan(int minPieces, int maxPieces, int sideToMove,
+			PositionVisitor visitor) throws IOException {
+
+		long size;
+		synchronized (this) {
+			flush();
+			size = written;
+		}
+
+		// Scan each segment
+		long matches = 0;
+		MappedByteBuffer[] cols = new MappedByteBuffer[COLUMNS.length];
+		for (long start = 0; start < size; start += SEGMENT_SIZE) {
+			int n = (int) Math.min(SEGMENT_SIZE, size - start);
+			for (int c = 0; c < COLUMNS.length; c ++) {
+				cols[c] = channels[c].map(FileChannel.MapMode.READ_ONLY,
+						start * WIDTHS[c], (long) n * WIDTHS[c]);
+				cols[c].order(ByteOrder.LITTLE_ENDIAN);
+			}
+
+			// Check each position in the segment
+			MappedByteBuffer blackCol = cols[0], whiteCol = cols[1];
+			MappedByteBuffer flagsCol = cols[3];
+			for (int i = 0; i < n; i ++) {
+				int flags = flagsCol.get(i);
+				if (sideToMove != SIDE_ANY &&
+						((flags & 1) == 1) != (sideToMove == SIDE_P1)) {
+					continue;
+				}
+				int black = blackCol.getInt(i << 2);
+				int white = whiteCol.getInt(i << 2);
+				int pieces = Integer.bitCount(black | white);
+				if (pieces < minPieces || pieces > maxPieces) {
+					continue;
+				}
+				matches ++;
+				visitor.visit(start + i, black, white, cols[2].getInt(i << 2),
+						flags, cols[4].getShort(i << 1), cols[5].get(i) & 0xFF);
+			}
+		}
+
+		return matches;
+	}
+
+	/**
+	 * Gets the number of positions in the store, including any that are
+	 * buffered.
+	 *
+	 * @return the number of positions.
+	 */
+	public synchronized long size() {
+		return written + buffered;
+	}
+
+	/**
+	 * Writes any buffered positions and closes the files.
+	 *
+	 * @throws IOException if the positions could not be written.
+	 */
+	@Override
+	public synchronized void close() throws IOException {
+		flush();
+		for (FileChannel ch : channels) {
+			ch.close();
+		}
+	}
+
+	/**
+	 * Checks if it is player 1's turn in a position.
+	 *
+	 * @param flags	the flags of the position.
+	 * @return true if it is player 1's turn.
+	 */
+	public static boolean isP1Turn(int flags) {
+		return (flags & 1) != 0;
+	}
+
+	/**
+	 * Gets the result of the game of a position.
+	 *
+	 * @param flags	the flags of the position.
+	 * @return the result (e.g. {@link #RESULT_DRAW}).
+	 */
+	public static int getResult(int flags) {
+		return (flags >> 1) & 3;
+	}
+
+	/**
+	 * Creates a game at a scanned position, for the few positions that need
+	 * to be looked at more closely.
+	 *
+	 * @param black	the mask of black pieces.
+	 * @param white	the mask of white pieces.
+	 * @param kings	the mask of kings.
+	 * @param flags	the flags of the position.
+	 * @return a game at the position.
+	 */
+	public static Game toGame(int black, int white, int kings, int flags) {
+		Board b = new Board();
+		b.setMasks(black, white, kings);
+		return new Game(b, isP1Turn(flags), -1);
+	}
+}
@@ -0,0 +1,113 @@
+/* Name: PositionStoreBenchmark
+ * Author: Devon McGrath
+ * Description: This class measures how fast positions can be added to and
+ * scanned from a position store.
+ */
+
+package storage;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import model.Board;
+import model.Game;
+
+/**
+ * The {@code PositionStoreBenchmark} class measures the write and scan
+ * throughput of a {@link PositionStore}. The positions come from random games,
+ * which are generated before the store is timed, and are then scanned once
+ * without a filter and once for endgames (8 pieces or less) with player 1 to
+ * move.
+ * <p>
+ * Usage: {@code java storage.PositionStoreBenchmark [positions] [directory]},
+ * where the defaults are 10000000 positions in a temporary directory.
+ */
+public class PositionStoreBenchmark {
+
+	/** The number of bytes stored for each position. */
+	private static final int POSITION_BYTES = 16;
+
+	public static void main(String[] args) throws IOException {
+
+		// Get the settings
+		int positions = args.length > 0? Integer.parseInt(args[0]) : 10000000;
+		Path dir = args.length > 1? Path.of(args[1]) :
+			Files.createTempDirectory("checkers-positions");
+
+		// Generate the positions of random games
+		Random rand = new Random(1);
+		int count = Math.min(positions, 1 << 20);
+		int[] black = new int[count], white = new int[count];
+		int[] kings = new int[count];
+		boolean[] isP1Turn = new boolean[count];
+		Game game = new Game();
+		for (int i = 0; i < count; i ++) {
+			if (game.isGameOver()) {
+				game = new Game();
+			}
+			Board b = game.getBoard();
+			black[i] = b.getBlackMask();
+			white[i] = b.getWhiteMask();
+			kings[i] = b.getKingMask();
+			isP1Turn[i] = game.isP1Turn();
+			long[] turns = game.getTurns();
+			game.move(turns[rand.nextInt(turns.length)]);
+		}
+
+		// Add the positions, repeating them if more are needed
+		long time = System.nanoTime();
+		try (PositionStore store = new PositionStore(dir)) {
+			for (int i = 0; i < positions; i ++) {
+				int j = i % count;
+				store.add(black[j], white[j], kings[j], isP1Turn[j],
+						i % 4, i % 2000 - 1000, i % 20);
+			}
+			store.flush();
+			double writeSeconds = (System.nanoTime() - time) / 1e9;
+			report("Added", positions, writeSeconds);
+
+			// Scan every position
+			long[] sum = new long[1];
+			PositionVisitor visitor = (index, bl, wh, ki, flags, eval, depth)
+					-> sum[0] += eval + depth;
+			time = System.nanoTime();
+			long matches = store.scan(visitor);
+			report("Scanned", matches, (System.nanoTime() - time) / 1e9);
+
+			// Scan the endgames with player 1 to move
+			time = System.nanoTime();
+			matches = store.scan(0, 8, PositionStore.SIDE_P1, visitor);
+			double scanSeconds = (System.nanoTime() - time) / 1e9;
+			System.out.printf("Found %d endgame positions with player 1 to"
+					+ " move in %.3f s (%.0f positions/s, checksum %d)%n",
+					matches, scanSeconds, positions / scanSeconds, sum[0]);
+		}
+
+		// Remove the temporary files
+		if (args.length <= 1) {
+			try (Stream<Path> files = Files.walk(dir)) {
+				files.sorted(Comparator.reverseOrder())
+						.forEach(p -> p.toFile().delete());
+			}
+		}
+	}
+
+	/**
+	 * Prints the throughput of an operation.
+	 *
+	 * @param action	the name of the operation.
+	 * @param positions	the number of positions.
+	 * @param seconds	the time the operation took.
+	 */
+	private static void report(String action, long positions,
+			double seconds) {
+		System.out.printf("%s %d positions in %.3f s (%.0f positions/s,"
+				+ " %.1f MB/s)%n", action, positions, seconds,
+				positions / seconds,
+				positions * POSITION_BYTES / 1e6 / seconds);
+	}
+}
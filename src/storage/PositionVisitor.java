@@ -0,0 +1,31 @@
+/* Name: PositionVisitor
+ * Author: Devon McGrath
+ * Description: This interface receives the positions scanned from a position
+ * store.
+ */
+
+package storage;
+
+/**
+ * The {@code PositionVisitor} interface receives each position scanned from a
+ * {@link PositionStore}. The position is passed as primitive values straight
+ * from the store's columns, so no objects are created for each position.
+ */
+public interface PositionVisitor {
+
+	/**
+	 * Called for each position that matches the scan.
+	 *
+	 * @param index		the index of the position in the store.
+	 * @param black		the mask of black pieces.
+	 * @param white		the mask of white pieces.
+	 * @param kings		the mask of kings.
+	 * @param flags		the flags with the player to move and the result.
+	 * @param eval		the evaluation of the position.
+	 * @param depth		the depth of the evaluation, from 0 to 255.
+	 * @see {@link PositionStore#isP1Turn(int)},
+	 * {@link PositionStore#getResult(int)}
+	 */
+	public void visit(long index, int black, int white, int kings, int flags,
+			short eval, int depth);
+}
@@ -0,0 +1,344 @@
+/* Name: BoardRenderer
+ * Author: Devon McGrath
+ * Description: This class draws a checker board using cached images for the
+ * tiles and the checkers.
+ */
+
+package ui;
+
+import java.awt.Color;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+
+import model.Board;
+
+/**
+ * The {@code BoardRenderer} class draws a checker board and its checkers for
+ * a component of a given size. The tiles are drawn once to an offscreen image
+ * that is only rebuilt when the size or tile colours change, and each type of
+ * checker is pre-rendered to a sprite at the current checker size. Drawing
+ * the board is then a small number of image copies.
+ * <p>
+ * Only the tiles that intersect the clip bounds of the graphics object are
+ * drawn, so repainting part of the board only costs that part.
+ */
+public class BoardRenderer {
+
+	/** The number of pixels of padding between a tile and its checker. */
+	private static final int BOX_PADDING = 4;
+
+	/** The extra pixels around a checker sprite for its shadow and outline. */
+	private static final int SPRITE_MARGIN = 3;
+
+	/** The colour used to highlight kings. */
+	private static final Color KING_HIGHLIGHT = new Color(255, 240, 0);
+
+	/** The number of pixels between the component border and the board. */
+	private final int padding;
+
+	/** The colour of the light tiles. */
+	private Color lightTile = Color.WHITE;
+
+	/** The colour of the dark tiles. */
+	private Color darkTile = Color.BLACK;
+
+	/** The width of the component the board is drawn on. */
+	private int width = -1;
+
+	/** The height of the component the board is drawn on. */
+	private int height = -1;
+
+	/** The size of each tile in pixels. */
+	private int boxSize;
+
+	/** The x-coordinate of the top-left corner of the board. */
+	private int offsetX;
+
+	/** The y-coordinate of the top-left corner of the board. */
+	private int offsetY;
+
+	/** The size of each checker in pixels. */
+	private int checkerSize;
+
+	/** The cached image of the tiles, or null if it must be rebuilt. */
+	private BufferedImage background;
+
+	/** The cached images of each type of checker, indexed by ID, or null if
+	 * they must be rebuilt. */
+	private BufferedImage[] sprites;
+
+	/**
+	 * Creates a renderer that leaves the specified padding between the border
+	 * of the component and the board.
+	 *
+	 * @param padding	the padding in pixels.
+	 */
+	public BoardRenderer(int padding) {
+		this.padding = padding;
+	}
+
+	/**
+	 * Updates the size of the component the board is drawn on. The cached
+	 * images are rebuilt only if the size changed.
+	 *
+	 * @param width		the width of the component.
+	 * @param height	the height of the component.
+	 */
+	public void setSize(int width, int height) {
+
+		// Nothing changed
+		if (width == this.width && height == this.height) {
+			return;
+		}
+
+		// Perform calculations
+		this.width = width;
+		this.height = height;
+		final int DIM = width < height? width : height;
+		this.boxSize = Math.max(0, (DIM - 2 * padding) / 8);
+		this.offsetX = (width - boxSize * 8) / 2;
+		this.offsetY = (height - boxSize * 8) / 2;
+		int size = Math.max(0, boxSize - 2 * BOX_PADDING);
+		if (size != checkerSize) {
+			this.sprites = null;
+		}
+		this.checkerSize = size;
+		this.background = null;
+	}
+
+	/**
+	 * Sets the colours of the tiles. The cached tile image is rebuilt only if
+	 * a colour changed.
+	 *
+	 * @param lightTile	the colour of the light tiles.
+	 * @param darkTile	the colour of the dark tiles.
+	 */
+	public void setTileColours(Color lightTile, Color darkTile) {
+		if (!lightTile.equals(this.lightTile) ||
+				!darkTile.equals(this.darkTile)) {
+			this.lightTile = lightTile;
+			this.darkTile = darkTile;
+			this.background = null;
+		}
+	}
+
+	/**
+	 * Draws the board, the selected tile and the checkers.
+	 *
+	 * @param g					the graphics to draw with.
+	 * @param b					the board to draw.
+	 * @param selected			the selected tile, or null if there is none.
+	 * @param selectionValid	the flag indicating if the selection is valid
+	 * (highlighted green) or not (highlighted red).
+	 */
+	public void paint(Graphics g, Board b, Point selected,
+			boolean selectionValid) {
+
+		// Nothing to draw
+		if (boxSize <= 0) {
+			return;
+		}
+
+		// Draw the tiles
+		Rectangle clip = g.getClipBounds();
+		if (background == null) {
+			this.background = createBackground();
+		}
+		g.drawImage(background, offsetX - 1, offsetY - 1, null);
+
+		// Highlight the selected tile if valid
+		if (Board.isValidPoint(selected)) {
+			g.setColor(selectionValid? Color.GREEN : Color.RED);
+			g.fillRect(offsetX + selected.x * boxSize,
+					offsetY + selected.y * boxSize, boxSize, boxSize);
+		}
+
+		// Draw the checkers
+		if (sprites == null) {
+			this.sprites = createSprites();
+		}
+		final int spriteSize = checkerSize + 2 * SPRITE_MARGIN;
+		for (int i = 0; i < 32; i ++) {
+			int id = b.get(i);
+			if (id == Board.EMPTY || id >= sprites.length ||
+					sprites[id] == null) {
+				continue;
+			}
+
+			// Only draw checkers that need to be repainted
+			Point p = Board.toPoint(i);
+			int cx = offsetX + p.x * boxSize + BOX_PADDING - SPRITE_MARGIN;
+			int cy = offsetY + p.y * boxSize + BOX_PADDING - SPRITE_MARGIN;
+			if (clip != null && !clip.intersects(
+					cx, cy, spriteSize, spriteSize)) {
+				continue;
+			}
+			g.drawImage(sprites[id], cx, cy, null);
+		}
+	}
+
+	/**
+	 * Creates the image of the board tiles and border.
+	 *
+	 * @return the image of the tiles.
+	 */
+	private BufferedImage createBackground() {
+
+		// Draw checker board
+		BufferedImage img = new BufferedImage(boxSize * 8 + 2,
+				boxSize * 8 + 2, BufferedImage.TYPE_INT_RGB);
+		Graphics g = img.getGraphics();
+		g.setColor(Color.BLACK);
+		g.drawRect(0, 0, boxSize * 8 + 1, boxSize * 8 + 1);
+		g.setColor(lightTile);
+		g.fillRect(1, 1, boxSize * 8, boxSize * 8);
+		g.setColor(darkTile);
+		for (int y = 0; y < 8; y ++) {
+			for (int x = (y + 1) % 2; x < 8; x += 2) {
+				g.fillRect(1 + x * boxSize, 1 + y * boxSize, boxSize, boxSize);
+			}
+		}
+		g.dispose();
+
+		return img;
+	}
+
+	/**
+	 * Creates an image of each type of checker at the current checker size.
+	 *
+	 * @return the images of each checker, indexed by ID.
+	 */
+	private BufferedImage[] createSprites() {
+		BufferedImage[] images = new BufferedImage[8];
+		images[Board.BLACK_CHECKER] = createSprite(Board.BLACK_CHECKER);
+		images[Board.BLACK_KING] = createSprite(Board.BLACK_KING);
+		images[Board.WHITE_CHECKER] = createSprite(Board.WHITE_CHECKER);
+		images[Board.WHITE_KING] = createSprite(Board.WHITE_KING);
+		return images;
+	}
+
+	/**
+	 * Creates the image of one type of checker.
+	 *
+	 * @param id	the ID of the checker.
+	 * @return the image of the checker with a transparent background.
+	 */
+	private BufferedImage createSprite(int id) {
+
+		final int SIZE = Math.max(1, checkerSize);
+		BufferedImage img = new BufferedImage(SIZE + 2 * SPRITE_MARGIN,
+				SIZE + 2 * SPRITE_MARGIN, BufferedImage.TYPE_INT_ARGB);
+		Graphics2D g = img.createGraphics();
+		g.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
+				RenderingHints.VALUE_ANTIALIAS_ON);
+		final int cx = SPRITE_MARGIN, cy = SPRITE_MARGIN;
+
+		// Black checker
+		if (id == Board.BLACK_CHECKER) {
+			g.setColor(Color.DARK_GRAY);
+			g.fillOval(cx + 1, cy + 2, SIZE, SIZE);
+			g.setColor(Color.LIGHT_GRAY);
+			g.drawOval(cx + 1, cy + 2, SIZE, SIZE);
+			g.setColor(Color.BLACK);
+			g.fillOval(cx, cy, SIZE, SIZE);
+			g.setColor(Color.LIGHT_GRAY);
+			g.drawOval(cx, cy, SIZE, SIZE);
+		}
+
+		// Black king
+		else if (id == Board.BLACK_KING) {
+			g.setColor(Color.DARK_GRAY);
+			g.fillOval(cx + 1, cy + 2, SIZE, SIZE);
+			g.setColor(Color.LIGHT_GRAY);
+			g.drawOval(cx + 1, cy + 2, SIZE, SIZE);
+			g.setColor(Color.DARK_GRAY);
+			g.fillOval(cx, cy, SIZE, SIZE);
+			g.setColor(Color.LIGHT_GRAY);
+			g.drawOval(cx, cy, SIZE, SIZE);
+			g.setColor(Color.BLACK);
+			g.fillOval(cx - 1, cy - 2, SIZE, SIZE);
+		}
+
+		// White checker
+		else if (id == Board.WHITE_CHECKER) {
+			g.setColor(Color.LIGHT_GRAY);
+			g.fillOval(cx + 1, cy + 2, SIZE, SIZE);
+			g.setColor(Color.DARK_GRAY);
+			g.drawOval(cx + 1, cy + 2, SIZE, SIZE);
+			g.setColor(Color.WHITE);
+			g.fillOval(cx, cy, SIZE, SIZE);
+			g.setColor(Color.DARK_GRAY);
+			g.drawOval(cx, cy, SIZE, SIZE);
+		}
+
+		// White king
+		else if (id == Board.WHITE_KING) {
+			g.setColor(Color.LIGHT_GRAY);
+			g.fillOval(cx + 1, cy + 2, SIZE, SIZE);
+			g.setColor(Color.DARK_GRAY);
+			g.drawOval(cx + 1, cy + 2, SIZE, SIZE);
+			g.setColor(Color.LIGHT_GRAY);
+			g.fillOval(cx, cy, SIZE, SIZE);
+			g.setColor(Color.DARK_GRAY);
+			g.drawOval(cx, cy, SIZE, SIZE);
+			g.setColor(Color.WHITE);
+			g.fillOval(cx - 1, cy - 2, SIZE, SIZE);
+		}
+
+		// Any king (add some extra highlights)
+		if (Board.isKingChecker(id)) {
+			g.setColor(KING_HIGHLIGHT);
+			g.drawOval(cx - 1, cy - 2, SIZE, SIZE);
+			g.drawOval(cx + 1, cy, SIZE - 4, SIZE - 4);
+		}
+		g.dispose();
+
+		return img;
+	}
+
+	/**
+	 * Gets the tile that contains a point on the component.
+	 *
+	 * @param x	the x-coordinate on the component.
+	 * @param y	the y-coordinate on the component.
+	 * @return the (x, y) point of the tile on the board, which may not be on
+	 * the board if the point is outside of it.
+	 */
+	public Point getTile(int x, int y) {
+		if (boxSize <= 0) {
+			return new Point(-1, -1);
+		}
+		return new Point(Math.floorDiv(x - offsetX, boxSize),
+				Math.floorDiv(y - offsetY, boxSize));
+	}
+
+	/**
+	 * Gets the area of the component covered by a tile, including the space
+	 * a checker on the tile may be drawn in.
+	 *
+	 * @param x	the x-coordinate of the tile on the board.
+	 * @param y	the y-coordinate of the tile on the board.
+	 * @return the bounds of the tile on the component.
+	 */
+	public Rectangle getTileBounds(int x, int y) {
+		return new Rectangle(offsetX + x * boxSize - SPRITE_MARGIN,
+				offsetY + y * boxSize - SPRITE_MARGIN,
+				boxSize + 2 * SPRITE_MARGIN, boxSize + 2 * SPRITE_MARGIN);
+	}
+
+	public int getBoxSize() {
+		return boxSize;
+	}
+
+	public int getOffsetX() {
+		return offsetX;
+	}
+
+	public int getOffsetY() {
+		return offsetY;
+	}
+}
@@ -13,23 +13,35 @@ import java.awt.Font;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
 import java.awt.Point;
+import java.awt.Rectangle;
 import java.awt.RenderingHints;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 import javax.swing.JButton;
-import javax.swing.Timer;
+import javax.swing.SwingUtilities;
 
-import logic.MoveGenerator;
+import metrics.PaintEvent;
+import logic.MovePath;
 import model.Board;
 import model.Game;
+import model.GameClock;
 import model.HumanPlayer;
 import model.NetworkPlayer;
 import model.Player;
+import network.BinaryCodec;
+import network.CheckersNetworkHandler;
 import network.Command;
 import network.Session;
+import network.SpectatorBroadcaster;
 
 /**
  * The {@code CheckerBoard} class is a graphical user interface component that
@@ -42,12 +54,32 @@ public class CheckerBoard extends JButton {
 
 	private static final long serialVersionUID = -6014690893709316364L;
 	
-	/** The amount of milliseconds before a computer player takes a move. */
-	private static final int TIMER_DELAY = 1000;
+	/** The default amount of milliseconds before a computer player takes a
+	 * move. */
+	public static final int DEFAULT_PLAYER_DELAY = 1000;
+	
+	/** The threads that run non-human players, so the user interface does
+	 * not freeze while they decide on a move. */
+	private static final ScheduledExecutorService PLAYER_EXECUTOR =
+			Executors.newScheduledThreadPool(
+					Runtime.getRuntime().availableProcessors(), r -> {
+				Thread t = new Thread(r, "Checkers player");
+				t.setDaemon(true);
+				return t;
+			});
+	
+	/** The game state at the start of a new game. */
+	private static final String START_STATE = new Game().getGameState();
 	
 	/** The number of pixels of padding between this component's border and the
 	 * actual checker board that is drawn. */
 	private static final int PADDING = 16;
+	
+	/** The font used for the game over sign. */
+	private static final Font GAME_OVER_FONT = new Font("Arial", Font.BOLD, 20);
+	
+	/** The background colour of the game over sign. */
+	private static final Color GAME_OVER_BACKGROUND = new Color(240, 240, 255);
 
 	/** The game of checkers that is being played on this component. */
 	private Game game;
@@ -75,11 +107,59 @@ public class CheckerBoard extends JButton {
 	/** The colour of the dark tiles (by default, this is black). */
 	private Color darkTile;
 	
+	/** The broadcaster that sends the game state to spectators. */
+	private final SpectatorBroadcaster spectators = new SpectatorBroadcaster(
+			(int) (Math.random() * Integer.MAX_VALUE));
+	
+	/** The renderer that caches the images used to draw the board. */
+	private final BoardRenderer renderer = new BoardRenderer(PADDING);
+	
 	/** A convenience flag to check if the game is over. */
 	private boolean isGameOver;
 	
-	/** The timer to control how fast a computer player makes a move. */
-	private Timer timer;
+	/** The board as of the last repaint request, or null if the whole
+	 * component needs to be repainted. */
+	private Board paintedBoard;
+	
+	/** The selected tile as of the last repaint request. */
+	private Point paintedSelected;
+	
+	/** The selection flag as of the last repaint request. */
+	private boolean paintedSelectionValid;
+	
+	/** The player turn as of the last repaint request. */
+	private boolean paintedP1Turn;
+	
+	/** The game over flag as of the last repaint request. */
+	private boolean paintedGameOver;
+	
+	/** The amount of milliseconds before a computer player takes a move. */
+	private int playerDelay = DEFAULT_PLAYER_DELAY;
+	
+	/** The task running the current computer player, if any. */
+	private Future<?> playerTask;
+	
+	/** The ID of the current player task, which changes whenever the task is
+	 * cancelled so the results of old tasks are ignored. */
+	private int playerTaskID;
+	
+	/** The computer player pondering in the current player task, or null if
+	 * the task is not pondering. */
+	private Player ponderPlayer;
+	
+	/** The game state the computer player is pondering. */
+	private String ponderState;
+	
+	/** The clock of a timed game on a checkers server, or null. */
+	private GameClock clock;
+	
+	/** The path of the last move made on the board, which is what is sent to
+	 * a checkers server. */
+	private long lastMove = MovePath.NONE;
+	
+	/** The game state after the last move, so the move is only sent if the
+	 * game has not changed in another way since (e.g. it was restarted). */
+	private String lastMoveState;
 	
 	public CheckerBoard(CheckersWindow window) {
 		this(window, new Game(), null, null);
@@ -105,35 +185,178 @@ public class CheckerBoard extends JButton {
 	}
 	
 	/**
-	 * Checks if the game is over and redraws the component graphics.
+	 * Checks if the game is over and redraws the component graphics. This
+	 * holds the lock on this board, since checking the game fills its caches.
 	 */
-	public void update() {
+	public synchronized void update() {
 		runPlayer();
 		this.isGameOver = game.isGameOver();
-		repaint();
+		spectators.broadcast(game.getGameState());
+		repaintChanges();
+	}
+	
+	/**
+	 * Repaints only the areas of this component that changed since the last
+	 * repaint request. This includes each tile with a different checker (the
+	 * start, end and skipped tiles of a move), the old and new selection and
+	 * the player turn sign. The whole component is repainted if the game is
+	 * over or the tile colours or game changed.
+	 * <p>
+	 * The renderer is only used on the event dispatch thread, so when this
+	 * is called from another thread (e.g. a network thread), the repaint is
+	 * posted to the event dispatch thread instead.
+	 */
+	private synchronized void repaintChanges() {
+		
+		// Not on the event dispatch thread
+		if (!SwingUtilities.isEventDispatchThread()) {
+			SwingUtilities.invokeLater(this::repaintChanges);
+			return;
+		}
+		
+		// Remember what is being painted
+		Board b = game.getBoard();
+		Board last = paintedBoard;
+		Point lastSelected = paintedSelected;
+		boolean lastSelectionValid = paintedSelectionValid;
+		boolean lastP1Turn = paintedP1Turn;
+		boolean lastGameOver = paintedGameOver;
+		this.paintedBoard = b;
+		this.paintedSelected = (selected == null)? null : new Point(selected);
+		this.paintedSelectionValid = selectionValid;
+		this.paintedP1Turn = game.isP1Turn();
+		this.paintedGameOver = isGameOver;
+		
+		// Everything needs to be repainted
+		if (last == null || isGameOver || lastGameOver) {
+			repaint();
+			return;
+		}
+		renderer.setSize(getWidth(), getHeight());
+		
+		// Repaint the tiles that changed
+		int changed = (last.getBlackMask() ^ b.getBlackMask()) |
+				(last.getWhiteMask() ^ b.getWhiteMask()) |
+				(last.getKingMask() ^ b.getKingMask());
+		while (changed != 0) {
+			int index = Integer.numberOfTrailingZeros(changed);
+			changed &= changed - 1;
+			repaintTile(Board.toPoint(index));
+		}
+		
+		// Repaint the selection
+		if (!Objects.equals(lastSelected, selected) ||
+				lastSelectionValid != selectionValid) {
+			repaintTile(lastSelected);
+			repaintTile(selected);
+		}
+		
+		// Repaint the player turn sign
+		if (lastP1Turn != paintedP1Turn) {
+			int y = renderer.getOffsetY() + 8 * renderer.getBoxSize();
+			repaint(0, y, getWidth(), getHeight() - y);
+		}
+	}
+	
+	/**
+	 * Repaints a single tile and the checker on it.
+	 * 
+	 * @param p	the tile on the board, or null.
+	 */
+	private void repaintTile(Point p) {
+		if (Board.isValidPoint(p)) {
+			repaint(renderer.getTileBounds(p.x, p.y));
+		}
 	}
 	
-	private void runPlayer() {
+	/**
+	 * Starts the current player on a background thread if it is a computer
+	 * player. Any player that is already running is cancelled. Once the player
+	 * has made its move, the result is applied to the game on the event
+	 * dispatch thread. If the current player is a human or network player and
+	 * the other player is a computer player, the computer player ponders
+	 * until the current player has moved. A computer player that is already
+	 * pondering the current position is left alone, so selecting tiles does
+	 * not restart its search.
+	 */
+	private synchronized void runPlayer() {
+		
+		// Keep pondering if the position has not changed
+		final Player player = getCurrentPlayer();
+		final Player other = (player == player1)? player2 : player1;
+		final String state = game.getGameState();
+		if (ponderPlayer != null && ponderPlayer == other &&
+				state.equals(ponderState)) {
+			return;
+		}
+		
+		cancelPlayer();
 		
 		// Nothing to do
-		Player player = getCurrentPlayer();
-		if (player == null || player.isHuman() ||
-				player instanceof NetworkPlayer) {
+		if (player == null || game.isGameOver()) {
 			return;
 		}
 		
-		// Set a timer to run
-		this.timer = new Timer(TIMER_DELAY, new ActionListener() {
-
-			@Override
-			public void actionPerformed(ActionEvent e) {
-				getCurrentPlayer().updateGame(game);
-				timer.stop();
-				updateNetwork();
-				update();
+		// Let a computer opponent ponder while waiting for this player
+		if (player.isHuman() || player instanceof NetworkPlayer) {
+			if (!other.isHuman() && !(other instanceof NetworkPlayer)) {
+				final Game copy = game.copy();
+				this.ponderPlayer = other;
+				this.ponderState = state;
+				this.playerTask = PLAYER_EXECUTOR.submit(
+						() -> other.ponder(copy));
 			}
-		});
-		this.timer.start();
+			return;
+		}
+		
+		// Run the player on a copy of the game after the delay
+		final int taskID = playerTaskID;
+		final Game copy = game.copy();
+		this.playerTask = PLAYER_EXECUTOR.schedule(() -> {
+			player.updateGame(copy);
+			if (!Thread.currentThread().isInterrupted()) {
+				SwingUtilities.invokeLater(
+						() -> applyPlayerMove(taskID, player, copy));
+			}
+		}, playerDelay, TimeUnit.MILLISECONDS);
+	}
+	
+	/**
+	 * Applies the move made by a computer player, unless the task was
+	 * cancelled since it was started (e.g. the game was restarted).
+	 * 
+	 * @param taskID	the ID of the task that made the move.
+	 * @param player	the player that made the move.
+	 * @param result	the game after the player made its move.
+	 */
+	private void applyPlayerMove(int taskID, Player player, Game result) {
+		
+		// Update the game if the task is still current
+		synchronized (this) {
+			if (taskID != playerTaskID || player != getCurrentPlayer()) {
+				return;
+			}
+			this.playerTask = null;
+			long path = game.findMove(result.getGameState());
+			this.game.copyFrom(result);
+			setLastMove(path);
+		}
+		updateNetwork();
+		update();
+	}
+	
+	/**
+	 * Cancels the computer player that is running, if any. The player's
+	 * thread is interrupted and any move it makes is ignored.
+	 */
+	public synchronized void cancelPlayer() {
+		this.playerTaskID ++;
+		this.ponderPlayer = null;
+		this.ponderState = null;
+		if (playerTask != null) {
+			this.playerTask.cancel(true);
+			this.playerTask = null;
+		}
 	}
 	
 	public void updateNetwork() {
@@ -153,6 +376,128 @@ public class CheckerBoard extends JButton {
 		}
 	}
 	
+	/**
+	 * Applies a move that was made on a copy of the game, unless the game
+	 * changed since the copy was made. The position and turn history of the
+	 * copy are kept, so the draw rules and the turn history still apply.
+	 * 
+	 * @param result	the copy of the game after the move.
+	 * @param expected	the game state the copy was made from.
+	 * @return true if the move was applied.
+	 */
+	public synchronized boolean applyMove(Game result, String expected) {
+		
+		// The game changed since the copy was made
+		if (!game.getGameState().equals(expected)) {
+			return false;
+		}
+		
+		// Update the game
+		cancelPlayer();
+		long path = game.findMove(result.getGameState());
+		this.game.copyFrom(result);
+		setLastMove(path);
+		spectators.broadcast(game.getGameState());
+		repaintChanges();
+		
+		return true;
+	}
+	
+	/**
+	 * Makes the move that leads from the current position to a game state,
+	 * such as a state received from a remote client. The move is made with
+	 * {@link Game#move(long)}, so the position and turn history are kept.
+	 * 
+	 * @param isPlayer1	the flag indicating if the move is by player 1.
+	 * @param newState	the game state after the move.
+	 * @return true if it is the player's turn and the state can be reached
+	 * with one legal move, which was made.
+	 * @see {@link Game#findMove(String)}
+	 */
+	public synchronized boolean applyState(boolean isPlayer1,
+			String newState) {
+		
+		// Find the move
+		if (game.isP1Turn() != isPlayer1) {
+			return false;
+		}
+		long path = game.findMove(newState);
+		
+		return path != MovePath.NONE && applyPath(isPlayer1, path);
+	}
+	
+	/**
+	 * Applies the game state in a {@link BinaryCodec} message received from a
+	 * remote client, in the same way as
+	 * {@link #applyState(boolean, String)}, but straight from the masks in
+	 * the message.
+	 * 
+	 * @param isPlayer1	the flag indicating if the state is from player 1.
+	 * @param buf		the buffer with the message.
+	 * @return true if the move was made.
+	 */
+	public synchronized boolean applyState(boolean isPlayer1, ByteBuffer buf) {
+		
+		// Find the move
+		if (game.isP1Turn() != isPlayer1) {
+			return false;
+		}
+		long path = BinaryCodec.findMove(buf, game);
+		
+		return path != MovePath.NONE && applyPath(isPlayer1, path);
+	}
+	
+	/**
+	 * Makes a move received from a remote client, if it is the player's turn
+	 * and the move is legal.
+	 * 
+	 * @param isPlayer1	the flag indicating if the move is by player 1.
+	 * @param path		the path of the move, encoded with {@link MovePath}.
+	 * @return true if the move was made.
+	 */
+	public synchronized boolean applyPath(boolean isPlayer1, long path) {
+		
+		// Not allowed to move
+		if (game.isP1Turn() != isPlayer1 || MovePath.getLength(path) == 0 ||
+				!game.isLegalMove(MovePath.getStart(path),
+						MovePath.getIndex(path, 0))) {
+			return false;
+		}
+		
+		// Make the move
+		cancelPlayer();
+		if (!game.move(path)) {
+			return false;
+		}
+		setLastMove(path);
+		spectators.broadcast(game.getGameState());
+		repaintChanges();
+		
+		return true;
+	}
+	
+	/**
+	 * Records the last move made on the board, so it can be sent to a
+	 * checkers server.
+	 * 
+	 * @param path	the path of the move, or {@link MovePath#NONE}.
+	 */
+	private void setLastMove(long path) {
+		this.lastMove = path;
+		this.lastMoveState = game.getGameState();
+	}
+	
+	/**
+	 * Replaces the game state, which also clears the position and turn
+	 * history. This should only be used to load a position that was not
+	 * reached by playing moves in this game.
+	 * 
+	 * @param testValue	the flag indicating if the current state must be the
+	 * expected state.
+	 * @param newState	the new game state.
+	 * @param expected	the expected current state.
+	 * @return true if the state was set.
+	 */
 	public synchronized boolean setGameState(boolean testValue,
 			String newState, String expected) {
 		
@@ -162,24 +507,142 @@ public class CheckerBoard extends JButton {
 		}
 		
 		// Update the game state
+		cancelPlayer();
 		this.game.setGameState(newState);
-		repaint();
+		setLastMove(MovePath.NONE);
+		spectators.broadcast(game.getGameState());
+		repaintChanges();
 		
 		return true;
 	}
 	
+	/**
+	 * Checks if the game can be restarted while playing against a remote
+	 * client. This is only allowed once the game is over or before the first
+	 * move, so neither client can throw away a game in progress.
+	 * 
+	 * @return true if the game is over or at the start position.
+	 * @see {@link #restart(String)}
+	 */
+	public synchronized boolean isRestartAllowed() {
+		return game.isGameOver() || game.getGameState().equals(START_STATE);
+	}
+	
+	/**
+	 * Restarts the game at the request of a remote client, if
+	 * {@link #isRestartAllowed()}.
+	 * 
+	 * @param startState	the game state of a new game.
+	 * @return true if the game was restarted.
+	 */
+	public synchronized boolean restart(String startState) {
+		return isRestartAllowed() && setGameState(false, startState, null);
+	}
+	
+	/**
+	 * Sends the game to a remote client. A checkers server is sent the last
+	 * move instead, since it only accepts moves, and the game is updated to
+	 * the state the server responds with.
+	 * 
+	 * @param s	the session with the remote client.
+	 */
 	public void sendGameState(Session s) {
 
 		if (s == null) {
 			return;
+		} else if (s.isServer()) {
+			sendMove(s);
+			return;
+		}
+		
+		// Send a binary update if the other client supports it
+		String host = s.getDestinationHost();
+		int port = s.getDestinationPort();
+		if (s.getVersion() >= BinaryCodec.VERSION && s.getToken() != null) {
+			ByteBuffer buf = BinaryCodec.getBuffer();
+			BinaryCodec.encode(buf, BinaryCodec.OP_UPDATE, s.getToken(), game);
+			BinaryCodec.send(host, port, buf);
+			return;
 		}
 		
 		// Create the command and send it
 		Command update = new Command(Command.COMMAND_UPDATE,
 				s.getSid(), game.getGameState());
-		String host = s.getDestinationHost();
-		int port = s.getDestinationPort();
-		update.send(host, port);
+		update.send(s);
+	}
+	
+	/**
+	 * Sends the last move to a checkers server, if nothing else changed the
+	 * game since. If the server has a different state (e.g. the move was
+	 * denied), the game is updated to match it.
+	 * 
+	 * @param s	the session with the server.
+	 */
+	private void sendMove(Session s) {
+		
+		// Get the move to send
+		long path;
+		synchronized (this) {
+			path = lastMove;
+			if (path == MovePath.NONE ||
+					!game.getGameState().equals(lastMoveState)) {
+				return;
+			}
+		}
+		
+		// Send the move
+		Command move = new Command(Command.COMMAND_MOVE, s.getSid(),
+				MovePath.toString(path));
+		String response = move.send(s);
+		
+		// Use the server's state, which comes after the error if denied
+		String[] lines = response.split("\n");
+		int i = response.startsWith(
+				CheckersNetworkHandler.RESPONSE_ACCEPTED)? 1 : 2;
+		String state = lines.length > i? lines[i] : "";
+		if (state.isEmpty()) {
+			return;
+		}
+		if (lines.length > i + 1) {
+			syncClock(lines[i + 1]);
+		}
+		synchronized (this) {
+			if (state.equals(game.getGameState()) ||
+					applyState(game.isP1Turn(), state)) {
+				return;
+			}
+			setGameState(false, state, null);
+		}
+		update();
+	}
+	
+	/**
+	 * Updates the clock from the times a checkers server sent for a timed
+	 * game, which are given to the computer players so they can budget their
+	 * time. A clock is created if the game did not have one.
+	 * 
+	 * @param times	the time player 1 and player 2 have left in milliseconds,
+	 * separated by a space (e.g. "295000 300000").
+	 */
+	public void syncClock(String times) {
+		
+		// Get the times
+		String[] parts = times.trim().split(" ");
+		long remaining1, remaining2;
+		try {
+			remaining1 = Long.parseLong(parts[0]);
+			remaining2 = Long.parseLong(parts[1]);
+		} catch (NumberFormatException | IndexOutOfBoundsException e) {
+			return;
+		}
+		
+		// Update the clock
+		GameClock c = clock;
+		if (c == null) {
+			c = new GameClock(0, 0, 0);
+			setClock(c);
+		}
+		c.set(remaining1, remaining2, game.isP1Turn());
 	}
 	
 	/**
@@ -187,122 +650,40 @@ public class CheckerBoard extends JButton {
 	 */
 	@Override
 	public void paint(Graphics g) {
+		PaintEvent event = new PaintEvent();
+		event.begin();
 		super.paint(g);
 		
 		Graphics2D g2d = (Graphics2D) g;
 		g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
 				RenderingHints.VALUE_ANTIALIAS_ON);
-		Game game = this.game.copy();
-		
-		// Perform calculations
-		final int BOX_PADDING = 4;
-		final int W = getWidth(), H = getHeight();
-		final int DIM = W < H? W : H, BOX_SIZE = (DIM - 2 * PADDING) / 8;
-		final int OFFSET_X = (W - BOX_SIZE * 8) / 2;
-		final int OFFSET_Y = (H - BOX_SIZE * 8) / 2;
-		final int CHECKER_SIZE = Math.max(0, BOX_SIZE - 2 * BOX_PADDING);
-		
-		// Draw checker board
-		g.setColor(Color.BLACK);
-		g.drawRect(OFFSET_X - 1, OFFSET_Y - 1, BOX_SIZE * 8 + 1, BOX_SIZE * 8 + 1);
-		g.setColor(lightTile);
-		g.fillRect(OFFSET_X, OFFSET_Y, BOX_SIZE * 8, BOX_SIZE * 8);
-		g.setColor(darkTile);
-		for (int y = 0; y < 8; y ++) {
-			for (int x = (y + 1) % 2; x < 8; x += 2) {
-				g.fillRect(OFFSET_X + x * BOX_SIZE, OFFSET_Y + y * BOX_SIZE,
-						BOX_SIZE, BOX_SIZE);
-			}
-		}
 		
-		// Highlight the selected tile if valid
-		if (Board.isValidPoint(selected)) {
-			g.setColor(selectionValid? Color.GREEN : Color.RED);
-			g.fillRect(OFFSET_X + selected.x * BOX_SIZE,
-					OFFSET_Y + selected.y * BOX_SIZE,
-					BOX_SIZE, BOX_SIZE);
+		// Copy what is drawn, since other threads update the game
+		Board b;
+		Point sel;
+		boolean isP1Turn, isValid, isOver, isDraw;
+		synchronized (this) {
+			b = game.getBoard();
+			sel = (selected == null)? null : new Point(selected);
+			isP1Turn = game.isP1Turn();
+			isValid = selectionValid;
+			isOver = isGameOver;
+			isDraw = isOver && game.isDraw();
 		}
 		
-		// Draw the checkers
-		Board b = game.getBoard();
-		for (int y = 0; y < 8; y ++) {
-			int cy = OFFSET_Y + y * BOX_SIZE + BOX_PADDING;
-			for (int x = (y + 1) % 2; x < 8; x += 2) {
-				int id = b.get(x, y);
-				
-				// Empty, just skip
-				if (id == Board.EMPTY) {
-					continue;
-				}
-				
-				int cx = OFFSET_X + x * BOX_SIZE + BOX_PADDING;
-				
-				// Black checker
-				if (id == Board.BLACK_CHECKER) {
-					g.setColor(Color.DARK_GRAY);
-					g.fillOval(cx + 1, cy + 2, CHECKER_SIZE, CHECKER_SIZE);
-					g.setColor(Color.LIGHT_GRAY);
-					g.drawOval(cx + 1, cy + 2, CHECKER_SIZE, CHECKER_SIZE);
-					g.setColor(Color.BLACK);
-					g.fillOval(cx, cy, CHECKER_SIZE, CHECKER_SIZE);
-					g.setColor(Color.LIGHT_GRAY);
-					g.drawOval(cx, cy, CHECKER_SIZE, CHECKER_SIZE);
-				}
-				
-				// Black king
-				else if (id == Board.BLACK_KING) {
-					g.setColor(Color.DARK_GRAY);
-					g.fillOval(cx + 1, cy + 2, CHECKER_SIZE, CHECKER_SIZE);
-					g.setColor(Color.LIGHT_GRAY);
-					g.drawOval(cx + 1, cy + 2, CHECKER_SIZE, CHECKER_SIZE);
-					g.setColor(Color.DARK_GRAY);
-					g.fillOval(cx, cy, CHECKER_SIZE, CHECKER_SIZE);
-					g.setColor(Color.LIGHT_GRAY);
-					g.drawOval(cx, cy, CHECKER_SIZE, CHECKER_SIZE);
-					g.setColor(Color.BLACK);
-					g.fillOval(cx - 1, cy - 2, CHECKER_SIZE, CHECKER_SIZE);
-				}
-				
-				// White checker
-				else if (id == Board.WHITE_CHECKER) {
-					g.setColor(Color.LIGHT_GRAY);
-					g.fillOval(cx + 1, cy + 2, CHECKER_SIZE, CHECKER_SIZE);
-					g.setColor(Color.DARK_GRAY);
-					g.drawOval(cx + 1, cy + 2, CHECKER_SIZE, CHECKER_SIZE);
-					g.setColor(Color.WHITE);
-					g.fillOval(cx, cy, CHECKER_SIZE, CHECKER_SIZE);
-					g.setColor(Color.DARK_GRAY);
-					g.drawOval(cx, cy, CHECKER_SIZE, CHECKER_SIZE);
-				}
-				
-				// White king
-				else if (id == Board.WHITE_KING) {
-					g.setColor(Color.LIGHT_GRAY);
-					g.fillOval(cx + 1, cy + 2, CHECKER_SIZE, CHECKER_SIZE);
-					g.setColor(Color.DARK_GRAY);
-					g.drawOval(cx + 1, cy + 2, CHECKER_SIZE, CHECKER_SIZE);
-					g.setColor(Color.LIGHT_GRAY);
-					g.fillOval(cx, cy, CHECKER_SIZE, CHECKER_SIZE);
-					g.setColor(Color.DARK_GRAY);
-					g.drawOval(cx, cy, CHECKER_SIZE, CHECKER_SIZE);
-					g.setColor(Color.WHITE);
-					g.fillOval(cx - 1, cy - 2, CHECKER_SIZE, CHECKER_SIZE);
-				}
-				
-				// Any king (add some extra highlights)
-				if (Board.isKingChecker(id)) {
-					g.setColor(new Color(255, 240, 0));
-					g.drawOval(cx - 1, cy - 2, CHECKER_SIZE, CHECKER_SIZE);
-					g.drawOval(cx + 1, cy, CHECKER_SIZE - 4, CHECKER_SIZE - 4);
-				}
-			}
-		}
+		// Draw the checker board and checkers
+		final int W = getWidth(), H = getHeight();
+		renderer.setSize(W, H);
+		renderer.setTileColours(lightTile, darkTile);
+		renderer.paint(g, b, sel, isValid);
+		final int BOX_SIZE = renderer.getBoxSize();
+		final int OFFSET_Y = renderer.getOffsetY();
 		
 		// Draw the player turn sign
-		String msg = game.isP1Turn()? "Player 1's turn" : "Player 2's turn";
+		String msg = isP1Turn? "Player 1's turn" : "Player 2's turn";
 		int width = g.getFontMetrics().stringWidth(msg);
-		Color back = game.isP1Turn()? Color.BLACK : Color.WHITE;
-		Color front = game.isP1Turn()? Color.WHITE : Color.BLACK;
+		Color back = isP1Turn? Color.BLACK : Color.WHITE;
+		Color front = isP1Turn? Color.WHITE : Color.BLACK;
 		g.setColor(back);
 		g.fillRect(W / 2 - width / 2 - 5, OFFSET_Y + 8 * BOX_SIZE + 2,
 				width + 10, 15);
@@ -310,17 +691,26 @@ public class CheckerBoard extends JButton {
 		g.drawString(msg, W / 2 - width / 2, OFFSET_Y + 8 * BOX_SIZE + 2 + 12);
 		
 		// Draw a game over sign
-		if (isGameOver) {
-			g.setFont(new Font("Arial", Font.BOLD, 20));
-			msg = "Game Over!";
+		if (isOver) {
+			g.setFont(GAME_OVER_FONT);
+			msg = isDraw? "Draw!" : "Game Over!";
 			width = g.getFontMetrics().stringWidth(msg);
-			g.setColor(new Color(240, 240, 255));
+			g.setColor(GAME_OVER_BACKGROUND);
 			g.fillRoundRect(W / 2 - width / 2 - 5,
 					OFFSET_Y + BOX_SIZE * 4 - 16,
 					width + 10, 30, 10, 10);
 			g.setColor(Color.RED);
 			g.drawString(msg, W / 2 - width / 2, OFFSET_Y + BOX_SIZE * 4 + 7);
 		}
+		
+		// Record the area that was painted
+		event.end();
+		if (event.shouldCommit()) {
+			Rectangle clip = g.getClipBounds();
+			event.width = clip == null? W : clip.width;
+			event.height = clip == null? H : clip.height;
+			event.commit();
+		}
 	}
 	
 	public Game getGame() {
@@ -328,7 +718,13 @@ public class CheckerBoard extends JButton {
 	}
 
 	public void setGame(Game game) {
+		cancelPlayer();
 		this.game = (game == null)? new Game() : game;
+		this.paintedBoard = null;
+	}
+
+	public SpectatorBroadcaster getSpectators() {
+		return spectators;
 	}
 
 	public CheckersWindow getWindow() {
@@ -339,12 +735,30 @@ public class CheckerBoard extends JButton {
 		this.window = window;
 	}
 
+	public GameClock getClock() {
+		return clock;
+	}
+
+	/**
+	 * Sets the clock of a timed game, which is given to both players.
+	 * 
+	 * @param clock	the clock, or null if the game is not timed.
+	 * @see {@link #syncClock(String)}
+	 */
+	public void setClock(GameClock clock) {
+		this.clock = clock;
+		this.player1.setClock(clock);
+		this.player2.setClock(clock);
+	}
+
 	public Player getPlayer1() {
 		return player1;
 	}
 
 	public void setPlayer1(Player player1) {
+		cancelPlayer();
 		this.player1 = (player1 == null)? new HumanPlayer() : player1;
+		this.player1.setClock(clock);
 		if (game.isP1Turn() && !this.player1.isHuman()) {
 			this.selected = null;
 		}
@@ -355,7 +769,9 @@ public class CheckerBoard extends JButton {
 	}
 
 	public void setPlayer2(Player player2) {
+		cancelPlayer();
 		this.player2 = (player2 == null)? new HumanPlayer() : player2;
+		this.player2.setClock(clock);
 		if (!game.isP1Turn() && !this.player2.isHuman()) {
 			this.selected = null;
 		}
@@ -364,6 +780,20 @@ public class CheckerBoard extends JButton {
 	public Player getCurrentPlayer() {
 		return game.isP1Turn()? player1 : player2;
 	}
+	
+	public int getPlayerDelay() {
+		return playerDelay;
+	}
+	
+	/**
+	 * Sets the amount of time before a computer player starts deciding on its
+	 * move, so the user can follow the game.
+	 * 
+	 * @param playerDelay	the delay in milliseconds.
+	 */
+	public void setPlayerDelay(int playerDelay) {
+		this.playerDelay = Math.max(0, playerDelay);
+	}
 
 	public Color getLightTile() {
 		return lightTile;
@@ -371,6 +801,7 @@ public class CheckerBoard extends JButton {
 
 	public void setLightTile(Color lightTile) {
 		this.lightTile = (lightTile == null)? Color.WHITE : lightTile;
+		this.paintedBoard = null;
 	}
 
 	public Color getDarkTile() {
@@ -379,6 +810,7 @@ public class CheckerBoard extends JButton {
 
 	public void setDarkTile(Color darkTile) {
 		this.darkTile = (darkTile == null)? Color.BLACK : darkTile;
+		this.paintedBoard = null;
 	}
 
 	/**
@@ -397,24 +829,21 @@ public class CheckerBoard extends JButton {
 			return;
 		}
 		
-		Game copy = game.copy();
+		Game copy;
+		synchronized (this) {
+			copy = game.copy();
+		}
 		
 		// Determine what square (if any) was selected
-		final int W = getWidth(), H = getHeight();
-		final int DIM = W < H? W : H, BOX_SIZE = (DIM - 2 * PADDING) / 8;
-		final int OFFSET_X = (W - BOX_SIZE * 8) / 2;
-		final int OFFSET_Y = (H - BOX_SIZE * 8) / 2;
-		x = (x - OFFSET_X) / BOX_SIZE;
-		y = (y - OFFSET_Y) / BOX_SIZE;
-		Point sel = new Point(x, y);
+		renderer.setSize(getWidth(), getHeight());
+		Point sel = renderer.getTile(x, y);
 		
 		// Determine if a move should be attempted
 		if (Board.isValidPoint(sel) && Board.isValidPoint(selected)) {
 			boolean change = copy.isP1Turn();
 			String expected = copy.getGameState();
 			boolean move = copy.move(selected, sel);
-			boolean updated = (move?
-					setGameState(true, copy.getGameState(), expected) : false);
+			boolean updated = move && applyMove(copy, expected);
 			if (updated) {
 				updateNetwork();
 			}
@@ -425,8 +854,7 @@ public class CheckerBoard extends JButton {
 		}
 		
 		// Check if the selection is valid
-		this.selectionValid = isValidSelection(
-				copy.getBoard(), copy.isP1Turn(), selected);
+		this.selectionValid = isValidSelection(copy, selected);
 		
 		update();
 	}
@@ -435,42 +863,13 @@ public class CheckerBoard extends JButton {
 	 * Checks if a selected point is valid in the context of the current
 	 * player's turn.
 	 * 
-	 * @param b			the current board.
-	 * @param isP1Turn	the flag indicating if it is player 1's turn.
+	 * @param game		the current game.
 	 * @param selected	the point to test.
 	 * @return true if and only if the selected point is a checker that would
 	 * be allowed to make a move in the current turn.
 	 */
-	private boolean isValidSelection(Board b, boolean isP1Turn, Point selected) {
-
-		// Trivial cases
-		int i = Board.toIndex(selected), id = b.get(i);
-		if (id == Board.EMPTY || id == Board.INVALID) { // no checker here
-			return false;
-		} else if(isP1Turn ^ Board.isBlackChecker(id)) { // wrong checker
-			return false;
-		} else if (!MoveGenerator.getSkips(b, i).isEmpty()) { // skip available
-			return true;
-		} else if (MoveGenerator.getMoves(b, i).isEmpty()) { // no moves
-			return false;
-		}
-		
-		// Determine if there is a skip available for another checker
-		List<Point> points = b.find(
-				isP1Turn? Board.BLACK_CHECKER : Board.WHITE_CHECKER);
-		points.addAll(b.find(
-				isP1Turn? Board.BLACK_KING : Board.WHITE_KING));
-		for (Point p : points) {
-			int checker = Board.toIndex(p);
-			if (checker == i) {
-				continue;
-			}
-			if (!MoveGenerator.getSkips(b, checker).isEmpty()) {
-				return false;
-			}
-		}
-
-		return true;
+	private boolean isValidSelection(Game game, Point selected) {
+		return game.hasLegalMove(Board.toIndex(selected));
 	}
 
 	/**
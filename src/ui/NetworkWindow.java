@@ -12,6 +12,7 @@ import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 
 import javax.swing.JButton;
+import javax.swing.JCheckBox;
 import javax.swing.JFrame;
 import javax.swing.JLabel;
 import javax.swing.JPanel;
@@ -21,14 +22,17 @@ import javax.swing.JTextField;
  * The {@code NetworkWindow} class is used as a way to get input from the user
  * in making network connections between checkers clients. It specifies the
  * port that the client should listen on and the destination (remote) client's
- * host name or IP and port that it is listening on.
+ * host name or IP and port that it is listening on. The destination can also
+ * be a {@link network.CheckersServer}, in which case this client joins a new
+ * game on the server or the game with the ID the user entered, or looks for
+ * an opponent in the server's lobby with the user's rating and time control.
  * <p>
  * The network window can be provided with an action listener through
  * {@link #setActionListener(ActionListener)}. This action listener will get
- * invoked when either the "Listen" or "Connect" buttons are pressed. The
- * {@link ActionEvent} itself contains the network window as the source object
- * and the ID is either {@link #LISTEN_BUTTON} or {@link #CONNECT_BUTTON}
- * (depending on which button was clicked).
+ * invoked when the "Listen", "Connect" or "Find Game" buttons are pressed.
+ * The {@link ActionEvent} itself contains the network window as the source
+ * object and the ID is {@link #LISTEN_BUTTON}, {@link #CONNECT_BUTTON} or
+ * {@link #LOBBY_BUTTON} (depending on which button was clicked).
  * <p>
  * This class does not implement any network logic. It only provides an
  * interface to get the required network settings.
@@ -41,7 +45,7 @@ public class NetworkWindow extends JFrame {
 	public static final int DEFAULT_WIDTH = 480;
 	
 	/** The default height for the network window. */
-	public static final int DEFAULT_HEIGHT = 140;
+	public static final int DEFAULT_HEIGHT = 210;
 	
 	/** The default title for the network window. */
 	public static final String DEFAULT_TITLE = "Configure Network";
@@ -52,6 +56,10 @@ public class NetworkWindow extends JFrame {
 	/** The ID sent to the action listener when the listen button is clicked. */
 	public static final int LISTEN_BUTTON = 1;
 	
+	/** The ID sent to the action listener when the button to find a game (or
+	 * stop looking for one) in a server's lobby is clicked. */
+	public static final int LOBBY_BUTTON = 2;
+	
 	/** The text field for the source port. */
 	private JTextField srcPort;
 	
@@ -70,6 +78,23 @@ public class NetworkWindow extends JFrame {
 	 * {@link #destPort}. */
 	private JButton connect;
 	
+	/** The check box that is selected if the destination is a server. */
+	private JCheckBox server;
+	
+	/** The text field for the ID of the game to join on a server. */
+	private JTextField gameID;
+	
+	/** The text field for the user's rating in a server's lobby. */
+	private JTextField rating;
+	
+	/** The text field for the time control to look for (e.g. "5+3"). */
+	private JTextField timeControl;
+	
+	/** The button that is used to look for an opponent in the lobby of the
+	 * server at {@link #destHost} and {@link #destPort}, or to stop looking
+	 * for one. */
+	private JButton findGame;
+	
 	/** The panel containing all the components for this client's settings. */
 	private JPanel src;
 	
@@ -77,6 +102,12 @@ public class NetworkWindow extends JFrame {
 	 * settings. */
 	private JPanel dest;
 	
+	/** The panel containing the components for a game on a server. */
+	private JPanel serverPanel;
+	
+	/** The panel containing the components for a server's lobby. */
+	private JPanel lobbyPanel;
+	
 	/** The label to display the message on the window. */
 	private JLabel msg;
 	
@@ -133,7 +164,7 @@ public class NetworkWindow extends JFrame {
 	private void init() {
 		
 		// Setup the components
-		this.getContentPane().setLayout(new GridLayout(3, 1));
+		this.getContentPane().setLayout(new GridLayout(5, 1));
 		this.srcPort = new JTextField(4);
 		this.destHost = new JTextField(11);
 		this.destHost.setText("127.0.0.1");
@@ -142,8 +173,18 @@ public class NetworkWindow extends JFrame {
 		this.listen.addActionListener(new ButtonListener());
 		this.connect = new JButton("Connect");
 		this.connect.addActionListener(new ButtonListener());
+		this.server = new JCheckBox("Checkers server");
+		this.gameID = new JTextField(5);
+		this.rating = new JTextField(4);
+		this.rating.setText("1500");
+		this.timeControl = new JTextField(4);
+		this.timeControl.setText("5+3");
+		this.findGame = new JButton("Find Game");
+		this.findGame.addActionListener(new ButtonListener());
 		this.src = new JPanel(new FlowLayout(FlowLayout.LEFT));
 		this.dest = new JPanel(new FlowLayout(FlowLayout.LEFT));
+		this.serverPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+		this.lobbyPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
 		this.msg = new JLabel();
 		this.src.add(new JLabel("Source port:"));
 		this.src.add(srcPort);
@@ -152,6 +193,14 @@ public class NetworkWindow extends JFrame {
 		this.dest.add(destHost);
 		this.dest.add(destPort);
 		this.dest.add(connect);
+		this.serverPanel.add(server);
+		this.serverPanel.add(new JLabel("Game ID:"));
+		this.serverPanel.add(gameID);
+		this.lobbyPanel.add(new JLabel("Lobby rating:"));
+		this.lobbyPanel.add(rating);
+		this.lobbyPanel.add(new JLabel("Time control:"));
+		this.lobbyPanel.add(timeControl);
+		this.lobbyPanel.add(findGame);
 		setCanUpdateConnect(false);
 		
 		// Add tool tips
@@ -161,6 +210,13 @@ public class NetworkWindow extends JFrame {
 				+ "updates (1025 - 65535)");
 		this.destHost.setToolTipText("The destination host to send "
 				+ "updates to (e.g. localhost)");
+		this.server.setToolTipText("Connect to a checkers server instead of "
+				+ "another checkers window");
+		this.gameID.setToolTipText("The game to join on the server, or "
+				+ "blank to start a new game");
+		this.timeControl.setToolTipText("Minutes per player, then \"+\" "
+				+ "and the increment or \"d\" and the delay in seconds "
+				+ "(e.g. 5+3)");
 
 		createLayout(null);
 	}
@@ -177,6 +233,8 @@ public class NetworkWindow extends JFrame {
 		// Add the appropriate components
 		this.getContentPane().add(src);
 		this.getContentPane().add(dest);
+		this.getContentPane().add(serverPanel);
+		this.getContentPane().add(lobbyPanel);
 		this.msg.setText(msg);
 		this.getContentPane().add(this.msg);
 		this.msg.setVisible(false);
@@ -204,6 +262,24 @@ public class NetworkWindow extends JFrame {
 		this.destHost.setEnabled(canUpdate);
 		this.destPort.setEnabled(canUpdate);
 		this.connect.setEnabled(canUpdate);
+		this.server.setEnabled(canUpdate);
+		this.gameID.setEnabled(canUpdate);
+		this.rating.setEnabled(canUpdate);
+		this.timeControl.setEnabled(canUpdate);
+		this.findGame.setEnabled(canUpdate);
+	}
+	
+	/**
+	 * Updates the components while this client is looking for an opponent
+	 * in a server's lobby. The other connect components are disabled and the
+	 * "Find Game" button can be used to stop looking.
+	 * 
+	 * @param isSearching	true if this client is looking for an opponent.
+	 */
+	public void setSearching(boolean isSearching) {
+		setCanUpdateConnect(!isSearching);
+		this.findGame.setText(isSearching? "Leave Lobby" : "Find Game");
+		this.findGame.setEnabled(true);
 	}
 	
 	/**
@@ -300,6 +376,42 @@ public class NetworkWindow extends JFrame {
 		this.destPort.setText("" + port);
 	}
 	
+	/**
+	 * Checks if the user selected that the destination is a checkers server.
+	 * 
+	 * @return true if the destination is a server.
+	 */
+	public boolean isServer() {
+		return server.isSelected();
+	}
+	
+	/**
+	 * Gets the ID of the game to join on a checkers server.
+	 * 
+	 * @return the parsed game ID, or 0 if a new game should be started.
+	 */
+	public int getGameID() {
+		return parseField(gameID);
+	}
+	
+	/**
+	 * Gets the rating the user entered for a server's lobby.
+	 * 
+	 * @return the parsed rating, or 0 if it is not a number.
+	 */
+	public int getRating() {
+		return parseField(rating);
+	}
+	
+	/**
+	 * Gets the time control the user entered for a server's lobby.
+	 * 
+	 * @return the time control (e.g. "5+3").
+	 */
+	public String getTimeControl() {
+		return timeControl.getText().trim();
+	}
+	
 	/**
 	 * Gets the message text being displayed on the window.
 	 * 
@@ -358,6 +470,9 @@ public class NetworkWindow extends JFrame {
 				if (src == listen) {
 					event = new ActionEvent(NetworkWindow.this,
 							LISTEN_BUTTON, null);
+				} else if (src == findGame) {
+					event = new ActionEvent(NetworkWindow.this,
+							LOBBY_BUTTON, null);
 				} else {
 					event = new ActionEvent(NetworkWindow.this,
 							CONNECT_BUTTON, null);
@@ -15,14 +15,19 @@ import javax.swing.JButton;
 import javax.swing.JComboBox;
 import javax.swing.JLabel;
 import javax.swing.JPanel;
+import javax.swing.Timer;
 
 import model.ComputerPlayer;
+import model.GameClock;
 import model.HumanPlayer;
+import model.MCTSPlayer;
 import model.NetworkPlayer;
 import model.Player;
+import network.BinaryCodec;
 import network.CheckersNetworkHandler;
 import network.Command;
 import network.ConnectionListener;
+import network.Heartbeat;
 import network.Session;
 
 /**
@@ -57,6 +62,12 @@ public class OptionPanel extends JPanel {
 	/** The button to perform an action based on the type of player. */
 	private JButton player2Btn;
 	
+	/** The search for an opponent for player 1 in a server's lobby. */
+	private LobbySearch search1;
+	
+	/** The search for an opponent for player 2 in a server's lobby. */
+	private LobbySearch search2;
+	
 	/**
 	 * Creates a new option panel for the specified checkers window.
 	 * 
@@ -69,7 +80,8 @@ public class OptionPanel extends JPanel {
 		
 		// Initialize the components
 		OptionListener ol = new OptionListener();
-		final String[] playerTypeOpts = {"Human", "Computer", "Network"};
+		final String[] playerTypeOpts = {"Human", "Computer", "Computer (MCTS)",
+				"Network"};
 		this.restartBtn = new JButton("Restart");
 		this.player1Opts = new JComboBox<>(playerTypeOpts);
 		this.player2Opts = new JComboBox<>(playerTypeOpts);
@@ -177,9 +189,16 @@ public class OptionPanel extends JPanel {
 				destHost = "127.0.0.1";
 			}
 			
-			// Connect to the proposed host
+			// Connect to the proposed host, which joins a server's game as the
+			// player on this client (i.e. not the network player)
+			boolean isServer = win.isServer();
+			int gameID = win.getGameID();
+			String player = isServer? (isPlayer1? "2" : "1") :
+				(isPlayer1? "1" : "0");
 			Command connect = new Command(Command.COMMAND_CONNECT,
-					win.getSourcePort() + "", isPlayer1? "1" : "0");
+					win.getSourcePort() + "", player,
+					"" + BinaryCodec.VERSION,
+					isServer && gameID > 0? "" + gameID : null);
 			String response = connect.send(destHost, destPort);
 			
 			// No response
@@ -201,25 +220,7 @@ public class OptionPanel extends JPanel {
 			
 			// The connection was accepted by the checkers client
 			else if (response.startsWith(CheckersNetworkHandler.RESPONSE_ACCEPTED)){
-				
-				// Update the session
-				s.setDestinationHost(destHost);
-				s.setDestinationPort(destPort);
-				win.setMessage("  Successfully started a session with " +
-						destHost + ":" + destPort + ".");
-				win.setCanUpdateConnect(false);
-								
-				// Update the SID
-				String[] lines = response.split("\n");
-				String sid = lines.length > 1? lines[1] : "";
-				s.setSid(sid);
-				
-				// Get the new game state
-				Command get = new Command(Command.COMMAND_GET, sid, null);
-				response = get.send(destHost, destPort);
-				lines = response.split("\n");
-				String state = lines.length > 1? lines[1] : "";
-				window.setGameState(state);
+				startSession(win, s, destHost, destPort, response, null);
 			}
 			
 			// General error, maybe the user tried a web server and
@@ -229,6 +230,125 @@ public class OptionPanel extends JPanel {
 						+ "port that isn't running a checkers client.");
 			}
 		}
+		
+		// Look for an opponent in a server's lobby, or stop looking
+		else if (e.getID() == NetworkWindow.LOBBY_BUTTON) {
+			
+			// Already looking
+			LobbySearch search = isPlayer1? search1 : search2;
+			if (search != null) {
+				search.cancel();
+				return;
+			}
+			
+			// Validate the port, host and time control
+			if (destPort < 1025 || destPort > 65535) {
+				win.setMessage("  Error: destination port must be "
+						+ "between 1025 and 65535. ");
+				return;
+			}
+			if (destHost == null || destHost.isEmpty()) {
+				destHost = "127.0.0.1";
+			}
+			String timeControl = win.getTimeControl();
+			if (GameClock.parse(timeControl) == null) {
+				win.setMessage("  Error: invalid time control '"
+						+ timeControl + "'.");
+				return;
+			}
+			
+			// Join the lobby as the player on this client
+			Command queue = new Command(Command.COMMAND_QUEUE,
+					"" + win.getRating(), timeControl,
+					"" + BinaryCodec.VERSION, "" + win.getSourcePort(),
+					isPlayer1? "2" : "1");
+			String response = queue.send(destHost, destPort);
+			String[] lines = response.split("\n");
+			if (!response.startsWith(
+					CheckersNetworkHandler.RESPONSE_ACCEPTED)) {
+				win.setMessage("  " + (lines.length > 1? lines[1] :
+					"Error: could not join the lobby at " + destHost + ":"
+					+ destPort + "."));
+			} else if (lines.length > 4) {
+				startSession(win, s, destHost, destPort, response,
+						timeControl);
+			} else if (lines.length > 1) {
+				search = new LobbySearch(win, s, destHost, destPort,
+						lines[1], timeControl);
+				if (isPlayer1) {
+					this.search1 = search;
+				} else {
+					this.search2 = search;
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Starts a session with a remote client or a game on a checkers server,
+	 * after it accepted this client, and gets the game state from it.
+	 * 
+	 * @param win			the network window for the session.
+	 * @param s				the session.
+	 * @param destHost		the host of the remote client.
+	 * @param destPort		the port of the remote client.
+	 * @param response		the response to {@code CONNECT} (or the lobby's
+	 * response once an opponent was found).
+	 * @param timeControl	the time control of a game from the lobby, or
+	 * null if the game is not timed.
+	 */
+	private void startSession(NetworkWindow win, Session s, String destHost,
+			int destPort, String response, String timeControl) {
+		
+		// Update the session
+		s.setDestinationHost(destHost);
+		s.setDestinationPort(destPort);
+		win.setMessage("  Successfully started a session with " +
+				destHost + ":" + destPort + ".");
+		win.setCanUpdateConnect(false);
+						
+		// Update the SID
+		String[] lines = response.split("\n");
+		String sid = lines.length > 1? lines[1] : "";
+		s.setSid(sid);
+		
+		// Use the binary protocol if the other client supports it
+		s.setVersion(1);
+		if (lines.length > 3) {
+			try {
+				s.setVersion(Integer.parseInt(lines[3]));
+			} catch (NumberFormatException err) {}
+		}
+		
+		// Only send moves if it is a game on a server
+		s.setGameID(0);
+		if (lines.length > 4) {
+			try {
+				s.setGameID(Integer.parseInt(lines[4].trim()));
+			} catch (NumberFormatException err) {}
+			win.setMessage("  " + lines[2]);
+		}
+		
+		// Keep the session alive and end it if the other client is gone
+		Heartbeat.start(s, () -> {
+			s.setSid(null);
+			s.setVersion(1);
+			s.setGameID(0);
+			win.setCanUpdateConnect(true);
+			win.setMessage("  Error: the connection timed out.");
+		});
+		
+		// Get the new game state
+		Command get = new Command(Command.COMMAND_GET, sid, null);
+		response = get.send(s);
+		lines = response.split("\n");
+		String state = lines.length > 1? lines[1] : "";
+		window.setGameState(state);
+		window.getBoard().setClock(GameClock.parse(timeControl));
+		if (lines.length > 2) {
+			window.getBoard().syncClock(lines[2]);
+		}
+		window.getBoard().update();
 	}
 	
 	/**
@@ -250,6 +370,8 @@ public class OptionPanel extends JPanel {
 		String type = "" + playerOpts.getSelectedItem();
 		if (type.equals("Computer")) {
 			player = new ComputerPlayer();
+		} else if (type.equals("Computer (MCTS)")) {
+			player = new MCTSPlayer();
 		} else if (type.equals("Network")) {
 			player = new NetworkPlayer();
 		}
@@ -257,6 +379,28 @@ public class OptionPanel extends JPanel {
 		return player;
 	}
 	
+	/**
+	 * Restarts the game and sends the new game to any remote clients. A game
+	 * against a remote client can only be restarted once it is over or
+	 * before the first move, since the remote client would not accept it
+	 * otherwise (see {@link CheckerBoard#isRestartAllowed()}).
+	 */
+	private void restart() {
+		
+		// Check that the remote clients would accept the restart
+		CheckerBoard board = window.getBoard();
+		boolean isNetwork1 = board.getPlayer1() instanceof NetworkPlayer;
+		boolean isNetwork2 = board.getPlayer2() instanceof NetworkPlayer;
+		if ((isNetwork1 || isNetwork2) && !board.isRestartAllowed()) {
+			setNetworkWindowMessage(isNetwork1, "  Error: a game against a "
+					+ "remote client can only be restarted once it is over.");
+			return;
+		}
+		
+		window.restart();
+		board.updateNetwork();
+	}
+	
 	/**
 	 * The {@code OptionListener} class responds to the components within the
 	 * option panel when they are clicked/updated.
@@ -278,8 +422,7 @@ public class OptionPanel extends JPanel {
 			boolean isNetwork = false, isP1 = true;
 			Session s = null;
 			if (src == restartBtn) {
-				window.restart();
-				window.getBoard().updateNetwork();
+				restart();
 			} else if (src == player1Opts) {
 				Player player = getPlayer(player1Opts);
 				window.setPlayer1(player);
@@ -307,6 +450,12 @@ public class OptionPanel extends JPanel {
 			// Update UI
 			if (btn != null) {
 				
+				// Stop looking for an opponent
+				LobbySearch search = isP1? search1 : search2;
+				if (!isNetwork && search != null) {
+					search.cancel();
+				}
+				
 				// Disconnect if required
 				String sid = s.getSid();
 				if (!isNetwork && btn.isVisible() &&
@@ -315,11 +464,12 @@ public class OptionPanel extends JPanel {
 					// Send the request
 					Command disconnect = new Command(
 							Command.COMMAND_DISCONNECT, sid);
-					disconnect.send(
-							s.getDestinationHost(), s.getDestinationPort());
+					disconnect.send(s);
 					
 					// Update the session
 					s.setSid(null);
+					s.setVersion(1);
+					s.setGameID(0);
 					NetworkWindow win = isP1? player1Net : player2Net;
 					win.setCanUpdateConnect(true);
 				}
@@ -330,4 +480,107 @@ public class OptionPanel extends JPanel {
 			}
 		}
 	}
+	
+	/**
+	 * The {@code LobbySearch} class checks if an opponent was found in a
+	 * server's lobby every {@value #POLL_INTERVAL} milliseconds, until one is
+	 * found and the session is started, or the user stops looking.
+	 */
+	private class LobbySearch implements ActionListener {
+		
+		/** The number of milliseconds between checks of the ticket. */
+		private static final int POLL_INTERVAL = 1000;
+		
+		/** The network window the search was started from. */
+		private final NetworkWindow win;
+		
+		/** The session to start once an opponent is found. */
+		private final Session session;
+		
+		/** The host of the server. */
+		private final String host;
+		
+		/** The port of the server. */
+		private final int port;
+		
+		/** The ID of the ticket from the lobby. */
+		private final String ticket;
+		
+		/** The time control of the game. */
+		private final String timeControl;
+		
+		/** The timer that checks the ticket. */
+		private final Timer timer;
+		
+		/** The {@link System#nanoTime()} when the search started. */
+		private final long start = System.nanoTime();
+		
+		public LobbySearch(NetworkWindow win, Session session, String host,
+				int port, String ticket, String timeControl) {
+			this.win = win;
+			this.session = session;
+			this.host = host;
+			this.port = port;
+			this.ticket = ticket;
+			this.timeControl = timeControl;
+			this.timer = new Timer(POLL_INTERVAL, this);
+			this.timer.start();
+			win.setSearching(true);
+			win.setMessage("  Waiting for an opponent.");
+		}
+
+		/**
+		 * Checks if an opponent was found, and starts the session if so.
+		 */
+		@Override
+		public void actionPerformed(ActionEvent e) {
+			
+			// Check the ticket
+			Command status = new Command(Command.COMMAND_QUEUE_STATUS,
+					ticket, "" + win.getSourcePort());
+			String response = status.send(host, port);
+			String[] lines = response.split("\n");
+			
+			// Still waiting
+			if (response.startsWith(CheckersNetworkHandler.RESPONSE_ACCEPTED)
+					&& lines.length <= 4) {
+				long seconds = (System.nanoTime() - start) / 1000000000L;
+				win.setMessage("  Waiting for an opponent (" + seconds
+						+ " s).");
+				return;
+			}
+			
+			// Found an opponent, or the ticket is no longer valid
+			finish();
+			if (lines.length > 4) {
+				startSession(win, session, host, port, response, timeControl);
+			} else {
+				win.setMessage("  " + (lines.length > 1? lines[1] :
+					"Error: could not reach the lobby."));
+			}
+		}
+		
+		/**
+		 * Stops looking for an opponent and leaves the lobby.
+		 */
+		public void cancel() {
+			finish();
+			Command leave = new Command(Command.COMMAND_LEAVE_QUEUE, ticket);
+			leave.send(host, port);
+			win.setMessage("  Left the lobby.");
+		}
+		
+		/**
+		 * Stops checking the ticket.
+		 */
+		private void finish() {
+			this.timer.stop();
+			this.win.setSearching(false);
+			if (search1 == this) {
+				search1 = null;
+			} else if (search2 == this) {
+				search2 = null;
+			}
+		}
+	}
 }
@@ -0,0 +1,582 @@
+/* Name: SpectatorDashboard
+ * Author: Devon McGrath
+ * Description: This class is a user interface component that shows many live
+ * checkers games at once.
+ */
+
+package ui;
+
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Font;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.swing.JFrame;
+import javax.swing.JPanel;
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+
+import model.Board;
+import model.ComputerPlayer;
+import model.Game;
+import network.ConnectionListener;
+import network.SpectatorHandler;
+import network.SpectatorListener;
+
+/**
+ * The {@code SpectatorDashboard} class is a user interface component that
+ * tiles many live checkers games in a grid. Games are added, updated and
+ * removed through the {@link SpectatorListener} methods, which can be called
+ * from any thread.
+ * <p>
+ * Updates are not drawn as they arrive. Only the latest state of each game is
+ * kept until the next frame, at which point the tiles that changed are
+ * repainted. Frames are at most {@value #FRAME_DELAY} milliseconds apart, so
+ * the whole grid is repainted at most about 60 times a second no matter how
+ * many games are updating.
+ * <p>
+ * Games on other clients or on a checkers server can be watched with
+ * {@link #spectate(String, int, int)}, which subscribes to them and receives
+ * their states through a {@link SpectatorHandler}.
+ */
+public class SpectatorDashboard extends JPanel implements SpectatorListener {
+
+	private static final long serialVersionUID = 2868468451387936458L;
+
+	/** The number of milliseconds between frames. */
+	public static final int FRAME_DELAY = 16;
+
+	/** The number of pixels of padding around each board in its tile. */
+	private static final int PADDING = 12;
+
+	/** The font used to label each board. */
+	private static final Font LABEL_FONT = new Font("Arial", Font.PLAIN, 10);
+
+	/** The font used for the game over sign. */
+	private static final Font GAME_OVER_FONT = new Font("Arial", Font.BOLD, 12);
+
+	/** The background colour of the game over sign. */
+	private static final Color GAME_OVER_BACKGROUND = new Color(240, 240, 255);
+
+	/** The state used in {@link #pending} to indicate that a game was
+	 * removed. */
+	private static final String REMOVED = "";
+
+	/** The latest state of each game that changed since the last frame. */
+	private final Map<Integer, String> pending = new ConcurrentHashMap<>();
+
+	/** The tile of each game, only used on the event dispatch thread. */
+	private final Map<Integer, Tile> tiles = new HashMap<>();
+
+	/** The tiles in the order they are drawn, only used on the event dispatch
+	 * thread. Each tile knows its index in this list. */
+	private final List<Tile> order = new ArrayList<>();
+
+	/** The listener that receives the states of the spectated games, or null
+	 * if no game was spectated yet. */
+	private ConnectionListener listener;
+
+	/** The host, port and spectator ID of each spectated game. */
+	private final List<String[]> subscriptions = new ArrayList<>();
+
+	/** The renderer used to draw every board, since they are all the same
+	 * size. */
+	private final BoardRenderer renderer = new BoardRenderer(PADDING);
+
+	/** The timer that applies the pending updates once per frame. */
+	private final Timer timer;
+
+	/** The colour of the light tiles. */
+	private Color lightTile = Color.WHITE;
+
+	/** The colour of the dark tiles. */
+	private Color darkTile = Color.BLACK;
+
+	/** The number of columns in the grid. */
+	private int columns = 1;
+
+	/** The width of each tile in pixels. */
+	private int tileWidth;
+
+	/** The height of each tile in pixels. */
+	private int tileHeight;
+
+	public SpectatorDashboard() {
+		super.setBackground(Color.LIGHT_GRAY);
+		this.timer = new Timer(FRAME_DELAY, e -> applyUpdates());
+		this.timer.setCoalesce(true);
+	}
+
+	@Override
+	public void addNotify() {
+		super.addNotify();
+		this.timer.start();
+	}
+
+	@Override
+	public void removeNotify() {
+		this.timer.stop();
+		super.removeNotify();
+	}
+
+	@Override
+	public void gameUpdated(int gameID, String state) {
+		if (state != null && !state.isEmpty()) {
+			this.pending.put(gameID, state);
+		}
+	}
+
+	@Override
+	public void gameRemoved(int gameID) {
+		this.pending.put(gameID, REMOVED);
+	}
+
+	/**
+	 * Applies the latest state of each game that changed since the last
+	 * frame and repaints the affected tiles. This must be called on the event
+	 * dispatch thread.
+	 */
+	private void applyUpdates() {
+
+		// Nothing to do
+		if (pending.isEmpty()) {
+			return;
+		}
+
+		// Apply the latest state of each game
+		boolean isLayoutChanged = false;
+		List<Tile> changed = new ArrayList<>();
+		Iterator<Integer> it = pending.keySet().iterator();
+		while (it.hasNext()) {
+			Integer gameID = it.next();
+			String state = pending.remove(gameID);
+			if (state == null) {
+				continue;
+			}
+
+			// The game was removed
+			Tile tile = tiles.get(gameID);
+			if (state.equals(REMOVED)) {
+				if (tile != null) {
+					this.tiles.remove(gameID);
+					this.order.remove(tile.index);
+					for (int i = tile.index; i < order.size(); i ++) {
+						this.order.get(i).index = i;
+					}
+					isLayoutChanged = true;
+				}
+				continue;
+			}
+
+			// The game is new
+			if (tile == null) {
+				tile = new Tile(gameID);
+				tile.index = order.size();
+				this.tiles.put(gameID, tile);
+				this.order.add(tile);
+				isLayoutChanged = true;
+			}
+			tile.setState(state);
+			changed.add(tile);
+		}
+
+		// Repaint everything if the grid changed
+		if (isLayoutChanged || updateLayout()) {
+			for (Tile tile : order) {
+				tile.clearChanges();
+			}
+			repaint();
+			return;
+		}
+
+		// Repaint the tiles that changed
+		for (Tile tile : changed) {
+			repaintChanges(tile);
+		}
+	}
+
+	/**
+	 * Updates the size of the tiles for the current component size and
+	 * number of games.
+	 *
+	 * @return true if the size of the tiles changed.
+	 */
+	private boolean updateLayout() {
+
+		// Determine the grid size
+		int n = Math.max(1, order.size());
+		int cols = (int) Math.ceil(Math.sqrt(n));
+		int rows = (n + cols - 1) / cols;
+		int w = getWidth() / cols, h = getHeight() / rows;
+		if (cols == columns && w == tileWidth && h == tileHeight) {
+			return false;
+		}
+
+		// Update the layout
+		this.columns = cols;
+		this.tileWidth = w;
+		this.tileHeight = h;
+		this.renderer.setSize(w, h);
+
+		return true;
+	}
+
+	/**
+	 * Repaints the areas of a tile that changed since it was last repainted.
+	 *
+	 * @param tile	the tile to repaint.
+	 */
+	private void repaintChanges(Tile tile) {
+
+		int i = tile.index;
+		int x = (i % columns) * tileWidth, y = (i / columns) * tileHeight;
+
+		// Repaint the whole tile
+		if (tile.isFullRepaint) {
+			repaint(x, y, tileWidth, tileHeight);
+			tile.clearChanges();
+			return;
+		}
+
+		// Repaint the board tiles that changed
+		int mask = tile.changedMask;
+		while (mask != 0) {
+			int index = Integer.numberOfTrailingZeros(mask);
+			mask &= mask - 1;
+			Point p = Board.toPoint(index);
+			Rectangle r = renderer.getTileBounds(p.x, p.y);
+			repaint(x + r.x, y + r.y, r.width, r.height);
+		}
+
+		// Repaint the label
+		if (tile.isLabelChanged) {
+			repaint(x, y, tileWidth, renderer.getOffsetY());
+		}
+		tile.clearChanges();
+	}
+
+	/**
+	 * Draws each tile that intersects the area being painted.
+	 */
+	@Override
+	public void paintComponent(Graphics g) {
+		super.paintComponent(g);
+
+		Graphics2D g2d = (Graphics2D) g;
+		g2d.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING,
+				RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+		updateLayout();
+		renderer.setTileColours(lightTile, darkTile);
+		Rectangle clip = g.getClipBounds();
+
+		// Draw each visible tile
+		int n = order.size();
+		for (int i = 0; i < n; i ++) {
+			int x = (i % columns) * tileWidth, y = (i / columns) * tileHeight;
+			if (clip != null && !clip.intersects(
+					x, y, tileWidth, tileHeight)) {
+				continue;
+			}
+			Graphics tg = g.create(x, y, tileWidth, tileHeight);
+			paintTile(tg, order.get(i));
+			tg.dispose();
+		}
+	}
+
+	/**
+	 * Draws one game in its tile.
+	 *
+	 * @param g		the graphics translated and clipped to the tile.
+	 * @param tile	the tile to draw.
+	 */
+	private void paintTile(Graphics g, Tile tile) {
+
+		// Draw the board
+		renderer.paint(g, tile.board, null, false);
+		final int BOX_SIZE = renderer.getBoxSize();
+		final int OFFSET_X = renderer.getOffsetX();
+		final int OFFSET_Y = renderer.getOffsetY();
+
+		// Draw the label with the player turn
+		g.setFont(LABEL_FONT);
+		g.setColor(tile.isP1Turn? Color.BLACK : Color.WHITE);
+		g.fillRect(OFFSET_X, OFFSET_Y - 10, 8, 8);
+		g.setColor(Color.BLACK);
+		g.drawRect(OFFSET_X, OFFSET_Y - 10, 8, 8);
+		g.drawString("Game " + tile.gameID, OFFSET_X + 12, OFFSET_Y - 2);
+
+		// Draw a game over sign
+		if (tile.isGameOver) {
+			g.setFont(GAME_OVER_FONT);
+			String msg = "Game Over!";
+			int width = g.getFontMetrics().stringWidth(msg);
+			int cx = OFFSET_X + BOX_SIZE * 4, cy = OFFSET_Y + BOX_SIZE * 4;
+			g.setColor(GAME_OVER_BACKGROUND);
+			g.fillRoundRect(cx - width / 2 - 4, cy - 10, width + 8, 20, 8, 8);
+			g.setColor(Color.RED);
+			g.drawString(msg, cx - width / 2, cy + 5);
+		}
+	}
+
+	@Override
+	public Dimension getPreferredSize() {
+		return new Dimension(800, 800);
+	}
+
+	/**
+	 * Spectates a game on another client or on a checkers server. The first
+	 * call starts a {@link ConnectionListener} that the game states are sent
+	 * to, and the current state is shown right away.
+	 *
+	 * @param host		the host of the client or server.
+	 * @param port		the port the client or server is listening on.
+	 * @param gameID	the ID of the game on a checkers server, or 0 to
+	 * spectate the game on a client.
+	 * @return true if the subscription was accepted.
+	 * @see {@link #stopSpectating()}
+	 */
+	public synchronized boolean spectate(String host, int port, int gameID) {
+
+		// Start listening for the game states
+		if (listener == null) {
+			this.listener = new ConnectionListener(0,
+					new SpectatorHandler(this));
+			this.listener.listen();
+		}
+		SpectatorHandler handler =
+				(SpectatorHandler) listener.getConnectionHandler();
+
+		// Subscribe to the game
+		int listenPort = listener.getPort();
+		String id = (gameID > 0)?
+				handler.subscribe(host, port, listenPort, gameID) :
+				handler.subscribe(host, port, listenPort);
+		if (id == null) {
+			return false;
+		}
+		this.subscriptions.add(new String[] {host, "" + port, id});
+
+		return true;
+	}
+
+	/**
+	 * Unsubscribes from every spectated game and stops listening for their
+	 * states.
+	 */
+	public synchronized void stopSpectating() {
+		for (String[] s : subscriptions) {
+			SpectatorHandler.unsubscribe(s[0], Integer.parseInt(s[1]), s[2]);
+		}
+		this.subscriptions.clear();
+		if (listener != null) {
+			this.listener.stopListening();
+			this.listener = null;
+		}
+	}
+
+	/**
+	 * Gets the number of games currently shown. This must be called on the
+	 * event dispatch thread.
+	 *
+	 * @return the number of games.
+	 */
+	public int getGameCount() {
+		return order.size();
+	}
+
+	public Color getLightTile() {
+		return lightTile;
+	}
+
+	public void setLightTile(Color lightTile) {
+		this.lightTile = (lightTile == null)? Color.WHITE : lightTile;
+		repaint();
+	}
+
+	public Color getDarkTile() {
+		return darkTile;
+	}
+
+	public void setDarkTile(Color darkTile) {
+		this.darkTile = (darkTile == null)? Color.BLACK : darkTile;
+		repaint();
+	}
+
+	/**
+	 * Shows a dashboard. If a host and port are passed, the dashboard
+	 * spectates the game on that client, or the games with the IDs that
+	 * follow on that checkers server. Otherwise, it shows a number of games
+	 * played between computer players, to demonstrate the dashboard under
+	 * load.
+	 *
+	 * @param args	the host, port and game IDs to spectate, or the number of
+	 * games (100 by default) and the milliseconds between turns in each game
+	 * (100 by default).
+	 */
+	public static void main(String[] args) {
+
+		// Create the window
+		final SpectatorDashboard dashboard = new SpectatorDashboard();
+		SwingUtilities.invokeLater(() -> {
+			JFrame window = new JFrame("Java Checkers - Spectator Dashboard");
+			window.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+			window.add(dashboard);
+			window.pack();
+			window.setLocationByPlatform(true);
+			window.setVisible(true);
+		});
+
+		// Spectate the games on another client or server
+		if (args.length > 1 && !args[0].matches("\\d+")) {
+			spectate(dashboard, args);
+			return;
+		}
+
+		// Get the settings
+		int games = 100, delay = 100;
+		try {
+			if (args.length > 0) {
+				games = Integer.parseInt(args[0]);
+			}
+			if (args.length > 1) {
+				delay = Integer.parseInt(args[1]);
+			}
+		} catch (NumberFormatException e) {
+			e.printStackTrace();
+		}
+
+		// Play the games
+		ScheduledExecutorService executor = Executors.newScheduledThreadPool(
+				Runtime.getRuntime().availableProcessors(), r -> {
+			Thread t = new Thread(r, "Dashboard game");
+			t.setDaemon(true);
+			return t;
+		});
+		for (int i = 0; i < games; i ++) {
+			final int gameID = i + 1;
+			final Game game = new Game();
+			final ComputerPlayer player1 = new ComputerPlayer();
+			final ComputerPlayer player2 = new ComputerPlayer();
+			player1.setPondering(false);
+			player2.setPondering(false);
+			dashboard.gameUpdated(gameID, game.getGameState());
+			executor.scheduleWithFixedDelay(() -> {
+				if (game.isGameOver()) {
+					game.restart();
+				} else {
+					(game.isP1Turn()? player1 : player2).updateGame(game);
+				}
+				dashboard.gameUpdated(gameID, game.getGameState());
+			}, delay, delay, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	/**
+	 * Spectates games on another client or on a checkers server, until the
+	 * program exits.
+	 *
+	 * @param dashboard	the dashboard to show the games on.
+	 * @param args		the host and port, followed by the IDs of the games
+	 * on a checkers server (none to spectate a client's game).
+	 */
+	private static void spectate(SpectatorDashboard dashboard,
+			String[] args) {
+
+		// Subscribe to the client's game, or to each game on the server
+		String host = args[0];
+		int port = Integer.parseInt(args[1]);
+		if (args.length == 2 && !dashboard.spectate(host, port, 0)) {
+			System.err.println("Could not spectate " + host + ":" + port);
+		}
+		for (int i = 2; i < args.length; i ++) {
+			int gameID = Integer.parseInt(args[i]);
+			if (!dashboard.spectate(host, port, gameID)) {
+				System.err.println("Could not spectate game " + gameID);
+			}
+		}
+		Runtime.getRuntime().addShutdownHook(
+				new Thread(dashboard::stopSpectating));
+	}
+
+	/**
+	 * The {@code Tile} class holds the last state of a game shown on the
+	 * dashboard and what changed since it was last repainted.
+	 */
+	private static class Tile {
+
+		/** The ID of the game. */
+		private final int gameID;
+
+		/** The index of the tile in the grid. */
+		private int index;
+
+		/** The current board of the game. */
+		private Board board = new Board();
+
+		/** The flag indicating if it is player 1's turn. */
+		private boolean isP1Turn = true;
+
+		/** The flag indicating if the game is over. */
+		private boolean isGameOver;
+
+		/** The board indices that changed since the last repaint. */
+		private int changedMask;
+
+		/** The flag indicating if the label changed since the last
+		 * repaint. */
+		private boolean isLabelChanged;
+
+		/** The flag indicating if the whole tile must be repainted. */
+		private boolean isFullRepaint = true;
+
+		public Tile(int gameID) {
+			this.gameID = gameID;
+		}
+
+		/**
+		 * Updates the tile to a new game state and records what changed.
+		 *
+		 * @param state	the new game state.
+		 */
+		public void setState(String state) {
+
+			Game game = new Game(state);
+			Board b = game.getBoard();
+			boolean isGameOver = game.isGameOver();
+
+			// Determine what changed
+			this.changedMask |= (board.getBlackMask() ^ b.getBlackMask()) |
+					(board.getWhiteMask() ^ b.getWhiteMask()) |
+					(board.getKingMask() ^ b.getKingMask());
+			this.isLabelChanged |= (isP1Turn != game.isP1Turn());
+			this.isFullRepaint |= (isGameOver || this.isGameOver);
+
+			// Update the state
+			this.board = b;
+			this.isP1Turn = game.isP1Turn();
+			this.isGameOver = isGameOver;
+		}
+
+		/**
+		 * Clears the record of what changed after the tile is repainted.
+		 */
+		public void clearChanges() {
+			this.changedMask = 0;
+			this.isLabelChanged = false;
+			this.isFullRepaint = false;
+		}
+	}
+}